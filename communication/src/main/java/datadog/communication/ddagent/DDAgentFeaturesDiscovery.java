@@ -72,6 +72,7 @@ public class DDAgentFeaturesDiscovery implements DroppingPolicy {
   private volatile String dataStreamsEndpoint;
   private volatile boolean supportsLongRunning;
   private volatile boolean supportsDropping;
+  private volatile boolean supportsTraceCompression;
   private volatile String state;
   private volatile String configEndpoint;
   private volatile String debuggerEndpoint;
@@ -103,6 +104,7 @@ public class DDAgentFeaturesDiscovery implements DroppingPolicy {
     metricsEndpoint = null;
     supportsDropping = false;
     supportsLongRunning = false;
+    supportsTraceCompression = false;
     state = null;
     configEndpoint = null;
     debuggerEndpoint = null;
@@ -157,6 +159,7 @@ public class DDAgentFeaturesDiscovery implements DroppingPolicy {
       if (fallback) {
         supportsDropping = false;
         supportsLongRunning = false;
+        supportsTraceCompression = false;
         log.debug("Falling back to probing, client dropping will be disabled");
         // disable metrics unless the info endpoint is present, which prevents
         // sending metrics to 7.26.0, which has a bug in reporting metric origin
@@ -174,11 +177,12 @@ public class DDAgentFeaturesDiscovery implements DroppingPolicy {
 
     if (log.isDebugEnabled()) {
       log.debug(
-          "discovered traceEndpoint={}, metricsEndpoint={}, supportsDropping={}, supportsLongRunning={}, dataStreamsEndpoint={}, configEndpoint={}, evpProxyEndpoint={}, telemetryProxyEndpoint={}",
+          "discovered traceEndpoint={}, metricsEndpoint={}, supportsDropping={}, supportsLongRunning={}, supportsTraceCompression={}, dataStreamsEndpoint={}, configEndpoint={}, evpProxyEndpoint={}, telemetryProxyEndpoint={}",
           traceEndpoint,
           metricsEndpoint,
           supportsDropping,
           supportsLongRunning,
+          supportsTraceCompression,
           dataStreamsEndpoint,
           configEndpoint,
           evpProxyEndpoint,
@@ -271,6 +275,7 @@ public class DDAgentFeaturesDiscovery implements DroppingPolicy {
       }
 
       supportsLongRunning = Boolean.TRUE.equals(map.getOrDefault("long_running_spans", false));
+      supportsTraceCompression = Boolean.TRUE.equals(map.getOrDefault("gzip_traces", false));
 
       if (metricsEnabled) {
         Object canDrop = map.get("client_drop_p0s");
@@ -335,6 +340,11 @@ public class DDAgentFeaturesDiscovery implements DroppingPolicy {
     return supportsLongRunning;
   }
 
+  /** @return whether the agent accepts gzip encoded trace payloads */
+  public boolean supportsTraceCompression() {
+    return supportsTraceCompression;
+  }
+
   public String getMetricsEndpoint() {
     return metricsEndpoint;
   }
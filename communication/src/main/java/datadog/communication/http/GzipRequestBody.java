@@ -0,0 +1,94 @@
+package datadog.communication.http;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Compresses the wrapped request body on the fly while it is written to the connection, counting
+ * the bytes going in and out of the compressor so that the effective compression ratio can be
+ * reported once the request has been sent.
+ */
+public final class GzipRequestBody extends RequestBody {
+
+  private final RequestBody delegate;
+  private final int compressionLevel;
+
+  private long uncompressedBytes;
+  private long compressedBytes;
+
+  public GzipRequestBody(RequestBody delegate) {
+    this(delegate, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param compressionLevel a {@link Deflater} compression level, from 1 (fastest) to 9 (smallest)
+   */
+  public GzipRequestBody(RequestBody delegate, int compressionLevel) {
+    this.delegate = delegate;
+    this.compressionLevel = compressionLevel;
+  }
+
+  /** @return a body compressing the same content at the given level */
+  public GzipRequestBody withCompressionLevel(int compressionLevel) {
+    return compressionLevel == this.compressionLevel
+        ? this
+        : new GzipRequestBody(delegate, compressionLevel);
+  }
+
+  /** @return the number of bytes fed to the compressor by the last write of this body */
+  public long uncompressedBytes() {
+    return uncompressedBytes;
+  }
+
+  /** @return the number of bytes written to the connection by the last write of this body */
+  public long compressedBytes() {
+    return compressedBytes;
+  }
+
+  @Nullable
+  @Override
+  public MediaType contentType() {
+    return delegate.contentType();
+  }
+
+  @Override
+  public long contentLength() {
+    return -1;
+  }
+
+  @Override
+  public void writeTo(BufferedSink sink) throws IOException {
+    // the body is written again on each retry, only the last attempt counts
+    uncompressedBytes = 0;
+    compressedBytes = 0;
+    GzipSink gzipSink =
+        new GzipSink(
+            new ForwardingSink(sink) {
+              @Override
+              public void write(Buffer source, long byteCount) throws IOException {
+                super.write(source, byteCount);
+                compressedBytes += byteCount;
+              }
+            });
+    gzipSink.deflater().setLevel(compressionLevel);
+    BufferedSink bufferedSink =
+        Okio.buffer(
+            new ForwardingSink(gzipSink) {
+              @Override
+              public void write(Buffer source, long byteCount) throws IOException {
+                super.write(source, byteCount);
+                uncompressedBytes += byteCount;
+              }
+            });
+    delegate.writeTo(bufferedSink);
+    bufferedSink.close();
+  }
+}
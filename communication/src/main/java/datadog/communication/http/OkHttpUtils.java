@@ -17,7 +17,6 @@ import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import javax.annotation.Nullable;
 import okhttp3.ConnectionPool;
 import okhttp3.ConnectionSpec;
 import okhttp3.Credentials;
@@ -30,8 +29,6 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okio.BufferedSink;
-import okio.GzipSink;
-import okio.Okio;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -237,12 +234,21 @@ public final class OkHttpUtils {
     return new ByteBufferRequestBody(buffers);
   }
 
-  public static RequestBody gzippedMsgpackRequestBodyOf(List<ByteBuffer> buffers) {
-    return new GZipByteBufferRequestBody(buffers);
+  public static GzipRequestBody gzippedMsgpackRequestBodyOf(List<ByteBuffer> buffers) {
+    return new GzipRequestBody(new ByteBufferRequestBody(buffers));
   }
 
-  public static RequestBody gzippedRequestBodyOf(RequestBody delegate) {
-    return new GZipRequestBodyDecorator(delegate);
+  public static GzipRequestBody gzippedMsgpackRequestBodyOf(
+      List<ByteBuffer> buffers, int compressionLevel) {
+    return new GzipRequestBody(new ByteBufferRequestBody(buffers), compressionLevel);
+  }
+
+  public static GzipRequestBody gzippedRequestBodyOf(RequestBody delegate) {
+    return new GzipRequestBody(delegate);
+  }
+
+  public static GzipRequestBody gzippedRequestBodyOf(RequestBody delegate, int compressionLevel) {
+    return new GzipRequestBody(delegate, compressionLevel);
   }
 
   public static RequestBody jsonRequestBodyOf(byte[] json) {
@@ -309,52 +315,6 @@ public final class OkHttpUtils {
     }
   }
 
-  private static final class GZipByteBufferRequestBody extends ByteBufferRequestBody {
-    private GZipByteBufferRequestBody(List<ByteBuffer> buffers) {
-      super(buffers);
-    }
-
-    @Override
-    public long contentLength() {
-      return -1;
-    }
-
-    @Override
-    public void writeTo(BufferedSink sink) throws IOException {
-      BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
-
-      super.writeTo(gzipSink);
-
-      gzipSink.close();
-    }
-  }
-
-  private static final class GZipRequestBodyDecorator extends RequestBody {
-    private final RequestBody delegate;
-
-    private GZipRequestBodyDecorator(RequestBody delegate) {
-      this.delegate = delegate;
-    }
-
-    @Nullable
-    @Override
-    public MediaType contentType() {
-      return delegate.contentType();
-    }
-
-    @Override
-    public long contentLength() {
-      return -1;
-    }
-
-    @Override
-    public void writeTo(BufferedSink sink) throws IOException {
-      BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
-      delegate.writeTo(gzipSink);
-      gzipSink.close();
-    }
-  }
-
   public static Response sendWithRetries(
       OkHttpClient httpClient, HttpRetryPolicy.Factory retryPolicyFactory, Request request)
       throws IOException {
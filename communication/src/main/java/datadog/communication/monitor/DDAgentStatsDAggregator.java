@@ -0,0 +1,392 @@
+package datadog.communication.monitor;
+
+import datadog.trace.util.AgentTaskScheduler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Aggregates the counts and gauges, and batches the histogram and distribution values, recorded
+ * through a {@link DDAgentStatsDClient} between two flushes, so that each metric is mapped and
+ * handed to the StatsD connection once per flush rather than once per call. Metrics are held in
+ * shards picked from the calling thread, keyed by type, name and tags as given by the caller, and
+ * the metrics of all the shards with the same key are merged when flushed.
+ *
+ * <p>The dogstatsd client also aggregates counts and gauges when aggregation is enabled, but only
+ * after each call was mapped, turned into a message and queued. Aggregating here saves that work
+ * for every call, and batches the histogram and distribution values, which the client sends one
+ * by one.
+ */
+final class DDAgentStatsDAggregator {
+
+  static final int COUNT = 0;
+  static final int GAUGE = 1;
+  static final int HISTOGRAM = 2;
+  static final int DISTRIBUTION = 3;
+
+  // values of a histogram or distribution sent together, before the next flush if need be
+  static final int MAX_BATCH_SIZE = 64;
+
+  private static final int MAX_SHARDS = 64;
+  private static final int DEFAULT_MAX_METRICS_PER_SHARD = 1024;
+  private static final String[] NO_TAGS = new String[0];
+
+  private final DDAgentStatsDConnection connection;
+  private final Function<String, String> nameMapping;
+  private final Function<String[], String[]> tagMapping;
+  private final Shard[] shards;
+  private final int maxMetricsPerShard;
+  // orders the gauge values written to different shards
+  private final AtomicLong gaugeWrites = new AtomicLong();
+
+  DDAgentStatsDAggregator(
+      final DDAgentStatsDConnection connection,
+      final Function<String, String> nameMapping,
+      final Function<String[], String[]> tagMapping) {
+    this(connection, nameMapping, tagMapping, defaultShards(), DEFAULT_MAX_METRICS_PER_SHARD);
+  }
+
+  /**
+   * @param shards the number of shards, must be a power of two
+   * @param maxMetricsPerShard beyond this many metrics in a shard, the values of new metrics are
+   *     sent without being aggregated until the next flush
+   */
+  DDAgentStatsDAggregator(
+      final DDAgentStatsDConnection connection,
+      final Function<String, String> nameMapping,
+      final Function<String[], String[]> tagMapping,
+      final int shards,
+      final int maxMetricsPerShard) {
+    this.connection = connection;
+    this.nameMapping = nameMapping;
+    this.tagMapping = tagMapping;
+    this.maxMetricsPerShard = maxMetricsPerShard;
+    this.shards = new Shard[shards];
+    for (int i = 0; i < shards; i++) {
+      this.shards[i] = new Shard();
+    }
+  }
+
+  /** @return false when the value could not be aggregated and should be sent right away */
+  boolean count(final String metricName, final long value, final String[] tags) {
+    Shard shard = shard();
+    synchronized (shard) {
+      Metric metric = shard.metric(COUNT, metricName, tags, maxMetricsPerShard);
+      if (null == metric) {
+        return false;
+      }
+      metric.count += value;
+    }
+    return true;
+  }
+
+  /** @return false when the value could not be aggregated and should be sent right away */
+  boolean gauge(final String metricName, final long value, final String[] tags) {
+    Shard shard = shard();
+    synchronized (shard) {
+      Metric metric = shard.metric(GAUGE, metricName, tags, maxMetricsPerShard);
+      if (null == metric) {
+        return false;
+      }
+      metric.gaugeIsDouble = false;
+      metric.longGauge = value;
+      metric.gaugeWrite = gaugeWrites.incrementAndGet();
+    }
+    return true;
+  }
+
+  /** @return false when the value could not be aggregated and should be sent right away */
+  boolean gauge(final String metricName, final double value, final String[] tags) {
+    Shard shard = shard();
+    synchronized (shard) {
+      Metric metric = shard.metric(GAUGE, metricName, tags, maxMetricsPerShard);
+      if (null == metric) {
+        return false;
+      }
+      metric.gaugeIsDouble = true;
+      metric.doubleGauge = value;
+      metric.gaugeWrite = gaugeWrites.incrementAndGet();
+    }
+    return true;
+  }
+
+  /**
+   * @param type {@link #HISTOGRAM} or {@link #DISTRIBUTION}
+   * @return false when the value could not be batched and should be sent right away
+   */
+  boolean record(final int type, final String metricName, final long value, final String[] tags) {
+    long[] fullBatch = null;
+    Shard shard = shard();
+    synchronized (shard) {
+      Metric metric = shard.metric(type, metricName, tags, maxMetricsPerShard);
+      if (null == metric) {
+        return false;
+      }
+      fullBatch = metric.add(value);
+    }
+    if (null != fullBatch) {
+      sendValues(type, metricName, fullBatch, tags);
+    }
+    return true;
+  }
+
+  /**
+   * @param type {@link #HISTOGRAM} or {@link #DISTRIBUTION}
+   * @return false when the value could not be batched and should be sent right away
+   */
+  boolean record(final int type, final String metricName, final double value, final String[] tags) {
+    double[] fullBatch = null;
+    Shard shard = shard();
+    synchronized (shard) {
+      Metric metric = shard.metric(type, metricName, tags, maxMetricsPerShard);
+      if (null == metric) {
+        return false;
+      }
+      fullBatch = metric.add(value);
+    }
+    if (null != fullBatch) {
+      sendValues(type, metricName, fullBatch, tags);
+    }
+    return true;
+  }
+
+  /** Sends the metrics aggregated since the last flush. */
+  void flush() {
+    Map<Key, Metric> merged = new HashMap<>();
+    List<Metric> metrics = new ArrayList<>();
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        if (shard.metrics.isEmpty()) {
+          continue;
+        }
+        metrics.addAll(shard.metrics.values());
+        shard.metrics.clear();
+      }
+      // merged outside the lock, the removed metrics are no longer visible to the other threads
+      for (Metric metric : metrics) {
+        Metric into = merged.putIfAbsent(metric.key, metric);
+        if (null != into) {
+          merge(into, metric);
+        }
+      }
+      metrics.clear();
+    }
+    for (Metric metric : merged.values()) {
+      send(metric);
+    }
+  }
+
+  private void merge(final Metric into, final Metric from) {
+    Key key = into.key;
+    switch (key.type) {
+      case COUNT:
+        into.count += from.count;
+        break;
+      case GAUGE:
+        // the shards aren't flushed in the order they were written to
+        if (from.gaugeWrite > into.gaugeWrite) {
+          into.gaugeIsDouble = from.gaugeIsDouble;
+          into.longGauge = from.longGauge;
+          into.doubleGauge = from.doubleGauge;
+          into.gaugeWrite = from.gaugeWrite;
+        }
+        break;
+      default:
+        for (int i = 0; i < from.longCount; i++) {
+          long[] fullBatch = into.add(from.longValues[i]);
+          if (null != fullBatch) {
+            sendValues(key.type, key.metricName, fullBatch, key.tags);
+          }
+        }
+        for (int i = 0; i < from.doubleCount; i++) {
+          double[] fullBatch = into.add(from.doubleValues[i]);
+          if (null != fullBatch) {
+            sendValues(key.type, key.metricName, fullBatch, key.tags);
+          }
+        }
+    }
+  }
+
+  private void send(final Metric metric) {
+    Key key = metric.key;
+    switch (key.type) {
+      case COUNT:
+        connection.statsd.count(
+            nameMapping.apply(key.metricName), metric.count, tagMapping.apply(key.tags));
+        break;
+      case GAUGE:
+        if (metric.gaugeIsDouble) {
+          connection.statsd.recordGaugeValue(
+              nameMapping.apply(key.metricName), metric.doubleGauge, tagMapping.apply(key.tags));
+        } else {
+          connection.statsd.recordGaugeValue(
+              nameMapping.apply(key.metricName), metric.longGauge, tagMapping.apply(key.tags));
+        }
+        break;
+      default:
+        if (metric.longCount > 0) {
+          sendValues(
+              key.type,
+              key.metricName,
+              Arrays.copyOf(metric.longValues, metric.longCount),
+              key.tags);
+        }
+        if (metric.doubleCount > 0) {
+          sendValues(
+              key.type,
+              key.metricName,
+              Arrays.copyOf(metric.doubleValues, metric.doubleCount),
+              key.tags);
+        }
+    }
+  }
+
+  private void sendValues(
+      final int type, final String metricName, final long[] values, final String[] tags) {
+    if (type == HISTOGRAM) {
+      connection.statsd.recordHistogramValues(
+          nameMapping.apply(metricName), values, 1.0, tagMapping.apply(tags));
+    } else {
+      connection.statsd.recordDistributionValues(
+          nameMapping.apply(metricName), values, 1.0, tagMapping.apply(tags));
+    }
+  }
+
+  private void sendValues(
+      final int type, final String metricName, final double[] values, final String[] tags) {
+    if (type == HISTOGRAM) {
+      connection.statsd.recordHistogramValues(
+          nameMapping.apply(metricName), values, 1.0, tagMapping.apply(tags));
+    } else {
+      connection.statsd.recordDistributionValues(
+          nameMapping.apply(metricName), values, 1.0, tagMapping.apply(tags));
+    }
+  }
+
+  private Shard shard() {
+    int hash = (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32);
+    return shards[hash & (shards.length - 1)];
+  }
+
+  private static int defaultShards() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return processors <= 1 ? 1 : Math.min(Integer.highestOneBit(processors - 1) << 1, MAX_SHARDS);
+  }
+
+  private static final class Shard {
+    final Map<Key, Metric> metrics = new HashMap<>();
+    // reused to look metrics up without allocating a key, only used under the shard lock
+    final Key probe = new Key();
+
+    Metric metric(
+        final int type, final String metricName, final String[] tags, final int maxMetrics) {
+      probe.set(type, metricName, tags);
+      Metric metric = metrics.get(probe);
+      if (null == metric) {
+        if (metrics.size() >= maxMetrics) {
+          return null;
+        }
+        // the tags are copied as callers may reuse their array
+        Key key = new Key();
+        key.set(type, metricName, null == tags ? NO_TAGS : tags.clone());
+        metric = new Metric(key);
+        metrics.put(key, metric);
+      }
+      return metric;
+    }
+  }
+
+  private static final class Key {
+    int type;
+    String metricName;
+    String[] tags;
+    int hash;
+
+    void set(final int type, final String metricName, final String[] tags) {
+      this.type = type;
+      this.metricName = metricName;
+      this.tags = null == tags ? NO_TAGS : tags;
+      this.hash = 31 * (31 * type + metricName.hashCode()) + Arrays.hashCode(this.tags);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return type == that.type
+          && hash == that.hash
+          && metricName.equals(that.metricName)
+          && Arrays.equals(tags, that.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class Metric {
+    final Key key;
+    long count;
+    boolean gaugeIsDouble;
+    long longGauge;
+    double doubleGauge;
+    long gaugeWrite;
+    long[] longValues;
+    int longCount;
+    double[] doubleValues;
+    int doubleCount;
+
+    Metric(final Key key) {
+      this.key = key;
+    }
+
+    /** @return the batch of values if this one filled it up, a new batch is then started */
+    long[] add(final long value) {
+      if (null == longValues) {
+        longValues = new long[MAX_BATCH_SIZE];
+      }
+      longValues[longCount++] = value;
+      if (longCount < MAX_BATCH_SIZE) {
+        return null;
+      }
+      long[] fullBatch = longValues;
+      longValues = null;
+      longCount = 0;
+      return fullBatch;
+    }
+
+    /** @return the batch of values if this one filled it up, a new batch is then started */
+    double[] add(final double value) {
+      if (null == doubleValues) {
+        doubleValues = new double[MAX_BATCH_SIZE];
+      }
+      doubleValues[doubleCount++] = value;
+      if (doubleCount < MAX_BATCH_SIZE) {
+        return null;
+      }
+      double[] fullBatch = doubleValues;
+      doubleValues = null;
+      doubleCount = 0;
+      return fullBatch;
+    }
+  }
+
+  static final class FlushTask implements AgentTaskScheduler.Task<DDAgentStatsDAggregator> {
+    static final FlushTask INSTANCE = new FlushTask();
+
+    @Override
+    public void run(final DDAgentStatsDAggregator target) {
+      target.flush();
+    }
+  }
+}
@@ -1,73 +1,117 @@
 package datadog.communication.monitor;
 
+import static datadog.communication.monitor.DDAgentStatsDAggregator.DISTRIBUTION;
+import static datadog.communication.monitor.DDAgentStatsDAggregator.HISTOGRAM;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 import com.timgroup.statsd.Event;
 import com.timgroup.statsd.ServiceCheck;
 import datadog.trace.api.StatsDClient;
+import datadog.trace.util.AgentTaskScheduler;
 import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public final class DDAgentStatsDClient implements StatsDClient {
   private static final Logger log = LoggerFactory.getLogger(DDAgentStatsDClient.class);
+  private static final long FLUSH_INTERVAL_SECONDS = 2;
+
   private final DDAgentStatsDConnection connection;
   private final Function<String, String> nameMapping;
   private final Function<String[], String[]> tagMapping;
+  // aggregates metrics between flushes when pre-aggregation is enabled, null otherwise
+  private final DDAgentStatsDAggregator aggregator;
+  private final AgentTaskScheduler.Scheduled<DDAgentStatsDAggregator> scheduledFlush;
 
   DDAgentStatsDClient(
       final DDAgentStatsDConnection connection,
       final Function<String, String> nameMapping,
       final Function<String[], String[]> tagMapping) {
+    this(connection, nameMapping, tagMapping, null);
+  }
+
+  DDAgentStatsDClient(
+      final DDAgentStatsDConnection connection,
+      final Function<String, String> nameMapping,
+      final Function<String[], String[]> tagMapping,
+      final DDAgentStatsDAggregator aggregator) {
     this.connection = connection;
     this.nameMapping = nameMapping;
     this.tagMapping = tagMapping;
+    this.aggregator = aggregator;
+    if (null != aggregator) {
+      this.scheduledFlush =
+          AgentTaskScheduler.INSTANCE.scheduleAtFixedRate(
+              DDAgentStatsDAggregator.FlushTask.INSTANCE,
+              aggregator,
+              FLUSH_INTERVAL_SECONDS,
+              FLUSH_INTERVAL_SECONDS,
+              SECONDS);
+    } else {
+      this.scheduledFlush = null;
+    }
 
     connection.acquire();
   }
 
   @Override
   public void incrementCounter(final String metricName, final String... tags) {
-    connection.statsd.count(nameMapping.apply(metricName), 1L, tagMapping.apply(tags));
+    count(metricName, 1L, tags);
   }
 
   @Override
   public void count(final String metricName, final long value, final String... tags) {
-    connection.statsd.count(nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    if (null == aggregator || !aggregator.count(metricName, value, tags)) {
+      connection.statsd.count(nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    }
   }
 
   @Override
   public void gauge(final String metricName, final long value, final String... tags) {
-    connection.statsd.recordGaugeValue(
-        nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    if (null == aggregator || !aggregator.gauge(metricName, value, tags)) {
+      connection.statsd.recordGaugeValue(
+          nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    }
   }
 
   @Override
   public void gauge(final String metricName, final double value, final String... tags) {
-    connection.statsd.recordGaugeValue(
-        nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    if (null == aggregator || !aggregator.gauge(metricName, value, tags)) {
+      connection.statsd.recordGaugeValue(
+          nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    }
   }
 
   @Override
   public void histogram(final String metricName, final long value, final String... tags) {
-    connection.statsd.recordHistogramValue(
-        nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    if (null == aggregator || !aggregator.record(HISTOGRAM, metricName, value, tags)) {
+      connection.statsd.recordHistogramValue(
+          nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    }
   }
 
   @Override
   public void histogram(final String metricName, final double value, final String... tags) {
-    connection.statsd.recordHistogramValue(
-        nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    if (null == aggregator || !aggregator.record(HISTOGRAM, metricName, value, tags)) {
+      connection.statsd.recordHistogramValue(
+          nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    }
   }
 
   @Override
   public void distribution(String metricName, long value, String... tags) {
-    connection.statsd.recordDistributionValue(
-        nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    if (null == aggregator || !aggregator.record(DISTRIBUTION, metricName, value, tags)) {
+      connection.statsd.recordDistributionValue(
+          nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    }
   }
 
   @Override
   public void distribution(String metricName, double value, String... tags) {
-    connection.statsd.recordDistributionValue(
-        nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    if (null == aggregator || !aggregator.record(DISTRIBUTION, metricName, value, tags)) {
+      connection.statsd.recordDistributionValue(
+          nameMapping.apply(metricName), value, tagMapping.apply(tags));
+    }
   }
 
   @Override
@@ -129,6 +173,10 @@ public final class DDAgentStatsDClient implements StatsDClient {
 
   @Override
   public void close() {
+    if (null != aggregator) {
+      scheduledFlush.cancel();
+      aggregator.flush();
+    }
     connection.release();
   }
 }
@@ -59,8 +59,13 @@ public final class DDAgentStatsDClientManager implements StatsDClientManager {
     if (USE_LOGGING_CLIENT) {
       return new LoggingStatsDClient(nameMapping, tagMapping);
     } else {
-      return new DDAgentStatsDClient(
-          getConnection(host, port, namedPipe, useAggregation), nameMapping, tagMapping);
+      DDAgentStatsDConnection connection = getConnection(host, port, namedPipe, useAggregation);
+      // clients asking for unaggregated metrics expect them to be sent right away
+      DDAgentStatsDAggregator aggregator =
+          useAggregation && Config.get().isStatsDClientPreAggregationEnabled()
+              ? new DDAgentStatsDAggregator(connection, nameMapping, tagMapping)
+              : null;
+      return new DDAgentStatsDClient(connection, nameMapping, tagMapping, aggregator);
     }
   }
 
@@ -0,0 +1,147 @@
+package datadog.communication.serialization;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of byte buffers, so that the large buffers payloads are serialized into can be
+ * recycled between flushes instead of being reallocated.
+ *
+ * <p>Buffers are pooled by size class. Each power of two between the minimum and maximum capacity
+ * is split into four classes (e.g. 4MB, 5MB, 6MB, 7MB, 8MB), which keeps the memory wasted by
+ * rounding a request up to its size class under 25%. Requests larger than the maximum capacity are
+ * allocated exactly and never pooled.
+ *
+ * <p>A buffer must only be released once, and must not be used after it has been released.
+ */
+public final class BufferPool {
+
+  /** Notified whenever a buffer is acquired, with whether it could be served from the pool. */
+  public interface Listener {
+    void onAcquire(boolean hit);
+  }
+
+  private static final Listener NO_LISTENER =
+      new Listener() {
+        @Override
+        public void onAcquire(boolean hit) {}
+      };
+
+  private final int[] sizeClasses;
+  private final ArrayBlockingQueue<ByteBuffer>[] pools;
+  private final boolean direct;
+  private final Listener listener;
+
+  public BufferPool(int minCapacity, int maxCapacity, int buffersPerSizeClass, boolean direct) {
+    this(minCapacity, maxCapacity, buffersPerSizeClass, direct, NO_LISTENER);
+  }
+
+  /**
+   * @param minCapacity the smallest size class, rounded up to a power of two
+   * @param maxCapacity the largest size class, larger buffers are not pooled
+   * @param buffersPerSizeClass how many idle buffers are kept per size class
+   * @param direct whether to allocate the buffers off-heap
+   * @param listener notified of pool hits and misses
+   */
+  @SuppressWarnings("unchecked")
+  public BufferPool(
+      int minCapacity, int maxCapacity, int buffersPerSizeClass, boolean direct, Listener listener) {
+    if (minCapacity <= 0 || maxCapacity < minCapacity || buffersPerSizeClass <= 0) {
+      throw new IllegalArgumentException(
+          "Invalid buffer pool bounds: min="
+              + minCapacity
+              + ", max="
+              + maxCapacity
+              + ", buffers per size class="
+              + buffersPerSizeClass);
+    }
+    this.sizeClasses = sizeClasses(minCapacity, maxCapacity);
+    this.pools = new ArrayBlockingQueue[sizeClasses.length];
+    for (int i = 0; i < pools.length; ++i) {
+      pools[i] = new ArrayBlockingQueue<>(buffersPerSizeClass);
+    }
+    this.direct = direct;
+    this.listener = listener;
+  }
+
+  public boolean isDirect() {
+    return direct;
+  }
+
+  /**
+   * @return a cleared buffer with at least the requested capacity, its limit set to the requested
+   *     capacity so that writers overflow exactly where an exactly sized buffer would
+   */
+  public ByteBuffer acquire(int capacity) {
+    int sizeClass = sizeClassOf(capacity);
+    ByteBuffer buffer = null;
+    if (sizeClass >= 0) {
+      buffer = pools[sizeClass].poll();
+    }
+    listener.onAcquire(null != buffer);
+    if (null == buffer) {
+      int size = sizeClass >= 0 ? sizeClasses[sizeClass] : capacity;
+      buffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+    buffer.limit(capacity);
+    return buffer;
+  }
+
+  /**
+   * Returns a buffer to the pool. Buffers which weren't acquired from a pool like this one, or whose
+   * size class is already full, are left to the garbage collector.
+   */
+  public void release(ByteBuffer buffer) {
+    if (null == buffer || buffer.isDirect() != direct || buffer.isReadOnly()) {
+      return;
+    }
+    int sizeClass = Arrays.binarySearch(sizeClasses, buffer.capacity());
+    if (sizeClass >= 0) {
+      buffer.clear();
+      pools[sizeClass].offer(buffer);
+    }
+  }
+
+  /** @return the number of idle buffers currently held by the pool */
+  public int size() {
+    int size = 0;
+    for (ArrayBlockingQueue<ByteBuffer> pool : pools) {
+      size += pool.size();
+    }
+    return size;
+  }
+
+  private int sizeClassOf(int capacity) {
+    int index = Arrays.binarySearch(sizeClasses, capacity);
+    if (index >= 0) {
+      return index;
+    }
+    int insertionPoint = -index - 1;
+    return insertionPoint < sizeClasses.length ? insertionPoint : -1;
+  }
+
+  static int[] sizeClasses(int minCapacity, int maxCapacity) {
+    List<Integer> sizes = new ArrayList<>();
+    int size = minCapacity == 1 ? 1 : Integer.highestOneBit(minCapacity - 1) << 1;
+    sizes.add(size);
+    while (size < maxCapacity && size <= (Integer.MAX_VALUE >> 1)) {
+      int step = Math.max(1, size >> 2);
+      for (int i = 1; i <= 4; ++i) {
+        sizes.add(size + i * step);
+      }
+      size <<= 1;
+    }
+    int[] classes = new int[sizes.size()];
+    int count = 0;
+    for (int s : sizes) {
+      // distinct, since the smallest octaves can't be split into quarters
+      if (count == 0 || s > classes[count - 1]) {
+        classes[count++] = s;
+      }
+    }
+    return Arrays.copyOf(classes, count);
+  }
+}
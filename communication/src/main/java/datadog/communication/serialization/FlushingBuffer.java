@@ -4,20 +4,49 @@ import java.nio.ByteBuffer;
 
 public final class FlushingBuffer implements StreamingBuffer {
 
-  private final ByteBuffer buffer;
+  private final int capacity;
+  private final BufferPool pool;
   private final ByteBufferConsumer consumer;
+  private ByteBuffer buffer;
 
   private int messageCount;
   private int mark;
 
   public FlushingBuffer(int capacity, ByteBufferConsumer consumer) {
-    this.buffer = ByteBuffer.allocate(capacity);
+    this(capacity, consumer, false);
+  }
+
+  /**
+   * @param direct whether to allocate the buffer off-heap, which avoids a copy when the flushed
+   *     slices are written straight to a channel
+   */
+  public FlushingBuffer(int capacity, ByteBufferConsumer consumer, boolean direct) {
+    this.capacity = capacity;
+    this.pool = null;
+    this.buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    this.consumer = consumer;
+  }
+
+  /**
+   * Creates a buffer which borrows its backing buffer from a pool. Each flush hands ownership of
+   * the filled buffer to the consumer, which must {@link BufferPool#release(ByteBuffer) release} it
+   * once done with it, and borrows a fresh one for the next messages.
+   */
+  public FlushingBuffer(int capacity, ByteBufferConsumer consumer, BufferPool pool) {
+    this.capacity = capacity;
+    this.pool = pool;
+    this.buffer = pool.acquire(capacity);
     this.consumer = consumer;
   }
 
   @Override
   public int capacity() {
-    return buffer.capacity();
+    return capacity;
+  }
+
+  /** @return the number of bytes taken by the complete messages written since the last flush */
+  public int size() {
+    return mark;
   }
 
   @Override
@@ -38,8 +67,19 @@ public final class FlushingBuffer implements StreamingBuffer {
     }
     buffer.limit(mark);
     buffer.flip();
-    ByteBuffer toPublish = buffer.slice();
-    consumer.accept(messageCount, toPublish);
+    if (null == pool) {
+      consumer.accept(messageCount, buffer.slice());
+    } else {
+      // the consumer owns the flushed buffer from here on; borrowing the next one only
+      // afterwards lets a consumer which releases synchronously get the same buffer back
+      ByteBuffer toPublish = buffer;
+      buffer = null;
+      try {
+        consumer.accept(messageCount, toPublish);
+      } finally {
+        buffer = pool.acquire(capacity);
+      }
+    }
     reset();
     return true;
   }
@@ -98,7 +138,7 @@ public final class FlushingBuffer implements StreamingBuffer {
   public void reset() {
     messageCount = 0;
     buffer.position(0);
-    buffer.limit(buffer.capacity());
+    buffer.limit(capacity);
     mark = 0;
   }
 }
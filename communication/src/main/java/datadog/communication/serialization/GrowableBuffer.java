@@ -5,18 +5,29 @@ import java.nio.ByteBuffer;
 /**
  * This buffer doesn't have a bounded length, and grows linearly. Don't use it except when
  * serialising the contents of a bounded data structure.
+ *
+ * <p>When backed by a {@link BufferPool} the buffer grows geometrically instead, borrowing the
+ * larger buffer from the pool and returning the one it outgrew.
  */
 public final class GrowableBuffer implements StreamingBuffer {
 
   private final int initialCapacity;
+  private final BufferPool pool;
   private ByteBuffer buffer;
   private int messageCount;
 
   public GrowableBuffer(int initialCapacity) {
     this.initialCapacity = initialCapacity;
+    this.pool = null;
     this.buffer = ByteBuffer.allocate(initialCapacity);
   }
 
+  public GrowableBuffer(int initialCapacity, BufferPool pool) {
+    this.initialCapacity = initialCapacity;
+    this.pool = pool;
+    this.buffer = acquire(initialCapacity);
+  }
+
   public ByteBuffer slice() {
     buffer.flip();
     return buffer.slice();
@@ -115,12 +126,27 @@ public final class GrowableBuffer implements StreamingBuffer {
 
   private void checkCapacity(int required) {
     if (buffer.remaining() < required) {
-      // round up to next multiple of required
-      int newSize = (buffer.capacity() + required + initialCapacity - 1) & -initialCapacity;
-      ByteBuffer newBuffer = ByteBuffer.allocate(newSize);
+      ByteBuffer newBuffer;
+      if (null == pool) {
+        // round up to next multiple of required
+        int newSize = (buffer.capacity() + required + initialCapacity - 1) & -initialCapacity;
+        newBuffer = ByteBuffer.allocate(newSize);
+      } else {
+        newBuffer = acquire(Math.max(buffer.capacity() << 1, buffer.position() + required));
+      }
       buffer.flip();
       newBuffer.put(buffer);
+      if (null != pool) {
+        pool.release(buffer);
+      }
       buffer = newBuffer;
     }
   }
+
+  private ByteBuffer acquire(int capacity) {
+    ByteBuffer acquired = pool.acquire(capacity);
+    // use whatever the size class rounded up to
+    acquired.limit(acquired.capacity());
+    return acquired;
+  }
 }
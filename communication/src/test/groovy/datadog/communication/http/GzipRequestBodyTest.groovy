@@ -0,0 +1,43 @@
+package datadog.communication.http
+
+import okhttp3.RequestBody
+import okio.Buffer
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.util.zip.GZIPInputStream
+
+class GzipRequestBodyTest extends Specification {
+
+  def "body is compressed and the bytes in and out are counted at level #level"() {
+    setup:
+    byte[] bytes = new byte[64 << 10]
+    for (int i = 0; i < bytes.length; ++i) {
+      bytes[i] = (byte) (i % 16)
+    }
+    def body = OkHttpUtils.gzippedMsgpackRequestBodyOf([ByteBuffer.wrap(bytes)], level)
+    def sink = new Buffer()
+
+    when:
+    body.writeTo(sink)
+
+    then:
+    body.contentLength() == -1
+    body.uncompressedBytes() == bytes.length
+    body.compressedBytes() == sink.size()
+    body.compressedBytes() < bytes.length
+    new GZIPInputStream(sink.inputStream()).bytes == bytes
+
+    where:
+    level << [1, 6, 9]
+  }
+
+  def "changing the level gives a new body"() {
+    setup:
+    def body = OkHttpUtils.gzippedRequestBodyOf(RequestBody.create(null, "content"), 6)
+
+    expect:
+    body.withCompressionLevel(6).is(body)
+    !body.withCompressionLevel(1).is(body)
+  }
+}
@@ -0,0 +1,199 @@
+package datadog.communication.monitor
+
+import com.timgroup.statsd.StatsDClient
+import datadog.trace.test.util.DDSpecification
+
+import java.util.function.Function
+
+import static datadog.communication.monitor.DDAgentStatsDAggregator.DISTRIBUTION
+import static datadog.communication.monitor.DDAgentStatsDAggregator.HISTOGRAM
+import static datadog.communication.monitor.DDAgentStatsDAggregator.MAX_BATCH_SIZE
+
+class DDAgentStatsDAggregatorTest extends DDSpecification {
+
+  def statsd = Mock(StatsDClient)
+  def connection = new DDAgentStatsDConnection(null, null, null, true)
+  def nameMapping = new DDAgentStatsDClientManager.NameResolver("example")
+  def tagMapping = new DDAgentStatsDClientManager.TagCombiner(["lang:java"] as String[])
+
+  def setup() {
+    connection.statsd = statsd
+  }
+
+  def "counts are summed and gauges keep their last value until the flush"() {
+    setup:
+    def aggregator = new DDAgentStatsDAggregator(connection, nameMapping, tagMapping, 4, 16)
+    String[] tags = ["type:BufferPool"]
+    String[] otherTags = ["type:MemoryPool"]
+
+    when:
+    aggregator.count("test.count", 1, tags)
+    aggregator.count("test.count", 2, tags.clone())
+    aggregator.count("test.count", 5, otherTags)
+    aggregator.gauge("test.gauge", 3L, tags)
+    aggregator.gauge("test.gauge", 4L, tags)
+    aggregator.gauge("test.ratio", 0.25D, null)
+
+    then:
+    0 * statsd._
+
+    when:
+    aggregator.flush()
+
+    then:
+    1 * statsd.count("example.test.count", 3, "lang:java", "type:BufferPool")
+    1 * statsd.count("example.test.count", 5, "lang:java", "type:MemoryPool")
+    1 * statsd.recordGaugeValue("example.test.gauge", 4L, "lang:java", "type:BufferPool")
+    1 * statsd.recordGaugeValue("example.test.ratio", 0.25D, "lang:java")
+    0 * statsd._
+
+    when:
+    aggregator.flush()
+
+    then:
+    0 * statsd._
+  }
+
+  def "metrics are aggregated across threads"() {
+    setup:
+    def aggregator = new DDAgentStatsDAggregator(connection, nameMapping, tagMapping, 4, 16)
+    def threads = (1..8).collect {
+      Thread.start {
+        1000.times {
+          aggregator.count("test.count", 1, "type:BufferPool")
+        }
+      }
+    }
+    threads*.join()
+
+    when:
+    aggregator.flush()
+
+    then:
+    1 * statsd.count("example.test.count", 8000, "lang:java", "type:BufferPool")
+    0 * statsd._
+  }
+
+  def "gauges keep the last value written from any thread"() {
+    setup:
+    def aggregator = new DDAgentStatsDAggregator(connection, nameMapping, tagMapping, 4, 16)
+
+    when:
+    (1..8).each { value ->
+      Thread.start {
+        aggregator.gauge("test.gauge", value as long, "type:BufferPool")
+      }.join()
+    }
+    aggregator.flush()
+
+    then:
+    1 * statsd.recordGaugeValue("example.test.gauge", 8L, "lang:java", "type:BufferPool")
+    0 * statsd._
+  }
+
+  def "histogram values are batched across threads"() {
+    setup:
+    def aggregator = new DDAgentStatsDAggregator(connection, nameMapping, tagMapping, 4, 16)
+    def values = []
+
+    when:
+    def threads = (1..8).collect {
+      Thread.start {
+        10.times {
+          aggregator.record(HISTOGRAM, "test.histogram", it as long, null)
+        }
+      }
+    }
+    threads*.join()
+    aggregator.flush()
+
+    then:
+    1 * statsd.recordHistogramValues("example.test.histogram", { it.length == MAX_BATCH_SIZE }, 1.0, "lang:java") >> { args -> values.addAll(args[1] as List) }
+    1 * statsd.recordHistogramValues("example.test.histogram", { it.length == 80 - MAX_BATCH_SIZE }, 1.0, "lang:java") >> { args -> values.addAll(args[1] as List) }
+    0 * statsd._
+    values.sort() == (0..<10).collectMany { [it as long] * 8 }
+  }
+
+  def "histogram and distribution values are sent in batches"() {
+    setup:
+    def aggregator = new DDAgentStatsDAggregator(connection, nameMapping, tagMapping, 1, 16)
+
+    when:
+    aggregator.record(HISTOGRAM, "test.histogram", 1L, null)
+    aggregator.record(HISTOGRAM, "test.histogram", 2L, null)
+    aggregator.record(HISTOGRAM, "test.histogram", 0.5D, null)
+    aggregator.record(DISTRIBUTION, "test.distribution", 7L, null)
+
+    then:
+    0 * statsd._
+
+    when:
+    aggregator.flush()
+
+    then:
+    1 * statsd.recordHistogramValues("example.test.histogram", [1L, 2L] as long[], 1.0, "lang:java")
+    1 * statsd.recordHistogramValues("example.test.histogram", [0.5D] as double[], 1.0, "lang:java")
+    1 * statsd.recordDistributionValues("example.test.distribution", [7L] as long[], 1.0, "lang:java")
+    0 * statsd._
+  }
+
+  def "full batches are sent before the flush"() {
+    setup:
+    def aggregator = new DDAgentStatsDAggregator(connection, nameMapping, tagMapping, 1, 16)
+
+    when:
+    (MAX_BATCH_SIZE + 1).times {
+      aggregator.record(DISTRIBUTION, "test.distribution", it as long, null)
+    }
+
+    then:
+    1 * statsd.recordDistributionValues("example.test.distribution", { it.length == MAX_BATCH_SIZE }, 1.0, "lang:java")
+    0 * statsd._
+
+    when:
+    aggregator.flush()
+
+    then:
+    1 * statsd.recordDistributionValues("example.test.distribution", [MAX_BATCH_SIZE as long] as long[], 1.0, "lang:java")
+    0 * statsd._
+  }
+
+  def "new metrics beyond the maximum are not aggregated"() {
+    setup:
+    def aggregator = new DDAgentStatsDAggregator(connection, Function.identity(), Function.identity(), 1, 2)
+
+    expect:
+    aggregator.count("a", 1, null)
+    aggregator.gauge("b", 1L, null)
+    !aggregator.count("c", 1, null)
+    // metrics already held are still aggregated
+    aggregator.count("a", 1, null)
+
+    when:
+    aggregator.flush()
+
+    then:
+    1 * statsd.count("a", 2)
+    1 * statsd.recordGaugeValue("b", 1L)
+    0 * statsd._
+
+    expect:
+    aggregator.count("c", 1, null)
+  }
+
+  def "client aggregates metrics and flushes them when closed"() {
+    setup:
+    def aggregator = new DDAgentStatsDAggregator(connection, nameMapping, tagMapping, 1, 16)
+    def client = new DDAgentStatsDClient(connection, nameMapping, tagMapping, aggregator)
+
+    when:
+    client.incrementCounter("test.count", "type:BufferPool")
+    client.incrementCounter("test.count", "type:BufferPool")
+    client.histogram("test.histogram", 5L)
+    client.close()
+
+    then:
+    1 * statsd.count("example.test.count", 2, "lang:java", "type:BufferPool")
+    1 * statsd.recordHistogramValues("example.test.histogram", [5L] as long[], 1.0, "lang:java")
+  }
+}
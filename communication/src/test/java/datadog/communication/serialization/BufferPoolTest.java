@@ -0,0 +1,114 @@
+package datadog.communication.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class BufferPoolTest {
+
+  @Test
+  public void testSizeClasses() {
+    assertArrayEquals(
+        new int[] {1024, 1280, 1536, 1792, 2048, 2560, 3072, 3584, 4096},
+        BufferPool.sizeClasses(1000, 4096));
+  }
+
+  @Test
+  public void testAcquireRoundsUpToSizeClass() {
+    BufferPool pool = new BufferPool(1024, 8 << 20, 1, false);
+    ByteBuffer buffer = pool.acquire(5 << 20);
+    assertEquals(5 << 20, buffer.capacity());
+    assertEquals(5 << 20, buffer.limit());
+    buffer = pool.acquire(1300);
+    assertEquals(1536, buffer.capacity());
+    assertEquals(1300, buffer.limit());
+  }
+
+  @Test
+  public void testReleasedBuffersAreReused() {
+    List<Boolean> acquisitions = new ArrayList<>();
+    BufferPool pool = new BufferPool(1024, 4096, 1, true, acquisitions::add);
+    ByteBuffer buffer = pool.acquire(2000);
+    assertTrue(buffer.isDirect());
+    buffer.put((byte) 1);
+    pool.release(buffer);
+    assertEquals(1, pool.size());
+
+    ByteBuffer reused = pool.acquire(1900);
+    assertSame(buffer, reused);
+    assertEquals(0, reused.position());
+    assertEquals(1900, reused.limit());
+    assertEquals(0, pool.size());
+
+    assertNotSame(buffer, pool.acquire(2000));
+    assertEquals(3, acquisitions.size());
+    assertEquals(false, acquisitions.get(0));
+    assertEquals(true, acquisitions.get(1));
+    assertEquals(false, acquisitions.get(2));
+  }
+
+  @Test
+  public void testPoolIsBounded() {
+    BufferPool pool = new BufferPool(1024, 4096, 2, false);
+    for (int i = 0; i < 3; ++i) {
+      pool.release(ByteBuffer.allocate(1024));
+    }
+    assertEquals(2, pool.size());
+  }
+
+  @Test
+  public void testForeignBuffersAreNotPooled() {
+    BufferPool pool = new BufferPool(1024, 4096, 2, false);
+    // oversized, not a size class, and off-heap
+    pool.release(pool.acquire(10000));
+    pool.release(ByteBuffer.allocate(1000));
+    pool.release(ByteBuffer.allocateDirect(1024));
+    assertEquals(0, pool.size());
+  }
+
+  @Test
+  public void testFlushingBufferHandsOverAndReacquires() {
+    BufferPool pool = new BufferPool(1024, 4096, 1, false);
+    List<ByteBuffer> flushed = new ArrayList<>();
+    FlushingBuffer flushingBuffer =
+        new FlushingBuffer(
+            1000,
+            (messageCount, buffer) -> {
+              assertEquals(1, messageCount);
+              assertEquals(4, buffer.remaining());
+              assertEquals(42, buffer.getInt(0));
+              flushed.add(buffer);
+              pool.release(buffer);
+            },
+            pool);
+    assertEquals(1000, flushingBuffer.capacity());
+    for (int i = 0; i < 2; ++i) {
+      flushingBuffer.putInt(42);
+      flushingBuffer.mark();
+      assertTrue(flushingBuffer.flush());
+    }
+    // released synchronously, so the same buffer keeps being reused
+    assertEquals(2, flushed.size());
+    assertSame(flushed.get(0), flushed.get(1));
+  }
+
+  @Test
+  public void testGrowableBufferReturnsOutgrownBuffers() {
+    BufferPool pool = new BufferPool(1024, 4096, 2, false);
+    GrowableBuffer buffer = new GrowableBuffer(1024, pool);
+    buffer.put(new byte[1500]);
+    assertEquals(2048, buffer.capacity());
+    assertEquals(1, pool.size());
+    buffer.putInt(7);
+    ByteBuffer slice = buffer.slice();
+    assertEquals(1504, slice.remaining());
+    assertEquals(7, slice.getInt(1500));
+  }
+}
@@ -1,6 +1,7 @@
 package datadog.trace.bootstrap.instrumentation.jfr;
 
 import datadog.trace.api.sampling.AdaptiveSampler;
+import datadog.trace.api.sampling.StripedAdaptiveSampler;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import jdk.jfr.Event;
@@ -13,7 +14,8 @@ public class WindowSampler<E extends Event> {
 
   protected WindowSampler(
       Duration windowDuration, int samplesPerWindow, int lookback, Class<E> eventType) {
-    sampler = new AdaptiveSampler(windowDuration, samplesPerWindow, lookback, 16, false);
+    // events such as exceptions are sampled from every application thread
+    sampler = new StripedAdaptiveSampler(windowDuration, samplesPerWindow, lookback, 16, false);
     sampleType = EventType.getEventType(eventType);
   }
 
@@ -70,6 +70,7 @@ public final class ConfigDefaults {
   static final int DEFAULT_SCOPE_DEPTH_LIMIT = 100;
   static final int DEFAULT_SCOPE_ITERATION_KEEP_ALIVE = 30; // in seconds
   static final int DEFAULT_PARTIAL_FLUSH_MIN_SPANS = 1000;
+  static final int DEFAULT_TRACE_STREAMING_CHUNK_SIZE = 500;
   static final boolean DEFAULT_PROPAGATION_EXTRACT_LOG_HEADER_NAMES_ENABLED = false;
   static final Set<TracePropagationStyle> DEFAULT_TRACE_PROPAGATION_STYLE =
       new LinkedHashSet<>(asList(DATADOG, TRACECONTEXT));
@@ -228,6 +229,18 @@ public final class ConfigDefaults {
 
   static final long DEFAULT_TRACE_POST_PROCESSING_TIMEOUT = 1000; // 1 second
 
+  static final int DEFAULT_TRACE_SERIALIZER_SHARDS = 1;
+  static final boolean DEFAULT_TRACE_AGENT_DIRECT_TRANSPORT_ENABLED = false;
+  static final boolean DEFAULT_TRACE_WRITER_BUFFER_POOL_ENABLED = false;
+  static final boolean DEFAULT_TRACE_AGENT_COMPRESSION_ENABLED = false;
+  static final int DEFAULT_TRACE_COMPRESSION_LEVEL = 6;
+  static final int DEFAULT_TRACE_AGENT_MAX_IN_FLIGHT_PAYLOADS = 0;
+  static final boolean DEFAULT_TRACE_WRITER_ADAPTIVE_FLUSH_ENABLED = false;
+  static final boolean DEFAULT_TRACE_AGENT_SPILL_ENABLED = false;
+  static final long DEFAULT_TRACE_AGENT_SPILL_MAX_BYTES = 64 << 20;
+  static final long DEFAULT_TRACE_AGENT_SPILL_MAX_AGE = 300; // seconds
+  static final int DEFAULT_TRACE_AGENT_SPILL_REPLAY_RATE = 10; // payloads per second
+
   static final boolean DEFAULT_COUCHBASE_INTERNAL_SPANS_ENABLED = true;
   static final boolean DEFAULT_ELASTICSEARCH_BODY_ENABLED = false;
   static final boolean DEFAULT_ELASTICSEARCH_PARAMS_ENABLED = true;
@@ -97,12 +97,9 @@ public class DD128bTraceId extends DDTraceId {
     }
     // Extract hexadecimal string representation to cache
     String hexStr = null;
-    if (length == 32) {
-      if (start == 0) {
-        hexStr = s;
-      } else {
-        hexStr = s.substring(start, start + 32);
-      }
+    // ids parsed from within a larger header value are encoded lazily, if ever needed
+    if (length == 32 && start == 0) {
+      hexStr = s;
       if (!lowerCaseOnly) {
         hexStr = hexStr.toLowerCase(Locale.ROOT);
       }
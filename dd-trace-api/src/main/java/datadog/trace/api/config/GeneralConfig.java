@@ -47,6 +47,8 @@ public final class GeneralConfig {
   public static final String STATSD_CLIENT_QUEUE_SIZE = "statsd.client.queue.size";
   public static final String STATSD_CLIENT_SOCKET_BUFFER = "statsd.client.socket.buffer";
   public static final String STATSD_CLIENT_SOCKET_TIMEOUT = "statsd.client.socket.timeout";
+  public static final String STATSD_CLIENT_PRE_AGGREGATION_ENABLED =
+      "statsd.client.pre.aggregation.enabled";
 
   public static final String RUNTIME_METRICS_ENABLED = "runtime.metrics.enabled";
   public static final String RUNTIME_ID_ENABLED = "runtime-id.enabled";
@@ -61,6 +63,8 @@ public final class GeneralConfig {
       "trace.tracer.metrics.buffering.enabled";
   public static final String TRACER_METRICS_MAX_AGGREGATES = "trace.tracer.metrics.max.aggregates";
   public static final String TRACER_METRICS_MAX_PENDING = "trace.tracer.metrics.max.pending";
+  public static final String TRACER_METRICS_PRE_AGGREGATION_ENABLED =
+      "trace.tracer.metrics.pre.aggregation.enabled";
   public static final String TRACER_METRICS_IGNORED_RESOURCES =
       "trace.tracer.metrics.ignored.resources";
 
@@ -73,6 +77,8 @@ public final class GeneralConfig {
   public static final String DATA_STREAMS_ENABLED = "data.streams.enabled";
   public static final String DATA_STREAMS_BUCKET_DURATION_SECONDS =
       "data.streams.bucket_duration.seconds";
+  public static final String DATA_STREAMS_SHARDED_INGESTION_ENABLED =
+      "data.streams.sharded.ingestion.enabled";
 
   public static final String TELEMETRY_ENABLED = "instrumentation.telemetry.enabled";
   public static final String TELEMETRY_HEARTBEAT_INTERVAL = "telemetry.heartbeat.interval";
@@ -49,6 +49,8 @@ public final class TracerConfig {
   // a global rate used for all services (that don’t have a dedicated rule defined).
   public static final String TRACE_SAMPLE_RATE = "trace.sample.rate";
   public static final String TRACE_RATE_LIMIT = "trace.rate.limit";
+  public static final String TRACE_SAMPLING_EARLY_DROP_ENABLED =
+      "trace.sampling.early.drop.enabled";
   public static final String TRACE_REPORT_HOSTNAME = "trace.report-hostname";
   public static final String TRACE_CLIENT_IP_HEADER = "trace.client-ip-header";
   public static final String TRACE_CLIENT_IP_RESOLVER_ENABLED = "trace.client-ip.resolver.enabled";
@@ -75,9 +77,13 @@ public final class TracerConfig {
   public static final String SCOPE_INHERIT_ASYNC_PROPAGATION =
       "trace.scope.inherit.async.propagation";
   public static final String SCOPE_ITERATION_KEEP_ALIVE = "trace.scope.iteration.keep.alive";
+  public static final String SCOPE_LAZY_STACKS = "trace.scope.lazy.stacks";
   public static final String PARTIAL_FLUSH_ENABLED = "trace.partial.flush.enabled";
   public static final String PARTIAL_FLUSH_MIN_SPANS = "trace.partial.flush.min.spans";
   public static final String TRACE_STRICT_WRITES_ENABLED = "trace.strict.writes.enabled";
+  public static final String TRACE_SPAN_RECYCLING_ENABLED = "trace.span.recycling.enabled";
+  public static final String TRACE_STREAMING_ENABLED = "trace.streaming.enabled";
+  public static final String TRACE_STREAMING_CHUNK_SIZE = "trace.streaming.chunk.size";
   public static final String PROPAGATION_EXTRACT_LOG_HEADER_NAMES_ENABLED =
       "propagation.extract.log_header_names.enabled";
   public static final String PROPAGATION_STYLE_EXTRACT = "propagation.style.extract";
@@ -135,5 +141,27 @@ public final class TracerConfig {
 
   public static final String TRACE_POST_PROCESSING_TIMEOUT = "trace.post-processing.timeout";
 
+  public static final String TRACE_SERIALIZER_SHARDS = "trace.serializer.shards";
+
+  public static final String TRACE_AGENT_DIRECT_TRANSPORT_ENABLED =
+      "trace.agent.direct-transport.enabled";
+
+  public static final String TRACE_WRITER_BUFFER_POOL_ENABLED = "trace.writer.buffer-pool.enabled";
+
+  public static final String TRACE_AGENT_COMPRESSION_ENABLED = "trace.agent.compression.enabled";
+  public static final String TRACE_COMPRESSION_LEVEL = "trace.compression.level";
+
+  public static final String TRACE_AGENT_MAX_IN_FLIGHT_PAYLOADS =
+      "trace.agent.max-in-flight-payloads";
+
+  public static final String TRACE_WRITER_ADAPTIVE_FLUSH_ENABLED =
+      "trace.writer.adaptive-flush.enabled";
+
+  public static final String TRACE_AGENT_SPILL_ENABLED = "trace.agent.spill.enabled";
+  public static final String TRACE_AGENT_SPILL_DIRECTORY = "trace.agent.spill.directory";
+  public static final String TRACE_AGENT_SPILL_MAX_BYTES = "trace.agent.spill.max-bytes";
+  public static final String TRACE_AGENT_SPILL_MAX_AGE = "trace.agent.spill.max-age";
+  public static final String TRACE_AGENT_SPILL_REPLAY_RATE = "trace.agent.spill.replay-rate";
+
   private TracerConfig() {}
 }
@@ -151,6 +151,14 @@ public class LongStringUtils {
     return new String(bytes, US_ASCII);
   }
 
+  /**
+   * Writes the id as 16 lower case hex digits, padded with zeros, to the bytes at the index, so
+   * that ids can be encoded in a larger header value without an intermediate {@link String}.
+   */
+  public static void fillPaddedHexBytes(long id, byte[] bytes, int index) {
+    fillStringBytesWithPaddedHexId(id, index, 16, bytes);
+  }
+
   private static byte[] allocatePaddedHexStringBytes(int size) {
     if (size > 16) {
       size = 32;
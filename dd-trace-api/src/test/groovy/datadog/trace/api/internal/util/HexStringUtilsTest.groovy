@@ -35,4 +35,34 @@ class HexStringUtilsTest extends Specification {
     highOrderSize = Math.min(16, Math.max(0, size - 16))
     lowOrderSize = Math.min(16, size)
   }
+
+  def "padded hex bytes of #id are written in place"() {
+    setup:
+    byte[] bytes = new byte[20]
+    Arrays.fill(bytes, (byte) '-')
+
+    when:
+    LongStringUtils.fillPaddedHexBytes(id, bytes, 2)
+    def hex = new String(bytes, 2, 16, "US-ASCII")
+
+    then:
+    hex == LongStringUtils.toHexStringPadded(id, 16)
+    LongStringUtils.parseUnsignedLongHex(hex) == id
+    new String(bytes, "US-ASCII").startsWith("--")
+    new String(bytes, "US-ASCII").endsWith("--")
+
+    where:
+    id << [0L, 1L, 0xabcL, 3270264562721133536L, Long.MAX_VALUE, Long.MIN_VALUE, -1L]
+  }
+
+  def "padded hex bytes are zero padded lower case"() {
+    setup:
+    byte[] bytes = new byte[16]
+
+    when:
+    LongStringUtils.fillPaddedHexBytes(0xABCL, bytes, 0)
+
+    then:
+    new String(bytes, "US-ASCII") == "0000000000000abc"
+  }
 }
@@ -0,0 +1,159 @@
+package datadog.trace.common.metrics;
+
+import static datadog.communication.ddagent.DDAgentFeaturesDiscovery.V6_METRICS_ENDPOINT;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.communication.ddagent.DDAgentFeaturesDiscovery;
+import datadog.communication.monitor.Monitoring;
+import datadog.trace.common.writer.ListWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import datadog.trace.core.monitor.HealthMetrics;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.HttpUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures publishing top level spans to the client-side stats aggregator from several threads,
+ * with and without per-core pre-aggregation of the span durations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+public class MetricsPublishBenchmark {
+
+  private static final HttpUrl AGENT_URL = HttpUrl.get("http://localhost:8126");
+
+  @Param({"false", "true"})
+  boolean preAggregation;
+
+  @Param({"16"})
+  int keys;
+
+  private CoreTracer tracer;
+  private ConflatingMetricsAggregator aggregator;
+  private List<List<DDSpan>> traces;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+  }
+
+  @Setup(Level.Trial)
+  public void init() {
+    tracer = CoreTracer.builder().writer(new ListWriter()).strictTraceWrites(false).build();
+    traces = new ArrayList<>(keys);
+    for (int i = 0; i < keys; i++) {
+      DDSpan span =
+          (DDSpan)
+              tracer
+                  .buildSpan("benchmark", "servlet.request")
+                  .withServiceName("service-" + i)
+                  .withResourceName("GET /resource/" + i)
+                  .withStartTimestamp(1000)
+                  .start();
+      span.finish(2000);
+      traces.add(Collections.singletonList(span));
+    }
+    aggregator =
+        new ConflatingMetricsAggregator(
+            Collections.emptySet(),
+            new StaticFeaturesDiscovery(),
+            new NoopSink(),
+            new NoopMetricWriter(),
+            2048,
+            2048,
+            10,
+            SECONDS,
+            HealthMetrics.NO_OP,
+            preAggregation);
+    aggregator.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    aggregator.close();
+    tracer.close();
+  }
+
+  @Threads(1)
+  @Benchmark
+  public boolean publish1(Cursor cursor) {
+    return publish(cursor);
+  }
+
+  @Threads(8)
+  @Benchmark
+  public boolean publish8(Cursor cursor) {
+    return publish(cursor);
+  }
+
+  @Threads(32)
+  @Benchmark
+  public boolean publish32(Cursor cursor) {
+    return publish(cursor);
+  }
+
+  private boolean publish(Cursor cursor) {
+    List<DDSpan> trace = traces.get(cursor.next++ % traces.size());
+    return aggregator.publish(trace);
+  }
+
+  private static final class StaticFeaturesDiscovery extends DDAgentFeaturesDiscovery {
+    StaticFeaturesDiscovery() {
+      super(null, Monitoring.DISABLED, AGENT_URL, false, true);
+    }
+
+    @Override
+    public void discover() {}
+
+    @Override
+    public void discoverIfOutdated() {}
+
+    @Override
+    public String getMetricsEndpoint() {
+      return V6_METRICS_ENDPOINT;
+    }
+
+    @Override
+    public boolean supportsMetrics() {
+      return true;
+    }
+  }
+
+  private static final class NoopSink implements Sink {
+    @Override
+    public void register(EventListener listener) {}
+
+    @Override
+    public void accept(int messageCount, ByteBuffer buffer) {}
+  }
+
+  private static final class NoopMetricWriter implements MetricWriter {
+    @Override
+    public void startBucket(int metricCount, long start, long duration) {}
+
+    @Override
+    public void add(MetricKey key, AggregateMetric aggregate) {}
+
+    @Override
+    public void finishBucket() {}
+
+    @Override
+    public void reset() {}
+  }
+}
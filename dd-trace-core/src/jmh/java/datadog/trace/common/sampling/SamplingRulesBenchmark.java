@@ -0,0 +1,77 @@
+package datadog.trace.common.sampling;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import datadog.trace.api.sampling.SamplingMechanism;
+import datadog.trace.common.writer.ListWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures finding the sampling rule of a span matching the last of the rules, like remote config
+ * rules for many services. Rules on exact service names are indexed, rules on service name globs
+ * are all evaluated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+public class SamplingRulesBenchmark {
+
+  @Param({"1", "10", "100", "1000"})
+  int ruleCount;
+
+  @Param({"exact", "glob"})
+  String services;
+
+  private CoreTracer tracer;
+  private DDSpan span;
+  private SamplingRuleIndex<RateSamplingRule> rules;
+
+  @Setup(Level.Trial)
+  public void init() {
+    List<RateSamplingRule> rules = new ArrayList<>(ruleCount);
+    for (int i = 0; i < ruleCount; i++) {
+      rules.add(
+          new RateSamplingRule.TraceSamplingRule(
+              "exact".equals(services) ? "service-" + i : "service-" + i + "*",
+              "servlet.request",
+              "GET /users/" + i,
+              Collections.<String, String>emptyMap(),
+              new DeterministicSampler.TraceSampler(0.5),
+              SamplingMechanism.REMOTE_ADAPTIVE_RULE));
+    }
+    this.rules = new SamplingRuleIndex<>(rules);
+    tracer = CoreTracer.builder().writer(new ListWriter()).strictTraceWrites(false).build();
+    span =
+        (DDSpan)
+            tracer
+                .buildSpan("benchmark", "servlet.request")
+                .withServiceName("service-" + (ruleCount - 1))
+                .withResourceName("GET /users/" + (ruleCount - 1))
+                .start();
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    span.finish();
+    tracer.close();
+  }
+
+  @Benchmark
+  public RateSamplingRule firstMatch() {
+    return rules.firstMatch(span);
+  }
+}
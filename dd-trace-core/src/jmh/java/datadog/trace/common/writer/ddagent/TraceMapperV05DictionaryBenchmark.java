@@ -0,0 +1,149 @@
+package datadog.trace.common.writer.ddagent;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.communication.serialization.Writable;
+import datadog.communication.serialization.msgpack.MsgPackWriter;
+import datadog.trace.api.DDSpanId;
+import datadog.trace.api.DDTraceId;
+import datadog.trace.api.sampling.PrioritySampling;
+import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopPathwayContext;
+import datadog.trace.common.writer.LoggingWriter;
+import datadog.trace.core.BlackholeBuffer;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import datadog.trace.core.DDSpanContext;
+import datadog.trace.core.DDSpanHelper;
+import datadog.trace.core.TraceCollector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cost per span of mapping traces with the v0.5 dictionary encoding, with and without
+ * the cross-payload string cache. Services and operations have a low cardinality, resources and
+ * some tag values a configurable one, and the mapper is reset every few traces as a flush would.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 10, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 10, timeUnit = SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Fork(value = 1)
+public class TraceMapperV05DictionaryBenchmark {
+
+  private static final int TRACE_COUNT = 1000;
+  private static final int SPANS_PER_TRACE = 20;
+  private static final int TRACES_PER_PAYLOAD = 50;
+
+  @Param({"0", "4096"})
+  int stringCacheSize;
+
+  @Param({"100", "100000"})
+  int cardinality;
+
+  private CoreTracer tracer;
+  private TraceMapperV0_5 mapper;
+  private Writable writable;
+  private List<List<DDSpan>> traces;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void init(Blackhole blackhole) {
+    tracer = CoreTracer.builder().writer(new LoggingWriter()).strictTraceWrites(true).build();
+    mapper = new TraceMapperV0_5(2 << 20, 2 << 20, null, stringCacheSize);
+    writable = new MsgPackWriter(new BlackholeBuffer(blackhole));
+    traces = new ArrayList<>(TRACE_COUNT);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < TRACE_COUNT; ++i) {
+      DDTraceId traceId = DDTraceId.from(i + 1);
+      TraceCollector traceCollector = tracer.createTraceCollector(traceId);
+      List<DDSpan> trace = new ArrayList<>(SPANS_PER_TRACE);
+      for (int j = 0; j < SPANS_PER_TRACE; ++j) {
+        DDSpan span =
+            createSpan(
+                traceId,
+                traceCollector,
+                j,
+                "service-" + random.nextInt(5),
+                "operation-" + random.nextInt(20),
+                "GET /api/v1/resource/" + random.nextInt(cardinality));
+        span.setTag("env", "prod");
+        span.setTag("version", "1.2.3");
+        span.setTag("component", "component-" + random.nextInt(10));
+        span.setTag("http.url", "http://localhost/api/v1/resource/" + random.nextInt(cardinality));
+        span.setTag("usr.id", "user-" + random.nextInt(cardinality));
+        span.setMetric("db.row_count", random.nextInt(100));
+        trace.add(span);
+      }
+      traces.add(trace);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    tracer.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SPANS_PER_TRACE)
+  public void mapTrace() {
+    mapper.map(traces.get(next), writable);
+    if (++next % TRACES_PER_PAYLOAD == 0) {
+      // the dictionary starts over with each payload
+      mapper.reset();
+      if (next == TRACE_COUNT) {
+        next = 0;
+      }
+    }
+  }
+
+  private static DDSpan createSpan(
+      DDTraceId traceId,
+      TraceCollector traceCollector,
+      int index,
+      String service,
+      String operation,
+      String resource) {
+    return DDSpanHelper.create(
+        "benchmark",
+        System.currentTimeMillis() * 1000,
+        new DDSpanContext(
+            traceId,
+            1000 + index,
+            index == 0 ? DDSpanId.ZERO : 1000,
+            null,
+            service,
+            operation,
+            resource,
+            PrioritySampling.SAMPLER_KEEP,
+            null,
+            Collections.<String, String>emptyMap(),
+            false,
+            "web",
+            0,
+            traceCollector,
+            null,
+            null,
+            NoopPathwayContext.INSTANCE,
+            false,
+            null));
+  }
+}
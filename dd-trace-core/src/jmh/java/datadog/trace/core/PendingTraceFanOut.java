@@ -0,0 +1,94 @@
+package datadog.trace.core;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import datadog.trace.api.DDSpanId;
+import datadog.trace.api.DDTraceId;
+import datadog.trace.api.sampling.PrioritySampling;
+import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopPathwayContext;
+import java.util.Collections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures finishing child spans of a single trace from many threads, as a fan-out does. The root
+ * span never finishes, so the finished children are written by partial flushes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+public class PendingTraceFanOut {
+
+  @Param({"1", "100"})
+  int childrenPerThread;
+
+  private CoreTracer tracer;
+  private PendingTrace traceCollector;
+  private DDSpan child;
+
+  @Setup(Level.Trial)
+  public void init(TraceCounters counters, Blackhole blackhole) {
+    tracer =
+        CoreTracer.builder()
+            .writer(new BlackholeWriter(blackhole, counters, 0))
+            .strictTraceWrites(false)
+            .build();
+    DDTraceId traceId = DDTraceId.ONE;
+    traceCollector = (PendingTrace) tracer.createTraceCollector(traceId);
+    traceCollector.registerSpan(createSpan(traceId, 2, DDSpanId.ZERO));
+    child = createSpan(traceId, 3, 2);
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    tracer.close();
+  }
+
+  @Threads(16)
+  @Benchmark
+  public void finishChildren() {
+    for (int i = 0; i < childrenPerThread; ++i) {
+      traceCollector.registerSpan(child);
+    }
+    for (int i = 0; i < childrenPerThread; ++i) {
+      traceCollector.onPublish(child);
+    }
+  }
+
+  private DDSpan createSpan(DDTraceId traceId, long spanId, long parentId) {
+    return DDSpan.create(
+        "benchmark",
+        System.currentTimeMillis() * 1000,
+        new DDSpanContext(
+            traceId,
+            spanId,
+            parentId,
+            null,
+            "service",
+            "operation",
+            "resource",
+            PrioritySampling.SAMPLER_KEEP,
+            null,
+            Collections.<String, String>emptyMap(),
+            false,
+            "type",
+            0,
+            traceCollector,
+            null,
+            null,
+            NoopPathwayContext.INSTANCE,
+            false,
+            null),
+        null);
+  }
+}
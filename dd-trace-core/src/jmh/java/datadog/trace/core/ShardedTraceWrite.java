@@ -0,0 +1,167 @@
+package datadog.trace.core;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import datadog.communication.ddagent.DDAgentFeaturesDiscovery;
+import datadog.communication.monitor.Monitoring;
+import datadog.trace.api.DDSpanId;
+import datadog.trace.api.DDTraceId;
+import datadog.trace.api.sampling.PrioritySampling;
+import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopPathwayContext;
+import datadog.trace.common.writer.DDAgentWriter;
+import datadog.trace.common.writer.LoggingWriter;
+import datadog.trace.common.writer.Payload;
+import datadog.trace.common.writer.ddagent.DDAgentApi;
+import datadog.trace.common.writer.ddagent.Prioritization;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.HttpUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures how trace writing throughput scales with the number of serializer shards. The {@code
+ * ENSURE_TRACE} prioritization blocks publishers when the queues are full, so the score reflects
+ * how fast the serializer threads drain them rather than how fast traces are dropped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+public class ShardedTraceWrite {
+
+  private static final HttpUrl AGENT_URL = HttpUrl.get("http://localhost:8126");
+  private static final int TRACES_PER_THREAD = 64;
+
+  private static final CoreTracer tracer =
+      CoreTracer.builder().writer(new LoggingWriter()).strictTraceWrites(true).build();
+
+  @Param({"1", "2", "4", "8"})
+  int shards;
+
+  @Param({"10"})
+  int spansPerTrace;
+
+  private DDAgentWriter writer;
+
+  @Setup(Level.Trial)
+  public void init(Blackhole blackhole) {
+    DDAgentFeaturesDiscovery discovery = new StaticFeaturesDiscovery();
+    writer =
+        DDAgentWriter.builder()
+            .featureDiscovery(discovery)
+            .agentApi(new BlackholeAgentApi(discovery, blackhole))
+            .prioritization(Prioritization.ENSURE_TRACE)
+            .traceBufferSize(1024)
+            .serializerShards(shards)
+            .build();
+    writer.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    writer.close();
+  }
+
+  @State(Scope.Thread)
+  public static class Traces {
+    final List<List<DDSpan>> traces = new ArrayList<>(TRACES_PER_THREAD);
+    int next;
+
+    @Setup(Level.Trial)
+    public void init(ShardedTraceWrite benchmark) {
+      for (int i = 0; i < TRACES_PER_THREAD; ++i) {
+        DDTraceId traceId = DDTraceId.from(System.identityHashCode(this) * 1000L + i);
+        List<DDSpan> trace = new ArrayList<>(benchmark.spansPerTrace);
+        for (int j = 0; j < benchmark.spansPerTrace; ++j) {
+          trace.add(createSpan(traceId, j));
+        }
+        traces.add(trace);
+      }
+    }
+
+    List<DDSpan> next() {
+      return traces.get(next++ & (TRACES_PER_THREAD - 1));
+    }
+  }
+
+  @Threads(8)
+  @Benchmark
+  public void writeTraces(Traces traces) {
+    writer.write(traces.next());
+  }
+
+  private static DDSpan createSpan(DDTraceId traceId, int index) {
+    return DDSpan.create(
+        "benchmark",
+        System.currentTimeMillis() * 1000,
+        new DDSpanContext(
+            traceId,
+            1000 + index,
+            index == 0 ? DDSpanId.ZERO : 1000,
+            null,
+            "service",
+            "operation",
+            "resource",
+            PrioritySampling.SAMPLER_KEEP,
+            null,
+            Collections.<String, String>emptyMap(),
+            false,
+            "type",
+            0,
+            tracer.createTraceCollector(traceId),
+            null,
+            null,
+            NoopPathwayContext.INSTANCE,
+            false,
+            null),
+        null);
+  }
+
+  private static final class StaticFeaturesDiscovery extends DDAgentFeaturesDiscovery {
+    StaticFeaturesDiscovery() {
+      super(null, Monitoring.DISABLED, AGENT_URL, false, false);
+    }
+
+    @Override
+    public void discover() {}
+
+    @Override
+    public void discoverIfOutdated() {}
+
+    @Override
+    public String getTraceEndpoint() {
+      return V4_ENDPOINT;
+    }
+
+    @Override
+    public boolean active() {
+      return false;
+    }
+  }
+
+  private static final class BlackholeAgentApi extends DDAgentApi {
+    private final Blackhole blackhole;
+
+    BlackholeAgentApi(DDAgentFeaturesDiscovery discovery, Blackhole blackhole) {
+      super(null, AGENT_URL, discovery, Monitoring.DISABLED, false);
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public Response sendSerializedTraces(Payload payload) {
+      blackhole.consume(payload.sizeInBytes());
+      return Response.success(200);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package datadog.trace.core;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.Tags;
+import datadog.trace.common.writer.Writer;
+import java.util.List;
+import java.util.Properties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures tagging, finishing and serializing a short-lived span, with and without span
+ * recycling. Each invocation writes a single span, so run with {@code -prof gc} to report the
+ * allocations per span as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+public class SpanRecycling {
+
+  @Param({"false", "true"})
+  String recycling;
+
+  private CoreTracer tracer;
+
+  @Setup(Level.Trial)
+  public void init(Blackhole blackhole) {
+    Properties properties = new Properties();
+    properties.setProperty("trace.span.recycling.enabled", recycling);
+    tracer =
+        CoreTracer.builder()
+            .withProperties(properties)
+            .writer(new SerializingWriter(blackhole))
+            .strictTraceWrites(true)
+            .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    tracer.close();
+  }
+
+  @Benchmark
+  public void writeSpan() {
+    AgentSpan span = tracer.startSpan("jdbc", "database.query");
+    span.setTag(Tags.COMPONENT, "java-jdbc-prepared_statement");
+    span.setTag(Tags.SPAN_KIND, Tags.SPAN_KIND_CLIENT);
+    span.setTag(Tags.DB_TYPE, "postgresql");
+    span.setTag(Tags.DB_INSTANCE, "users");
+    span.setTag(Tags.DB_USER, "app");
+    span.setTag(Tags.PEER_HOSTNAME, "localhost");
+    span.setTag(Tags.PEER_PORT, 5432);
+    span.setTag("db.row_count", 12);
+    span.finish();
+  }
+
+  /** Reads the tags of each span like the trace mappers do, then recycles the span. */
+  static final class SerializingWriter implements Writer {
+    private final Blackhole blackhole;
+    private final MetadataConsumer consumer;
+
+    SerializingWriter(Blackhole blackhole) {
+      this.blackhole = blackhole;
+      this.consumer =
+          metadata -> {
+            TagMap tags = TagMap.from(metadata.getTags());
+            for (int i = tags.firstIndex(); i >= 0; i = tags.nextIndex(i)) {
+              blackhole.consume(tags.keyAt(i));
+              blackhole.consume(tags.typeAt(i));
+            }
+          };
+    }
+
+    @Override
+    public void write(List<DDSpan> trace) {
+      for (DDSpan span : trace) {
+        span.processTagsAndBaggage(consumer);
+        span.recycleTags();
+      }
+      blackhole.consume(trace);
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public boolean flush() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public void incrementDropCounts(int spanCount) {}
+
+    @Override
+    public boolean recyclesSpans() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package datadog.trace.core.datastreams;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import datadog.trace.api.time.SystemTimeSource;
+import datadog.trace.bootstrap.instrumentation.api.CheckpointTags;
+import datadog.trace.bootstrap.instrumentation.api.StatsPoint;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures what a pathway context costs per message: a checkpoint set from a tag map or from
+ * prepared tags, and the encoding and decoding of the propagated context. Run with {@code -prof
+ * gc} to compare the allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+public class PathwayContextBenchmark {
+
+  private static final CheckpointTags TAGS =
+      CheckpointTags.of("direction", "in", "group", "group", "topic", "topic", "type", "kafka");
+
+  private DefaultPathwayContext context;
+  private String encoded;
+  private Consumer<StatsPoint> pointConsumer;
+
+  @Setup(Level.Trial)
+  public void init(Blackhole blackhole) throws IOException {
+    pointConsumer = blackhole::consume;
+    context = new DefaultPathwayContext(SystemTimeSource.INSTANCE, 42);
+    context.setCheckpoint(TAGS, pointConsumer, 0, 0);
+    encoded = context.strEncode();
+  }
+
+  @Benchmark
+  public void setCheckpointWithMap() {
+    LinkedHashMap<String, String> sortedTags = new LinkedHashMap<>();
+    sortedTags.put(TagsProcessor.DIRECTION_TAG, TagsProcessor.DIRECTION_IN);
+    sortedTags.put(TagsProcessor.GROUP_TAG, "group");
+    sortedTags.put(TagsProcessor.TOPIC_TAG, "topic");
+    sortedTags.put(TagsProcessor.TYPE_TAG, "kafka");
+    newContext().setCheckpoint(sortedTags, pointConsumer, 0, 0);
+  }
+
+  @Benchmark
+  public void setCheckpointWithTags() {
+    newContext().setCheckpoint(TAGS, pointConsumer, 0, 0);
+  }
+
+  @Benchmark
+  public String encode() throws IOException {
+    return context.strEncode();
+  }
+
+  @Benchmark
+  public DefaultPathwayContext decode() throws IOException {
+    return DefaultPathwayContext.strDecode(SystemTimeSource.INSTANCE, 42, encoded);
+  }
+
+  // each message produced starts a new pathway
+  private static DefaultPathwayContext newContext() {
+    return new DefaultPathwayContext(SystemTimeSource.INSTANCE, 42);
+  }
+}
@@ -0,0 +1,138 @@
+package datadog.trace.core.datastreams;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.communication.ddagent.DDAgentFeaturesDiscovery;
+import datadog.communication.monitor.Monitoring;
+import datadog.trace.api.DynamicConfig;
+import datadog.trace.api.WellKnownTags;
+import datadog.trace.api.time.SystemTimeSource;
+import datadog.trace.common.metrics.EventListener;
+import datadog.trace.common.metrics.Sink;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import okhttp3.HttpUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures setting a consume checkpoint on a new pathway from several threads, as a Kafka consumer
+ * does for each message, with the points queued to the data streams thread or aggregated in
+ * shards. Note that the points which do not fit in the inbox of the data streams thread are
+ * dropped, which makes the queued mode look faster than it is once the inbox is full.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+public class SetCheckpointBenchmark {
+
+  private static final HttpUrl AGENT_URL = HttpUrl.get("http://localhost:8126");
+
+  @Param({"false", "true"})
+  boolean sharded;
+
+  private DefaultDataStreamsMonitoring dataStreams;
+  private LinkedHashMap<String, String> sortedTags;
+  private long hashOfKnownTags;
+
+  @Setup(Level.Trial)
+  public void init() {
+    WellKnownTags wellKnownTags =
+        new WellKnownTags("runtimeid", "hostname", "env", "service", "version", "java");
+    DynamicConfig<DynamicConfig.Snapshot> traceConfig =
+        DynamicConfig.create().setDataStreamsEnabled(true).apply();
+    dataStreams =
+        new DefaultDataStreamsMonitoring(
+            new NoopSink(),
+            new StaticFeaturesDiscovery(),
+            SystemTimeSource.INSTANCE,
+            traceConfig::captureTraceConfig,
+            wellKnownTags,
+            new NoopPayloadWriter(),
+            SECONDS.toNanos(10),
+            sharded);
+    dataStreams.start();
+    hashOfKnownTags = DefaultPathwayContext.getBaseHash(wellKnownTags);
+    sortedTags = new LinkedHashMap<>();
+    sortedTags.put(TagsProcessor.DIRECTION_TAG, TagsProcessor.DIRECTION_IN);
+    sortedTags.put(TagsProcessor.GROUP_TAG, "consumers");
+    sortedTags.put(TagsProcessor.TOPIC_TAG, "orders");
+    sortedTags.put(TagsProcessor.TYPE_TAG, "kafka");
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    dataStreams.close();
+  }
+
+  @Threads(1)
+  @Benchmark
+  public DefaultPathwayContext setCheckpoint1() {
+    return setCheckpoint();
+  }
+
+  @Threads(8)
+  @Benchmark
+  public DefaultPathwayContext setCheckpoint8() {
+    return setCheckpoint();
+  }
+
+  @Threads(32)
+  @Benchmark
+  public DefaultPathwayContext setCheckpoint32() {
+    return setCheckpoint();
+  }
+
+  private DefaultPathwayContext setCheckpoint() {
+    DefaultPathwayContext pathwayContext =
+        new DefaultPathwayContext(SystemTimeSource.INSTANCE, hashOfKnownTags);
+    pathwayContext.setCheckpoint(sortedTags, dataStreams::add);
+    return pathwayContext;
+  }
+
+  private static final class StaticFeaturesDiscovery extends DDAgentFeaturesDiscovery {
+    StaticFeaturesDiscovery() {
+      super(null, Monitoring.DISABLED, AGENT_URL, false, false);
+    }
+
+    @Override
+    public void discover() {}
+
+    @Override
+    public void discoverIfOutdated() {}
+
+    @Override
+    public String getDataStreamsEndpoint() {
+      return V01_DATASTREAMS_ENDPOINT;
+    }
+
+    @Override
+    public boolean supportsDataStreams() {
+      return true;
+    }
+  }
+
+  private static final class NoopSink implements Sink {
+    @Override
+    public void register(EventListener listener) {}
+
+    @Override
+    public void accept(int messageCount, ByteBuffer buffer) {}
+  }
+
+  private static final class NoopPayloadWriter implements DatastreamsPayloadWriter {
+    @Override
+    public void writePayload(Collection<StatsBucket> data) {}
+  }
+}
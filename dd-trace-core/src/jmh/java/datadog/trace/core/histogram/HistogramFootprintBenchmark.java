@@ -0,0 +1,84 @@
+package datadog.trace.core.histogram;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import datadog.trace.bootstrap.instrumentation.api.AgentHistogram;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the memory held by the ok and error latency histograms of the given number of stats
+ * aggregates, with the DDSketch based histograms and with the compact ones. Each invocation of
+ * {@code populate} creates and fills the histograms of all the aggregates, so run with {@code -prof
+ * gc} to report their footprint as {@code gc.alloc.rate.norm}; {@code refill} clears and fills the
+ * same histograms again, as at the start of each reporting interval.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+public class HistogramFootprintBenchmark {
+
+  @Param({"2000", "10000", "50000"})
+  int aggregates;
+
+  @Param({"ddsketch", "compact"})
+  String histogram;
+
+  /** Durations recorded per aggregate in each interval, one in ten being an error. */
+  @Param({"64"})
+  int durations;
+
+  private long[] latencies;
+  private AgentHistogram[] histograms;
+
+  @Setup(Level.Trial)
+  public void init() {
+    Random random = new Random(0);
+    latencies = new long[durations];
+    for (int i = 0; i < latencies.length; i++) {
+      // log-normally distributed around a millisecond
+      latencies[i] = (long) (1_000_000 * Math.exp(random.nextGaussian()));
+    }
+    histograms = populate();
+  }
+
+  @Benchmark
+  public AgentHistogram[] populate() {
+    AgentHistogram[] histograms = new AgentHistogram[aggregates * 2];
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] =
+          "compact".equals(histogram)
+              ? Histograms.newCompactHistogram()
+              : Histograms.newHistogram();
+    }
+    fill(histograms);
+    return histograms;
+  }
+
+  @Benchmark
+  public AgentHistogram[] refill() {
+    for (AgentHistogram histogram : histograms) {
+      histogram.clear();
+    }
+    fill(histograms);
+    return histograms;
+  }
+
+  private void fill(AgentHistogram[] histograms) {
+    for (int i = 0; i < histograms.length; i += 2) {
+      for (int j = 0; j < latencies.length; j++) {
+        // the error histogram of an aggregate follows its ok histogram
+        int target = j % 10 == 0 ? i + 1 : i;
+        histograms[target].accept(latencies[(i + j) % latencies.length]);
+      }
+    }
+  }
+}
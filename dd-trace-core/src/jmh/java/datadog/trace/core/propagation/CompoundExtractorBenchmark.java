@@ -0,0 +1,111 @@
+package datadog.trace.core.propagation;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.trace.api.Config;
+import datadog.trace.api.DynamicConfig;
+import datadog.trace.api.Pair;
+import datadog.trace.api.TraceConfig;
+import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
+import datadog.trace.bootstrap.instrumentation.api.TagContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares extracting the datadog, tracecontext and b3multi contexts from requests with many
+ * headers in a single pass over the headers, and after caching them for each extractor to visit.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 30, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 30, timeUnit = SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Fork(value = 1)
+public class CompoundExtractorBenchmark {
+
+  @Param({"true", "false"})
+  boolean singlePass;
+
+  @Param({"10", "40"})
+  int otherHeaders;
+
+  List<Pair<String, String>> headers;
+  HttpCodec.Extractor extractor;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    headers = new ArrayList<>();
+    headers.add(Pair.of(DatadogHttpCodec.TRACE_ID_KEY, "12345"));
+    headers.add(Pair.of(DatadogHttpCodec.SPAN_ID_KEY, "23456"));
+    headers.add(Pair.of(DatadogHttpCodec.SAMPLING_PRIORITY_KEY, "1"));
+    headers.add(
+        Pair.of(
+            W3CHttpCodec.TRACE_PARENT_KEY,
+            "00-00000000000000000000000000003039-0000000000005ba0-01"));
+    headers.add(Pair.of(W3CHttpCodec.TRACE_STATE_KEY, "dd=s:1;t.dm:-4,other=value"));
+    headers.add(Pair.of(B3HttpCodec.TRACE_ID_KEY, "3039"));
+    headers.add(Pair.of(B3HttpCodec.SPAN_ID_KEY, "5ba0"));
+    for (int i = 0; i < otherHeaders; i++) {
+      headers.add(Pair.of("x-some-header-" + i, "ignored"));
+    }
+
+    DynamicConfig dynamicConfig =
+        DynamicConfig.create()
+            .setHeaderTags(Collections.emptyMap())
+            .setBaggageMapping(Collections.emptyMap())
+            .apply();
+    Config config = Config.get();
+    Supplier<TraceConfig> traceConfigSupplier = dynamicConfig::captureTraceConfig;
+    List<HttpCodec.Extractor> extractors =
+        Arrays.asList(
+            DatadogHttpCodec.newExtractor(config, traceConfigSupplier),
+            W3CHttpCodec.newExtractor(config, traceConfigSupplier),
+            B3HttpCodec.newMultiExtractor(config, traceConfigSupplier));
+    if (!singlePass) {
+      // hide the extractors behind delegates so the headers are cached first
+      List<HttpCodec.Extractor> delegates = new ArrayList<>();
+      for (HttpCodec.Extractor delegate : extractors) {
+        delegates.add(
+            new HttpCodec.Extractor() {
+              @Override
+              public <C> TagContext extract(C carrier, AgentPropagation.ContextVisitor<C> getter) {
+                return delegate.extract(carrier, getter);
+              }
+            });
+      }
+      extractors = delegates;
+    }
+    extractor = new HttpCodec.CompoundExtractor(extractors, false);
+  }
+
+  @Benchmark
+  public void extractContext(Blackhole blackhole) {
+    blackhole.consume(extractor.extract(headers, LIST_VISITOR));
+  }
+
+  private static final AgentPropagation.ContextVisitor<List<Pair<String, String>>> LIST_VISITOR =
+      (carrier, classifier) -> {
+        for (Pair<String, String> entry : carrier) {
+          if (!classifier.accept(entry.getLeft(), entry.getRight())) {
+            return;
+          }
+        }
+      };
+}
@@ -0,0 +1,92 @@
+package datadog.trace.core.scopemanager;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import datadog.trace.bootstrap.instrumentation.api.AgentScope;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopAgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.ProfilingContextIntegration;
+import datadog.trace.bootstrap.instrumentation.api.ScopeSource;
+import datadog.trace.core.monitor.HealthMetrics;
+import java.util.concurrent.ThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures activating and closing a scope, and looking up the active span, on platform and virtual
+ * threads, with eagerly and lazily allocated scope stacks. The benchmarks on new threads start a
+ * thread per invocation, as virtual threads are mostly started per task. The virtual threads
+ * benchmarks need to run on JDK 21+.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+public class ScopeActivation {
+
+  @Param({"platform", "virtual"})
+  String threads;
+
+  @Param({"false", "true"})
+  boolean lazyScopeStacks;
+
+  private ContinuableScopeManager scopeManager;
+  private ThreadFactory threadFactory;
+  private final AgentSpan span = NoopAgentSpan.INSTANCE;
+
+  @Setup(Level.Trial)
+  public void init() throws Exception {
+    scopeManager =
+        new ContinuableScopeManager(
+            0,
+            false,
+            true,
+            ProfilingContextIntegration.NoOp.INSTANCE,
+            HealthMetrics.NO_OP,
+            lazyScopeStacks);
+    if ("virtual".equals(threads)) {
+      // Thread.ofVirtual().factory(), without compiling against JDK 21
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      threadFactory =
+          (ThreadFactory)
+              Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+    } else {
+      threadFactory = Thread::new;
+    }
+  }
+
+  @Benchmark
+  public void activateAndClose(Blackhole blackhole) {
+    activateAndClose(scopeManager, span, blackhole);
+  }
+
+  @Benchmark
+  public void activateAndCloseOnNewThread(Blackhole blackhole) throws InterruptedException {
+    runOnNewThread(() -> activateAndClose(scopeManager, span, blackhole));
+  }
+
+  @Benchmark
+  public void activeSpanOnNewThread(Blackhole blackhole) throws InterruptedException {
+    runOnNewThread(() -> blackhole.consume(scopeManager.activeSpan()));
+  }
+
+  private void runOnNewThread(Runnable task) throws InterruptedException {
+    Thread thread = threadFactory.newThread(task);
+    thread.start();
+    thread.join();
+  }
+
+  private static void activateAndClose(
+      ContinuableScopeManager scopeManager, AgentSpan span, Blackhole blackhole) {
+    AgentScope scope = scopeManager.activate(span, ScopeSource.INSTRUMENTATION);
+    blackhole.consume(scopeManager.activeSpan());
+    scope.close();
+  }
+}
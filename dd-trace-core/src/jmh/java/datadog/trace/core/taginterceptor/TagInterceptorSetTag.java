@@ -0,0 +1,78 @@
+package datadog.trace.core.taginterceptor;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import datadog.trace.api.DDTags;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.Tags;
+import datadog.trace.core.BlackholeWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.TraceCounters;
+import java.util.Collections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures setting the tags a typical HTTP client integration sets, most of which aren't
+ * intercepted, with the interception rules enabled or disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+public class TagInterceptorSetTag {
+
+  @Param({"true", "false"})
+  boolean rulesEnabled;
+
+  private CoreTracer tracer;
+  private AgentSpan span;
+
+  @Setup(Level.Trial)
+  public void init(TraceCounters counters, Blackhole blackhole) {
+    final boolean enabled = rulesEnabled;
+    RuleFlags ruleFlags =
+        new RuleFlags() {
+          @Override
+          public boolean isEnabled(Feature feature) {
+            return enabled;
+          }
+        };
+    tracer =
+        CoreTracer.builder()
+            .writer(new BlackholeWriter(blackhole, counters, 0))
+            .tagInterceptor(
+                new TagInterceptor(false, "service", Collections.<String>emptySet(), ruleFlags))
+            .strictTraceWrites(false)
+            .build();
+    span = tracer.startSpan("benchmark", "operation");
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    span.finish();
+    tracer.close();
+  }
+
+  @Benchmark
+  public void setTags() {
+    span.setTag(Tags.COMPONENT, "okhttp");
+    span.setTag(Tags.SPAN_KIND, Tags.SPAN_KIND_CLIENT);
+    span.setTag(Tags.PEER_HOSTNAME, "localhost");
+    span.setTag(Tags.PEER_PORT, 8080);
+    span.setTag(Tags.HTTP_METHOD, "GET");
+    span.setTag(Tags.HTTP_URL, "http://localhost:8080/users/1");
+    span.setTag(Tags.HTTP_STATUS, 200);
+    span.setTag(DDTags.RESOURCE_NAME, "GET /users/?");
+    span.setTag("custom.tag", "value");
+    span.setTag("custom.metric", 1.5d);
+  }
+}
@@ -0,0 +1,55 @@
+package datadog.trace.core.util;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Compares acquiring tokens from a {@link SimpleRateLimiter} and a {@link StripedRateLimiter}
+ * shared by several threads, with a rate which is never ("10000000") or quickly ("100") exhausted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+public class RateLimiterBenchmark {
+
+  @Param({"100", "10000000"})
+  int rate;
+
+  @Param({"false", "true"})
+  boolean striped;
+
+  private SimpleRateLimiter rateLimiter;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    rateLimiter = striped ? new StripedRateLimiter(rate) : new SimpleRateLimiter(rate);
+  }
+
+  @Threads(1)
+  @Benchmark
+  public boolean tryAcquire1() {
+    return rateLimiter.tryAcquire();
+  }
+
+  @Threads(4)
+  @Benchmark
+  public boolean tryAcquire4() {
+    return rateLimiter.tryAcquire();
+  }
+
+  @Threads(16)
+  @Benchmark
+  public boolean tryAcquire16() {
+    return rateLimiter.tryAcquire();
+  }
+}
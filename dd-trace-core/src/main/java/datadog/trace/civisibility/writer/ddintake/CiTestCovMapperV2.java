@@ -203,6 +203,15 @@ public class CiTestCovMapperV2 implements RemoteMapper {
       return this;
     }
 
+    @Override
+    public Payload detach() {
+      // the header is a view of the mapper's buffer
+      if (header != null) {
+        header = copyOf(header);
+      }
+      return this;
+    }
+
     @Override
     public int sizeInBytes() {
       if (traceCount() == 0) {
@@ -341,6 +341,15 @@ public class CiTestCycleMapperV1 implements RemoteMapper {
       return this;
     }
 
+    @Override
+    public Payload detach() {
+      // the header is a view of the mapper's buffer
+      if (header != null) {
+        header = copyOf(header);
+      }
+      return this;
+    }
+
     @Override
     public int sizeInBytes() {
       if (traceCount() == 0) {
@@ -1,6 +1,6 @@
 package datadog.trace.common.metrics;
 
-import datadog.trace.core.histogram.Histogram;
+import datadog.trace.core.histogram.CompactHistogram;
 import datadog.trace.core.histogram.Histograms;
 import java.util.concurrent.atomic.AtomicLongArray;
 
@@ -10,16 +10,16 @@ public final class AggregateMetric {
   static final long ERROR_TAG = 0x8000000000000000L;
   static final long TOP_LEVEL_TAG = 0x4000000000000000L;
 
-  private final Histogram okLatencies;
-  private final Histogram errorLatencies;
+  private final CompactHistogram okLatencies;
+  private final CompactHistogram errorLatencies;
   private int errorCount;
   private int hitCount;
   private int topLevelCount;
   private long duration;
 
   public AggregateMetric() {
-    okLatencies = Histograms.newHistogram();
-    errorLatencies = Histograms.newHistogram();
+    okLatencies = Histograms.newCompactHistogram();
+    errorLatencies = Histograms.newCompactHistogram();
   }
 
   public AggregateMetric recordDurations(int count, AtomicLongArray durations) {
@@ -59,11 +59,11 @@ public final class AggregateMetric {
     return duration;
   }
 
-  public Histogram getOkLatencies() {
+  public CompactHistogram getOkLatencies() {
     return okLatencies;
   }
 
-  public Histogram getErrorLatencies() {
+  public CompactHistogram getErrorLatencies() {
     return errorLatencies;
   }
 
@@ -62,6 +62,11 @@ public final class Batch implements InboxItem {
     return count < 0;
   }
 
+  /** @return the number of values added to the batch, or 0 once it has been used */
+  public int size() {
+    return Math.max(0, Math.min(count, MAX_BATCH_SIZE));
+  }
+
   public boolean add(long tag, long durationNanos) {
     // technically this would be wrong if there were 2^31 unsuccessful
     // attempts to add a value, but this an acceptable risk
@@ -9,6 +9,7 @@ import static datadog.trace.common.metrics.SignalItem.StopSignal.STOP;
 import static datadog.trace.util.AgentThreadFactory.AgentThread.METRICS_AGGREGATOR;
 import static datadog.trace.util.AgentThreadFactory.THREAD_JOIN_TIMOUT_MS;
 import static datadog.trace.util.AgentThreadFactory.newAgentThread;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import datadog.communication.ddagent.DDAgentFeaturesDiscovery;
@@ -22,6 +23,7 @@ import datadog.trace.common.metrics.SignalItem.ReportSignal;
 import datadog.trace.common.writer.ddagent.DDAgentApi;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.DDTraceCoreInfo;
+import datadog.trace.core.monitor.HealthMetrics;
 import datadog.trace.util.AgentTaskScheduler;
 import java.util.Collections;
 import java.util.List;
@@ -49,6 +51,8 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
 
   private static final CharSequence SYNTHETICS_ORIGIN = "synthetics";
 
+  private static final long PRE_AGGREGATION_FLUSH_MILLIS = 100;
+
   private final Set<String> ignoredResources;
   private final Queue<Batch> batchPool;
   private final NonBlockingHashMap<MetricKey, Batch> pending;
@@ -60,11 +64,21 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
   private final long reportingInterval;
   private final TimeUnit reportingIntervalTimeUnit;
   private final DDAgentFeaturesDiscovery features;
+  private final HealthMetrics healthMetrics;
+  private final PreAggregator preAggregator;
 
   private volatile AgentTaskScheduler.Scheduled<?> cancellation;
+  private volatile AgentTaskScheduler.Scheduled<?> preAggregationCancellation;
 
   public ConflatingMetricsAggregator(
       Config config, SharedCommunicationObjects sharedCommunicationObjects) {
+    this(config, sharedCommunicationObjects, HealthMetrics.NO_OP);
+  }
+
+  public ConflatingMetricsAggregator(
+      Config config,
+      SharedCommunicationObjects sharedCommunicationObjects,
+      HealthMetrics healthMetrics) {
     this(
         config.getWellKnownTags(),
         config.getMetricsIgnoredResources(),
@@ -77,7 +91,11 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
             false,
             DEFAULT_HEADERS),
         config.getTracerMetricsMaxAggregates(),
-        config.getTracerMetricsMaxPending());
+        config.getTracerMetricsMaxPending(),
+        10,
+        SECONDS,
+        healthMetrics,
+        config.isTracerMetricsPreAggregationEnabled());
   }
 
   ConflatingMetricsAggregator(
@@ -99,6 +117,30 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
       int queueSize,
       long reportingInterval,
       TimeUnit timeUnit) {
+    this(
+        wellKnownTags,
+        ignoredResources,
+        features,
+        sink,
+        maxAggregates,
+        queueSize,
+        reportingInterval,
+        timeUnit,
+        HealthMetrics.NO_OP,
+        false);
+  }
+
+  ConflatingMetricsAggregator(
+      WellKnownTags wellKnownTags,
+      Set<String> ignoredResources,
+      DDAgentFeaturesDiscovery features,
+      Sink sink,
+      int maxAggregates,
+      int queueSize,
+      long reportingInterval,
+      TimeUnit timeUnit,
+      HealthMetrics healthMetrics,
+      boolean preAggregation) {
     this(
         ignoredResources,
         features,
@@ -107,7 +149,9 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
         maxAggregates,
         queueSize,
         reportingInterval,
-        timeUnit);
+        timeUnit,
+        healthMetrics,
+        preAggregation);
   }
 
   ConflatingMetricsAggregator(
@@ -119,6 +163,30 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
       int queueSize,
       long reportingInterval,
       TimeUnit timeUnit) {
+    this(
+        ignoredResources,
+        features,
+        sink,
+        metricWriter,
+        maxAggregates,
+        queueSize,
+        reportingInterval,
+        timeUnit,
+        HealthMetrics.NO_OP,
+        false);
+  }
+
+  ConflatingMetricsAggregator(
+      Set<String> ignoredResources,
+      DDAgentFeaturesDiscovery features,
+      Sink sink,
+      MetricWriter metricWriter,
+      int maxAggregates,
+      int queueSize,
+      long reportingInterval,
+      TimeUnit timeUnit,
+      HealthMetrics healthMetrics,
+      boolean preAggregation) {
     this.ignoredResources = ignoredResources;
     this.inbox = new MpscCompoundQueue<>(queueSize);
     this.batchPool = new SpmcArrayQueue<>(maxAggregates);
@@ -126,6 +194,8 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
     this.keys = new NonBlockingHashMap<>();
     this.features = features;
     this.sink = sink;
+    this.healthMetrics = healthMetrics;
+    this.preAggregator = preAggregation ? new PreAggregator(batchPool, inbox, healthMetrics) : null;
     this.aggregator =
         new Aggregator(
             metricWriter,
@@ -153,6 +223,15 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
               reportingInterval,
               reportingInterval,
               reportingIntervalTimeUnit);
+      if (null != preAggregator) {
+        preAggregationCancellation =
+            AgentTaskScheduler.INSTANCE.scheduleAtFixedRate(
+                new PreAggregationFlushTask(),
+                preAggregator,
+                PRE_AGGREGATION_FLUSH_MILLIS,
+                PRE_AGGREGATION_FLUSH_MILLIS,
+                MILLISECONDS);
+      }
       log.debug("started metrics aggregator");
     } else {
       log.debug("metrics not supported by trace agent");
@@ -168,6 +247,7 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
 
   @Override
   public boolean report() {
+    flushPreAggregates();
     boolean published;
     int attempts = 0;
     do {
@@ -194,6 +274,7 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
         return CompletableFuture.completedFuture(false);
       }
     }
+    flushPreAggregates();
     // Try to send the report signal
     ReportSignal reportSignal = new ReportSignal();
     boolean published = false;
@@ -238,6 +319,17 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
   }
 
   private boolean publish(CoreSpan<?> span, boolean isTopLevel) {
+    boolean synthetic = isSynthetic(span);
+    long tag = (span.getError() > 0 ? ERROR_TAG : 0L) | (isTopLevel ? TOP_LEVEL_TAG : 0L);
+    long durationNanos = span.getDurationNano();
+    long fingerprint = 0;
+    if (null != preAggregator) {
+      fingerprint = PreAggregator.fingerprint(span, synthetic);
+      if (preAggregator.addIfPresent(span, synthetic, fingerprint, tag, durationNanos)) {
+        // the key was seen recently, so only errors override the sampler
+        return span.getError() > 0;
+      }
+    }
     MetricKey newKey =
         new MetricKey(
             span.getResourceName(),
@@ -245,15 +337,17 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
             span.getOperationName(),
             span.getType(),
             span.getHttpStatusCode(),
-            isSynthetic(span));
+            synthetic);
     boolean isNewKey = false;
     MetricKey key = keys.putIfAbsent(newKey, newKey);
     if (null == key) {
       key = newKey;
       isNewKey = true;
     }
-    long tag = (span.getError() > 0 ? ERROR_TAG : 0L) | (isTopLevel ? TOP_LEVEL_TAG : 0L);
-    long durationNanos = span.getDurationNano();
+    if (null != preAggregator && preAggregator.add(key, fingerprint, tag, durationNanos)) {
+      // force keep keys we haven't seen before or errors
+      return isNewKey || span.getError() > 0;
+    }
     Batch batch = pending.get(key);
     if (null != batch) {
       // there is a pending batch, try to win the race to add to it
@@ -275,7 +369,11 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
     // or had been consumed by the time we tried to add to it
     pending.put(key, batch);
     // must offer to the queue after adding to pending
-    inbox.offer(batch);
+    if (!inbox.offer(batch)) {
+      // don't let later spans add to a batch which will never be consumed
+      pending.remove(key, batch);
+      healthMetrics.onStatsDropped(1);
+    }
     // force keep keys we haven't seen before or errors
     return isNewKey || span.getError() > 0;
   }
@@ -296,6 +394,10 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
     if (null != cancellation) {
       cancellation.cancel();
     }
+    if (null != preAggregationCancellation) {
+      preAggregationCancellation.cancel();
+    }
+    flushPreAggregates();
     inbox.offer(STOP);
   }
 
@@ -333,6 +435,13 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
       if (null != cancellation) {
         cancellation.cancel();
       }
+      AgentTaskScheduler.Scheduled<?> preAggregationCancellation = this.preAggregationCancellation;
+      if (null != preAggregationCancellation) {
+        preAggregationCancellation.cancel();
+      }
+      if (null != preAggregator) {
+        preAggregator.clear();
+      }
       this.thread.interrupt();
       this.pending.clear();
       this.batchPool.clear();
@@ -341,6 +450,21 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
     }
   }
 
+  private void flushPreAggregates() {
+    if (null != preAggregator) {
+      preAggregator.flush();
+    }
+  }
+
+  private static final class PreAggregationFlushTask
+      implements AgentTaskScheduler.Task<PreAggregator> {
+
+    @Override
+    public void run(PreAggregator target) {
+      target.flush();
+    }
+  }
+
   private static final class ReportTask
       implements AgentTaskScheduler.Task<ConflatingMetricsAggregator> {
 
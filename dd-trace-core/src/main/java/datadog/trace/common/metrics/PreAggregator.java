@@ -0,0 +1,225 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import datadog.trace.core.CoreSpan;
+import datadog.trace.core.monitor.HealthMetrics;
+import java.util.Arrays;
+import java.util.Queue;
+import org.jctools.queues.MpscCompoundQueue;
+
+/**
+ * Pre-aggregates the durations of spans in per-core stripes, rather than offering a batch to the
+ * aggregator's inbox whenever a batch fills up or gets consumed.
+ *
+ * <p>Each stripe is a small table of the keys it has seen since it was last flushed, looked up by a
+ * 64-bit fingerprint of the span's key fields so that no {@link MetricKey} is created for keys
+ * already in the table. The batches of the keys are offered to the inbox when they fill up and when
+ * the stripes are flushed, on a short interval and before reporting.
+ */
+final class PreAggregator {
+
+  private static final int MAX_STRIPES = 64;
+  private static final int STRIPE_CAPACITY = 256;
+  private static final int MAX_STRIPE_SIZE = STRIPE_CAPACITY * 3 / 4;
+
+  private final Stripe[] stripes;
+  private final Queue<Batch> batchPool;
+  private final MpscCompoundQueue<InboxItem> inbox;
+  private final HealthMetrics healthMetrics;
+
+  PreAggregator(
+      Queue<Batch> batchPool, MpscCompoundQueue<InboxItem> inbox, HealthMetrics healthMetrics) {
+    this(defaultStripes(), batchPool, inbox, healthMetrics);
+  }
+
+  PreAggregator(
+      int stripes,
+      Queue<Batch> batchPool,
+      MpscCompoundQueue<InboxItem> inbox,
+      HealthMetrics healthMetrics) {
+    this.stripes = new Stripe[stripes];
+    for (int i = 0; i < stripes; i++) {
+      this.stripes[i] = new Stripe();
+    }
+    this.batchPool = batchPool;
+    this.inbox = inbox;
+    this.healthMetrics = healthMetrics;
+  }
+
+  /**
+   * Adds the duration of the span to its key, if the stripe of the current thread has seen the key
+   * since it was last flushed.
+   *
+   * @return whether the duration was added
+   */
+  boolean addIfPresent(
+      CoreSpan<?> span, boolean synthetic, long fingerprint, long tag, long durationNanos) {
+    Stripe stripe = stripe();
+    synchronized (stripe) {
+      int slot = stripe.find(fingerprint, span, synthetic);
+      if (slot < 0) {
+        return false;
+      }
+      add(stripe, slot, tag, durationNanos);
+      return true;
+    }
+  }
+
+  /**
+   * Adds the duration to the key in the stripe of the current thread.
+   *
+   * @return false if the stripe has no room left for the key
+   */
+  boolean add(MetricKey key, long fingerprint, long tag, long durationNanos) {
+    Stripe stripe = stripe();
+    synchronized (stripe) {
+      int slot = stripe.findOrInsert(fingerprint, key);
+      if (slot < 0) {
+        return false;
+      }
+      add(stripe, slot, tag, durationNanos);
+      return true;
+    }
+  }
+
+  /** Offers the batches of every stripe to the inbox, and forgets their keys. */
+  void flush() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        if (stripe.size > 0) {
+          for (Batch batch : stripe.batches) {
+            if (null != batch) {
+              offer(batch);
+            }
+          }
+          stripe.clear();
+        }
+      }
+    }
+  }
+
+  /** Forgets the keys and durations of every stripe. */
+  void clear() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+  }
+
+  private void add(Stripe stripe, int slot, long tag, long durationNanos) {
+    Batch batch = stripe.batches[slot];
+    if (null == batch || !batch.add(tag, durationNanos)) {
+      if (null != batch) {
+        // the batch is full
+        offer(batch);
+      }
+      batch = newBatch(stripe.keys[slot]);
+      batch.add(tag, durationNanos);
+      stripe.batches[slot] = batch;
+    }
+  }
+
+  private void offer(Batch batch) {
+    if (!inbox.offer(batch)) {
+      healthMetrics.onStatsDropped(batch.size());
+    }
+  }
+
+  private Batch newBatch(MetricKey key) {
+    Batch batch = batchPool.poll();
+    if (null == batch) {
+      return new Batch(key);
+    }
+    return batch.reset(key);
+  }
+
+  private Stripe stripe() {
+    int hash = (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32);
+    return stripes[hash & (stripes.length - 1)];
+  }
+
+  /** @return the fingerprint of the fields of the span which make up its {@link MetricKey} */
+  static long fingerprint(CoreSpan<?> span, boolean synthetic) {
+    long fingerprint = hash(span.getResourceName());
+    fingerprint = fingerprint * 0x9E3779B97F4A7C15L + hash(span.getServiceName());
+    fingerprint = fingerprint * 0x9E3779B97F4A7C15L + hash(span.getOperationName());
+    fingerprint = fingerprint * 0x9E3779B97F4A7C15L + hash(span.getType());
+    fingerprint = fingerprint * 0x9E3779B97F4A7C15L + span.getHttpStatusCode();
+    return fingerprint * 0x9E3779B97F4A7C15L + (synthetic ? 1 : 0);
+  }
+
+  private static int hash(CharSequence chars) {
+    return null == chars ? 0 : chars.hashCode();
+  }
+
+  /** @return whether the key was created from the fields of the span */
+  static boolean matches(MetricKey key, CoreSpan<?> span, boolean synthetic) {
+    return key.getHttpStatusCode() == span.getHttpStatusCode()
+        && key.isSynthetics() == synthetic
+        && sameChars(key.getResource(), span.getResourceName())
+        && sameChars(key.getService(), span.getServiceName())
+        && sameChars(key.getOperationName(), span.getOperationName())
+        && sameChars(key.getType(), span.getType());
+  }
+
+  private static boolean sameChars(UTF8BytesString keyField, CharSequence spanField) {
+    return null == spanField
+        ? keyField.length() == 0
+        : keyField.toString().equals(spanField.toString());
+  }
+
+  /** @return the power of two at least equal to the number of processors */
+  private static int defaultStripes() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return processors <= 1 ? 1 : Math.min(Integer.highestOneBit(processors - 1) << 1, MAX_STRIPES);
+  }
+
+  /** Open addressing table of the keys seen by a stripe, guarded by the stripe. */
+  private static final class Stripe {
+    final long[] fingerprints = new long[STRIPE_CAPACITY];
+    final MetricKey[] keys = new MetricKey[STRIPE_CAPACITY];
+    final Batch[] batches = new Batch[STRIPE_CAPACITY];
+    int size;
+
+    int find(long fingerprint, CoreSpan<?> span, boolean synthetic) {
+      int mask = STRIPE_CAPACITY - 1;
+      for (int i = index(fingerprint); null != keys[i]; i = (i + 1) & mask) {
+        if (fingerprints[i] == fingerprint && matches(keys[i], span, synthetic)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    int findOrInsert(long fingerprint, MetricKey key) {
+      int mask = STRIPE_CAPACITY - 1;
+      int i = index(fingerprint);
+      for (; null != keys[i]; i = (i + 1) & mask) {
+        if (fingerprints[i] == fingerprint && key.equals(keys[i])) {
+          return i;
+        }
+      }
+      if (size == MAX_STRIPE_SIZE) {
+        return -1;
+      }
+      fingerprints[i] = fingerprint;
+      keys[i] = key;
+      size++;
+      return i;
+    }
+
+    void clear() {
+      if (size > 0) {
+        Arrays.fill(fingerprints, 0L);
+        Arrays.fill(keys, null);
+        Arrays.fill(batches, null);
+        size = 0;
+      }
+    }
+
+    private static int index(long fingerprint) {
+      return (int) (fingerprint ^ (fingerprint >>> 32)) & (STRIPE_CAPACITY - 1);
+    }
+  }
+}
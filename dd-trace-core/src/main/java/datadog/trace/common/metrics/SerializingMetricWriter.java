@@ -6,6 +6,7 @@ import datadog.communication.serialization.GrowableBuffer;
 import datadog.communication.serialization.WritableFormatter;
 import datadog.communication.serialization.msgpack.MsgPackWriter;
 import datadog.trace.api.WellKnownTags;
+import datadog.trace.core.histogram.CompactHistogram;
 
 public final class SerializingMetricWriter implements MetricWriter {
 
@@ -34,6 +35,8 @@ public final class SerializingMetricWriter implements MetricWriter {
   private final Sink sink;
   private final GrowableBuffer buffer;
   private long sequence = 0;
+  // reused to encode the latency sketches, which need their size known before they are written
+  private byte[] sketchBuffer = new byte[1024];
 
   public SerializingMetricWriter(WellKnownTags wellKnownTags, Sink sink) {
     this(wellKnownTags, sink, 512 * 1024);
@@ -116,10 +119,19 @@ public final class SerializingMetricWriter implements MetricWriter {
     writer.writeLong(aggregate.getDuration());
 
     writer.writeUTF8(OK_SUMMARY);
-    writer.writeBinary(aggregate.getOkLatencies().serialize());
+    writeSketch(aggregate.getOkLatencies());
 
     writer.writeUTF8(ERROR_SUMMARY);
-    writer.writeBinary(aggregate.getErrorLatencies().serialize());
+    writeSketch(aggregate.getErrorLatencies());
+  }
+
+  private void writeSketch(CompactHistogram sketch) {
+    int size = sketch.serializedSize();
+    if (size > sketchBuffer.length) {
+      sketchBuffer = new byte[Math.max(size, sketchBuffer.length * 2)];
+    }
+    sketch.serialize(sketchBuffer, 0);
+    writer.writeBinary(sketchBuffer, 0, size);
   }
 
   @Override
@@ -37,6 +37,16 @@ public abstract class RateSamplingRule {
     return mechanism;
   }
 
+  /** @return the matcher of the service names the rule is limited to, to index the rules */
+  Matcher serviceMatcher() {
+    return Matchers.ANY;
+  }
+
+  /** @return the matcher of the operation names the rule is limited to, to index the rules */
+  Matcher operationMatcher() {
+    return Matchers.ANY;
+  }
+
   public static class AlwaysMatchesSamplingRule extends RateSamplingRule {
     public AlwaysMatchesSamplingRule(final RateSampler sampler, byte samplingMechanism) {
       super(sampler, samplingMechanism);
@@ -115,6 +125,16 @@ public abstract class RateSamplingRule {
           && Matchers.matches(resourceMatcher, span.getResourceName())
           && tagsMatcher.matches(span);
     }
+
+    @Override
+    Matcher serviceMatcher() {
+      return serviceMatcher;
+    }
+
+    @Override
+    Matcher operationMatcher() {
+      return operationMatcher;
+    }
   }
 
   public static final class SpanSamplingRule extends RateSamplingRule {
@@ -141,6 +161,16 @@ public abstract class RateSamplingRule {
           && Matchers.matches(operationMatcher, span.getOperationName());
     }
 
+    @Override
+    Matcher serviceMatcher() {
+      return serviceMatcher;
+    }
+
+    @Override
+    Matcher operationMatcher() {
+      return operationMatcher;
+    }
+
     @Override
     public <T extends CoreSpan<T>> boolean sample(T span) {
       return super.sample(span) && (rateLimiter == null || rateLimiter.tryAcquire());
@@ -5,6 +5,7 @@ import datadog.trace.api.sampling.SamplingMechanism;
 import datadog.trace.api.sampling.SamplingRule;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.util.SimpleRateLimiter;
+import datadog.trace.core.util.StripedRateLimiter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -15,7 +16,7 @@ import org.slf4j.LoggerFactory;
 public class RuleBasedTraceSampler<T extends CoreSpan<T>> implements Sampler, PrioritySampler {
 
   private static final Logger log = LoggerFactory.getLogger(RuleBasedTraceSampler.class);
-  private final List<RateSamplingRule> samplingRules;
+  private final SamplingRuleIndex<RateSamplingRule> samplingRules;
   private final PrioritySampler fallbackSampler;
   private final SimpleRateLimiter rateLimiter;
   private final long rateLimit;
@@ -27,9 +28,9 @@ public class RuleBasedTraceSampler<T extends CoreSpan<T>> implements Sampler, Pr
       final List<RateSamplingRule> samplingRules,
       final int rateLimit,
       final PrioritySampler fallbackSampler) {
-    this.samplingRules = samplingRules;
+    this.samplingRules = new SamplingRuleIndex<>(samplingRules);
     this.fallbackSampler = fallbackSampler;
-    rateLimiter = new SimpleRateLimiter(rateLimit);
+    rateLimiter = new StripedRateLimiter(rateLimit);
 
     this.rateLimit = rateLimit;
   }
@@ -134,14 +135,7 @@ public class RuleBasedTraceSampler<T extends CoreSpan<T>> implements Sampler, Pr
 
   @Override
   public <T extends CoreSpan<T>> void setSamplingPriority(final T span) {
-    RateSamplingRule matchedRule = null;
-
-    for (final RateSamplingRule samplingRule : samplingRules) {
-      if (samplingRule.matches(span)) {
-        matchedRule = samplingRule;
-        break;
-      }
-    }
+    final RateSamplingRule matchedRule = samplingRules.firstMatch(span);
 
     if (matchedRule == null) {
       fallbackSampler.setSamplingPriority(span);
@@ -0,0 +1,185 @@
+package datadog.trace.common.sampling;
+
+import datadog.trace.core.CoreSpan;
+import datadog.trace.core.util.Matchers;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the first of a list of sampling rules which matches a span, without evaluating every rule.
+ *
+ * <p>Rules are indexed by the service name, or the operation name, they match exactly. The key
+ * with the most such rules is picked when the index is built. A span is only evaluated against the
+ * rules of its own service, or operation, and the rules which don't match a single one, in the
+ * order of the list, so that the first matching rule is the same as when evaluating all of them.
+ *
+ * <p>Names are matched ignoring case. Only ASCII names are indexed; spans with other names are
+ * evaluated against every rule.
+ */
+final class SamplingRuleIndex<R extends RateSamplingRule> {
+
+  private static final int[] NO_RULES = new int[0];
+
+  private final List<R> rules;
+  private final boolean byService;
+  // open addressing table of the lower case names, and the positions of their rules
+  private final String[] names;
+  private final int[][] namedRules;
+  private final int mask;
+  // positions of the rules which match any name, or names which aren't indexed
+  private final int[] otherRules;
+
+  SamplingRuleIndex(List<R> rules) {
+    this.rules = new ArrayList<>(rules);
+    int exactServices = 0;
+    int exactOperations = 0;
+    for (R rule : this.rules) {
+      if (null != indexedName(rule, true)) {
+        exactServices++;
+      }
+      if (null != indexedName(rule, false)) {
+        exactOperations++;
+      }
+    }
+    this.byService = exactServices >= exactOperations;
+
+    Map<String, List<Integer>> rulesByName = new LinkedHashMap<>();
+    List<Integer> others = new ArrayList<>();
+    for (int i = 0; i < this.rules.size(); i++) {
+      String name = indexedName(this.rules.get(i), byService);
+      if (null == name) {
+        others.add(i);
+      } else {
+        rulesByName.computeIfAbsent(name, k -> new ArrayList<>()).add(i);
+      }
+    }
+    this.otherRules = toArray(others);
+
+    int capacity = 8;
+    while (capacity < rulesByName.size() * 2) {
+      capacity <<= 1;
+    }
+    this.names = new String[capacity];
+    this.namedRules = new int[capacity][];
+    this.mask = capacity - 1;
+    for (Map.Entry<String, List<Integer>> entry : rulesByName.entrySet()) {
+      String name = entry.getKey();
+      int i = hash(name) & mask;
+      while (null != names[i]) {
+        i = (i + 1) & mask;
+      }
+      names[i] = name;
+      namedRules[i] = toArray(entry.getValue());
+    }
+  }
+
+  /** @return the first rule matching the span, or null if none do */
+  <T extends CoreSpan<T>> R firstMatch(T span) {
+    CharSequence name = byService ? span.getServiceName() : span.getOperationName();
+    int[] candidates = candidatesNamed(name);
+    if (null == candidates) {
+      for (R rule : rules) {
+        if (rule.matches(span)) {
+          return rule;
+        }
+      }
+      return null;
+    }
+    // visit both lists of positions in order, to keep the first match semantics
+    int[] others = otherRules;
+    int c = 0;
+    int o = 0;
+    while (c < candidates.length || o < others.length) {
+      int next;
+      if (o == others.length || (c < candidates.length && candidates[c] < others[o])) {
+        next = candidates[c++];
+      } else {
+        next = others[o++];
+      }
+      R rule = rules.get(next);
+      if (rule.matches(span)) {
+        return rule;
+      }
+    }
+    return null;
+  }
+
+  /** @return the rules limited to the name, or null if all the rules need to be evaluated */
+  private int[] candidatesNamed(CharSequence name) {
+    if (null == name) {
+      return NO_RULES;
+    }
+    int length = name.length();
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      char c = name.charAt(i);
+      if (c >= 0x80) {
+        // non ASCII characters may be equal to ASCII ones ignoring case
+        return null;
+      }
+      hash = 31 * hash + toLowerCase(c);
+    }
+    int i = hash & mask;
+    String key;
+    while (null != (key = names[i])) {
+      if (equalsIgnoreCase(key, name)) {
+        return namedRules[i];
+      }
+      i = (i + 1) & mask;
+    }
+    return NO_RULES;
+  }
+
+  /** @return the lower case ASCII name the rule is limited to, or null */
+  private static String indexedName(RateSamplingRule rule, boolean service) {
+    String name =
+        Matchers.exactMatch(service ? rule.serviceMatcher() : rule.operationMatcher());
+    if (null == name) {
+      return null;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) >= 0x80) {
+        return null;
+      }
+    }
+    StringBuilder lowerCase = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      lowerCase.append(toLowerCase(name.charAt(i)));
+    }
+    return lowerCase.toString();
+  }
+
+  private static int hash(String lowerCaseName) {
+    int hash = 0;
+    for (int i = 0; i < lowerCaseName.length(); i++) {
+      hash = 31 * hash + lowerCaseName.charAt(i);
+    }
+    return hash;
+  }
+
+  private static boolean equalsIgnoreCase(String lowerCaseName, CharSequence name) {
+    if (lowerCaseName.length() != name.length()) {
+      return false;
+    }
+    for (int i = 0; i < lowerCaseName.length(); i++) {
+      if (lowerCaseName.charAt(i) != toLowerCase(name.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static char toLowerCase(char c) {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  private static int[] toArray(List<Integer> positions) {
+    int[] array = new int[positions.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = positions.get(i);
+    }
+    return array;
+  }
+}
@@ -6,6 +6,7 @@ import static datadog.trace.api.config.TracerConfig.SPAN_SAMPLING_RULES_FILE;
 import datadog.trace.api.Config;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.util.SimpleRateLimiter;
+import datadog.trace.core.util.StripedRateLimiter;
 import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
@@ -53,39 +54,36 @@ public interface SingleSpanSampler {
   }
 
   final class RuleBasedSingleSpanSampler implements SingleSpanSampler {
-    private final List<RateSamplingRule.SpanSamplingRule> spanSamplingRules;
+    private final SamplingRuleIndex<RateSamplingRule.SpanSamplingRule> spanSamplingRules;
 
     public RuleBasedSingleSpanSampler(SpanSamplingRules rules) {
       if (rules == null) {
         throw new NullPointerException("SpanSamplingRules can't be null.");
       }
-      this.spanSamplingRules = new ArrayList<>();
+      List<RateSamplingRule.SpanSamplingRule> spanSamplingRules = new ArrayList<>();
       for (SpanSamplingRules.Rule rule : rules.getRules()) {
         RateSampler sampler = new DeterministicSampler.SpanSampler(rule.getSampleRate());
         SimpleRateLimiter simpleRateLimiter =
             rule.getMaxPerSecond() == Integer.MAX_VALUE
                 ? null
-                : new SimpleRateLimiter(rule.getMaxPerSecond());
+                : new StripedRateLimiter(rule.getMaxPerSecond());
         RateSamplingRule.SpanSamplingRule spanSamplingRule =
             new RateSamplingRule.SpanSamplingRule(
                 rule.getService(), rule.getName(), sampler, simpleRateLimiter);
         spanSamplingRules.add(spanSamplingRule);
       }
+      this.spanSamplingRules = new SamplingRuleIndex<>(spanSamplingRules);
     }
 
     @Override
     public <T extends CoreSpan<T>> boolean setSamplingPriority(T span) {
-      for (RateSamplingRule.SpanSamplingRule rule : spanSamplingRules) {
-        if (rule.matches(span)) {
-          if (rule.sample(span)) {
-            double rate = rule.getSampler().getSampleRate();
-            SimpleRateLimiter rateLimiter = rule.getRateLimiter();
-            int limit = rateLimiter == null ? Integer.MAX_VALUE : rateLimiter.getCapacity();
-            span.setSpanSamplingPriority(rate, limit);
-            return true;
-          }
-          break;
-        }
+      RateSamplingRule.SpanSamplingRule rule = spanSamplingRules.firstMatch(span);
+      if (rule != null && rule.sample(span)) {
+        double rate = rule.getSampler().getSampleRate();
+        SimpleRateLimiter rateLimiter = rule.getRateLimiter();
+        int limit = rateLimiter == null ? Integer.MAX_VALUE : rateLimiter.getCapacity();
+        span.setSpanSamplingPriority(rate, limit);
+        return true;
       }
       return false;
     }
@@ -0,0 +1,132 @@
+package datadog.trace.common.writer;
+
+import datadog.trace.core.monitor.HealthMetrics;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts the flush interval and the target payload size to the load. Under high load, when sends
+ * take a large share of the flush interval, payloads fill up to their target, or traces queue up
+ * ahead of the serializer, fewer and larger payloads are sent. Under low load both shrink back, so
+ * that traces don't wait in the buffer longer than necessary.
+ *
+ * <p>Send latencies and payload sizes are smoothed with moving averages, and both limits are
+ * adjusted multiplicatively within their bounds once per sent payload.
+ */
+public final class AdaptiveFlushPolicy implements FlushPolicy {
+
+  static final int MIN_PAYLOAD_SIZE = 256 << 10;
+  // larger than any mapper's buffer, so reaching it means sending full buffers
+  static final int MAX_PAYLOAD_SIZE = 8 << 20;
+
+  private static final int INTERVAL_RANGE_FACTOR = 4;
+
+  // weight of the latest observation in the moving averages
+  private static final double SMOOTHING = 0.2;
+  private static final double GROWTH = 1.5;
+  private static final double SHRINK = 0.75;
+  private static final double HIGH_QUEUE_FILL = 0.5;
+  private static final double LOW_QUEUE_FILL = 0.1;
+
+  private final long minIntervalNanos;
+  private final long maxIntervalNanos;
+  private final int minPayloadSize;
+  private final int maxPayloadSize;
+  private final HealthMetrics healthMetrics;
+
+  private volatile long flushIntervalNanos;
+  private volatile int targetPayloadSize;
+  // written by each serializer shard, losing a sample to a race doesn't matter
+  private volatile double queueFill;
+
+  // guarded by this
+  private double averageLatencyNanos;
+  private double averagePayloadSize;
+
+  /**
+   * Creates a policy starting from the configured flush interval, which may then range from a
+   * fourth of it to four times it.
+   */
+  public static AdaptiveFlushPolicy around(
+      long flushInterval, TimeUnit timeUnit, HealthMetrics healthMetrics) {
+    long intervalNanos = timeUnit.toNanos(flushInterval);
+    return new AdaptiveFlushPolicy(
+        intervalNanos / INTERVAL_RANGE_FACTOR,
+        intervalNanos * INTERVAL_RANGE_FACTOR,
+        TimeUnit.NANOSECONDS,
+        MIN_PAYLOAD_SIZE,
+        MAX_PAYLOAD_SIZE,
+        healthMetrics);
+  }
+
+  public AdaptiveFlushPolicy(
+      long minInterval,
+      long maxInterval,
+      TimeUnit timeUnit,
+      int minPayloadSize,
+      int maxPayloadSize,
+      HealthMetrics healthMetrics) {
+    if (minInterval <= 0 || maxInterval < minInterval) {
+      throw new IllegalArgumentException(
+          "Invalid flush interval bounds: " + minInterval + ", " + maxInterval);
+    }
+    if (minPayloadSize <= 0 || maxPayloadSize < minPayloadSize) {
+      throw new IllegalArgumentException(
+          "Invalid payload size bounds: " + minPayloadSize + ", " + maxPayloadSize);
+    }
+    this.minIntervalNanos = timeUnit.toNanos(minInterval);
+    this.maxIntervalNanos = timeUnit.toNanos(maxInterval);
+    this.minPayloadSize = minPayloadSize;
+    this.maxPayloadSize = maxPayloadSize;
+    this.healthMetrics = healthMetrics;
+    // start from the middle of the interval range, and from full buffers like the fixed policy
+    this.flushIntervalNanos = (minIntervalNanos + maxIntervalNanos) / 2;
+    this.targetPayloadSize = maxPayloadSize;
+  }
+
+  @Override
+  public long flushIntervalNanos() {
+    return flushIntervalNanos;
+  }
+
+  @Override
+  public int targetPayloadSize() {
+    return targetPayloadSize;
+  }
+
+  @Override
+  public synchronized void onPayloadSent(int sizeInBytes, long latencyNanos) {
+    averageLatencyNanos = smooth(averageLatencyNanos, latencyNanos);
+    averagePayloadSize = smooth(averagePayloadSize, sizeInBytes);
+    long interval = flushIntervalNanos;
+    int target = targetPayloadSize;
+    double fill = queueFill;
+    // the gaps between the high and low thresholds keep the limits from oscillating
+    if (averageLatencyNanos > interval / 2.0
+        || averagePayloadSize >= target * 0.9
+        || fill > HIGH_QUEUE_FILL) {
+      interval = Math.min(maxIntervalNanos, (long) (interval * GROWTH));
+      target = (int) Math.min(maxPayloadSize, target * 2L);
+    } else if (averageLatencyNanos < interval / 10.0
+        && averagePayloadSize < target / 4.0
+        && fill < LOW_QUEUE_FILL) {
+      interval = Math.max(minIntervalNanos, (long) (interval * SHRINK));
+      target = Math.max(minPayloadSize, target / 2);
+    }
+    if (interval != flushIntervalNanos || target != targetPayloadSize) {
+      flushIntervalNanos = interval;
+      targetPayloadSize = target;
+      healthMetrics.onFlushPolicyUpdate(interval, target);
+    }
+  }
+
+  @Override
+  public void onQueueDepth(int queued, int capacity) {
+    if (capacity > 0) {
+      queueFill = smooth(queueFill, (double) queued / capacity);
+    }
+  }
+
+  private static double smooth(double average, double sample) {
+    return average + SMOOTHING * (sample - average);
+  }
+}
@@ -0,0 +1,110 @@
+package datadog.trace.common.writer;
+
+import static datadog.trace.util.AgentThreadFactory.AgentThread.TRACE_SENDER;
+
+import datadog.communication.ddagent.DroppingPolicy;
+import datadog.trace.core.monitor.HealthMetrics;
+import datadog.trace.util.AgentThreadFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends payloads on a dedicated thread, so that the serializer can fill the next payload while the
+ * previous ones are being sent.
+ *
+ * <p>The number of payloads in flight is bounded. While the bound is reached the sender reports
+ * itself as an active {@link DroppingPolicy}, so that low priority traces are dropped before they
+ * are queued for serialization, and another payload isn't taken: rather than waiting for a send to
+ * complete, the serializer spills or drops the payload. Only flushes wait for the sends.
+ */
+public final class AsyncPayloadSender implements DroppingPolicy, AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(AsyncPayloadSender.class);
+
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+  private final int maxInFlight;
+  private final Semaphore permits;
+  private final HealthMetrics healthMetrics;
+  private final ExecutorService executor;
+
+  public AsyncPayloadSender(int maxInFlight, HealthMetrics healthMetrics) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("Invalid max in-flight payloads: " + maxInFlight);
+    }
+    this.maxInFlight = maxInFlight;
+    this.permits = new Semaphore(maxInFlight);
+    this.healthMetrics = healthMetrics;
+    // a single thread keeps sends ordered, and the apis aren't safe for concurrent sends
+    this.executor = Executors.newSingleThreadExecutor(new AgentThreadFactory(TRACE_SENDER));
+  }
+
+  public int maxInFlight() {
+    return maxInFlight;
+  }
+
+  /** @return the number of payloads handed over which haven't been sent yet */
+  public int inFlight() {
+    return maxInFlight - permits.availablePermits();
+  }
+
+  @Override
+  public boolean active() {
+    return permits.availablePermits() == 0;
+  }
+
+  /**
+   * Runs the send on the sender thread, unless too many payloads are already in flight.
+   *
+   * @return false if the send was rejected because too many payloads are in flight
+   */
+  boolean trySend(final Runnable send) {
+    if (!permits.tryAcquire()) {
+      return false;
+    }
+    healthMetrics.onInFlightPayloads(inFlight());
+    final long queuedAt = System.nanoTime();
+    try {
+      executor.execute(
+          () -> {
+            try {
+              send.run();
+            } catch (Throwable t) {
+              log.debug("Failed to send payload", t);
+            } finally {
+              healthMetrics.onSendLatency(System.nanoTime() - queuedAt);
+              permits.release();
+              healthMetrics.onInFlightPayloads(inFlight());
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      // rejected after shutdown, send on the caller's thread rather than losing the payload
+      permits.release();
+      send.run();
+    }
+    return true;
+  }
+
+  /** Waits until every payload handed over so far has been sent. */
+  void awaitInFlight() {
+    permits.acquireUninterruptibly(maxInFlight);
+    permits.release(maxInFlight);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.debug("Timed out waiting for in-flight payloads to be sent");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -7,19 +7,27 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_AGENT_PORT;
 import static datadog.trace.common.writer.ddagent.Prioritization.FAST_LANE;
 
 import datadog.communication.ddagent.DDAgentFeaturesDiscovery;
+import datadog.communication.ddagent.DroppingPolicy;
 import datadog.communication.monitor.Monitoring;
+import datadog.communication.serialization.BufferPool;
 import datadog.trace.api.Config;
 import datadog.trace.common.sampling.SingleSpanSampler;
 import datadog.trace.common.writer.ddagent.DDAgentApi;
 import datadog.trace.common.writer.ddagent.DDAgentMapperDiscovery;
 import datadog.trace.common.writer.ddagent.Prioritization;
 import datadog.trace.core.monitor.HealthMetrics;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.concurrent.TimeUnit;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class DDAgentWriter extends RemoteWriter {
 
+  private static final Logger log = LoggerFactory.getLogger(DDAgentWriter.class);
+
   public static DDAgentWriterBuilder builder() {
     return new DDAgentWriterBuilder();
   }
@@ -39,6 +47,13 @@ public class DDAgentWriter extends RemoteWriter {
     Monitoring monitoring = Monitoring.DISABLED;
     boolean traceAgentV05Enabled = Config.get().isTraceAgentV05Enabled();
     boolean metricsReportingEnabled = Config.get().isTracerMetricsEnabled();
+    int serializerShards = Config.get().getTraceSerializerShards();
+    boolean bufferPoolEnabled = Config.get().isTraceWriterBufferPoolEnabled();
+    int compressionLevel =
+        Config.get().isTraceAgentCompressionEnabled() ? Config.get().getTraceCompressionLevel() : 0;
+    int maxInFlightPayloads = Config.get().getTraceAgentMaxInFlightPayloads();
+    boolean adaptiveFlushEnabled = Config.get().isTraceWriterAdaptiveFlushEnabled();
+    boolean spillEnabled = Config.get().isTraceAgentSpillEnabled();
     private int flushTimeout = 1;
     private TimeUnit flushTimeoutUnit = TimeUnit.SECONDS;
     boolean alwaysFlush = false;
@@ -47,6 +62,7 @@ public class DDAgentWriter extends RemoteWriter {
     private Prioritization prioritization;
     private DDAgentFeaturesDiscovery featureDiscovery;
     private SingleSpanSampler singleSpanSampler;
+    private PayloadSpillQueue spillQueue;
 
     public DDAgentWriterBuilder agentApi(DDAgentApi agentApi) {
       this.agentApi = agentApi;
@@ -129,6 +145,45 @@ public class DDAgentWriter extends RemoteWriter {
       return this;
     }
 
+    public DDAgentWriterBuilder serializerShards(int serializerShards) {
+      this.serializerShards = serializerShards;
+      return this;
+    }
+
+    public DDAgentWriterBuilder bufferPoolEnabled(boolean bufferPoolEnabled) {
+      this.bufferPoolEnabled = bufferPoolEnabled;
+      return this;
+    }
+
+    /** @param compressionLevel gzip level for payloads sent to the agent, 0 to disable */
+    public DDAgentWriterBuilder compressionLevel(int compressionLevel) {
+      this.compressionLevel = compressionLevel;
+      return this;
+    }
+
+    /** @param maxInFlightPayloads payloads sent asynchronously at once, 0 to send synchronously */
+    public DDAgentWriterBuilder maxInFlightPayloads(int maxInFlightPayloads) {
+      this.maxInFlightPayloads = maxInFlightPayloads;
+      return this;
+    }
+
+    /** @param adaptiveFlushEnabled whether to adapt the flush interval and payload size to load */
+    public DDAgentWriterBuilder adaptiveFlushEnabled(boolean adaptiveFlushEnabled) {
+      this.adaptiveFlushEnabled = adaptiveFlushEnabled;
+      return this;
+    }
+
+    /** @param spillEnabled whether to spill payloads to disk while the agent is unreachable */
+    public DDAgentWriterBuilder spillEnabled(boolean spillEnabled) {
+      this.spillEnabled = spillEnabled;
+      return this;
+    }
+
+    public DDAgentWriterBuilder spillQueue(PayloadSpillQueue spillQueue) {
+      this.spillQueue = spillQueue;
+      return this;
+    }
+
     public DDAgentWriterBuilder spanSamplingRules(SingleSpanSampler singleSpanSampler) {
       this.singleSpanSampler = singleSpanSampler;
       return this;
@@ -147,21 +202,59 @@ public class DDAgentWriter extends RemoteWriter {
       }
       if (null == agentApi) {
         agentApi =
-            new DDAgentApi(client, agentUrl, featureDiscovery, monitoring, metricsReportingEnabled);
+            new DDAgentApi(
+                client,
+                agentUrl,
+                featureDiscovery,
+                monitoring,
+                metricsReportingEnabled,
+                null,
+                compressionLevel);
+      }
+      agentApi.setHealthMetrics(healthMetrics);
+
+      final AsyncPayloadSender sender =
+          maxInFlightPayloads > 0
+              ? new AsyncPayloadSender(maxInFlightPayloads, healthMetrics)
+              : null;
+      final DroppingPolicy droppingPolicy;
+      if (null == sender) {
+        droppingPolicy = featureDiscovery;
+      } else {
+        // shed low priority traces while the agent can't keep up with the payloads
+        final DDAgentFeaturesDiscovery discovery = featureDiscovery;
+        droppingPolicy = () -> discovery.active() || sender.active();
+      }
+      final FlushPolicy flushPolicy =
+          adaptiveFlushEnabled && flushIntervalMilliseconds > 0
+              ? AdaptiveFlushPolicy.around(
+                  flushIntervalMilliseconds, TimeUnit.MILLISECONDS, healthMetrics)
+              : new FixedFlushPolicy(flushIntervalMilliseconds, TimeUnit.MILLISECONDS);
+      if (null == spillQueue && spillEnabled) {
+        spillQueue = createSpillQueue();
       }
 
-      final DDAgentMapperDiscovery mapperDiscovery = new DDAgentMapperDiscovery(featureDiscovery);
-      final PayloadDispatcher dispatcher =
-          new PayloadDispatcherImpl(mapperDiscovery, agentApi, healthMetrics, monitoring);
+      final PayloadDispatcherImpl.DroppedCounts droppedCounts =
+          new PayloadDispatcherImpl.DroppedCounts();
+      final PayloadDispatcher dispatcher;
+      if (serializerShards > 1) {
+        // mappers and their buffers are stateful, so each shard needs its own
+        final PayloadDispatcher[] shards = new PayloadDispatcher[serializerShards];
+        for (int i = 0; i < serializerShards; ++i) {
+          shards[i] = createDispatcher(sender, flushPolicy, droppedCounts);
+        }
+        dispatcher = new ShardedPayloadDispatcher(shards);
+      } else {
+        dispatcher = createDispatcher(sender, flushPolicy, droppedCounts);
+      }
       final TraceProcessingWorker traceProcessingWorker =
           new TraceProcessingWorker(
               traceBufferSize,
               healthMetrics,
               dispatcher,
-              featureDiscovery,
+              droppingPolicy,
               null == prioritization ? FAST_LANE : prioritization,
-              flushIntervalMilliseconds,
-              TimeUnit.MILLISECONDS,
+              flushPolicy,
               singleSpanSampler,
               null);
 
@@ -171,10 +264,59 @@ public class DDAgentWriter extends RemoteWriter {
           healthMetrics,
           flushTimeout,
           flushTimeoutUnit,
-          alwaysFlush);
+          alwaysFlush,
+          sender,
+          spillQueue);
+    }
+
+    private PayloadSpillQueue createSpillQueue() {
+      final Config config = Config.get();
+      final String directory = config.getTraceAgentSpillDirectory();
+      if (null == directory) {
+        log.warn("No directory to spill traces to, traces won't be spilled");
+        return null;
+      }
+      try {
+        return new PayloadSpillQueue(
+            Paths.get(directory),
+            config.getTraceAgentSpillMaxBytes(),
+            config.getTraceAgentSpillMaxAge(),
+            TimeUnit.SECONDS,
+            config.getTraceAgentSpillReplayRate(),
+            healthMetrics);
+      } catch (IOException | RuntimeException e) {
+        log.warn("Failed to create a spill directory in {}, traces won't be spilled", directory, e);
+        return null;
+      }
+    }
+
+    private PayloadDispatcher createDispatcher(
+        AsyncPayloadSender sender,
+        FlushPolicy flushPolicy,
+        PayloadDispatcherImpl.DroppedCounts droppedCounts) {
+      final BufferPool bufferPool =
+          bufferPoolEnabled
+              ? PayloadDispatcherImpl.newBufferPool(agentApi.isDirectTransport(), healthMetrics)
+              : null;
+      final DDAgentMapperDiscovery mapperDiscovery =
+          new DDAgentMapperDiscovery(featureDiscovery, bufferPool);
+      return PayloadDispatcherImpl.builder()
+          .mapperDiscovery(mapperDiscovery)
+          .api(agentApi)
+          .healthMetrics(healthMetrics)
+          .monitoring(monitoring)
+          .bufferPool(bufferPool)
+          .sender(sender)
+          .flushPolicy(flushPolicy)
+          .spillQueue(spillQueue)
+          .droppedCounts(droppedCounts)
+          .build();
     }
   }
 
+  private final AsyncPayloadSender sender;
+  private final PayloadSpillQueue spillQueue;
+
   DDAgentWriter(
       TraceProcessingWorker worker,
       PayloadDispatcher dispatcher,
@@ -182,6 +324,36 @@ public class DDAgentWriter extends RemoteWriter {
       int flushTimeout,
       TimeUnit flushTimeoutUnit,
       boolean alwaysFlush) {
+    this(
+        worker, dispatcher, healthMetrics, flushTimeout, flushTimeoutUnit, alwaysFlush, null, null);
+  }
+
+  DDAgentWriter(
+      TraceProcessingWorker worker,
+      PayloadDispatcher dispatcher,
+      HealthMetrics healthMetrics,
+      int flushTimeout,
+      TimeUnit flushTimeoutUnit,
+      boolean alwaysFlush,
+      AsyncPayloadSender sender,
+      PayloadSpillQueue spillQueue) {
     super(worker, dispatcher, healthMetrics, flushTimeout, flushTimeoutUnit, alwaysFlush);
+    this.sender = sender;
+    this.spillQueue = spillQueue;
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    if (null != sender) {
+      sender.close();
+    }
+    if (null != spillQueue) {
+      spillQueue.close();
+    }
+    // closed last, once nothing is left to send
+    for (RemoteApi api : getApis()) {
+      api.close();
+    }
   }
 }
@@ -35,6 +35,10 @@ public class DDIntakeWriter extends RemoteWriter {
     private int flushTimeout = 5;
     private TimeUnit flushTimeoutUnit = TimeUnit.SECONDS;
     private boolean alwaysFlush = false;
+    private int serializerShards = Config.get().getTraceSerializerShards();
+    private boolean bufferPoolEnabled = Config.get().isTraceWriterBufferPoolEnabled();
+    private boolean adaptiveFlushEnabled = Config.get().isTraceWriterAdaptiveFlushEnabled();
+    private FlushPolicy flushPolicy;
 
     private final Map<TrackType, RemoteApi> tracks = new EnumMap<>(TrackType.class);
 
@@ -92,6 +96,21 @@ public class DDIntakeWriter extends RemoteWriter {
       return this;
     }
 
+    public DDIntakeWriterBuilder serializerShards(final int serializerShards) {
+      this.serializerShards = serializerShards;
+      return this;
+    }
+
+    public DDIntakeWriterBuilder bufferPoolEnabled(final boolean bufferPoolEnabled) {
+      this.bufferPoolEnabled = bufferPoolEnabled;
+      return this;
+    }
+
+    public DDIntakeWriterBuilder adaptiveFlushEnabled(final boolean adaptiveFlushEnabled) {
+      this.adaptiveFlushEnabled = adaptiveFlushEnabled;
+      return this;
+    }
+
     public DDIntakeWriterBuilder singleSpanSampler(SingleSpanSampler singleSpanSampler) {
       this.singleSpanSampler = singleSpanSampler;
       return this;
@@ -101,16 +120,31 @@ public class DDIntakeWriter extends RemoteWriter {
       if (tracks.isEmpty()) {
         throw new IllegalArgumentException("At least one track needs to be configured");
       }
-
+      for (RemoteApi intakeApi : tracks.values()) {
+        intakeApi.setHealthMetrics(healthMetrics);
+      }
+      flushPolicy =
+          adaptiveFlushEnabled && flushIntervalMilliseconds > 0
+              ? AdaptiveFlushPolicy.around(
+                  flushIntervalMilliseconds, TimeUnit.MILLISECONDS, healthMetrics)
+              : new FixedFlushPolicy(flushIntervalMilliseconds, TimeUnit.MILLISECONDS);
+
+      // the shards of a track report the traces dropped for it with the first payload they send
+      Map<TrackType, PayloadDispatcherImpl.DroppedCounts> droppedCounts =
+          new EnumMap<>(TrackType.class);
+      for (TrackType trackType : tracks.keySet()) {
+        droppedCounts.put(trackType, new PayloadDispatcherImpl.DroppedCounts());
+      }
       PayloadDispatcher dispatcher;
-      if (tracks.size() == 1) {
-        dispatcher = createDispatcher(tracks.entrySet().iterator().next());
+      if (serializerShards > 1) {
+        // mappers and their buffers are stateful, so each shard needs its own
+        PayloadDispatcher[] shards = new PayloadDispatcher[serializerShards];
+        for (int i = 0; i < serializerShards; ++i) {
+          shards[i] = createTracksDispatcher(droppedCounts);
+        }
+        dispatcher = new ShardedPayloadDispatcher(shards);
       } else {
-        PayloadDispatcher[] dispatchers =
-            tracks.entrySet().stream()
-                .map(this::createDispatcher)
-                .toArray(PayloadDispatcher[]::new);
-        dispatcher = new CompositePayloadDispatcher(dispatchers);
+        dispatcher = createTracksDispatcher(droppedCounts);
       }
 
       final TraceProcessingWorker traceProcessingWorker =
@@ -120,8 +154,7 @@ public class DDIntakeWriter extends RemoteWriter {
               dispatcher,
               droppingPolicy,
               prioritization,
-              flushIntervalMilliseconds,
-              TimeUnit.MILLISECONDS,
+              flushPolicy,
               singleSpanSampler,
               null);
 
@@ -134,12 +167,35 @@ public class DDIntakeWriter extends RemoteWriter {
           alwaysFlush);
     }
 
-    private PayloadDispatcher createDispatcher(Map.Entry<TrackType, RemoteApi> e) {
+    private PayloadDispatcher createTracksDispatcher(
+        Map<TrackType, PayloadDispatcherImpl.DroppedCounts> droppedCounts) {
+      if (tracks.size() == 1) {
+        return createDispatcher(tracks.entrySet().iterator().next(), droppedCounts);
+      }
+      PayloadDispatcher[] dispatchers =
+          tracks.entrySet().stream()
+              .map(e -> createDispatcher(e, droppedCounts))
+              .toArray(PayloadDispatcher[]::new);
+      return new CompositePayloadDispatcher(dispatchers);
+    }
+
+    private PayloadDispatcher createDispatcher(
+        Map.Entry<TrackType, RemoteApi> e,
+        Map<TrackType, PayloadDispatcherImpl.DroppedCounts> droppedCounts) {
       TrackType trackType = e.getKey();
       RemoteApi intakeApi = e.getValue();
       DDIntakeMapperDiscovery mapperDiscovery =
           new DDIntakeMapperDiscovery(trackType, wellKnownTags, intakeApi.isCompressionEnabled());
-      return new PayloadDispatcherImpl(mapperDiscovery, intakeApi, healthMetrics, monitoring);
+      return PayloadDispatcherImpl.builder()
+          .mapperDiscovery(mapperDiscovery)
+          .api(intakeApi)
+          .healthMetrics(healthMetrics)
+          .monitoring(monitoring)
+          .bufferPool(
+              bufferPoolEnabled ? PayloadDispatcherImpl.newBufferPool(false, healthMetrics) : null)
+          .flushPolicy(flushPolicy)
+          .droppedCounts(droppedCounts.get(trackType))
+          .build();
     }
   }
 
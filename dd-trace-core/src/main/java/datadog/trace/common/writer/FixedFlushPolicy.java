@@ -0,0 +1,30 @@
+package datadog.trace.common.writer;
+
+import java.util.concurrent.TimeUnit;
+
+/** Flushes on a fixed interval, or when the buffer is full. */
+public final class FixedFlushPolicy implements FlushPolicy {
+
+  private final long flushIntervalNanos;
+
+  /** @param flushInterval the interval between flushes, 0 or less to only flush when full */
+  public FixedFlushPolicy(long flushInterval, TimeUnit timeUnit) {
+    this.flushIntervalNanos = flushInterval > 0 ? timeUnit.toNanos(flushInterval) : Long.MAX_VALUE;
+  }
+
+  @Override
+  public long flushIntervalNanos() {
+    return flushIntervalNanos;
+  }
+
+  @Override
+  public int targetPayloadSize() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public void onPayloadSent(int sizeInBytes, long latencyNanos) {}
+
+  @Override
+  public void onQueueDepth(int queued, int capacity) {}
+}
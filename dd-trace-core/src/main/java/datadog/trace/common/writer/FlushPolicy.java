@@ -0,0 +1,24 @@
+package datadog.trace.common.writer;
+
+/**
+ * Decides when the serializer publishes the payload it is filling: after a time interval, or as
+ * soon as the payload reaches a target size. Policies may adapt both from the feedback they get
+ * about sent payloads and about the serializer's queue.
+ */
+public interface FlushPolicy {
+
+  /** @return the nanoseconds between two time based flushes, {@link Long#MAX_VALUE} for none */
+  long flushIntervalNanos();
+
+  /**
+   * @return the size in bytes above which a payload is published without waiting for the flush
+   *     interval, {@link Integer#MAX_VALUE} to publish it only once the buffer is full
+   */
+  int targetPayloadSize();
+
+  /** Called once a payload has been sent, possibly from a sender thread. */
+  void onPayloadSent(int sizeInBytes, long latencyNanos);
+
+  /** Called by the serializer with the number of traces waiting in its queue. */
+  void onQueueDepth(int queued, int capacity);
+}
@@ -57,6 +57,31 @@ public abstract class Payload {
 
   public abstract RequestBody toRequest();
 
+  /**
+   * The serialized payload as the sequence of buffers to send, suitable for a gathering write.
+   * Payloads which need an extra encoding step before sending (e.g. compression or multipart
+   * bodies) return null and must be sent as a {@link RequestBody}.
+   */
+  public ByteBuffer[] toBuffers() {
+    return null;
+  }
+
+  /**
+   * Copies any buffer this payload shares with the mapper which created it, so that it can still be
+   * sent after the mapper has been reset for the next batch. The body is not copied, it must
+   * already be owned by the payload.
+   */
+  public Payload detach() {
+    return this;
+  }
+
+  protected static ByteBuffer copyOf(ByteBuffer buffer) {
+    ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+    copy.put(buffer.duplicate());
+    copy.flip();
+    return copy;
+  }
+
   protected int msgpackArrayHeaderSize(int count) {
     if (count < 0x10) {
       return 1;
@@ -11,6 +11,5 @@ interface PayloadDispatcher {
 
   void flush();
 
-  // used by tests
   Collection<RemoteApi> getApis();
 }
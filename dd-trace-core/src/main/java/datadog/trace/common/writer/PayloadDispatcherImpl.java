@@ -2,6 +2,7 @@ package datadog.trace.common.writer;
 
 import datadog.communication.monitor.Monitoring;
 import datadog.communication.monitor.Recording;
+import datadog.communication.serialization.BufferPool;
 import datadog.communication.serialization.ByteBufferConsumer;
 import datadog.communication.serialization.FlushingBuffer;
 import datadog.communication.serialization.WritableFormatter;
@@ -21,29 +22,158 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
 
   private static final Logger log = LoggerFactory.getLogger(PayloadDispatcherImpl.class);
 
+  private static final int MIN_POOLED_BUFFER_SIZE = 4 << 10;
+  private static final int MAX_POOLED_BUFFER_SIZE = 8 << 20;
+  private static final int POOLED_BUFFERS_PER_SIZE_CLASS = 2;
+
   private final RemoteApi api;
   private final RemoteMapperDiscovery mapperDiscovery;
   private final HealthMetrics healthMetrics;
   private final Monitoring monitoring;
+  private final BufferPool bufferPool;
+  private final AsyncPayloadSender sender;
+  private final FlushPolicy flushPolicy;
+  private final PayloadSpillQueue spillQueue;
 
   private Recording batchTimer;
   private RemoteMapper mapper;
+  private FlushingBuffer flushingBuffer;
   private WritableFormatter packer;
 
-  private final FixedSizeStripedLongCounter droppedSpanCount =
-      CountersFactory.createFixedSizeStripedCounter(8);
-  private final FixedSizeStripedLongCounter droppedTraceCount =
-      CountersFactory.createFixedSizeStripedCounter(8);
+  private final DroppedCounts droppedCounts;
+
+  public static PayloadDispatcherImplBuilder builder() {
+    return new PayloadDispatcherImplBuilder();
+  }
+
+  public static class PayloadDispatcherImplBuilder {
+
+    private RemoteMapperDiscovery mapperDiscovery;
+    private RemoteApi api;
+    private HealthMetrics healthMetrics = HealthMetrics.NO_OP;
+    private Monitoring monitoring = Monitoring.DISABLED;
+    private BufferPool bufferPool;
+    private AsyncPayloadSender sender;
+    private FlushPolicy flushPolicy;
+    private PayloadSpillQueue spillQueue;
+    private DroppedCounts droppedCounts;
+
+    public PayloadDispatcherImplBuilder mapperDiscovery(RemoteMapperDiscovery mapperDiscovery) {
+      this.mapperDiscovery = mapperDiscovery;
+      return this;
+    }
+
+    public PayloadDispatcherImplBuilder api(RemoteApi api) {
+      this.api = api;
+      return this;
+    }
+
+    public PayloadDispatcherImplBuilder healthMetrics(HealthMetrics healthMetrics) {
+      this.healthMetrics = healthMetrics;
+      return this;
+    }
+
+    public PayloadDispatcherImplBuilder monitoring(Monitoring monitoring) {
+      this.monitoring = monitoring;
+      return this;
+    }
+
+    /**
+     * @param bufferPool pool the payload buffers are borrowed from, each buffer is returned to the
+     *     pool once the payload it holds has been sent
+     */
+    public PayloadDispatcherImplBuilder bufferPool(BufferPool bufferPool) {
+      this.bufferPool = bufferPool;
+      return this;
+    }
+
+    /**
+     * @param sender sender the payloads are handed over to, instead of being sent on the serializer
+     *     thread. Payloads then need buffers of their own, so a pool is created if none is given.
+     */
+    public PayloadDispatcherImplBuilder sender(AsyncPayloadSender sender) {
+      this.sender = sender;
+      return this;
+    }
+
+    /**
+     * @param flushPolicy policy told about each sent payload, deciding which size a payload may
+     *     reach before it is published early
+     */
+    public PayloadDispatcherImplBuilder flushPolicy(FlushPolicy flushPolicy) {
+      this.flushPolicy = flushPolicy;
+      return this;
+    }
+
+    /**
+     * @param spillQueue queue the payloads are spilled to when the agent is unreachable, and
+     *     replayed from once it accepts payloads again
+     */
+    public PayloadDispatcherImplBuilder spillQueue(PayloadSpillQueue spillQueue) {
+      this.spillQueue = spillQueue;
+      return this;
+    }
+
+    /**
+     * @param droppedCounts the counts of dropped traces sent with the next payload, shared by the
+     *     dispatchers of the serializer shards so that the counts go out with whichever sends first
+     */
+    PayloadDispatcherImplBuilder droppedCounts(DroppedCounts droppedCounts) {
+      this.droppedCounts = droppedCounts;
+      return this;
+    }
+
+    public PayloadDispatcherImpl build() {
+      return new PayloadDispatcherImpl(this);
+    }
+  }
 
   public PayloadDispatcherImpl(
       RemoteMapperDiscovery mapperDiscovery,
       RemoteApi api,
       HealthMetrics healthMetrics,
       Monitoring monitoring) {
-    this.mapperDiscovery = mapperDiscovery;
-    this.api = api;
-    this.healthMetrics = healthMetrics;
-    this.monitoring = monitoring;
+    this(
+        builder()
+            .mapperDiscovery(mapperDiscovery)
+            .api(api)
+            .healthMetrics(healthMetrics)
+            .monitoring(monitoring));
+  }
+
+  private PayloadDispatcherImpl(PayloadDispatcherImplBuilder builder) {
+    this.mapperDiscovery = builder.mapperDiscovery;
+    this.api = builder.api;
+    this.healthMetrics = builder.healthMetrics;
+    this.monitoring = builder.monitoring;
+    this.bufferPool =
+        null == builder.bufferPool && null != builder.sender
+            ? newBufferPool(
+                api.isDirectTransport(), healthMetrics, builder.sender.maxInFlight() + 1)
+            : builder.bufferPool;
+    this.sender = builder.sender;
+    this.flushPolicy = builder.flushPolicy;
+    this.spillQueue = builder.spillQueue;
+    this.droppedCounts =
+        null == builder.droppedCounts ? new DroppedCounts() : builder.droppedCounts;
+  }
+
+  /**
+   * Creates a pool for one dispatcher and its mapper: large enough to hold the payload buffer and
+   * the mapper's scratch buffers, reporting hits and misses to the health metrics.
+   */
+  static BufferPool newBufferPool(boolean direct, HealthMetrics healthMetrics) {
+    return newBufferPool(direct, healthMetrics, POOLED_BUFFERS_PER_SIZE_CLASS);
+  }
+
+  static BufferPool newBufferPool(
+      boolean direct, HealthMetrics healthMetrics, int buffersPerSizeClass) {
+    return new BufferPool(
+        MIN_POOLED_BUFFER_SIZE,
+        MAX_POOLED_BUFFER_SIZE,
+        buffersPerSizeClass,
+        direct,
+        healthMetrics::onBufferPoolAcquire);
   }
 
   @Override
@@ -51,6 +181,13 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
     if (null != packer) {
       packer.flush();
     }
+    if (null != sender) {
+      sender.awaitInFlight();
+    }
+    if (null != spillQueue && null != mapper) {
+      // probe the agent with a spilled payload, even when no new payload is sent
+      replaySpilled(mapper.endpoint());
+    }
   }
 
   @Override
@@ -60,8 +197,8 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
 
   @Override
   public void onDroppedTrace(int spanCount) {
-    droppedSpanCount.inc(spanCount);
-    droppedTraceCount.inc();
+    droppedCounts.spans.inc(spanCount);
+    droppedCounts.traces.inc();
   }
 
   @Override
@@ -74,6 +211,8 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
     if (null == mapper || !packer.format(trace, mapper)) {
       healthMetrics.onFailedPublish(
           trace.isEmpty() ? 0 : trace.get(0).samplingPriority(), trace.size());
+    } else if (null != flushPolicy && flushingBuffer.size() >= flushPolicy.targetPayloadSize()) {
+      packer.flush();
     }
   }
 
@@ -87,7 +226,11 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
       if (null != mapper && null == packer) {
         batchTimer =
             monitoring.newTimer("tracer.trace.buffer.fill.time", "endpoint:" + mapper.endpoint());
-        packer = new MsgPackWriter(new FlushingBuffer(mapper.messageBufferSize(), this));
+        flushingBuffer =
+            null == bufferPool
+                ? new FlushingBuffer(mapper.messageBufferSize(), this, api.isDirectTransport())
+                : new FlushingBuffer(mapper.messageBufferSize(), this, bufferPool);
+        packer = new MsgPackWriter(flushingBuffer);
         batchTimer.start();
       }
     }
@@ -97,8 +240,8 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
     return mapper
         .newPayload()
         .withBody(messageCount, buffer)
-        .withDroppedSpans(droppedSpanCount.getAndReset())
-        .withDroppedTraces(droppedTraceCount.getAndReset());
+        .withDroppedSpans(droppedCounts.spans.getAndReset())
+        .withDroppedTraces(droppedCounts.traces.getAndReset());
   }
 
   @Override
@@ -107,23 +250,99 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
     // or when the packer is flushed at a heartbeat
     if (messageCount > 0) {
       batchTimer.reset();
-      Payload payload = newPayload(messageCount, buffer);
+      final Payload payload = newPayload(messageCount, buffer);
       final int sizeInBytes = payload.sizeInBytes();
       healthMetrics.onSerialize(sizeInBytes);
-      RemoteApi.Response response = api.sendSerializedTraces(payload);
-      mapper.reset();
-      if (response.success()) {
-        if (log.isDebugEnabled()) {
-          log.debug("Successfully sent {} traces to the API", messageCount);
+      // captured here, the mapper belongs to the serializer thread
+      final String endpoint = mapper.endpoint();
+      if (null == sender) {
+        try {
+          send(payload, endpoint, messageCount, sizeInBytes);
+        } finally {
+          mapper.reset();
+          releaseBuffer(buffer);
         }
-        healthMetrics.onSend(messageCount, sizeInBytes, response);
       } else {
-        if (log.isDebugEnabled()) {
-          log.debug(
-              "Failed to send {} traces of size {} bytes to the API", messageCount, sizeInBytes);
+        payload.detach();
+        mapper.reset();
+        final boolean handedOver =
+            sender.trySend(
+                () -> {
+                  try {
+                    send(payload, endpoint, messageCount, sizeInBytes);
+                  } finally {
+                    releaseBuffer(buffer);
+                  }
+                });
+        if (!handedOver) {
+          // too many payloads in flight: rather than wait for a send, spill or drop the payload
+          healthMetrics.onRejectedSend(messageCount);
+          if (null != spillQueue) {
+            spillQueue.offer(payload, endpoint);
+          }
+          releaseBuffer(buffer);
         }
-        healthMetrics.onFailedSend(messageCount, sizeInBytes, response);
       }
     }
   }
+
+  private void send(
+      final Payload payload, final String endpoint, final int messageCount, final int sizeInBytes) {
+    final long start = System.nanoTime();
+    RemoteApi.Response response = api.sendSerializedTraces(payload);
+    if (null != flushPolicy) {
+      flushPolicy.onPayloadSent(sizeInBytes, System.nanoTime() - start);
+    }
+    if (response.success()) {
+      if (log.isDebugEnabled()) {
+        log.debug("Successfully sent {} traces to the API", messageCount);
+      }
+      healthMetrics.onSend(messageCount, sizeInBytes, response);
+      if (null != spillQueue) {
+        replaySpilled(endpoint);
+      }
+    } else {
+      if (log.isDebugEnabled()) {
+        log.debug(
+            "Failed to send {} traces of size {} bytes to the API", messageCount, sizeInBytes);
+      }
+      healthMetrics.onFailedSend(messageCount, sizeInBytes, response);
+      if (null != spillQueue && null == response.status()) {
+        // the agent couldn't be reached, keep the payload for when it's back
+        spillQueue.offer(payload, endpoint);
+      }
+    }
+  }
+
+  private void replaySpilled(final String endpoint) {
+    final PayloadSpillQueue.SpilledPayload spilled = spillQueue.poll(endpoint);
+    if (null == spilled) {
+      return;
+    }
+    final int traceCount = spilled.traceCount();
+    final int sizeInBytes = spilled.sizeInBytes();
+    final RemoteApi.Response response = api.sendSerializedTraces(spilled);
+    if (response.success()) {
+      healthMetrics.onSend(traceCount, sizeInBytes, response);
+      spillQueue.complete(spilled, true);
+    } else if (null == response.status()) {
+      spillQueue.retry(spilled);
+    } else {
+      healthMetrics.onFailedSend(traceCount, sizeInBytes, response);
+      spillQueue.complete(spilled, false);
+    }
+  }
+
+  private void releaseBuffer(ByteBuffer buffer) {
+    if (null != bufferPool) {
+      // the send has completed, so nothing refers to the payload's buffer anymore
+      bufferPool.release(buffer);
+    }
+  }
+
+  /** Counts of the traces dropped before serialization, reported with the next payload. */
+  static final class DroppedCounts {
+    final FixedSizeStripedLongCounter spans = CountersFactory.createFixedSizeStripedCounter(8);
+    final FixedSizeStripedLongCounter traces = CountersFactory.createFixedSizeStripedCounter(8);
+  }
 }
@@ -0,0 +1,323 @@
+package datadog.trace.common.writer;
+
+import static datadog.communication.http.OkHttpUtils.msgpackRequestBodyOf;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import datadog.trace.core.monitor.HealthMetrics;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import okhttp3.RequestBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded on-disk queue for serialized payloads which couldn't be sent because the agent was
+ * unreachable. The payloads are replayed at a limited rate once the agent accepts payloads again.
+ *
+ * <p>Payloads are appended to memory-mapped segment files of a fixed size. The queue is bounded by
+ * bytes: when it's full the oldest segment is dropped. It's also bounded by age: payloads older
+ * than the maximum age are dropped instead of being replayed. Segments are deleted once replayed,
+ * and the queue's directory is deleted when it's closed, so payloads don't outlive the process.
+ *
+ * <p>The queue is used by the serializer and sender threads only, never by application threads.
+ */
+public final class PayloadSpillQueue implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(PayloadSpillQueue.class);
+
+  // large enough for the largest payload a mapper produces
+  static final int MAX_SEGMENT_SIZE = 8 << 20;
+
+  // record size, trace count, timestamp, endpoint length
+  private static final int RECORD_HEADER_SIZE = 4 + 4 + 8 + 1;
+
+  private final Path directory;
+  private final int segmentSize;
+  private final int maxSegments;
+  private final long maxAgeMillis;
+  private final long replayIntervalNanos;
+  private final HealthMetrics healthMetrics;
+
+  private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+  private long segmentSequence;
+  private long nextReplayNanos;
+  private SpilledPayload replaying;
+  private boolean closed;
+
+  /**
+   * @param parentDirectory where the queue creates its own directory, so that several processes
+   *     can share the same location
+   * @param replayRate the maximum number of payloads replayed per second
+   */
+  public PayloadSpillQueue(
+      Path parentDirectory,
+      long maxBytes,
+      long maxAge,
+      TimeUnit maxAgeUnit,
+      int replayRate,
+      HealthMetrics healthMetrics)
+      throws IOException {
+    if (maxBytes <= 0 || maxAge <= 0 || replayRate <= 0) {
+      throw new IllegalArgumentException(
+          "Invalid spill bounds: " + maxBytes + " bytes, " + maxAge + " " + maxAgeUnit);
+    }
+    Files.createDirectories(parentDirectory);
+    this.directory = Files.createTempDirectory(parentDirectory, "dd-trace-spill-");
+    this.segmentSize = (int) Math.min(maxBytes, MAX_SEGMENT_SIZE);
+    this.maxSegments = (int) Math.max(1, maxBytes / segmentSize);
+    this.maxAgeMillis = maxAgeUnit.toMillis(maxAge);
+    this.replayIntervalNanos = TimeUnit.SECONDS.toNanos(1) / replayRate;
+    this.healthMetrics = healthMetrics;
+    this.nextReplayNanos = System.nanoTime();
+  }
+
+  Path directory() {
+    return directory;
+  }
+
+  /**
+   * Appends the serialized payload to the queue, dropping the oldest payloads if the queue is full.
+   *
+   * @return false if the payload couldn't be spilled, and is lost
+   */
+  public synchronized boolean offer(Payload payload, String endpoint) {
+    final ByteBuffer[] buffers = payload.toBuffers();
+    final byte[] endpointBytes = endpoint.getBytes(UTF_8);
+    int size = 0;
+    if (null != buffers) {
+      for (ByteBuffer buffer : buffers) {
+        size += buffer.remaining();
+      }
+    }
+    final int recordSize = RECORD_HEADER_SIZE + endpointBytes.length + size;
+    if (closed || null == buffers || endpointBytes.length > 0xFF || recordSize > segmentSize) {
+      healthMetrics.onSpillDrop(payload.traceCount());
+      return false;
+    }
+    final long now = System.currentTimeMillis();
+    dropExpiredSegments(now);
+    Segment tail = segments.peekLast();
+    if (null == tail || tail.buffer.remaining() < recordSize) {
+      while (segments.size() >= maxSegments) {
+        dropSegment(segments.pollFirst());
+      }
+      try {
+        tail = openSegment();
+      } catch (IOException e) {
+        log.debug("Failed to create spill segment in {}", directory, e);
+        healthMetrics.onSpillDrop(payload.traceCount());
+        return false;
+      }
+      segments.addLast(tail);
+    }
+    final MappedByteBuffer out = tail.buffer;
+    out.putInt(recordSize)
+        .putInt(payload.traceCount())
+        .putLong(now)
+        .put((byte) endpointBytes.length)
+        .put(endpointBytes);
+    for (ByteBuffer buffer : buffers) {
+      out.put(buffer.duplicate());
+    }
+    tail.pendingTraces += payload.traceCount();
+    tail.lastWriteMillis = now;
+    healthMetrics.onSpill(payload.traceCount(), size);
+    return true;
+  }
+
+  /**
+   * Takes the oldest payload for the endpoint, provided the replay rate allows it and no other
+   * payload is being replayed. Payloads for another endpoint, e.g. because the agent was
+   * downgraded while unreachable, are dropped. The payload stays in the queue until the replay is
+   * {@link #complete(SpilledPayload, boolean) completed}, or it is {@link #retry(SpilledPayload)
+   * retried} later.
+   *
+   * @return the payload to replay, or null
+   */
+  public synchronized SpilledPayload poll(String endpoint) {
+    final long nanoTime = System.nanoTime();
+    if (closed || null != replaying || nanoTime - nextReplayNanos < 0) {
+      return null;
+    }
+    final long now = System.currentTimeMillis();
+    dropExpiredSegments(now);
+    Segment head;
+    while (null != (head = segments.peekFirst())) {
+      if (head.readPosition == head.buffer.position()) {
+        // fully replayed, release the disk space
+        dropSegment(segments.pollFirst());
+        continue;
+      }
+      final ByteBuffer in = head.buffer.duplicate();
+      in.position(head.readPosition);
+      final int recordSize = in.getInt();
+      final int traceCount = in.getInt();
+      final long timestamp = in.getLong();
+      final byte[] endpointBytes = new byte[in.get() & 0xFF];
+      in.get(endpointBytes);
+      if (now - timestamp > maxAgeMillis || !endpoint.equals(new String(endpointBytes, UTF_8))) {
+        skip(head, recordSize, traceCount);
+        healthMetrics.onSpillDrop(traceCount);
+        continue;
+      }
+      in.limit(head.readPosition + recordSize);
+      final ByteBuffer body = ByteBuffer.allocate(in.remaining());
+      body.put(in);
+      body.flip();
+      nextReplayNanos = nanoTime + replayIntervalNanos;
+      replaying = new SpilledPayload(head, head.readPosition, recordSize);
+      replaying.withBody(traceCount, body);
+      return replaying;
+    }
+    return null;
+  }
+
+  /**
+   * Removes a replayed payload from the queue.
+   *
+   * @param sent whether the agent accepted the payload, or rejected it for good
+   */
+  public synchronized void complete(SpilledPayload payload, boolean sent) {
+    if (payload != replaying) {
+      return;
+    }
+    replaying = null;
+    final Segment segment = payload.segment;
+    // the segment may have been dropped while the payload was replayed
+    if (segment == segments.peekFirst() && segment.readPosition == payload.position) {
+      skip(segment, payload.recordSize, payload.traceCount());
+      if (sent) {
+        healthMetrics.onSpillReplay(payload.traceCount());
+      } else {
+        healthMetrics.onSpillDrop(payload.traceCount());
+      }
+    }
+  }
+
+  /** Leaves a payload which couldn't be replayed at the head of the queue, to retry it later. */
+  public synchronized void retry(SpilledPayload payload) {
+    if (payload == replaying) {
+      replaying = null;
+    }
+  }
+
+  /** @return the number of spilled traces waiting to be replayed */
+  public synchronized int pendingTraces() {
+    int pending = 0;
+    for (Segment segment : segments) {
+      pending += segment.pendingTraces;
+    }
+    return pending;
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    replaying = null;
+    Segment segment;
+    while (null != (segment = segments.pollFirst())) {
+      dropSegment(segment);
+    }
+    delete(directory);
+  }
+
+  private void dropExpiredSegments(long now) {
+    Segment head;
+    while (null != (head = segments.peekFirst()) && now - head.lastWriteMillis > maxAgeMillis) {
+      dropSegment(segments.pollFirst());
+    }
+  }
+
+  private void dropSegment(Segment segment) {
+    if (segment.pendingTraces > 0) {
+      healthMetrics.onSpillDrop(segment.pendingTraces);
+    }
+    // the mapping is released once the buffer is collected, its channel is already closed
+    delete(segment.file);
+  }
+
+  private static void skip(Segment segment, int recordSize, int traceCount) {
+    segment.readPosition += recordSize;
+    segment.pendingTraces -= traceCount;
+  }
+
+  private Segment openSegment() throws IOException {
+    final Path file = directory.resolve("payloads-" + segmentSequence++ + ".spill");
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      // the mapping stays valid once the channel is closed
+      return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+    }
+  }
+
+  private static void delete(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      log.debug("Failed to delete {}", path, e);
+    }
+  }
+
+  private static final class Segment {
+    final Path file;
+    final MappedByteBuffer buffer;
+    int readPosition;
+    int pendingTraces;
+    long lastWriteMillis;
+
+    Segment(Path file, MappedByteBuffer buffer) {
+      this.file = file;
+      this.buffer = buffer;
+    }
+  }
+
+  /** A payload read back from the queue, sent as it was serialized. */
+  public static final class SpilledPayload extends Payload {
+
+    private final Segment segment;
+    private final int position;
+    private final int recordSize;
+
+    private SpilledPayload(Segment segment, int position, int recordSize) {
+      this.segment = segment;
+      this.position = position;
+      this.recordSize = recordSize;
+    }
+
+    @Override
+    public int sizeInBytes() {
+      return body.remaining();
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+      ByteBuffer buffer = body.duplicate();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    @Override
+    public RequestBody toRequest() {
+      return msgpackRequestBodyOf(Collections.singletonList(body.duplicate()));
+    }
+
+    @Override
+    public ByteBuffer[] toBuffers() {
+      return new ByteBuffer[] {body.duplicate()};
+    }
+  }
+}
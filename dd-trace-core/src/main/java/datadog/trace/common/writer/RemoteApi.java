@@ -1,21 +1,28 @@
 package datadog.trace.common.writer;
 
+import datadog.communication.http.GzipRequestBody;
+import datadog.trace.core.monitor.HealthMetrics;
 import datadog.trace.relocate.api.IOLogger;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.RequestBody;
 import org.slf4j.Logger;
 
 public abstract class RemoteApi {
 
   protected final IOLogger ioLogger = new IOLogger(getLogger());
 
-  protected long totalTraces = 0;
-  protected long receivedTraces = 0;
-  protected long sentTraces = 0;
-  protected long failedTraces = 0;
+  // the serializer shards of a writer may send through the same api concurrently
+  private final AtomicLong totalTraces = new AtomicLong();
+  private final AtomicLong receivedTraces = new AtomicLong();
+  private final AtomicLong sentTraces = new AtomicLong();
+  private final AtomicLong failedTraces = new AtomicLong();
 
   private final boolean compressionEnabled;
 
+  private volatile HealthMetrics healthMetrics = HealthMetrics.NO_OP;
+
   protected RemoteApi(boolean compressionEnabled) {
     this.compressionEnabled = compressionEnabled;
   }
@@ -24,9 +31,35 @@ public abstract class RemoteApi {
     return compressionEnabled;
   }
 
+  public void setHealthMetrics(HealthMetrics healthMetrics) {
+    this.healthMetrics = healthMetrics;
+  }
+
+  /** Reports how well a request body was compressed, once it has been written. */
+  protected void onRequestBodySent(RequestBody body) {
+    if (body instanceof GzipRequestBody) {
+      GzipRequestBody gzipBody = (GzipRequestBody) body;
+      healthMetrics.onCompress(gzipBody.uncompressedBytes(), gzipBody.compressedBytes());
+    }
+  }
+
+  /**
+   * Whether payloads are written straight from the serialization buffers to the transport, in
+   * which case those buffers are best allocated off-heap.
+   */
+  public boolean isDirectTransport() {
+    return false;
+  }
+
+  /** Counts the traces of a payload about to be sent, or uncounts them when negative. */
+  protected void countReceivedTraces(final int traceCount) {
+    totalTraces.addAndGet(traceCount);
+    receivedTraces.addAndGet(traceCount);
+  }
+
   protected void countAndLogSuccessfulSend(final int traceCount, final int sizeInBytes) {
     // count the successful traces
-    sentTraces += traceCount;
+    sentTraces.addAndGet(traceCount);
 
     ioLogger.success(createSendLogMessage(traceCount, sizeInBytes, "Success"));
   }
@@ -37,7 +70,7 @@ public abstract class RemoteApi {
       final okhttp3.Response response,
       final IOException outer) {
     // count the failed traces
-    failedTraces += traceCount;
+    failedTraces.addAndGet(traceCount);
     // these are used to catch and log if there is a failure in debug logging the response body
     String responseBody = getResponseBody(response);
     String sendErrorString =
@@ -65,13 +98,13 @@ public abstract class RemoteApi {
         + ")"
         + " traces."
         + " Total: "
-        + totalTraces
+        + totalTraces.get()
         + ", Received: "
-        + receivedTraces
+        + receivedTraces.get()
         + ", Sent: "
-        + sentTraces
+        + sentTraces.get()
         + ", Failed: "
-        + failedTraces
+        + failedTraces.get()
         + ".";
   }
 
@@ -88,6 +121,9 @@ public abstract class RemoteApi {
 
   protected abstract Response sendSerializedTraces(final Payload payload);
 
+  /** Releases what the api holds to send payloads, such as connections kept open. */
+  public void close() {}
+
   protected abstract Logger getLogger();
 
   /**
@@ -141,7 +141,12 @@ public abstract class RemoteWriter implements Writer {
     dispatcher.onDroppedTrace(spanCount);
   }
 
-  // used by tests
+  @Override
+  public boolean recyclesSpans() {
+    // the serializer threads are the last to read the spans of the traces they write
+    return true;
+  }
+
   public Collection<RemoteApi> getApis() {
     return dispatcher.getApis();
   }
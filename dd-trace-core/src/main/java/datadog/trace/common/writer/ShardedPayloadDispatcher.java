@@ -0,0 +1,56 @@
+package datadog.trace.common.writer;
+
+import datadog.trace.core.CoreSpan;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Groups one {@link PayloadDispatcher} per serializer shard. The {@link TraceProcessingWorker}
+ * starts one serializing thread per shard, each owning its dispatcher (and therefore its own mapper
+ * and buffers), and routes traces to shards by trace id.
+ */
+public class ShardedPayloadDispatcher implements PayloadDispatcher {
+
+  private final PayloadDispatcher[] shards;
+
+  public ShardedPayloadDispatcher(PayloadDispatcher... shards) {
+    if (shards.length == 0) {
+      throw new IllegalArgumentException("At least one shard needs to be configured");
+    }
+    this.shards = shards;
+  }
+
+  PayloadDispatcher[] getShards() {
+    return shards;
+  }
+
+  @Override
+  public void onDroppedTrace(int spanCount) {
+    // the shards built by the writers share their dropped counts, which go out with the next
+    // payload any of them sends, so counting a dropped trace once is enough
+    shards[0].onDroppedTrace(spanCount);
+  }
+
+  @Override
+  public void addTrace(List<? extends CoreSpan<?>> trace) {
+    shards[TraceProcessingWorker.shardIndex(trace, shards.length)].addTrace(trace);
+  }
+
+  @Override
+  public void flush() {
+    for (PayloadDispatcher shard : shards) {
+      shard.flush();
+    }
+  }
+
+  @Override
+  public Collection<RemoteApi> getApis() {
+    Set<RemoteApi> apis = new LinkedHashSet<>();
+    for (PayloadDispatcher shard : shards) {
+      apis.addAll(shard.getApis());
+    }
+    return apis;
+  }
+}
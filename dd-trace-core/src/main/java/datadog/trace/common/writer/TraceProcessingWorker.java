@@ -7,6 +7,7 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import datadog.communication.ddagent.DroppingPolicy;
 import datadog.trace.api.Config;
+import datadog.trace.api.DDTraceId;
 import datadog.trace.common.sampling.SingleSpanSampler;
 import datadog.trace.common.writer.ddagent.FlushEvent;
 import datadog.trace.common.writer.ddagent.Prioritization;
@@ -16,8 +17,12 @@ import datadog.trace.core.DDSpan;
 import datadog.trace.core.DDSpanContext;
 import datadog.trace.core.monitor.HealthMetrics;
 import datadog.trace.core.postprocessor.SpanPostProcessor;
+import java.util.AbstractQueue;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BooleanSupplier;
@@ -37,11 +42,15 @@ public class TraceProcessingWorker implements AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(TraceProcessingWorker.class);
 
+  private static final int MIN_SHARD_CAPACITY = 16;
+
   private final PrioritizationStrategy prioritizationStrategy;
-  private final MpscBlockingConsumerArrayQueue<Object> primaryQueue;
-  private final MpscBlockingConsumerArrayQueue<Object> secondaryQueue;
-  private final TraceSerializingHandler serializingHandler;
-  private final Thread serializerThread;
+  private final Queue<Object> primaryQueue;
+  private final Queue<Object> secondaryQueue;
+  private final MpscBlockingConsumerArrayQueue<Object>[] primaryShards;
+  private final MpscBlockingConsumerArrayQueue<Object>[] secondaryShards;
+  private final TraceSerializingHandler[] serializingHandlers;
+  private final Thread[] serializerThreads;
   private final int capacity;
 
   private final SpanSamplingWorker spanSamplingWorker;
@@ -56,9 +65,44 @@ public class TraceProcessingWorker implements AutoCloseable {
       final TimeUnit timeUnit,
       final SingleSpanSampler singleSpanSampler,
       final SpanPostProcessor spanPostProcessor) {
+    this(
+        capacity,
+        healthMetrics,
+        dispatcher,
+        droppingPolicy,
+        prioritization,
+        new FixedFlushPolicy(flushInterval, timeUnit),
+        singleSpanSampler,
+        spanPostProcessor);
+  }
+
+  public TraceProcessingWorker(
+      final int capacity,
+      final HealthMetrics healthMetrics,
+      final PayloadDispatcher dispatcher,
+      final DroppingPolicy droppingPolicy,
+      final Prioritization prioritization,
+      final FlushPolicy flushPolicy,
+      final SingleSpanSampler singleSpanSampler,
+      final SpanPostProcessor spanPostProcessor) {
     this.capacity = capacity;
-    this.primaryQueue = createQueue(capacity);
-    this.secondaryQueue = createQueue(capacity);
+    // each shard gets its own queues, handler and dispatcher, so a sharded dispatcher
+    // determines how many serializer threads are started
+    final PayloadDispatcher[] dispatchers =
+        dispatcher instanceof ShardedPayloadDispatcher
+            ? ((ShardedPayloadDispatcher) dispatcher).getShards()
+            : new PayloadDispatcher[] {dispatcher};
+    final int shardCount = dispatchers.length;
+    final int shardCapacity = shardCapacity(capacity, shardCount);
+    this.primaryShards = createQueues(shardCount, shardCapacity);
+    this.secondaryShards = createQueues(shardCount, shardCapacity);
+    if (shardCount == 1) {
+      this.primaryQueue = primaryShards[0];
+      this.secondaryQueue = secondaryShards[0];
+    } else {
+      this.primaryQueue = new ShardedQueue(primaryShards);
+      this.secondaryQueue = new ShardedQueue(secondaryShards);
+    }
     this.spanSamplingWorker =
         SpanSamplingWorker.build(
             capacity,
@@ -74,30 +118,40 @@ public class TraceProcessingWorker implements AutoCloseable {
             spanSamplingWorker.getSpanSamplingQueue(),
             droppingPolicy);
 
-    this.serializingHandler =
-        new TraceSerializingHandler(
-            primaryQueue,
-            secondaryQueue,
-            healthMetrics,
-            dispatcher,
-            flushInterval,
-            timeUnit,
-            spanPostProcessor);
-    this.serializerThread = newAgentThread(TRACE_PROCESSOR, serializingHandler);
+    this.serializingHandlers = new TraceSerializingHandler[shardCount];
+    this.serializerThreads = new Thread[shardCount];
+    for (int i = 0; i < shardCount; ++i) {
+      serializingHandlers[i] =
+          new TraceSerializingHandler(
+              primaryShards[i],
+              secondaryShards[i],
+              healthMetrics,
+              dispatchers[i],
+              flushPolicy,
+              spanPostProcessor);
+      serializerThreads[i] =
+          newAgentThread(
+              TRACE_PROCESSOR, shardCount == 1 ? null : "-" + i, serializingHandlers[i], true);
+    }
   }
 
   public void start() {
-    this.serializerThread.start();
+    for (Thread serializerThread : serializerThreads) {
+      serializerThread.start();
+    }
     this.spanSamplingWorker.start();
   }
 
   public boolean flush(long timeout, TimeUnit timeUnit) {
-    CountDownLatch latch = new CountDownLatch(1);
+    // every shard must drain and flush its own dispatcher before the flush completes
+    CountDownLatch latch = new CountDownLatch(primaryShards.length);
     FlushEvent flush = new FlushEvent(latch);
-    boolean offered;
-    do {
-      offered = primaryQueue.offer(flush);
-    } while (!offered && serializerThread.isAlive());
+    for (int i = 0; i < primaryShards.length; ++i) {
+      boolean offered;
+      do {
+        offered = primaryShards[i].offer(flush);
+      } while (!offered && serializerThreads[i].isAlive());
+    }
     try {
       return latch.await(timeout, timeUnit);
     } catch (InterruptedException e) {
@@ -109,10 +163,14 @@ public class TraceProcessingWorker implements AutoCloseable {
   @Override
   public void close() {
     spanSamplingWorker.close();
-    serializerThread.interrupt();
-    try {
-      serializerThread.join(THREAD_JOIN_TIMOUT_MS);
-    } catch (InterruptedException ignored) {
+    for (Thread serializerThread : serializerThreads) {
+      serializerThread.interrupt();
+    }
+    for (Thread serializerThread : serializerThreads) {
+      try {
+        serializerThread.join(THREAD_JOIN_TIMOUT_MS);
+      } catch (InterruptedException ignored) {
+      }
     }
   }
 
@@ -127,11 +185,138 @@ public class TraceProcessingWorker implements AutoCloseable {
 
   public long getRemainingCapacity() {
     // only advertise primary capacity (partly to keep test which aims to saturate the queue happy)
-    return primaryQueue.remainingCapacity();
+    long remaining = 0;
+    for (MpscBlockingConsumerArrayQueue<Object> shard : primaryShards) {
+      remaining += shard.remainingCapacity();
+    }
+    return remaining;
+  }
+
+  int getShardCount() {
+    return primaryShards.length;
+  }
+
+  private static int shardCapacity(int capacity, int shardCount) {
+    // split the configured capacity so the total amount of buffered traces stays the same
+    if (shardCount == 1) {
+      return capacity;
+    }
+    return Math.max(MIN_SHARD_CAPACITY, (capacity + shardCount - 1) / shardCount);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static MpscBlockingConsumerArrayQueue<Object>[] createQueues(
+      int shardCount, int capacity) {
+    MpscBlockingConsumerArrayQueue<Object>[] queues =
+        new MpscBlockingConsumerArrayQueue[shardCount];
+    for (int i = 0; i < shardCount; ++i) {
+      queues[i] = new MpscBlockingConsumerArrayQueue<>(capacity);
+    }
+    return queues;
   }
 
-  private static MpscBlockingConsumerArrayQueue<Object> createQueue(int capacity) {
-    return new MpscBlockingConsumerArrayQueue<>(capacity);
+  /**
+   * Selects the shard for a trace from its trace id, so all chunks of the same trace are
+   * serialized by the same handler. Anything that isn't a trace goes to the first shard.
+   */
+  static int shardIndex(Object event, int shardCount) {
+    if (event instanceof List) {
+      List<?> trace = (List<?>) event;
+      if (!trace.isEmpty() && trace.get(0) instanceof CoreSpan) {
+        DDTraceId traceId = ((CoreSpan<?>) trace.get(0)).getTraceId();
+        if (null != traceId) {
+          long id = traceId.toLong();
+          return Math.floorMod((int) (id ^ (id >>> 32)), shardCount);
+        }
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Producer side view over the per-shard queues, routing each trace to the shard owning its trace
+   * id. The serializer threads consume directly from the shards, and as each shard only allows a
+   * single consumer, {@link #poll()} must not be used while they are running.
+   */
+  static final class ShardedQueue extends AbstractQueue<Object> {
+    private final MpscBlockingConsumerArrayQueue<Object>[] shards;
+
+    ShardedQueue(MpscBlockingConsumerArrayQueue<Object>[] shards) {
+      this.shards = shards;
+    }
+
+    @Override
+    public boolean offer(Object event) {
+      return shards[shardIndex(event, shards.length)].offer(event);
+    }
+
+    @Override
+    public Object poll() {
+      for (MpscBlockingConsumerArrayQueue<Object> shard : shards) {
+        Object event = shard.poll();
+        if (null != event) {
+          return event;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public Object peek() {
+      for (MpscBlockingConsumerArrayQueue<Object> shard : shards) {
+        Object event = shard.peek();
+        if (null != event) {
+          return event;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      for (MpscBlockingConsumerArrayQueue<Object> shard : shards) {
+        if (!shard.isEmpty()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (MpscBlockingConsumerArrayQueue<Object> shard : shards) {
+        size += shard.size();
+      }
+      return size;
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+      return new Iterator<Object>() {
+        private int shard;
+        private Iterator<Object> current = shards[0].iterator();
+
+        @Override
+        public boolean hasNext() {
+          while (!current.hasNext()) {
+            if (shard + 1 >= shards.length) {
+              return false;
+            }
+            current = shards[++shard].iterator();
+          }
+          return true;
+        }
+
+        @Override
+        public Object next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return current.next();
+        }
+      };
+    }
   }
 
   public static class TraceSerializingHandler implements Runnable {
@@ -139,8 +324,7 @@ public class TraceProcessingWorker implements AutoCloseable {
     private final MpscBlockingConsumerArrayQueue<Object> primaryQueue;
     private final MpscBlockingConsumerArrayQueue<Object> secondaryQueue;
     private final HealthMetrics healthMetrics;
-    private final long ticksRequiredToFlush;
-    private final boolean doTimeFlush;
+    private final FlushPolicy flushPolicy;
     private final PayloadDispatcher payloadDispatcher;
     private long lastTicks;
     private final SpanPostProcessor spanPostProcessor;
@@ -153,17 +337,28 @@ public class TraceProcessingWorker implements AutoCloseable {
         final long flushInterval,
         final TimeUnit timeUnit,
         final SpanPostProcessor spanPostProcessor) {
+      this(
+          primaryQueue,
+          secondaryQueue,
+          healthMetrics,
+          payloadDispatcher,
+          new FixedFlushPolicy(flushInterval, timeUnit),
+          spanPostProcessor);
+    }
+
+    public TraceSerializingHandler(
+        final MpscBlockingConsumerArrayQueue<Object> primaryQueue,
+        final MpscBlockingConsumerArrayQueue<Object> secondaryQueue,
+        final HealthMetrics healthMetrics,
+        final PayloadDispatcher payloadDispatcher,
+        final FlushPolicy flushPolicy,
+        final SpanPostProcessor spanPostProcessor) {
       this.primaryQueue = primaryQueue;
       this.secondaryQueue = secondaryQueue;
       this.healthMetrics = healthMetrics;
-      this.doTimeFlush = flushInterval > 0;
+      this.flushPolicy = flushPolicy;
       this.payloadDispatcher = payloadDispatcher;
-      if (doTimeFlush) {
-        this.lastTicks = System.nanoTime();
-        this.ticksRequiredToFlush = timeUnit.toNanos(flushInterval);
-      } else {
-        this.ticksRequiredToFlush = Long.MAX_VALUE;
-      }
+      this.lastTicks = System.nanoTime();
       this.spanPostProcessor = spanPostProcessor;
     }
 
@@ -199,6 +394,7 @@ public class TraceProcessingWorker implements AutoCloseable {
           maybeTracePostProcessing(trace);
           // TODO populate `_sample_rate` metric in a way that accounts for lost/dropped traces
           payloadDispatcher.addTrace(trace);
+          recycleTags(trace);
         } else if (event instanceof FlushEvent) {
           payloadDispatcher.flush();
           ((FlushEvent) event).sync();
@@ -212,6 +408,15 @@ public class TraceProcessingWorker implements AutoCloseable {
       }
     }
 
+    private static void recycleTags(List<?> trace) {
+      for (int i = 0; i < trace.size(); ++i) {
+        Object span = trace.get(i);
+        if (span instanceof DDSpan) {
+          ((DDSpan) span).recycleTags();
+        }
+      }
+    }
+
     protected void consumeFromPrimaryQueue() throws InterruptedException {
       Object event = primaryQueue.poll(100, MILLISECONDS);
       if (null != event) {
@@ -233,13 +438,18 @@ public class TraceProcessingWorker implements AutoCloseable {
     }
 
     protected void flushIfNecessary() {
+      flushPolicy.onQueueDepth(
+          primaryQueue.size() + secondaryQueue.size(),
+          primaryQueue.capacity() + secondaryQueue.capacity());
       if (shouldFlush()) {
         payloadDispatcher.flush();
       }
     }
 
     private boolean shouldFlush() {
-      if (doTimeFlush) {
+      // the policy may change the interval between two flushes
+      long ticksRequiredToFlush = flushPolicy.flushIntervalNanos();
+      if (ticksRequiredToFlush != Long.MAX_VALUE) {
         long nanoTime = System.nanoTime();
         long ticks = nanoTime - lastTicks;
         if (ticks > ticksRequiredToFlush) {
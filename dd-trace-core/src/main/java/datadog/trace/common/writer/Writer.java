@@ -33,4 +33,12 @@ public interface Writer extends Closeable {
 
   /** Count that a trace was captured for stats, but without reporting it. */
   void incrementDropCounts(int spanCount);
+
+  /**
+   * Whether the writer is done with the spans once they're serialized, and then recycles them with
+   * {@link DDSpan#recycleTags()}.
+   */
+  default boolean recyclesSpans() {
+    return false;
+  }
 }
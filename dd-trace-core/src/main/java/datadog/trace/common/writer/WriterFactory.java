@@ -11,6 +11,7 @@ import static datadog.trace.common.writer.ddagent.Prioritization.ENSURE_TRACE;
 import static datadog.trace.common.writer.ddagent.Prioritization.FAST_LANE;
 
 import datadog.common.container.ServerlessInfo;
+import datadog.common.socket.SocketUtils;
 import datadog.communication.ddagent.DDAgentFeaturesDiscovery;
 import datadog.communication.ddagent.SharedCommunicationObjects;
 import datadog.trace.api.Config;
@@ -18,6 +19,7 @@ import datadog.trace.api.intake.TrackType;
 import datadog.trace.common.sampling.Sampler;
 import datadog.trace.common.sampling.SingleSpanSampler;
 import datadog.trace.common.writer.ddagent.DDAgentApi;
+import datadog.trace.common.writer.ddagent.DirectAgentTransport;
 import datadog.trace.common.writer.ddagent.Prioritization;
 import datadog.trace.common.writer.ddintake.DDEvpProxyApi;
 import datadog.trace.common.writer.ddintake.DDIntakeApi;
@@ -139,7 +141,9 @@ public class WriterFactory {
               commObjects.agentUrl,
               featuresDiscovery,
               commObjects.monitoring,
-              config.isTracerMetricsEnabled());
+              config.isTracerMetricsEnabled(),
+              createDirectTransport(config, commObjects),
+              config.isTraceAgentCompressionEnabled() ? config.getTraceCompressionLevel() : 0);
 
       if (sampler instanceof RemoteResponseListener) {
         ddAgentApi.addResponseListener((RemoteResponseListener) sampler);
@@ -166,6 +170,21 @@ public class WriterFactory {
     return remoteWriter;
   }
 
+  private static DirectAgentTransport createDirectTransport(
+      Config config, SharedCommunicationObjects commObjects) {
+    if (!config.isTraceAgentDirectTransportEnabled()) {
+      return null;
+    }
+    if (null != config.getAgentNamedPipe()) {
+      log.debug("Direct agent transport is not supported over named pipes, using the http client");
+      return null;
+    }
+    return new DirectAgentTransport(
+        commObjects.agentUrl,
+        SocketUtils.discoverApmSocket(config),
+        TimeUnit.SECONDS.toMillis(config.getAgentTimeout()));
+  }
+
   private static RemoteApi createDDIntakeRemoteApi(
       Config config,
       SharedCommunicationObjects commObjects,
@@ -1,5 +1,6 @@
 package datadog.trace.common.writer.ddagent;
 
+import static datadog.communication.http.OkHttpUtils.gzippedRequestBodyOf;
 import static datadog.communication.http.OkHttpUtils.prepareRequest;
 
 import com.squareup.moshi.JsonAdapter;
@@ -15,14 +16,17 @@ import datadog.trace.common.writer.RemoteApi;
 import datadog.trace.common.writer.RemoteResponseListener;
 import datadog.trace.core.DDTraceCoreInfo;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import okhttp3.Headers;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,7 +44,9 @@ public class DDAgentApi extends RemoteApi {
   private static final String X_DATADOG_TRACE_COUNT = "X-Datadog-Trace-Count";
   private static final String DATADOG_DROPPED_TRACE_COUNT = "Datadog-Client-Dropped-P0-Traces";
   private static final String DATADOG_DROPPED_SPAN_COUNT = "Datadog-Client-Dropped-P0-Spans";
-  private static final String DATADOG_AGENT_STATE = "Datadog-Agent-State";
+  static final String DATADOG_AGENT_STATE = "Datadog-Agent-State";
+  private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+  private static final String GZIP_CONTENT_TYPE = "gzip";
 
   private final List<RemoteResponseListener> responseListeners = new ArrayList<>();
   private final boolean metricsEnabled;
@@ -61,6 +67,12 @@ public class DDAgentApi extends RemoteApi {
   private final OkHttpClient httpClient;
   private final HttpUrl agentUrl;
   private final Map<String, String> headers;
+  private final DirectAgentTransport directTransport;
+  private final int compressionLevel;
+  // set when the agent rejects a compressed payload, until it reports a new state
+  private volatile boolean compressionRejected;
+  // guards rediscovering the agent when its state changes, not the sends
+  private final Object agentChangeLock = new Object();
 
   public DDAgentApi(
       OkHttpClient client,
@@ -68,10 +80,38 @@ public class DDAgentApi extends RemoteApi {
       DDAgentFeaturesDiscovery featuresDiscovery,
       Monitoring monitoring,
       boolean metricsEnabled) {
+    this(client, agentUrl, featuresDiscovery, monitoring, metricsEnabled, null);
+  }
+
+  public DDAgentApi(
+      OkHttpClient client,
+      HttpUrl agentUrl,
+      DDAgentFeaturesDiscovery featuresDiscovery,
+      Monitoring monitoring,
+      boolean metricsEnabled,
+      DirectAgentTransport directTransport) {
+    this(client, agentUrl, featuresDiscovery, monitoring, metricsEnabled, directTransport, 0);
+  }
+
+  /**
+   * @param compressionLevel the gzip level payloads are compressed with when the agent advertises
+   *     support for compressed traces, or 0 to never compress them. Payloads are sent uncompressed
+   *     once the agent rejects a compressed payload, until it reports a new state.
+   */
+  public DDAgentApi(
+      OkHttpClient client,
+      HttpUrl agentUrl,
+      DDAgentFeaturesDiscovery featuresDiscovery,
+      Monitoring monitoring,
+      boolean metricsEnabled,
+      DirectAgentTransport directTransport,
+      int compressionLevel) {
     super(false);
     this.featuresDiscovery = featuresDiscovery;
     this.agentUrl = agentUrl;
     this.httpClient = client;
+    this.directTransport = directTransport;
+    this.compressionLevel = compressionLevel;
     this.sendPayloadTimer = monitoring.newTimer("trace.agent.send.time");
     this.agentErrorCounter = monitoring.newCounter("trace.agent.error.counter");
     this.metricsEnabled = metricsEnabled;
@@ -101,60 +141,134 @@ public class DDAgentApi extends RemoteApi {
     }
 
     HttpUrl tracesUrl = agentUrl.resolve(tracesEndpoint);
+    final Request.Builder requestBuilder =
+        prepareRequest(tracesUrl, headers)
+            .addHeader(X_DATADOG_TRACE_COUNT, Integer.toString(payload.traceCount()))
+            .addHeader(DATADOG_DROPPED_TRACE_COUNT, Long.toString(payload.droppedTraces()))
+            .addHeader(DATADOG_DROPPED_SPAN_COUNT, Long.toString(payload.droppedSpans()))
+            .addHeader(
+                DATADOG_CLIENT_COMPUTED_STATS,
+                (metricsEnabled && featuresDiscovery.supportsMetrics())
+                        // Disabling the computation agent-side of the APM trace metrics by
+                        // pretending it was already done by the library
+                        || Config.get().isAppSecStandaloneEnabled()
+                    ? "true"
+                    : "");
+    final boolean compress =
+        compressionLevel > 0
+            && !compressionRejected
+            && featuresDiscovery.supportsTraceCompression();
+    if (null != directTransport && !compress) {
+      final ByteBuffer[] buffers = payload.toBuffers();
+      if (null != buffers) {
+        return sendDirect(tracesUrl, requestBuilder.build().headers(), payload, buffers);
+      }
+    }
     try {
-      final Request request =
-          prepareRequest(tracesUrl, headers)
-              .addHeader(X_DATADOG_TRACE_COUNT, Integer.toString(payload.traceCount()))
-              .addHeader(DATADOG_DROPPED_TRACE_COUNT, Long.toString(payload.droppedTraces()))
-              .addHeader(DATADOG_DROPPED_SPAN_COUNT, Long.toString(payload.droppedSpans()))
-              .addHeader(
-                  DATADOG_CLIENT_COMPUTED_STATS,
-                  (metricsEnabled && featuresDiscovery.supportsMetrics())
-                          // Disabling the computation agent-side of the APM trace metrics by
-                          // pretending it was already done by the library
-                          || Config.get().isAppSecStandaloneEnabled()
-                      ? "true"
-                      : "")
-              .put(payload.toRequest())
-              .build();
-      this.totalTraces += payload.traceCount();
-      this.receivedTraces += payload.traceCount();
+      RequestBody body = payload.toRequest();
+      if (compress) {
+        body = gzippedRequestBodyOf(body, compressionLevel);
+        requestBuilder.addHeader(CONTENT_ENCODING_HEADER, GZIP_CONTENT_TYPE);
+      }
+      final Request request = requestBuilder.put(body).build();
+      countReceivedTraces(payload.traceCount());
       try (final Recording recording = sendPayloadTimer.start();
           final okhttp3.Response response = httpClient.newCall(request).execute()) {
+        onRequestBodySent(body);
         handleAgentChange(response.header(DATADOG_AGENT_STATE));
-        if (response.code() != 200) {
+        if (compress && isClientError(response.code())) {
+          log.debug("The agent rejected a compressed payload, sending uncompressed payloads");
+          compressionRejected = true;
+          // counted again when resent
+          countReceivedTraces(-payload.traceCount());
+        } else if (response.code() != 200) {
           agentErrorCounter.incrementErrorCount(response.message(), payload.traceCount());
           countAndLogFailedSend(payload.traceCount(), sizeInBytes, response, null);
           return Response.failed(response.code());
-        }
-        countAndLogSuccessfulSend(payload.traceCount(), sizeInBytes);
-        String responseString = null;
-        try {
-          responseString = getResponseBody(response);
-          if (!"".equals(responseString) && !"OK".equalsIgnoreCase(responseString)) {
-            final Map<String, Map<String, Number>> parsedResponse =
-                RESPONSE_ADAPTER.fromJson(responseString);
-            final String endpoint = tracesUrl.toString();
-            for (final RemoteResponseListener listener : responseListeners) {
-              listener.onResponse(endpoint, parsedResponse);
-            }
+        } else {
+          countAndLogSuccessfulSend(payload.traceCount(), sizeInBytes);
+          String responseString = null;
+          try {
+            responseString = getResponseBody(response);
+            return handleResponseBody(tracesUrl, response.code(), responseString);
+          } catch (final IOException e) {
+            log.debug("Failed to parse DD agent response: {}", responseString, e);
+            return Response.success(response.code(), e);
           }
-          return Response.success(response.code(), responseString);
-        } catch (final IOException e) {
-          log.debug("Failed to parse DD agent response: {}", responseString, e);
-          return Response.success(response.code(), e);
         }
       }
     } catch (final IOException e) {
       countAndLogFailedSend(payload.traceCount(), sizeInBytes, null, e);
       return Response.failed(e);
     }
+    // the agent didn't take the compressed payload, so it is resent once without compression
+    return sendSerializedTraces(payload);
+  }
+
+  private static boolean isClientError(final int code) {
+    return code >= 400 && code < 500;
+  }
+
+  private Response sendDirect(
+      HttpUrl tracesUrl, Headers requestHeaders, Payload payload, ByteBuffer[] buffers) {
+    final int sizeInBytes = payload.sizeInBytes();
+    countReceivedTraces(payload.traceCount());
+    try (final Recording recording = sendPayloadTimer.start()) {
+      final DirectAgentTransport.Response response =
+          directTransport.put(tracesUrl, requestHeaders, buffers);
+      handleAgentChange(response.agentState);
+      if (response.code != 200) {
+        agentErrorCounter.incrementErrorCount(response.message, payload.traceCount());
+        countAndLogFailedSend(payload.traceCount(), sizeInBytes, null, null);
+        return Response.failed(response.code);
+      }
+      countAndLogSuccessfulSend(payload.traceCount(), sizeInBytes);
+      try {
+        return handleResponseBody(tracesUrl, response.code, response.body.trim());
+      } catch (final IOException e) {
+        log.debug("Failed to parse DD agent response: {}", response.body, e);
+        return Response.success(response.code, e);
+      }
+    } catch (final IOException e) {
+      countAndLogFailedSend(payload.traceCount(), sizeInBytes, null, e);
+      return Response.failed(e);
+    }
+  }
+
+  private Response handleResponseBody(HttpUrl tracesUrl, int code, String responseString)
+      throws IOException {
+    if (!"".equals(responseString) && !"OK".equalsIgnoreCase(responseString)) {
+      final Map<String, Map<String, Number>> parsedResponse =
+          RESPONSE_ADAPTER.fromJson(responseString);
+      final String endpoint = tracesUrl.toString();
+      for (final RemoteResponseListener listener : responseListeners) {
+        listener.onResponse(endpoint, parsedResponse);
+      }
+    }
+    return Response.success(code, responseString);
+  }
+
+  @Override
+  public boolean isDirectTransport() {
+    return null != directTransport;
+  }
+
+  @Override
+  public void close() {
+    if (null != directTransport) {
+      directTransport.close();
+    }
   }
 
   private void handleAgentChange(String state) {
-    String previous = featuresDiscovery.state();
-    if (!Objects.equals(state, previous)) {
-      featuresDiscovery.discover();
+    if (!Objects.equals(state, featuresDiscovery.state())) {
+      synchronized (agentChangeLock) {
+        // a concurrent send may have seen the same change and rediscovered the agent already
+        if (!Objects.equals(state, featuresDiscovery.state())) {
+          compressionRejected = false;
+          featuresDiscovery.discover();
+        }
+      }
     }
   }
 
@@ -1,6 +1,7 @@
 package datadog.trace.common.writer.ddagent;
 
 import datadog.communication.ddagent.DDAgentFeaturesDiscovery;
+import datadog.communication.serialization.BufferPool;
 import datadog.trace.common.writer.RemoteMapper;
 import datadog.trace.common.writer.RemoteMapperDiscovery;
 
@@ -12,10 +13,18 @@ import datadog.trace.common.writer.RemoteMapperDiscovery;
 public class DDAgentMapperDiscovery implements RemoteMapperDiscovery {
 
   private final DDAgentFeaturesDiscovery featuresDiscovery;
+  private final BufferPool bufferPool;
   private TraceMapper traceMapper;
 
   public DDAgentMapperDiscovery(final DDAgentFeaturesDiscovery featuresDiscovery) {
+    this(featuresDiscovery, null);
+  }
+
+  /** @param bufferPool optional pool the mappers borrow their scratch buffers from */
+  public DDAgentMapperDiscovery(
+      final DDAgentFeaturesDiscovery featuresDiscovery, final BufferPool bufferPool) {
     this.featuresDiscovery = featuresDiscovery;
+    this.bufferPool = bufferPool;
   }
 
   private void reset() {
@@ -30,9 +39,9 @@ public class DDAgentMapperDiscovery implements RemoteMapperDiscovery {
     }
     String tracesUrl = featuresDiscovery.getTraceEndpoint();
     if (DDAgentFeaturesDiscovery.V5_ENDPOINT.equalsIgnoreCase(tracesUrl)) {
-      this.traceMapper = new TraceMapperV0_5();
+      this.traceMapper = new TraceMapperV0_5(bufferPool);
     } else if (null != tracesUrl) {
-      this.traceMapper = new TraceMapperV0_4();
+      this.traceMapper = new TraceMapperV0_4(bufferPool);
     }
   }
 
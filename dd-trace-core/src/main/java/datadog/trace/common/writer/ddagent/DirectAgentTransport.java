@@ -0,0 +1,453 @@
+package datadog.trace.common.writer.ddagent;
+
+import datadog.common.socket.UnixDomainSocketFactory;
+import datadog.trace.util.AgentTaskScheduler;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends serialized payloads to the agent by writing them straight to a NIO channel: the request
+ * head and the payload buffers go out in a single gathering write, so the (possibly direct) buffers
+ * produced by the trace mappers are never copied into OkHttp's segments.
+ *
+ * <p>Only plain HTTP/1.1 over TCP or UNIX domain sockets is supported. Connections are kept alive
+ * between sends, and each is used by one send at a time, so concurrent sends go out on connections
+ * of their own. A send failing on a reused connection before the agent could have received the
+ * whole request is retried once on a fresh one. Writes taking longer than the timeout are aborted
+ * by closing the connection.
+ */
+public final class DirectAgentTransport implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(DirectAgentTransport.class);
+
+  private static final byte[] CRLF = {'\r', '\n'};
+  private static final int INITIAL_HEAD_SIZE = 1024;
+  private static final int READ_BUFFER_SIZE = 4096;
+
+  private final String host;
+  private final int port;
+  private final File unixDomainSocket;
+  private final int timeoutMillis;
+
+  // connections kept alive between sends, guarded by this
+  private final ArrayDeque<Connection> idle = new ArrayDeque<>();
+  private boolean closed;
+
+  public DirectAgentTransport(HttpUrl agentUrl, String unixDomainSocketPath, long timeoutMillis) {
+    this.host = agentUrl.host();
+    this.port = agentUrl.port();
+    this.unixDomainSocket = null == unixDomainSocketPath ? null : new File(unixDomainSocketPath);
+    this.timeoutMillis = (int) Math.min(Integer.MAX_VALUE, timeoutMillis);
+  }
+
+  /** Result of a direct send, mirroring the parts of an HTTP response the API cares about. */
+  static final class Response {
+    final int code;
+    final String message;
+    final String agentState;
+    final String body;
+
+    Response(int code, String message, String agentState, String body) {
+      this.code = code;
+      this.message = message;
+      this.agentState = agentState;
+      this.body = body;
+    }
+  }
+
+  Response put(HttpUrl url, Headers headers, ByteBuffer[] body) throws IOException {
+    long contentLength = 0;
+    int[] positions = new int[body.length];
+    for (int i = 0; i < body.length; ++i) {
+      positions[i] = body[i].position();
+      contentLength += body[i].remaining();
+    }
+    ByteBuffer[] buffers = new ByteBuffer[body.length + 1];
+    System.arraycopy(body, 0, buffers, 1, body.length);
+    Connection connection = acquire();
+    try {
+      boolean reused = connection.isOpen();
+      try {
+        return connection.exchange(url, headers, contentLength, buffers);
+      } catch (IOException e) {
+        connection.close();
+        if (!reused || !connection.isStaleConnectionFailure(e)) {
+          throw e;
+        }
+        // the agent closed an idle keep-alive connection, try again on a new one
+        log.debug("Retrying send on a new connection", e);
+        for (int i = 0; i < body.length; ++i) {
+          body[i].position(positions[i]);
+        }
+        try {
+          return connection.exchange(url, headers, contentLength, buffers);
+        } catch (IOException retryFailure) {
+          connection.close();
+          throw retryFailure;
+        }
+      }
+    } finally {
+      release(connection);
+    }
+  }
+
+  private synchronized Connection acquire() throws IOException {
+    if (closed) {
+      throw new IOException("Transport closed");
+    }
+    Connection connection = idle.pollFirst();
+    return null != connection ? connection : new Connection();
+  }
+
+  private void release(Connection connection) {
+    synchronized (this) {
+      if (!closed && connection.isOpen()) {
+        idle.addFirst(connection);
+        return;
+      }
+    }
+    connection.close();
+  }
+
+  @Override
+  public void close() {
+    Connection[] connections;
+    synchronized (this) {
+      closed = true;
+      connections = idle.toArray(new Connection[0]);
+      idle.clear();
+    }
+    // connections in use are closed once their send completes
+    for (Connection connection : connections) {
+      connection.close();
+    }
+  }
+
+  static void writeFully(ByteChannel channel, ByteBuffer[] buffers) throws IOException {
+    if (channel instanceof GatheringByteChannel) {
+      GatheringByteChannel gathering = (GatheringByteChannel) channel;
+      int offset = 0;
+      while (offset < buffers.length) {
+        gathering.write(buffers, offset, buffers.length - offset);
+        while (offset < buffers.length && !buffers[offset].hasRemaining()) {
+          ++offset;
+        }
+      }
+    } else {
+      for (ByteBuffer buffer : buffers) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+    }
+  }
+
+  /** A keep-alive connection to the agent, used by one send at a time. */
+  private final class Connection {
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+    private int readPosition;
+    private int readLimit;
+
+    private ByteBuffer head = ByteBuffer.allocateDirect(INITIAL_HEAD_SIZE);
+    private ByteChannel channel;
+    private InputStream input;
+
+    // how far the current exchange got, to tell whether the agent may have received the request
+    private boolean requestWritten;
+    private boolean responseStarted;
+
+    boolean isOpen() {
+      return null != channel;
+    }
+
+    /**
+     * A request can only be sent again when the agent can't have received all of it: the write
+     * failed, or the connection was closed before any response, as the agent does with idle
+     * connections. Timeouts are never retried, the agent may still be processing the request, and
+     * only the end of the stream counts as a closed connection.
+     */
+    boolean isStaleConnectionFailure(IOException e) {
+      if (e instanceof SocketTimeoutException) {
+        return false;
+      }
+      return !requestWritten || (!responseStarted && e instanceof EOFException);
+    }
+
+    Response exchange(HttpUrl url, Headers headers, long contentLength, ByteBuffer[] buffers)
+        throws IOException {
+      requestWritten = responseStarted = false;
+      if (null == channel) {
+        connect();
+      }
+      buffers[0] = encodeHead(url, headers, contentLength);
+      writeWithDeadline(buffers);
+      requestWritten = true;
+      return readResponse();
+    }
+
+    /**
+     * Blocking channel writes don't honour the socket timeout, so the connection is closed from the
+     * scheduler if the write takes too long, which fails the write.
+     */
+    private void writeWithDeadline(ByteBuffer[] buffers) throws IOException {
+      WriteDeadline deadline = new WriteDeadline(channel);
+      AgentTaskScheduler.Scheduled<WriteDeadline> scheduled =
+          AgentTaskScheduler.INSTANCE.schedule(
+              WriteDeadline.EXPIRE, deadline, timeoutMillis, TimeUnit.MILLISECONDS);
+      try {
+        writeFully(channel, buffers);
+      } catch (IOException e) {
+        if (deadline.expired) {
+          SocketTimeoutException timeout =
+              new SocketTimeoutException(
+                  "Timed out writing the request after " + timeoutMillis + "ms");
+          timeout.initCause(e);
+          throw timeout;
+        }
+        throw e;
+      } finally {
+        scheduled.cancel();
+      }
+    }
+
+    private void connect() throws IOException {
+      readPosition = readLimit = 0;
+      if (null != unixDomainSocket) {
+        channel = UnixDomainSocketFactory.openChannel(unixDomainSocket, timeoutMillis);
+        input = Channels.newInputStream(channel);
+      } else {
+        SocketChannel socketChannel = SocketChannel.open();
+        try {
+          socketChannel.socket().setTcpNoDelay(true);
+          // reads through the socket adaptor so the read timeout applies
+          socketChannel.socket().setSoTimeout(timeoutMillis);
+          socketChannel.socket().connect(new InetSocketAddress(host, port), timeoutMillis);
+        } catch (IOException e) {
+          socketChannel.close();
+          throw e;
+        }
+        channel = socketChannel;
+        input = socketChannel.socket().getInputStream();
+      }
+    }
+
+    private ByteBuffer encodeHead(HttpUrl url, Headers headers, long contentLength) {
+      head.clear();
+      ascii("PUT ").ascii(url.encodedPath());
+      if (null != url.encodedQuery()) {
+        ascii("?").ascii(url.encodedQuery());
+      }
+      ascii(" HTTP/1.1").crlf();
+      ascii("Host: ").ascii(host).ascii(":").ascii(Integer.toString(port)).crlf();
+      ascii("Content-Type: application/msgpack").crlf();
+      ascii("Content-Length: ").ascii(Long.toString(contentLength)).crlf();
+      for (int i = 0; i < headers.size(); ++i) {
+        ascii(headers.name(i)).ascii(": ").ascii(headers.value(i)).crlf();
+      }
+      crlf();
+      head.flip();
+      return head;
+    }
+
+    private Connection ascii(String value) {
+      ensureHeadCapacity(value.length());
+      for (int i = 0; i < value.length(); ++i) {
+        head.put((byte) value.charAt(i));
+      }
+      return this;
+    }
+
+    private Connection crlf() {
+      ensureHeadCapacity(CRLF.length);
+      head.put(CRLF);
+      return this;
+    }
+
+    private void ensureHeadCapacity(int required) {
+      if (head.remaining() < required) {
+        ByteBuffer larger =
+            ByteBuffer.allocateDirect(Math.max(head.capacity() * 2, head.position() + required));
+        head.flip();
+        larger.put(head);
+        head = larger;
+      }
+    }
+
+    private Response readResponse() throws IOException {
+      String statusLine = readLine();
+      if (statusLine.length() < 12 || !statusLine.startsWith("HTTP/1.")) {
+        throw new IOException("Malformed status line: " + statusLine);
+      }
+      int code;
+      try {
+        code = Integer.parseInt(statusLine.substring(9, 12));
+      } catch (NumberFormatException e) {
+        throw new IOException("Malformed status line: " + statusLine);
+      }
+      String message = statusLine.length() > 13 ? statusLine.substring(13) : "";
+      boolean keepAlive = statusLine.startsWith("HTTP/1.1");
+      long contentLength = -1;
+      boolean chunked = false;
+      String agentState = null;
+      String line;
+      while (!(line = readLine()).isEmpty()) {
+        int colon = line.indexOf(':');
+        if (colon <= 0) {
+          continue;
+        }
+        String name = line.substring(0, colon).trim();
+        String value = line.substring(colon + 1).trim();
+        if ("Content-Length".equalsIgnoreCase(name)) {
+          contentLength = Long.parseLong(value);
+        } else if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+          chunked = "chunked".equalsIgnoreCase(value);
+        } else if ("Connection".equalsIgnoreCase(name)) {
+          keepAlive = !"close".equalsIgnoreCase(value);
+        } else if (DDAgentApi.DATADOG_AGENT_STATE.equalsIgnoreCase(name)) {
+          agentState = value;
+        }
+      }
+      String body;
+      if (chunked) {
+        body = readChunkedBody();
+      } else if (contentLength >= 0) {
+        body = readBody(contentLength);
+      } else if (code == 204 || code == 304) {
+        body = "";
+      } else {
+        // body is delimited by the end of the connection
+        body = readBody(Long.MAX_VALUE);
+        keepAlive = false;
+      }
+      if (!keepAlive) {
+        close();
+      }
+      return new Response(code, message, agentState, body);
+    }
+
+    private String readChunkedBody() throws IOException {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      while (true) {
+        String sizeLine = readLine();
+        int extension = sizeLine.indexOf(';');
+        String hexSize = extension < 0 ? sizeLine : sizeLine.substring(0, extension);
+        long size = Long.parseLong(hexSize.trim(), 16);
+        if (size == 0) {
+          String trailer;
+          do {
+            trailer = readLine();
+          } while (!trailer.isEmpty());
+          return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+        readBody(size, body);
+        readLine();
+      }
+    }
+
+    private String readBody(long length) throws IOException {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      readBody(length, body);
+      // decoded once all bytes are read, so multi-byte characters aren't split across reads
+      return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void readBody(long length, ByteArrayOutputStream body) throws IOException {
+      long remaining = length;
+      while (remaining > 0) {
+        if (readPosition == readLimit && !fill()) {
+          if (length == Long.MAX_VALUE) {
+            break;
+          }
+          throw new EOFException("Connection closed before the end of the response");
+        }
+        int count = (int) Math.min(remaining, readLimit - readPosition);
+        body.write(readBuffer, readPosition, count);
+        readPosition += count;
+        remaining -= count;
+      }
+    }
+
+    private String readLine() throws IOException {
+      StringBuilder line = new StringBuilder();
+      while (true) {
+        if (readPosition == readLimit && !fill()) {
+          throw new EOFException("Connection closed before the end of the response");
+        }
+        byte b = readBuffer[readPosition++];
+        if (b == '\n') {
+          int length = line.length();
+          if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+          }
+          return line.toString();
+        }
+        line.append((char) (b & 0xFF));
+      }
+    }
+
+    /** @return false once the agent has closed the connection */
+    private boolean fill() throws IOException {
+      int read = input.read(readBuffer, 0, readBuffer.length);
+      if (read < 0) {
+        return false;
+      }
+      if (read == 0) {
+        // a read timing out on a UNIX domain socket returns nothing rather than throwing
+        throw new SocketTimeoutException(
+            "Timed out reading the response after " + timeoutMillis + "ms");
+      }
+      responseStarted = true;
+      readPosition = 0;
+      readLimit = read;
+      return true;
+    }
+
+    void close() {
+      if (null != channel) {
+        try {
+          channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+        input = null;
+      }
+      readPosition = readLimit = 0;
+    }
+  }
+
+  private static final class WriteDeadline {
+    static final AgentTaskScheduler.Task<WriteDeadline> EXPIRE = WriteDeadline::expire;
+
+    private final ByteChannel channel;
+    volatile boolean expired;
+
+    WriteDeadline(ByteChannel channel) {
+      this.channel = channel;
+    }
+
+    private static void expire(WriteDeadline deadline) {
+      deadline.expired = true;
+      try {
+        deadline.channel.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package datadog.trace.common.writer.ddagent;
+
+import datadog.communication.serialization.GrowableBuffer;
+import datadog.communication.serialization.Mapper;
+import datadog.communication.serialization.WritableFormatter;
+import datadog.communication.serialization.msgpack.MsgPackWriter;
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Keeps the msgpack encoding of the strings which recur across payloads, so that adding them to a
+ * payload's dictionary is a copy rather than a new encoding.
+ *
+ * <p>The cache counts in how many payloads each string appears. A string is only encoded once it
+ * has been seen in a few payloads, and the counts are halved periodically, dropping the strings
+ * which stopped recurring. The number of strings tracked is bounded, when the cache is full new
+ * strings are ignored until the decay makes room, so high cardinality values can't evict the
+ * frequent ones. Only immutable strings are cached, since they're kept across payloads, and strings
+ * too large to be worth caching aren't tracked at all.
+ *
+ * <p>Not thread-safe, each mapper owns its cache.
+ */
+final class EncodedStringCache {
+
+  static final int DEFAULT_CAPACITY = 4096;
+
+  // payloads a string must appear in before it is encoded
+  private static final int ADMISSION_FREQUENCY = 2;
+  // payloads between two halvings of the counts
+  private static final int DECAY_PERIOD = 8;
+  private static final int MAX_ENCODED_LENGTH = 512;
+
+  private final int capacity;
+  private final Map<Object, Entry> entries;
+  private final GrowableBuffer scratch = new GrowableBuffer(MAX_ENCODED_LENGTH);
+  private final WritableFormatter scratchWriter = new MsgPackWriter(scratch);
+  private int payloads;
+
+  EncodedStringCache(int capacity) {
+    this.capacity = capacity;
+    this.entries = new HashMap<>(capacity * 4 / 3 + 1);
+  }
+
+  /**
+   * Records that the value is used in the current payload.
+   *
+   * @return the value's encoding, or null if it isn't cached (yet)
+   */
+  byte[] encoded(Object value, Mapper<Object> mapper) {
+    if (!(value instanceof String) && !(value instanceof UTF8BytesString)) {
+      return null;
+    }
+    // the encoding takes at least a byte per char
+    if (((CharSequence) value).length() > MAX_ENCODED_LENGTH) {
+      return null;
+    }
+    Entry entry = entries.get(value);
+    if (null == entry) {
+      if (entries.size() < capacity) {
+        entries.put(value, new Entry());
+      }
+      return null;
+    }
+    ++entry.frequency;
+    if (null == entry.encoded && entry.frequency >= ADMISSION_FREQUENCY) {
+      entry.encoded = encode(value, mapper);
+      if (null == entry.encoded) {
+        // multi-byte chars made the encoding too large, make room for a string worth caching
+        entries.remove(value);
+      }
+    }
+    return entry.encoded;
+  }
+
+  /** Called once per payload, when the mapper is reset. */
+  void onPayload() {
+    if (++payloads % DECAY_PERIOD == 0) {
+      Iterator<Entry> it = entries.values().iterator();
+      while (it.hasNext()) {
+        Entry entry = it.next();
+        entry.frequency >>>= 1;
+        if (entry.frequency == 0) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /** @return the encoding of the value, or null if it is too large to be cached */
+  private byte[] encode(Object value, Mapper<Object> mapper) {
+    scratchWriter.format(value, mapper);
+    ByteBuffer encoded = scratch.slice();
+    byte[] bytes = null;
+    if (encoded.remaining() <= MAX_ENCODED_LENGTH) {
+      bytes = new byte[encoded.remaining()];
+      encoded.get(bytes);
+    }
+    scratch.reset();
+    return bytes;
+  }
+
+  private static final class Entry {
+    int frequency = 1;
+    byte[] encoded;
+  }
+}
@@ -2,6 +2,7 @@ package datadog.trace.common.writer.ddagent;
 
 import static datadog.communication.http.OkHttpUtils.msgpackRequestBodyOf;
 
+import datadog.communication.serialization.BufferPool;
 import datadog.communication.serialization.Codec;
 import datadog.communication.serialization.GrowableBuffer;
 import datadog.communication.serialization.Writable;
@@ -13,6 +14,7 @@ import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
 import datadog.trace.core.PendingTrace;
+import datadog.trace.core.TagMap;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
@@ -24,15 +26,25 @@ import okhttp3.RequestBody;
 public final class TraceMapperV0_4 implements TraceMapper {
 
   private final int size;
+  private final MetaStructWriter metaStructWriter;
 
   public TraceMapperV0_4(int size) {
+    this(size, null);
+  }
+
+  public TraceMapperV0_4(int size, BufferPool bufferPool) {
     this.size = size;
+    this.metaStructWriter = new MetaStructWriter(bufferPool);
   }
 
   public TraceMapperV0_4() {
     this(5 << 20);
   }
 
+  public TraceMapperV0_4(BufferPool bufferPool) {
+    this(5 << 20, bufferPool);
+  }
+
   private static final class MetaWriter implements MetadataConsumer {
 
     private Writable writable;
@@ -50,9 +62,10 @@ public final class TraceMapperV0_4 implements TraceMapper {
 
     @Override
     public void accept(Metadata metadata) {
+      final TagMap tags = TagMap.from(metadata.getTags());
       int metaSize =
           metadata.getBaggage().size()
-              + metadata.getTags().size()
+              + tags.size()
               + (null == metadata.getHttpStatusCode() ? 0 : 1)
               + (null == metadata.getOrigin() ? 0 : 1)
               + 1;
@@ -62,15 +75,17 @@ public final class TraceMapperV0_4 implements TraceMapper {
               + (metadata.topLevel() ? 1 : 0)
               + (metadata.longRunningVersion() != 0 ? 1 : 0)
               + 1;
-      for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
-        Object value = tag.getValue();
-        if (value instanceof Number) {
+      for (int i = tags.firstIndex(); i >= 0; i = tags.nextIndex(i)) {
+        if (tags.isNumberAt(i)) {
           ++metricsSize;
           --metaSize;
-        } else if (value instanceof Map) {
-          // Compute size based on amount of elements in tree
-          --metaSize;
-          metaSize += getFlatMapSize((Map) value);
+        } else {
+          Object value = tags.objectAt(i);
+          if (value instanceof Map) {
+            // Compute size based on amount of elements in tree
+            --metaSize;
+            metaSize += getFlatMapSize((Map) value);
+          }
         }
       }
       writable.writeUTF8(METRICS);
@@ -98,10 +113,10 @@ public final class TraceMapperV0_4 implements TraceMapper {
       }
       writable.writeUTF8(THREAD_ID);
       writable.writeLong(metadata.getThreadId());
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (entry.getValue() instanceof Number) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObject(entry.getValue(), null);
+      for (int i = tags.firstIndex(); i >= 0; i = tags.nextIndex(i)) {
+        if (tags.isNumberAt(i)) {
+          writable.writeString(tags.keyAt(i), null);
+          writeNumber(writable, tags, i);
         }
       }
 
@@ -124,15 +139,18 @@ public final class TraceMapperV0_4 implements TraceMapper {
         writable.writeUTF8(ORIGIN_KEY);
         writable.writeString(metadata.getOrigin(), null);
       }
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        String key = entry.getKey();
-        Object value = entry.getValue();
+      for (int i = tags.firstIndex(); i >= 0; i = tags.nextIndex(i)) {
+        if (tags.isNumberAt(i)) {
+          continue;
+        }
+        String key = tags.keyAt(i);
+        Object value = tags.objectAt(i);
         if (value instanceof Map) {
           // Write map as flat map
           writeFlatMap(key, (Map) value);
-        } else if (!(value instanceof Number)) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObjectString(entry.getValue(), null);
+        } else {
+          writable.writeString(key, null);
+          writable.writeObjectString(value, null);
         }
       }
     }
@@ -195,7 +213,19 @@ public final class TraceMapperV0_4 implements TraceMapper {
     private static final UTF8BytesString META_STRUCT = UTF8BytesString.create("meta_struct");
     private static final int BUFFER_SIZE = 1 << 10;
 
+    private final BufferPool bufferPool;
     private Writable writable;
+    // reused across spans, each entry is copied into the payload before the buffer is reset
+    private GrowableBuffer buffer;
+    private MsgPackWriter metaStructWriter;
+
+    public MetaStructWriter() {
+      this(null);
+    }
+
+    MetaStructWriter(final BufferPool bufferPool) {
+      this.bufferPool = bufferPool;
+    }
 
     MetaStructWriter withWritable(final Writable writable) {
       this.writable = writable;
@@ -205,8 +235,13 @@ public final class TraceMapperV0_4 implements TraceMapper {
     public void write(final Map<String, Object> metaStruct) {
       writable.writeUTF8(META_STRUCT);
       writable.startMap(metaStruct.size());
-      final GrowableBuffer buffer = new GrowableBuffer(BUFFER_SIZE);
-      final MsgPackWriter metaStructWriter = new MsgPackWriter(Codec.INSTANCE, buffer);
+      if (null == buffer) {
+        buffer =
+            null == bufferPool
+                ? new GrowableBuffer(BUFFER_SIZE)
+                : new GrowableBuffer(BUFFER_SIZE, bufferPool);
+        metaStructWriter = new MsgPackWriter(Codec.INSTANCE, buffer);
+      }
       for (Map.Entry<String, Object> entry : metaStruct.entrySet()) {
         writeMetaStructEntry(metaStructWriter, buffer, entry.getKey(), entry.getValue());
       }
@@ -230,7 +265,6 @@ public final class TraceMapperV0_4 implements TraceMapper {
   }
 
   private final MetaWriter metaWriter = new MetaWriter();
-  private final MetaStructWriter metaStructWriter = new MetaStructWriter();
 
   @Override
   public void map(List<? extends CoreSpan<?>> trace, final Writable writable) {
@@ -299,6 +333,26 @@ public final class TraceMapperV0_4 implements TraceMapper {
     return "v0.4";
   }
 
+  /** Writes the numeric tag at the index, without boxing it if it's stored unboxed. */
+  private static void writeNumber(Writable writable, TagMap tags, int index) {
+    switch (tags.typeAt(index)) {
+      case TagMap.INT:
+        writable.writeInt(tags.intAt(index));
+        break;
+      case TagMap.LONG:
+        writable.writeLong(tags.longAt(index));
+        break;
+      case TagMap.FLOAT:
+        writable.writeFloat(tags.floatAt(index));
+        break;
+      case TagMap.DOUBLE:
+        writable.writeDouble(tags.doubleAt(index));
+        break;
+      default:
+        writable.writeObject(tags.objectAt(index), null);
+    }
+  }
+
   private static class PayloadV0_4 extends Payload {
 
     @Override
@@ -312,14 +366,21 @@ public final class TraceMapperV0_4 implements TraceMapper {
       while (header.hasRemaining()) {
         channel.write(header);
       }
-      while (body.hasRemaining()) {
-        channel.write(body);
+      ByteBuffer buffer = body.duplicate();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
       }
     }
 
     @Override
     public RequestBody toRequest() {
-      return msgpackRequestBodyOf(Arrays.asList(msgpackArrayHeader(traceCount()), body));
+      return msgpackRequestBodyOf(Arrays.asList(toBuffers()));
+    }
+
+    @Override
+    public ByteBuffer[] toBuffers() {
+      // views of the body, so that the payload can be sent again, or spilled after a failed send
+      return new ByteBuffer[] {msgpackArrayHeader(traceCount()), body.duplicate()};
     }
   }
 }
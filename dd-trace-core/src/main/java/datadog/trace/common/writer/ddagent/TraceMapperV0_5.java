@@ -2,6 +2,7 @@ package datadog.trace.common.writer.ddagent;
 
 import static datadog.communication.http.OkHttpUtils.msgpackRequestBodyOf;
 
+import datadog.communication.serialization.BufferPool;
 import datadog.communication.serialization.GrowableBuffer;
 import datadog.communication.serialization.Mapper;
 import datadog.communication.serialization.Writable;
@@ -14,6 +15,7 @@ import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
 import datadog.trace.core.PendingTrace;
+import datadog.trace.core.TagMap;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
@@ -29,6 +31,7 @@ public final class TraceMapperV0_5 implements TraceMapper {
   private final DictionaryMapper dictionaryMapper = new DictionaryMapper();
   private final Map<Object, Integer> encoding = new HashMap<>();
   private final GrowableBuffer dictionary;
+  private final EncodedStringCache stringCache;
 
   private final MetaWriter metaWriter = new MetaWriter();
   private final int size;
@@ -38,11 +41,28 @@ public final class TraceMapperV0_5 implements TraceMapper {
   }
 
   public TraceMapperV0_5(int dictionarySize, int bufferSize) {
+    this(dictionarySize, bufferSize, null);
+  }
+
+  public TraceMapperV0_5(int dictionarySize, int bufferSize, BufferPool bufferPool) {
+    this(dictionarySize, bufferSize, bufferPool, EncodedStringCache.DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param stringCacheSize how many strings may be tracked to keep the encoding of the ones which
+   *     recur across payloads, 0 to encode every string anew in each payload
+   */
+  public TraceMapperV0_5(
+      int dictionarySize, int bufferSize, BufferPool bufferPool, int stringCacheSize) {
     // growable buffer is implicitly bounded by the fixed size buffer
     // the messages themselves are written into
-    this.dictionary = new GrowableBuffer(bufferSize);
+    this.dictionary =
+        null == bufferPool
+            ? new GrowableBuffer(bufferSize)
+            : new GrowableBuffer(bufferSize, bufferPool);
     this.dictionaryWriter = new MsgPackWriter(dictionary);
     this.size = bufferSize;
+    this.stringCache = stringCacheSize > 0 ? new EncodedStringCache(stringCacheSize) : null;
     reset();
   }
 
@@ -50,6 +70,10 @@ public final class TraceMapperV0_5 implements TraceMapper {
     this(dictionarySize, 2 << 20);
   }
 
+  public TraceMapperV0_5(final BufferPool bufferPool) {
+    this(2 << 20, 2 << 20, bufferPool);
+  }
+
   @Override
   public void map(final List<? extends CoreSpan<?>> trace, final Writable writable) {
     writable.startArray(trace.size());
@@ -88,7 +112,14 @@ public final class TraceMapperV0_5 implements TraceMapper {
     final Object target = null == value ? "" : value;
     final Integer encoded = encoding.get(target);
     if (null == encoded) {
-      dictionaryWriter.format(target, dictionaryMapper);
+      final byte[] cached =
+          null == stringCache ? null : stringCache.encoded(target, dictionaryMapper);
+      if (null == cached) {
+        dictionaryWriter.format(target, dictionaryMapper);
+      } else {
+        dictionary.put(cached);
+        dictionary.mark();
+      }
       final int dictionaryCode = dictionary.messageCount() - 1;
       encoding.put(target, dictionaryCode);
       // this call can fail, but the dictionary has been written to now
@@ -113,6 +144,9 @@ public final class TraceMapperV0_5 implements TraceMapper {
   public void reset() {
     dictionary.reset();
     encoding.clear();
+    if (null != stringCache) {
+      stringCache.onPayload();
+    }
   }
 
   @Override
@@ -120,6 +154,26 @@ public final class TraceMapperV0_5 implements TraceMapper {
     return "v0.5";
   }
 
+  /** Writes the numeric tag at the index, without boxing it if it's stored unboxed. */
+  private static void writeNumber(Writable writable, TagMap tags, int index) {
+    switch (tags.typeAt(index)) {
+      case TagMap.INT:
+        writable.writeInt(tags.intAt(index));
+        break;
+      case TagMap.LONG:
+        writable.writeLong(tags.longAt(index));
+        break;
+      case TagMap.FLOAT:
+        writable.writeFloat(tags.floatAt(index));
+        break;
+      case TagMap.DOUBLE:
+        writable.writeDouble(tags.doubleAt(index));
+        break;
+      default:
+        writable.writeObject(tags.objectAt(index), null);
+    }
+  }
+
   private static class DictionaryMapper implements Mapper<Object> {
 
     @Override
@@ -134,7 +188,7 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
   private static class PayloadV0_5 extends Payload {
 
-    private final ByteBuffer dictionary;
+    private ByteBuffer dictionary;
     private final int stringCount;
 
     private PayloadV0_5(ByteBuffer dictionary, int stringCount) {
@@ -142,6 +196,13 @@ public final class TraceMapperV0_5 implements TraceMapper {
       this.stringCount = stringCount;
     }
 
+    @Override
+    public Payload detach() {
+      // the dictionary is a view of the mapper's buffer
+      dictionary = copyOf(dictionary);
+      return this;
+    }
+
     @Override
     public int sizeInBytes() {
       return 1
@@ -165,14 +226,22 @@ public final class TraceMapperV0_5 implements TraceMapper {
       return msgpackRequestBodyOf(toList());
     }
 
+    @Override
+    public ByteBuffer[] toBuffers() {
+      // views of the dictionary and body, so that the payload can be sent again, or spilled after a
+      // failed send
+      return new ByteBuffer[] {
+        // msgpack array header with 2 elements (FIXARRAY | 2)
+        ByteBuffer.allocate(1).put(0, (byte) 0x92),
+        msgpackArrayHeader(stringCount),
+        dictionary.duplicate(),
+        msgpackArrayHeader(traceCount()),
+        body.duplicate()
+      };
+    }
+
     private List<ByteBuffer> toList() {
-      return Arrays.asList(
-          // msgpack array header with 2 elements (FIXARRAY | 2)
-          ByteBuffer.allocate(1).put(0, (byte) 0x92),
-          msgpackArrayHeader(stringCount),
-          dictionary,
-          msgpackArrayHeader(traceCount()),
-          body);
+      return Arrays.asList(toBuffers());
     }
   }
 
@@ -193,9 +262,10 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
     @Override
     public void accept(Metadata metadata) {
+      final TagMap tags = TagMap.from(metadata.getTags());
       int metaSize =
           metadata.getBaggage().size()
-              + metadata.getTags().size()
+              + tags.size()
               + (null == metadata.getHttpStatusCode() ? 0 : 1)
               + (null == metadata.getOrigin() ? 0 : 1)
               + 1;
@@ -205,15 +275,17 @@ public final class TraceMapperV0_5 implements TraceMapper {
               + (metadata.topLevel() ? 1 : 0)
               + (metadata.longRunningVersion() != 0 ? 1 : 0)
               + 1;
-      for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
-        Object value = tag.getValue();
-        if (value instanceof Number) {
+      for (int i = tags.firstIndex(); i >= 0; i = tags.nextIndex(i)) {
+        if (tags.isNumberAt(i)) {
           ++metricsSize;
           --metaSize;
-        } else if (value instanceof Map) {
-          // Compute size based on amount of elements in tree
-          --metaSize;
-          metaSize += getFlatMapSize((Map) value);
+        } else {
+          Object value = tags.objectAt(i);
+          if (value instanceof Map) {
+            // Compute size based on amount of elements in tree
+            --metaSize;
+            metaSize += getFlatMapSize((Map) value);
+          }
         }
       }
       writable.startMap(metaSize);
@@ -234,13 +306,16 @@ public final class TraceMapperV0_5 implements TraceMapper {
         writeDictionaryEncoded(writable, ORIGIN_KEY);
         writeDictionaryEncoded(writable, metadata.getOrigin());
       }
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        String key = entry.getKey();
-        Object value = entry.getValue();
+      for (int i = tags.firstIndex(); i >= 0; i = tags.nextIndex(i)) {
+        if (tags.isNumberAt(i)) {
+          continue;
+        }
+        String key = tags.keyAt(i);
+        Object value = tags.objectAt(i);
         if (value instanceof Map) {
           // Write map as flat map
           writeFlatMap(key, (Map) value);
-        } else if (!(value instanceof Number)) {
+        } else {
           writeDictionaryEncoded(writable, key);
           writeDictionaryEncoded(writable, value);
         }
@@ -269,10 +344,10 @@ public final class TraceMapperV0_5 implements TraceMapper {
       }
       writeDictionaryEncoded(writable, THREAD_ID);
       writable.writeLong(metadata.getThreadId());
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (entry.getValue() instanceof Number) {
-          writeDictionaryEncoded(writable, entry.getKey());
-          writable.writeObject(entry.getValue(), null);
+      for (int i = tags.firstIndex(); i >= 0; i = tags.nextIndex(i)) {
+        if (tags.isNumberAt(i)) {
+          writeDictionaryEncoded(writable, tags.keyAt(i));
+          writeNumber(writable, tags, i);
         }
       }
     }
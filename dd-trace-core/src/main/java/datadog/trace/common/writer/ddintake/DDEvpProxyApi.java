@@ -18,6 +18,7 @@ import java.util.concurrent.TimeUnit;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -138,12 +139,13 @@ public class DDEvpProxyApi extends RemoteApi {
       builder.addHeader(CONTENT_ENCODING_HEADER, GZIP_CONTENT_TYPE);
     }
 
-    final Request request = builder.post(payload.toRequest()).build();
-    totalTraces += payload.traceCount();
-    receivedTraces += payload.traceCount();
+    final RequestBody body = payload.toRequest();
+    final Request request = builder.post(body).build();
+    countReceivedTraces(payload.traceCount());
 
     try (okhttp3.Response response =
         OkHttpUtils.sendWithRetries(httpClient, retryPolicyFactory, request)) {
+      onRequestBodySent(body);
       if (response.isSuccessful()) {
         countAndLogSuccessfulSend(payload.traceCount(), sizeInBytes);
         return Response.success(response.code());
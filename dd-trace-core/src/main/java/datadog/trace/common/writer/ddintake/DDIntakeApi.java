@@ -4,6 +4,7 @@ import static datadog.trace.api.intake.TrackType.NOOP;
 import static datadog.trace.common.writer.DDIntakeWriter.DEFAULT_INTAKE_TIMEOUT;
 import static datadog.trace.common.writer.DDIntakeWriter.DEFAULT_INTAKE_VERSION;
 
+import datadog.communication.http.GzipRequestBody;
 import datadog.communication.http.HttpRetryPolicy;
 import datadog.communication.http.OkHttpUtils;
 import datadog.trace.api.Config;
@@ -19,6 +20,7 @@ import java.util.concurrent.TimeUnit;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +42,7 @@ public class DDIntakeApi extends RemoteApi {
     private String apiVersion = DEFAULT_INTAKE_VERSION;
     private TrackType trackType = TrackType.NOOP;
     private long timeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_INTAKE_TIMEOUT);
+    private int compressionLevel = Config.get().getTraceCompressionLevel();
 
     HttpUrl hostUrl = null;
     OkHttpClient httpClient = null;
@@ -72,6 +75,11 @@ public class DDIntakeApi extends RemoteApi {
       return this;
     }
 
+    public DDIntakeApiBuilder compressionLevel(final int compressionLevel) {
+      this.compressionLevel = compressionLevel;
+      return this;
+    }
+
     public DDIntakeApiBuilder hostUrl(final HttpUrl hostUrl) {
       this.hostUrl = hostUrl;
       return this;
@@ -93,7 +101,8 @@ public class DDIntakeApi extends RemoteApi {
       final OkHttpClient client =
           (httpClient != null) ? httpClient : OkHttpUtils.buildHttpClient(intakeUrl, timeoutMillis);
 
-      return new DDIntakeApi(trackType, client, intakeUrl, apiKey, retryPolicyFactory);
+      return new DDIntakeApi(
+          trackType, client, intakeUrl, apiKey, retryPolicyFactory, compressionLevel);
     }
   }
 
@@ -103,13 +112,15 @@ public class DDIntakeApi extends RemoteApi {
   private final HttpUrl intakeUrl;
   private final String apiKey;
   private final HttpRetryPolicy.Factory retryPolicyFactory;
+  private final int compressionLevel;
 
   private DDIntakeApi(
       TrackType trackType,
       OkHttpClient httpClient,
       HttpUrl intakeUrl,
       String apiKey,
-      HttpRetryPolicy.Factory retryPolicyFactory) {
+      HttpRetryPolicy.Factory retryPolicyFactory,
+      int compressionLevel) {
     super(true);
     this.telemetryListener = new TelemetryListener(trackType.endpoint);
     this.trackType = trackType;
@@ -117,25 +128,31 @@ public class DDIntakeApi extends RemoteApi {
     this.intakeUrl = intakeUrl;
     this.apiKey = apiKey;
     this.retryPolicyFactory = retryPolicyFactory;
+    this.compressionLevel = compressionLevel;
   }
 
   @Override
   public Response sendSerializedTraces(Payload payload) {
     final int sizeInBytes = payload.sizeInBytes();
 
+    // the mappers compress intake payloads, only the level is decided here
+    RequestBody body = payload.toRequest();
+    if (body instanceof GzipRequestBody) {
+      body = ((GzipRequestBody) body).withCompressionLevel(compressionLevel);
+    }
     final Request request =
         new Request.Builder()
             .url(intakeUrl)
             .addHeader(DD_API_KEY_HEADER, apiKey)
             .addHeader(CONTENT_ENCODING_HEADER, GZIP_CONTENT_TYPE)
-            .post(payload.toRequest())
+            .post(body)
             .tag(OkHttpUtils.CustomListener.class, telemetryListener)
             .build();
-    totalTraces += payload.traceCount();
-    receivedTraces += payload.traceCount();
+    countReceivedTraces(payload.traceCount());
 
     try (okhttp3.Response response =
         OkHttpUtils.sendWithRetries(httpClient, retryPolicyFactory, request)) {
+      onRequestBodySent(body);
       if (response.isSuccessful()) {
         countAndLogSuccessfulSend(payload.traceCount(), sizeInBytes);
         return Response.success(response.code());
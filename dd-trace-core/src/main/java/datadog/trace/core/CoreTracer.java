@@ -25,6 +25,7 @@ import datadog.trace.api.DynamicConfig;
 import datadog.trace.api.EndpointTracker;
 import datadog.trace.api.IdGenerationStrategy;
 import datadog.trace.api.InstrumenterConfig;
+import datadog.trace.api.ProductActivation;
 import datadog.trace.api.StatsDClient;
 import datadog.trace.api.TraceConfig;
 import datadog.trace.api.TracePropagationStyle;
@@ -46,6 +47,7 @@ import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.api.scopemanager.ScopeListener;
 import datadog.trace.api.time.SystemTimeSource;
 import datadog.trace.api.time.TimeSource;
+import datadog.trace.bootstrap.ActiveSubsystems;
 import datadog.trace.bootstrap.instrumentation.api.AgentDataStreamsMonitoring;
 import datadog.trace.bootstrap.instrumentation.api.AgentHistogram;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
@@ -134,6 +136,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
   private static final String LANG_INTERPRETER_STATSD_TAG = "lang_interpreter";
   private static final String LANG_INTERPRETER_VENDOR_STATSD_TAG = "lang_interpreter_vendor";
   private static final String TRACER_VERSION_STATSD_TAG = "tracer_version";
+  private static final int SPAN_RECYCLING_POOL_SIZE = 512;
 
   /** Tracer start time in nanoseconds measured up to a millisecond accuracy */
   private final long startTimeNano;
@@ -160,6 +163,8 @@ public class CoreTracer implements AgentTracer.TracerAPI {
   final String serviceName;
   /** Writer is an charge of reporting traces and spans to the desired endpoint */
   final Writer writer;
+  /** Reuses the tag storage of the spans serialized by the writer, when span recycling is on */
+  final TagMap.Recycler tagRecycler;
   /** Sampler defines the sampling policy in order to reduce the number of traces for instance */
   final Sampler initialSampler;
   /** Scope manager is in charge of managing the scopes from which spans are created */
@@ -194,6 +199,8 @@ public class CoreTracer implements AgentTracer.TracerAPI {
   private final ProfilingContextIntegration profilingContextIntegration;
   private final boolean injectBaggageAsTags;
   private final boolean flushOnClose;
+  /** Whether the children of traces dropped from the start of their root are dropped spans */
+  private final boolean earlyDrop;
 
   /**
    * JVM shutdown callback, keeping a reference to it to remove this if DDTracer gets destroyed
@@ -632,7 +639,8 @@ public class CoreTracer implements AgentTracer.TracerAPI {
               config.isScopeStrictMode(),
               config.isScopeInheritAsyncPropagation(),
               profilingContextIntegration,
-              healthMetrics);
+              healthMetrics,
+              config.isScopeLazyStacks());
     } else {
       this.scopeManager = scopeManager;
     }
@@ -665,12 +673,39 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       this.writer = writer;
     }
 
+    // writers which don't recycle the spans they write may keep them around
+    tagRecycler =
+        config.isTraceSpanRecyclingEnabled() && this.writer.recyclesSpans()
+            ? new TagMap.Recycler(SPAN_RECYCLING_POOL_SIZE)
+            : null;
+
+    // span sampling, client-side stats and IAST need the spans of the dropped traces
+    earlyDrop =
+        config.isTraceSamplingEarlyDropEnabled()
+            && null == singleSpanSampler
+            && !config.isTracerMetricsEnabled()
+            && config.getIastActivation() == ProductActivation.FULLY_DISABLED;
+
     if (config.isCiVisibilityEnabled()
         && (config.isCiVisibilityAgentlessEnabled()
             || sharedCommunicationObjects.featuresDiscovery(config).supportsEvpProxy())) {
       pendingTraceBuffer = PendingTraceBuffer.discarding();
       traceCollectorFactory =
-          new StreamingTraceCollector.Factory(this, this.timeSource, healthMetrics);
+          new StreamingTraceCollector.Factory(
+              this, pendingTraceBuffer, this.timeSource, healthMetrics);
+    } else if (config.isTraceStreamingEnabled()) {
+      // finished spans are written in chunks as they finish, the buffer writes the chunks of
+      // traces whose other spans don't finish
+      pendingTraceBuffer =
+          PendingTraceBuffer.delaying(
+              this.timeSource, config, sharedCommunicationObjects, healthMetrics);
+      traceCollectorFactory =
+          new StreamingTraceCollector.Factory(
+              this,
+              pendingTraceBuffer,
+              this.timeSource,
+              healthMetrics,
+              config.getTraceStreamingChunkSize());
     } else {
       pendingTraceBuffer =
           strictTraceWrites
@@ -685,7 +720,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
 
     this.writer.start();
 
-    metricsAggregator = createMetricsAggregator(config, sharedCommunicationObjects);
+    metricsAggregator = createMetricsAggregator(config, sharedCommunicationObjects, healthMetrics);
     // Schedule the metrics aggregator to begin reporting after a random delay of 1 to 10 seconds
     // (using milliseconds granularity.) This avoids a fleet of traced applications starting at the
     // same time from sending metrics in sync.
@@ -993,7 +1028,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     DDSpan rootSpan = traceCollector.getRootSpan();
     DDSpan spanToSample = rootSpan == null ? writtenTrace.get(0) : rootSpan;
     spanToSample.forceKeep(forceKeep);
-    boolean published = forceKeep || traceCollector.sample(spanToSample);
+    boolean published = traceCollector.sample(spanToSample, forceKeep);
     if (published) {
       writer.write(writtenTrace);
     } else {
@@ -1297,6 +1332,10 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       if (span.isLocalRootSpan()) {
         EndpointTracker tracker = tracer.onRootSpanStarted(span);
         span.setEndpointTracker(tracker);
+        if (tracer.earlyDrop) {
+          // decide now, so that the children of dropped traces aren't built
+          span.forceSamplingDecision();
+        }
       }
       return span;
     }
@@ -1327,9 +1366,30 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       if (pc == AgentTracer.BlackholeContext.INSTANCE) {
         return new AgentTracer.BlackholeAgentSpan(pc.getTraceId());
       }
+      if (tracer.earlyDrop && pc instanceof DDSpanContext) {
+        AgentSpan droppedSpan = droppedChildOf((DDSpanContext) pc);
+        if (droppedSpan != null) {
+          return droppedSpan;
+        }
+      }
       return buildSpan();
     }
 
+    /** @return a span standing in for the child of the context if its trace is dropped, or null */
+    private AgentSpan droppedChildOf(DDSpanContext parentContext) {
+      int samplingPriority = parentContext.getSamplingPriority();
+      if (samplingPriority != PrioritySampling.SAMPLER_DROP
+          && samplingPriority != PrioritySampling.USER_DROP) {
+        return null;
+      }
+      // appsec keeps the traces with security events, which may still happen
+      if (ActiveSubsystems.APPSEC_ACTIVE) {
+        return null;
+      }
+      DDSpan rootSpan = parentContext.getTraceCollector().getRootSpan();
+      return rootSpan == null ? null : new AgentTracer.DroppedAgentSpan(parentContext, rootSpan);
+    }
+
     @Override
     public CoreSpanBuilder withTag(final String tag, final Number number) {
       return withTag(tag, (Object) number);
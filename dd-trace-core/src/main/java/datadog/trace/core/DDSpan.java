@@ -147,6 +147,18 @@ public class DDSpan
     return durationNano != 0;
   }
 
+  /**
+   * Gives the storage of the tags of a finished span back to the tracer for reuse, when span
+   * recycling is enabled. Called by the writer once the span has been serialized, after which the
+   * span has no tags. Spans of traces that are still running or referenced keep their tags, since
+   * other spans of the trace may read them, e.g. the tags of the root span after a partial flush.
+   */
+  public void recycleTags() {
+    if (isFinished() && context.getTraceCollector().isCompletelyWritten()) {
+      context.recycleTags();
+    }
+  }
+
   private void finishAndAddToTrace(final long durationNano) {
     // ensure a min duration of 1
     if (DURATION_NANO_UPDATER.compareAndSet(this, 0, Math.max(1, durationNano))) {
@@ -92,8 +92,10 @@ public class DDSpanContext
    * threads, they will rarely, if ever, be read and modified concurrently by multiple threads but
    * rather read and accessed in a serial fashion on thread after thread. The synchronization can
    * then be wrapped around bulk operations to minimize the costly atomic operations.
+   *
+   * <p>Numeric tags set through the primitive setters are stored unboxed.
    */
-  private final Map<String, Object> unsafeTags;
+  private final TagMap unsafeTags;
 
   /** The service name is required, otherwise the span are dropped by the agent */
   private volatile String serviceName;
@@ -342,7 +344,8 @@ public class DDSpanContext
     // The +1 is the magic number from the tags below that we set at the end,
     // and "* 4 / 3" is to make sure that we don't resize immediately
     final int capacity = Math.max((tagsSize <= 0 ? 3 : (tagsSize + 1)) * 4 / 3, 8);
-    this.unsafeTags = new HashMap<>(capacity);
+    final CoreTracer tracer = traceCollector.getTracer();
+    this.unsafeTags = new TagMap(capacity, null == tracer ? null : tracer.tagRecycler);
     // must set this before setting the service and resource names below
     this.profilingContextIntegration = profilingContextIntegration;
     // as fast as we can try to make this operation, we still might need to activate/deactivate
@@ -721,6 +724,30 @@ public class DDSpanContext
     }
   }
 
+  public void setMetric(final CharSequence key, final int value) {
+    synchronized (unsafeTags) {
+      unsafeTags.set(key.toString(), value);
+    }
+  }
+
+  public void setMetric(final CharSequence key, final long value) {
+    synchronized (unsafeTags) {
+      unsafeTags.set(key.toString(), value);
+    }
+  }
+
+  public void setMetric(final CharSequence key, final float value) {
+    synchronized (unsafeTags) {
+      unsafeTags.set(key.toString(), value);
+    }
+  }
+
+  public void setMetric(final CharSequence key, final double value) {
+    synchronized (unsafeTags) {
+      unsafeTags.set(key.toString(), value);
+    }
+  }
+
   /**
    * Sets a tag to the span. Tags are not propagated to the children.
    *
@@ -745,6 +772,48 @@ public class DDSpanContext
     }
   }
 
+  /**
+   * Same as {@link #setTag(String, Object)}, without boxing the value unless the tag is
+   * intercepted.
+   */
+  public void setTag(final String tag, final int value) {
+    if (null == tag) {
+      return;
+    }
+    TagInterceptor tagInterceptor = traceCollector.getTracer().getTagInterceptor();
+    if (!tagInterceptor.needsIntercept(tag) || !tagInterceptor.interceptTag(this, tag, value)) {
+      synchronized (unsafeTags) {
+        unsafeTags.set(tag, value);
+      }
+    }
+  }
+
+  /** @see #setTag(String, int) */
+  public void setTag(final String tag, final long value) {
+    if (null == tag) {
+      return;
+    }
+    TagInterceptor tagInterceptor = traceCollector.getTracer().getTagInterceptor();
+    if (!tagInterceptor.needsIntercept(tag) || !tagInterceptor.interceptTag(this, tag, value)) {
+      synchronized (unsafeTags) {
+        unsafeTags.set(tag, value);
+      }
+    }
+  }
+
+  /** @see #setTag(String, int) */
+  public void setTag(final String tag, final double value) {
+    if (null == tag) {
+      return;
+    }
+    TagInterceptor tagInterceptor = traceCollector.getTracer().getTagInterceptor();
+    if (!tagInterceptor.needsIntercept(tag) || !tagInterceptor.interceptTag(this, tag, value)) {
+      synchronized (unsafeTags) {
+        unsafeTags.set(tag, value);
+      }
+    }
+  }
+
   void setAllTags(final Map<String, ?> map) {
     if (map == null || map.isEmpty()) {
       return;
@@ -774,24 +843,39 @@ public class DDSpanContext
       case Tags.HTTP_STATUS:
         return 0 == httpStatusCode ? null : (int) httpStatusCode;
       default:
-        Object value;
-        synchronized (unsafeTags) {
-          value = unsafeGetTag(key);
-        }
+        final Object value = unsafeGetTag(key);
         // maintain previously observable type of http url :|
         return value == null ? null : Tags.HTTP_URL.equals(key) ? value.toString() : value;
     }
   }
 
   /**
-   * This is not thread-safe and must only be used when it can be guaranteed that the context will
-   * not be mutated. This is internal API and must not be exposed to users.
+   * Reads the raw value of a tag, without the conversions of {@link #getTag(String)}. Tag
+   * interceptors call it while the tag being intercepted is set, outside of the monitor of the
+   * tags, and a concurrent write can resize the map, so the read takes the monitor. This is
+   * internal API and must not be exposed to users.
    *
    * @param tag
    * @return the value associated with the tag
    */
   public Object unsafeGetTag(final String tag) {
-    return unsafeTags.get(tag);
+    synchronized (unsafeTags) {
+      return unsafeTags.get(tag);
+    }
+  }
+
+  /**
+   * Gives the storage of the tags back to the tracer for reuse, if span recycling is enabled. The
+   * tags are cleared, so this must only be called once the span has been serialized. Every read of
+   * the tags holds their monitor, so a span read after it was recycled has no tags rather than
+   * reading the storage of another span.
+   */
+  void recycleTags() {
+    if (unsafeTags.isRecyclable()) {
+      synchronized (unsafeTags) {
+        unsafeTags.recycle();
+      }
+    }
   }
 
   public Map<String, Object> getTags() {
@@ -94,6 +94,16 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
    */
   private final ConcurrentLinkedDeque<DDSpan> spans;
 
+  /**
+   * Finished spans, once spans of this trace were seen finishing concurrently. Spans finished from
+   * then on go here instead of {@link #spans}, and aren't counted in {@link #completedSpanCount}.
+   */
+  private volatile StripedSpanBuffer stripedSpans = null;
+
+  private static final AtomicReferenceFieldUpdater<PendingTrace, StripedSpanBuffer> STRIPED_SPANS =
+      AtomicReferenceFieldUpdater.newUpdater(
+          PendingTrace.class, StripedSpanBuffer.class, "stripedSpans");
+
   private volatile int completedSpanCount = 0;
   private static final AtomicIntegerFieldUpdater<PendingTrace> COMPLETED_SPAN_COUNT =
       AtomicIntegerFieldUpdater.newUpdater(PendingTrace.class, "completedSpanCount");
@@ -217,18 +227,21 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
   }
 
   boolean empty() {
-    return 0 >= COMPLETED_SPAN_COUNT.get(this) + PENDING_REFERENCE_COUNT.get(this);
+    return 0 >= size() + PENDING_REFERENCE_COUNT.get(this);
+  }
+
+  @Override
+  boolean isCompletelyWritten() {
+    return rootSpanWritten && empty();
   }
 
   PublishState onPublish(final DDSpan span) {
-    if (!pendingTraceBuffer.longRunningSpansEnabled()) {
-      spans.addFirst(span);
-    }
-    // There is a benign race here where the span added above can get written out by a writer in
-    // progress before the count has been incremented. It's being taken care of in the internal
-    // write method.
     healthMetrics.onFinishSpan();
-    COMPLETED_SPAN_COUNT.incrementAndGet(this);
+    if (pendingTraceBuffer.longRunningSpansEnabled()) {
+      COMPLETED_SPAN_COUNT.incrementAndGet(this);
+    } else {
+      addFinishedSpan(span);
+    }
     final DDSpan rootSpan = getRootSpan();
     if (span == rootSpan) {
       tracer.onRootSpanPublished(rootSpan);
@@ -236,6 +249,24 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
     return decrementRefAndMaybeWrite(span == rootSpan);
   }
 
+  private void addFinishedSpan(final DDSpan span) {
+    final StripedSpanBuffer striped = stripedSpans;
+    if (null != striped) {
+      striped.add(span);
+      return;
+    }
+    spans.addFirst(span);
+    // There is a benign race here where the span added above can get written out by a writer in
+    // progress before the count has been incremented. It's being taken care of in the internal
+    // write method.
+    final int count = completedSpanCount;
+    if (!COMPLETED_SPAN_COUNT.compareAndSet(this, count, count + 1)) {
+      // Spans are finishing concurrently (e.g. fan-out), stripe the spans finished from now on
+      COMPLETED_SPAN_COUNT.incrementAndGet(this);
+      STRIPED_SPANS.compareAndSet(this, null, new StripedSpanBuffer());
+    }
+  }
+
   @Override
   public DDSpan getRootSpan() {
     return rootSpan;
@@ -250,6 +281,10 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
         oldest = Math.min(oldest, span.getStartTime() + span.getDurationNano());
       }
     }
+    final StripedSpanBuffer striped = stripedSpans;
+    if (null != striped) {
+      oldest = Math.min(oldest, striped.oldestFinishedTime());
+    }
     return oldest;
   }
 
@@ -311,11 +346,13 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
   }
 
   private int write(boolean isPartial) {
-    if (!spans.isEmpty()) {
+    final StripedSpanBuffer striped = stripedSpans;
+    if (!spans.isEmpty() || (null != striped && striped.size() > 0)) {
       try (Recording recording = tracer.writeTimer()) {
         // Only one writer at a time
         final List<DDSpan> trace;
         int completedSpans = 0;
+        int stripedCompletedSpans = 0;
         synchronized (this) {
           if (!isPartial) {
             rootSpanWritten = true;
@@ -335,6 +372,11 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
           if (size > 0 && (!isPartial || size >= tracer.getPartialFlushMinSpans())) {
             trace = new ArrayList<>(size);
             completedSpans = enqueueSpansToWrite(trace, writeRunningSpans);
+            // the spans may have been striped since the check above
+            final StripedSpanBuffer stripedToWrite = stripedSpans;
+            if (null != stripedToWrite) {
+              stripedCompletedSpans = stripedToWrite.drainTo(trace);
+            }
           } else {
             trace = EMPTY;
           }
@@ -343,7 +385,7 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
           COMPLETED_SPAN_COUNT.addAndGet(this, -completedSpans);
           tracer.write(trace);
           healthMetrics.onCreateTrace();
-          return completedSpans;
+          return completedSpans + stripedCompletedSpans;
         }
       }
     }
@@ -389,7 +431,8 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
   }
 
   public int size() {
-    return completedSpanCount;
+    final StripedSpanBuffer striped = stripedSpans;
+    return null == striped ? completedSpanCount : completedSpanCount + striped.size();
   }
 
   long getLastWriteTime() {
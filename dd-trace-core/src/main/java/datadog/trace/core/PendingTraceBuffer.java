@@ -3,6 +3,7 @@ package datadog.trace.core;
 import static datadog.trace.util.AgentThreadFactory.AgentThread.TRACE_MONITOR;
 import static datadog.trace.util.AgentThreadFactory.THREAD_JOIN_TIMOUT_MS;
 import static datadog.trace.util.AgentThreadFactory.newAgentThread;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 import datadog.communication.ddagent.SharedCommunicationObjects;
 import datadog.trace.api.Config;
@@ -46,11 +47,15 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
   private static class DelayingPendingTraceBuffer extends PendingTraceBuffer {
     private static final long FORCE_SEND_DELAY_MS = TimeUnit.SECONDS.toMillis(5);
     private static final long SEND_DELAY_NS = TimeUnit.MILLISECONDS.toNanos(500);
-    private static final long SLEEP_TIME_MS = 100;
+    private static final long REPORT_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
 
     private final MpscBlockingConsumerArrayQueue<Element> queue;
+    // only used by the worker thread
+    private final PendingTraceTimerWheel wheel;
+    private final int wheelCapacity;
     private final Thread worker;
     private final TimeSource timeSource;
+    private final HealthMetrics healthMetrics;
 
     private volatile boolean closed = false;
     private final AtomicInteger flushCounter = new AtomicInteger(0);
@@ -126,6 +131,8 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
 
       @Override
       public void accept(Element pendingTrace) {
+        // The element is no longer in the buffer
+        pendingTrace.setEnqueued(false);
         pendingTrace.write();
       }
     }
@@ -162,7 +169,10 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
       }
     }
 
-    private final class Worker implements Runnable {
+    private final class Worker implements Runnable, MessagePassingQueue.Consumer<Element> {
+
+      private long lastReportNanos;
+      private int reportedScheduled;
 
       @Override
       public void run() {
@@ -171,52 +181,94 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
 
             Element pendingTrace = null;
             if (longRunningSpansEnabled()) {
-              pendingTrace = queue.poll(1, TimeUnit.SECONDS);
+              pendingTrace = queue.poll(pollTimeoutNanos(TimeUnit.SECONDS.toNanos(1)), NANOSECONDS);
               runningTracesTracker.flushAndCompact(timeSource.getCurrentTimeMillis());
-              if (pendingTrace == null) {
-                continue;
-              }
-            } else {
+            } else if (wheel.isEmpty()) {
+              reportOccupancy(timeSource.getNanoTicks());
               pendingTrace = queue.take(); // block until available;
+            } else {
+              pendingTrace = queue.poll(pollTimeoutNanos(Long.MAX_VALUE), NANOSECONDS);
             }
 
             if (pendingTrace instanceof FlushElement) {
               // Since this is an MPSC queue, the drain needs to be called on the consumer thread
               queue.drain(WriteDrain.WRITE_DRAIN);
+              wheel.drain(WriteDrain.WRITE_DRAIN);
               flushCounter.incrementAndGet();
               continue;
             }
 
-            // The element is no longer in the queue
-            pendingTrace.setEnqueued(false);
-
-            if (longRunningSpansEnabled()) {
-              if (runningTracesTracker.add(pendingTrace)) {
-                continue;
-              }
-            }
-
-            long oldestFinishedTime = pendingTrace.oldestFinishedTime();
-            long finishTimestampMillis = TimeUnit.NANOSECONDS.toMillis(oldestFinishedTime);
-            if (finishTimestampMillis <= timeSource.getCurrentTimeMillis() - FORCE_SEND_DELAY_MS) {
-              // Root span is getting old. Send the trace to avoid being discarded by agent.
-              pendingTrace.write();
-              continue;
+            if (null != pendingTrace) {
+              schedule(pendingTrace);
             }
 
-            if (pendingTrace.lastReferencedNanosAgo(SEND_DELAY_NS)) {
-              // Trace has been unmodified long enough, go ahead and write whatever is finished.
-              pendingTrace.write();
-            } else {
-              // Trace is too new.  Requeue it and sleep to avoid a hot loop.
-              enqueue(pendingTrace);
-              Thread.sleep(SLEEP_TIME_MS);
+            final long nowNanos = timeSource.getNanoTicks();
+            wheel.advance(nowNanos, this);
+            if (nowNanos - lastReportNanos >= REPORT_INTERVAL_NS) {
+              reportOccupancy(nowNanos);
             }
           }
         } catch (InterruptedException e) {
           Thread.currentThread().interrupt();
         }
       }
+
+      private long pollTimeoutNanos(long maxTimeoutNanos) {
+        return wheel.isEmpty()
+            ? maxTimeoutNanos
+            : Math.min(maxTimeoutNanos, wheel.nanosUntilNextTick(timeSource.getNanoTicks()));
+      }
+
+      private void schedule(Element pendingTrace) {
+        if (longRunningSpansEnabled()) {
+          // The element is no longer in the buffer
+          pendingTrace.setEnqueued(false);
+          if (runningTracesTracker.add(pendingTrace)) {
+            return;
+          }
+          if (!pendingTrace.setEnqueued(true)) {
+            // Enqueued again in the meantime, it will be scheduled then
+            return;
+          }
+        }
+        if (wheel.size() >= wheelCapacity) {
+          // The element is no longer in the buffer
+          pendingTrace.setEnqueued(false);
+          if (pendingTrace.writeOnBufferFull()) {
+            pendingTrace.write();
+          }
+          return;
+        }
+        // The element stays enqueued while it's in the wheel, so it's only scheduled once
+        wheel.schedule(pendingTrace, timeSource.getNanoTicks() + SEND_DELAY_NS);
+      }
+
+      /** Called by the wheel when the element is due. */
+      @Override
+      public void accept(Element pendingTrace) {
+        long oldestFinishedTime = pendingTrace.oldestFinishedTime();
+        long finishTimestampMillis = TimeUnit.NANOSECONDS.toMillis(oldestFinishedTime);
+        if (finishTimestampMillis <= timeSource.getCurrentTimeMillis() - FORCE_SEND_DELAY_MS
+            // Root span is getting old. Send the trace to avoid being discarded by agent.
+            || pendingTrace.lastReferencedNanosAgo(SEND_DELAY_NS)) {
+          // Trace has been unmodified long enough, go ahead and write whatever is finished.
+          pendingTrace.setEnqueued(false);
+          pendingTrace.write();
+        } else {
+          // Trace is too new, check it again once it could have been unmodified long enough.
+          wheel.schedule(pendingTrace, timeSource.getNanoTicks() + SEND_DELAY_NS);
+        }
+      }
+
+      private void reportOccupancy(long nowNanos) {
+        final int scheduled = wheel.size();
+        // Nothing new to report while the wheel stays empty
+        if (scheduled > 0 || reportedScheduled > 0) {
+          healthMetrics.onPendingTraceBufferOccupancy(scheduled, wheel.largestBucket());
+          reportedScheduled = scheduled;
+        }
+        lastReportNanos = nowNanos;
+      }
     }
 
     public DelayingPendingTraceBuffer(
@@ -226,8 +278,11 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
         SharedCommunicationObjects sharedCommunicationObjects,
         HealthMetrics healthMetrics) {
       this.queue = new MpscBlockingConsumerArrayQueue<>(bufferSize);
+      this.wheel = new PendingTraceTimerWheel(timeSource.getNanoTicks());
+      this.wheelCapacity = bufferSize;
       this.worker = newAgentThread(TRACE_MONITOR, new Worker());
       this.timeSource = timeSource;
+      this.healthMetrics = null == healthMetrics ? HealthMetrics.NO_OP : healthMetrics;
       boolean runningSpansEnabled = config.isLongRunningTraceEnabled();
       this.runningTracesTracker =
           runningSpansEnabled
@@ -0,0 +1,139 @@
+package datadog.trace.core;
+
+import datadog.trace.core.PendingTraceBuffer.Element;
+import java.util.ArrayDeque;
+import org.jctools.queues.MessagePassingQueue;
+
+/**
+ * Hierarchical timer wheel holding the pending traces until they are due to be checked. The first
+ * level has a bucket per tick, the second level a bucket per revolution of the first level, whose
+ * traces are moved to the first level when their revolution comes. Traces due further away than
+ * the second level can hold are parked in its last bucket, and moved again when it comes.
+ *
+ * <p>Scheduling and expiring a trace are constant time, so each pending trace is only touched when
+ * it's due instead of on every poll of the buffer.
+ *
+ * <p>Not thread-safe: only used by the buffer's worker thread, which takes the traces from the
+ * buffer's queue.
+ */
+final class PendingTraceTimerWheel {
+
+  // a tick is ~16.8ms
+  static final int TICK_SHIFT = 24;
+
+  private static final int WHEEL_SHIFT = 6;
+  private static final int WHEEL_SIZE = 1 << WHEEL_SHIFT;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+  private final ArrayDeque<Entry>[] ticks;
+  private final ArrayDeque<Entry>[] revolutions;
+
+  private long currentTick;
+  private int size;
+
+  @SuppressWarnings("unchecked")
+  PendingTraceTimerWheel(long nowNanos) {
+    this.ticks = new ArrayDeque[WHEEL_SIZE];
+    this.revolutions = new ArrayDeque[WHEEL_SIZE];
+    for (int i = 0; i < WHEEL_SIZE; ++i) {
+      ticks[i] = new ArrayDeque<>();
+      revolutions[i] = new ArrayDeque<>();
+    }
+    this.currentTick = nowNanos >> TICK_SHIFT;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return 0 == size;
+  }
+
+  /** Schedules the trace to be passed back once the deadline is passed, from the next tick on. */
+  void schedule(Element element, long deadlineNanos) {
+    // rounded up, so traces are never passed back early
+    final long tick = (deadlineNanos + (1L << TICK_SHIFT) - 1) >> TICK_SHIFT;
+    add(new Entry(element, Math.max(tick, currentTick + 1)));
+    ++size;
+  }
+
+  /** Passes the traces which are due at the given time to the consumer, tick by tick. */
+  void advance(long nowNanos, MessagePassingQueue.Consumer<Element> due) {
+    final long tick = nowNanos >> TICK_SHIFT;
+    while (currentTick < tick) {
+      if (0 == size) {
+        // nothing to expire on the way
+        currentTick = tick;
+        return;
+      }
+      ++currentTick;
+      if (0 == (currentTick & WHEEL_MASK)) {
+        cascade(revolutions[(int) (currentTick >> WHEEL_SHIFT) & WHEEL_MASK]);
+      }
+      final ArrayDeque<Entry> bucket = ticks[(int) currentTick & WHEEL_MASK];
+      Entry entry;
+      while (null != (entry = bucket.pollFirst())) {
+        --size;
+        due.accept(entry.element);
+      }
+    }
+  }
+
+  /** @return how long until the next tick */
+  long nanosUntilNextTick(long nowNanos) {
+    return Math.max(0, ((currentTick + 1) << TICK_SHIFT) - nowNanos);
+  }
+
+  /** Passes all the traces to the consumer, whether they're due or not. */
+  void drain(MessagePassingQueue.Consumer<Element> consumer) {
+    for (int i = 0; i < WHEEL_SIZE; ++i) {
+      drain(ticks[i], consumer);
+      drain(revolutions[i], consumer);
+    }
+  }
+
+  /** @return the number of traces in the fullest bucket */
+  int largestBucket() {
+    int largest = 0;
+    for (int i = 0; i < WHEEL_SIZE; ++i) {
+      largest = Math.max(largest, Math.max(ticks[i].size(), revolutions[i].size()));
+    }
+    return largest;
+  }
+
+  private void add(Entry entry) {
+    if (entry.tick - currentTick < WHEEL_SIZE) {
+      ticks[(int) entry.tick & WHEEL_MASK].addLast(entry);
+    } else {
+      final long revolution =
+          Math.min(entry.tick >> WHEEL_SHIFT, (currentTick >> WHEEL_SHIFT) + WHEEL_MASK);
+      revolutions[(int) revolution & WHEEL_MASK].addLast(entry);
+    }
+  }
+
+  private void cascade(ArrayDeque<Entry> bucket) {
+    // parked entries go back to the last bucket of the second level, which isn't this one
+    for (int i = bucket.size(); i > 0; --i) {
+      add(bucket.pollFirst());
+    }
+  }
+
+  private void drain(ArrayDeque<Entry> bucket, MessagePassingQueue.Consumer<Element> consumer) {
+    Entry entry;
+    while (null != (entry = bucket.pollFirst())) {
+      --size;
+      consumer.accept(entry.element);
+    }
+  }
+
+  private static final class Entry {
+    final Element element;
+    final long tick;
+
+    Entry(Element element, long tick) {
+      this.element = element;
+      this.tick = tick;
+    }
+  }
+}
@@ -4,21 +4,55 @@ import datadog.trace.api.DDTraceId;
 import datadog.trace.api.time.TimeSource;
 import datadog.trace.bootstrap.instrumentation.api.AgentScope;
 import datadog.trace.core.monitor.HealthMetrics;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import javax.annotation.Nonnull;
 
-public class StreamingTraceCollector extends TraceCollector {
+/**
+ * Hands finished spans to the writer as they finish rather than once the whole trace is finished.
+ *
+ * <p>Finished spans are written in chunks of at most {@code chunkSize} spans, so a trace holds no
+ * more than a chunk of finished spans in memory however many spans it has. A chunk is also written
+ * when the root span finishes, and when no span of the trace is left unfinished. A chunk still
+ * waiting for spans which may never finish is handed to the {@link PendingTraceBuffer}, which
+ * writes it once the trace is no longer referenced or its spans get old, and on flush.
+ *
+ * <p>The sampling priority is set on the root span when the first chunk is written, and the
+ * sampling decision made then, forced or not, is reused for the following chunks, so that every
+ * chunk of a trace is kept or dropped together.
+ */
+public class StreamingTraceCollector extends TraceCollector
+    implements PendingTraceBuffer.Element {
 
   static class Factory implements TraceCollector.Factory {
     private final CoreTracer tracer;
+    private final PendingTraceBuffer pendingTraceBuffer;
     private final TimeSource timeSource;
     private final HealthMetrics healthMetrics;
+    private final int chunkSize;
 
-    Factory(CoreTracer tracer, TimeSource timeSource, HealthMetrics healthMetrics) {
+    Factory(
+        CoreTracer tracer,
+        PendingTraceBuffer pendingTraceBuffer,
+        TimeSource timeSource,
+        HealthMetrics healthMetrics) {
+      this(tracer, pendingTraceBuffer, timeSource, healthMetrics, 1);
+    }
+
+    Factory(
+        CoreTracer tracer,
+        PendingTraceBuffer pendingTraceBuffer,
+        TimeSource timeSource,
+        HealthMetrics healthMetrics,
+        int chunkSize) {
       this.tracer = tracer;
+      this.pendingTraceBuffer = pendingTraceBuffer;
       this.timeSource = timeSource;
       this.healthMetrics = healthMetrics;
+      this.chunkSize = Math.max(1, chunkSize);
     }
 
     @Override
@@ -29,39 +63,67 @@ public class StreamingTraceCollector extends TraceCollector {
     @Override
     public StreamingTraceCollector create(
         @Nonnull DDTraceId traceId, CoreTracer.ConfigSnapshot traceConfig) {
-      return new StreamingTraceCollector(tracer, traceConfig, timeSource, healthMetrics);
+      return new StreamingTraceCollector(
+          tracer, traceConfig, pendingTraceBuffer, timeSource, healthMetrics, chunkSize);
     }
   }
 
+  private static final int UNDECIDED = 0;
+  private static final int KEPT = 1;
+  private static final int DROPPED = 2;
+
+  private final PendingTraceBuffer pendingTraceBuffer;
   private final HealthMetrics healthMetrics;
+  private final int chunkSize;
   private volatile DDSpan rootSpan;
+  private volatile int pendingSpans;
+  private volatile int samplingDecision = UNDECIDED;
+  private volatile int isEnqueued = 0;
+  private volatile long lastReferenced = 0;
+
+  // finished spans not written yet, and when the first of them finished, guarded by this
+  private List<DDSpan> chunk;
+  private long chunkOldestFinishedTime;
 
   private static final AtomicReferenceFieldUpdater<StreamingTraceCollector, DDSpan> ROOT_SPAN =
       AtomicReferenceFieldUpdater.newUpdater(
           StreamingTraceCollector.class, DDSpan.class, "rootSpan");
+  private static final AtomicIntegerFieldUpdater<StreamingTraceCollector> PENDING_SPANS =
+      AtomicIntegerFieldUpdater.newUpdater(StreamingTraceCollector.class, "pendingSpans");
+  private static final AtomicIntegerFieldUpdater<StreamingTraceCollector> SAMPLING_DECISION =
+      AtomicIntegerFieldUpdater.newUpdater(StreamingTraceCollector.class, "samplingDecision");
+  private static final AtomicIntegerFieldUpdater<StreamingTraceCollector> IS_ENQUEUED =
+      AtomicIntegerFieldUpdater.newUpdater(StreamingTraceCollector.class, "isEnqueued");
 
   private StreamingTraceCollector(
       CoreTracer tracer,
       CoreTracer.ConfigSnapshot traceConfig,
+      PendingTraceBuffer pendingTraceBuffer,
       TimeSource timeSource,
-      HealthMetrics healthMetrics) {
+      HealthMetrics healthMetrics,
+      int chunkSize) {
     super(tracer, traceConfig != null ? traceConfig : tracer.captureTraceConfig(), timeSource);
+    this.pendingTraceBuffer = pendingTraceBuffer;
     this.healthMetrics = healthMetrics;
+    this.chunkSize = chunkSize;
   }
 
   @Override
   void touch() {
-    // do nothing
+    if (chunkSize > 1) {
+      lastReferenced = timeSource.getNanoTicks();
+    }
   }
 
   @Override
   void registerSpan(DDSpan span) {
     ROOT_SPAN.compareAndSet(this, null, span);
+    PENDING_SPANS.incrementAndGet(this);
     healthMetrics.onCreateSpan();
   }
 
   @Override
-  DDSpan getRootSpan() {
+  public DDSpan getRootSpan() {
     return rootSpan;
   }
 
@@ -72,8 +134,90 @@ public class StreamingTraceCollector extends TraceCollector {
       tracer.onRootSpanPublished(rootSpan);
     }
     healthMetrics.onFinishSpan();
-    tracer.write(Collections.singletonList(span));
-    return PublishState.WRITTEN;
+    PENDING_SPANS.decrementAndGet(this);
+    if (chunkSize == 1) {
+      tracer.write(Collections.singletonList(span));
+      return PublishState.WRITTEN;
+    }
+    final List<DDSpan> finished;
+    final int pending;
+    synchronized (this) {
+      if (null == chunk) {
+        chunk = new ArrayList<>(Math.min(chunkSize, 16));
+        chunkOldestFinishedTime = span.getStartTime() + span.getDurationNano();
+      }
+      chunk.add(span);
+      // read under the lock, so that the last span to finish is sure to see no pending spans
+      pending = pendingSpans;
+      if (chunk.size() < chunkSize && pending > 0 && span != rootSpan) {
+        finished = null;
+      } else {
+        finished = chunk;
+        chunk = null;
+      }
+    }
+    if (null == finished) {
+      lastReferenced = timeSource.getNanoTicks();
+      // written from the buffer should the other spans of the trace never finish
+      pendingTraceBuffer.enqueue(this);
+      return PublishState.PENDING;
+    }
+    writeChunk(finished, pending);
+    return pending > 0 ? PublishState.PARTIAL_FLUSH : PublishState.WRITTEN;
+  }
+
+  private void writeChunk(List<DDSpan> finished, int pending) {
+    healthMetrics.onStreamedChunk(finished.size(), finished.size() + Math.max(pending, 0));
+    tracer.write(finished);
+  }
+
+  /** Writes the spans waiting for the chunk to fill up, called by the pending trace buffer. */
+  @Override
+  public void write() {
+    final List<DDSpan> finished;
+    synchronized (this) {
+      finished = chunk;
+      chunk = null;
+    }
+    if (null != finished) {
+      writeChunk(finished, pendingSpans);
+    }
+  }
+
+  @Override
+  public synchronized long oldestFinishedTime() {
+    return null == chunk ? Long.MAX_VALUE : chunkOldestFinishedTime;
+  }
+
+  @Override
+  public boolean lastReferencedNanosAgo(long nanos) {
+    return nanos < timeSource.getNanoTicks() - lastReferenced;
+  }
+
+  @Override
+  public boolean setEnqueued(boolean enqueued) {
+    int expected = enqueued ? 0 : 1;
+    return IS_ENQUEUED.compareAndSet(this, expected, 1 - expected);
+  }
+
+  @Override
+  public boolean writeOnBufferFull() {
+    return true;
+  }
+
+  /**
+   * Keeps or drops every chunk of the trace as the first one was, even when a later chunk would be
+   * force kept.
+   */
+  @Override
+  boolean sample(DDSpan spanToSample, boolean forceKeep) {
+    int decision = samplingDecision;
+    if (decision == UNDECIDED) {
+      SAMPLING_DECISION.compareAndSet(
+          this, UNDECIDED, super.sample(spanToSample, forceKeep) ? KEPT : DROPPED);
+      decision = samplingDecision;
+    }
+    return decision == KEPT;
   }
 
   @Override
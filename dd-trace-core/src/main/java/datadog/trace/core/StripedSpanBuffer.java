@@ -0,0 +1,86 @@
+package datadog.trace.core;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Finished spans of a trace whose spans finish concurrently on several threads. Each thread pushes
+ * its spans on one of several stacks, picked from the thread's id, so that threads finishing spans
+ * of the same trace don't all compete for the head of a single deque and a single counter. The
+ * stacks are drained when the trace is written.
+ */
+final class StripedSpanBuffer {
+
+  private static final int STRIPES =
+      Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+  // keeps the heads of the stacks on separate cache lines
+  private static final int PADDING_SHIFT = 4;
+
+  private final AtomicReferenceArray<Node> heads =
+      new AtomicReferenceArray<>(STRIPES << PADDING_SHIFT);
+
+  void add(DDSpan span) {
+    final int index = ((int) Thread.currentThread().getId() & (STRIPES - 1)) << PADDING_SHIFT;
+    final Node node = new Node(span);
+    Node head;
+    do {
+      head = heads.get(index);
+      node.next = head;
+      node.count = null == head ? 1 : head.count + 1;
+    } while (!heads.compareAndSet(index, head, node));
+  }
+
+  /** @return the number of buffered spans */
+  int size() {
+    int size = 0;
+    for (int i = 0; i < STRIPES; ++i) {
+      final Node head = heads.get(i << PADDING_SHIFT);
+      if (null != head) {
+        size += head.count;
+      }
+    }
+    return size;
+  }
+
+  /** @return Long.MAX_VALUE if no spans are buffered. */
+  long oldestFinishedTime() {
+    long oldest = Long.MAX_VALUE;
+    for (int i = 0; i < STRIPES; ++i) {
+      for (Node node = heads.get(i << PADDING_SHIFT); null != node; node = node.next) {
+        oldest = Math.min(oldest, node.span.getStartTime() + node.span.getDurationNano());
+      }
+    }
+    return oldest;
+  }
+
+  /**
+   * Moves the buffered spans to the trace.
+   *
+   * @return the number of spans moved
+   */
+  int drainTo(List<DDSpan> trace) {
+    int drained = 0;
+    for (int i = 0; i < STRIPES; ++i) {
+      final Node head = heads.getAndSet(i << PADDING_SHIFT, null);
+      if (null != head) {
+        drained += head.count;
+        for (Node node = head; null != node; node = node.next) {
+          trace.add(node.span);
+        }
+      }
+    }
+    return drained;
+  }
+
+  private static final class Node {
+    final DDSpan span;
+    // only written before the node is published
+    Node next;
+    int count;
+
+    Node(DDSpan span) {
+      this.span = span;
+    }
+  }
+}
@@ -0,0 +1,539 @@
+package datadog.trace.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpmcArrayQueue;
+
+/**
+ * Map of the tags of a span, with open addressing and linear probing, so that setting a tag
+ * doesn't allocate a map entry. Numeric tags set through the primitive setters are stored unboxed
+ * and only boxed when read through the {@link Map} API, serializers read them unboxed by iterating
+ * the slots with {@link #firstIndex()} and {@link #nextIndex(int)}.
+ *
+ * <p>Tag keys are mostly constants, so keys are compared by identity before being compared by
+ * value.
+ *
+ * <p>Maps created with a {@link Recycler} take their slots from it, and give them back when {@link
+ * #recycle() recycled}. A recycled map is left empty and allocates new slots if it's written to
+ * again, so holding on to it never gives access to slots reused by another map.
+ *
+ * <p>Not thread-safe: {@link DDSpanContext} guards it with its own monitor.
+ */
+public final class TagMap extends AbstractMap<String, Object> {
+
+  public static final byte OBJECT = 0;
+  public static final byte INT = 1;
+  public static final byte LONG = 2;
+  public static final byte FLOAT = 3;
+  public static final byte DOUBLE = 4;
+
+  private static final int MIN_CAPACITY = 8;
+
+  // slots of recycled maps, until they're written to again
+  private static final Object[] RECYCLED = new Object[0];
+
+  // marks the slot of a removed key, so that probing goes on past it
+  private static final Object REMOVED = new Object();
+
+  // value markers of the slots holding an unboxed value
+  private static final Object INT_VALUE = new Object();
+  private static final Object LONG_VALUE = new Object();
+  private static final Object FLOAT_VALUE = new Object();
+  private static final Object DOUBLE_VALUE = new Object();
+
+  private final Recycler recycler;
+  private Object[] keys;
+  private Object[] values;
+  // allocated with the first unboxed value
+  private long[] primitives;
+  private int size;
+  private int removed;
+  private EntrySet entrySet;
+
+  public TagMap() {
+    this(MIN_CAPACITY);
+  }
+
+  public TagMap(int expectedSize) {
+    this(expectedSize, null);
+  }
+
+  TagMap(int expectedSize, Recycler recycler) {
+    int capacity = MIN_CAPACITY;
+    while (capacity * 3 / 4 < expectedSize) {
+      capacity <<= 1;
+    }
+    this.recycler = recycler;
+    this.keys = newObjects(capacity);
+    this.values = newObjects(capacity);
+  }
+
+  /** @return the map itself if it's a tag map, or a tag map copy of it */
+  public static TagMap from(Map<String, ?> map) {
+    if (map instanceof TagMap) {
+      return (TagMap) map;
+    }
+    TagMap tags = new TagMap(map.size());
+    for (Map.Entry<String, ?> entry : map.entrySet()) {
+      tags.set(entry.getKey(), entry.getValue());
+    }
+    return tags;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return 0 == size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public Object get(Object key) {
+    int index = indexOf(key);
+    return index < 0 ? null : objectAt(index);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    int index = slotOf(key);
+    if (index >= 0) {
+      Object previous = objectAt(index);
+      values[index] = value;
+      return previous;
+    }
+    insert(~index, key, value);
+    return null;
+  }
+
+  /** Same as {@link #put(String, Object)}, without boxing the previous value. */
+  public void set(String key, Object value) {
+    int index = slotOf(key);
+    if (index >= 0) {
+      values[index] = value;
+    } else {
+      insert(~index, key, value);
+    }
+  }
+
+  public void set(String key, int value) {
+    setPrimitive(key, INT_VALUE, value);
+  }
+
+  public void set(String key, long value) {
+    setPrimitive(key, LONG_VALUE, value);
+  }
+
+  public void set(String key, float value) {
+    setPrimitive(key, FLOAT_VALUE, Float.floatToRawIntBits(value));
+  }
+
+  public void set(String key, double value) {
+    setPrimitive(key, DOUBLE_VALUE, Double.doubleToRawLongBits(value));
+  }
+
+  @Override
+  public Object remove(Object key) {
+    int index = indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+    Object previous = objectAt(index);
+    removeAt(index);
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(keys, null);
+    Arrays.fill(values, null);
+    size = 0;
+    removed = 0;
+  }
+
+  /** @return whether the map has slots to give back to its recycler */
+  boolean isRecyclable() {
+    return null != recycler && RECYCLED != keys;
+  }
+
+  /**
+   * Gives the slots of the map back to its recycler, leaving the map empty. Must only be called
+   * once nothing reads the tags anymore, e.g. once the span is serialized.
+   */
+  void recycle() {
+    if (!isRecyclable()) {
+      return;
+    }
+    Arrays.fill(keys, null);
+    Arrays.fill(values, null);
+    recycler.offer(keys);
+    recycler.offer(values);
+    if (null != primitives) {
+      recycler.offer(primitives);
+    }
+    keys = RECYCLED;
+    values = RECYCLED;
+    primitives = null;
+    size = 0;
+    removed = 0;
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    EntrySet entrySet = this.entrySet;
+    if (null == entrySet) {
+      this.entrySet = entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  /** @return the index of the first tag, or -1 if there are no tags */
+  public int firstIndex() {
+    return nextIndex(-1);
+  }
+
+  /** @return the index of the tag after the one at the given index, or -1 if there are none */
+  public int nextIndex(int index) {
+    final Object[] keys = this.keys;
+    for (int i = index + 1; i < keys.length; ++i) {
+      Object key = keys[i];
+      if (null != key && REMOVED != key) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public String keyAt(int index) {
+    return (String) keys[index];
+  }
+
+  /**
+   * @return one of {@link #OBJECT}, {@link #INT}, {@link #LONG}, {@link #FLOAT} or {@link #DOUBLE}
+   */
+  public byte typeAt(int index) {
+    Object value = values[index];
+    if (INT_VALUE == value) {
+      return INT;
+    } else if (LONG_VALUE == value) {
+      return LONG;
+    } else if (FLOAT_VALUE == value) {
+      return FLOAT;
+    } else if (DOUBLE_VALUE == value) {
+      return DOUBLE;
+    }
+    return OBJECT;
+  }
+
+  /** @return whether the tag at the index is numeric, whether it's boxed or not */
+  public boolean isNumberAt(int index) {
+    return typeAt(index) != OBJECT || values[index] instanceof Number;
+  }
+
+  public int intAt(int index) {
+    return (int) primitives[index];
+  }
+
+  public long longAt(int index) {
+    return primitives[index];
+  }
+
+  public float floatAt(int index) {
+    return Float.intBitsToFloat((int) primitives[index]);
+  }
+
+  public double doubleAt(int index) {
+    return Double.longBitsToDouble(primitives[index]);
+  }
+
+  /** @return the value at the index, boxed if it's stored unboxed */
+  public Object objectAt(int index) {
+    switch (typeAt(index)) {
+      case INT:
+        return intAt(index);
+      case LONG:
+        return longAt(index);
+      case FLOAT:
+        return floatAt(index);
+      case DOUBLE:
+        return doubleAt(index);
+      default:
+        return values[index];
+    }
+  }
+
+  private void setPrimitive(String key, Object marker, long bits) {
+    int index = slotOf(key);
+    if (index < 0) {
+      index = insert(~index, key, marker);
+    } else {
+      values[index] = marker;
+    }
+    if (null == primitives) {
+      primitives = newLongs(keys.length);
+    }
+    primitives[index] = bits;
+  }
+
+  private int indexOf(Object key) {
+    if (null == key || 0 == size) {
+      return -1;
+    }
+    final Object[] keys = this.keys;
+    final int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    Object k;
+    while (null != (k = keys[i])) {
+      if (k == key || k.equals(key)) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  /** @return the index of the key, or the complement of the slot where to insert it */
+  private int slotOf(String key) {
+    Objects.requireNonNull(key);
+    if (RECYCLED == this.keys) {
+      this.keys = new Object[MIN_CAPACITY];
+      this.values = new Object[MIN_CAPACITY];
+    }
+    final Object[] keys = this.keys;
+    final int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    int free = -1;
+    Object k;
+    while (null != (k = keys[i])) {
+      if (k == key || k.equals(key)) {
+        return i;
+      }
+      if (REMOVED == k && free < 0) {
+        free = i;
+      }
+      i = (i + 1) & mask;
+    }
+    return ~(free < 0 ? i : free);
+  }
+
+  private int insert(int index, String key, Object value) {
+    if (REMOVED == keys[index]) {
+      --removed;
+    } else if (size + removed + 1 > keys.length * 3 / 4) {
+      // keep free slots to end the probing
+      resize(size + 1 > keys.length / 2 ? keys.length << 1 : keys.length);
+      index = ~slotOf(key);
+    }
+    keys[index] = key;
+    values[index] = value;
+    ++size;
+    return index;
+  }
+
+  private void removeAt(int index) {
+    keys[index] = REMOVED;
+    values[index] = null;
+    ++removed;
+    if (0 == --size) {
+      clear();
+    }
+  }
+
+  private void resize(int capacity) {
+    final Object[] oldKeys = keys;
+    final Object[] oldValues = values;
+    final long[] oldPrimitives = primitives;
+    keys = newObjects(capacity);
+    values = newObjects(capacity);
+    primitives = null == oldPrimitives ? null : newLongs(capacity);
+    removed = 0;
+    final int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; ++j) {
+      Object key = oldKeys[j];
+      if (null != key && REMOVED != key) {
+        int i = hash(key) & mask;
+        while (null != keys[i]) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = oldValues[j];
+        if (null != oldPrimitives) {
+          primitives[i] = oldPrimitives[j];
+        }
+      }
+    }
+  }
+
+  private Object[] newObjects(int capacity) {
+    return null == recycler ? new Object[capacity] : recycler.objects(capacity);
+  }
+
+  private long[] newLongs(int capacity) {
+    return null == recycler ? new long[capacity] : recycler.longs(capacity);
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void clear() {
+      TagMap.this.clear();
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, Object>> iterator() {
+      return new EntryIterator();
+    }
+  }
+
+  private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+    private int next = firstIndex();
+    private int current = -1;
+
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    @Override
+    public Map.Entry<String, Object> next() {
+      if (next < 0) {
+        throw new NoSuchElementException();
+      }
+      current = next;
+      next = nextIndex(next);
+      return new Entry(current);
+    }
+
+    @Override
+    public void remove() {
+      if (current < 0) {
+        throw new IllegalStateException();
+      }
+      // removed keys leave a marker behind, so the slots don't move while iterating
+      removeAt(current);
+      current = -1;
+    }
+  }
+
+  private final class Entry implements Map.Entry<String, Object> {
+    private final int index;
+
+    Entry(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public String getKey() {
+      return keyAt(index);
+    }
+
+    @Override
+    public Object getValue() {
+      return objectAt(index);
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      Object previous = objectAt(index);
+      values[index] = value;
+      return previous;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> that = (Map.Entry<?, ?>) o;
+      return getKey().equals(that.getKey()) && Objects.equals(getValue(), that.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return getKey().hashCode() ^ Objects.hashCode(getValue());
+    }
+
+    @Override
+    public String toString() {
+      return getKey() + "=" + getValue();
+    }
+  }
+
+  /**
+   * Bounded pools of the slots of recycled maps, by capacity. Maps are recycled on the serializer
+   * threads and created on application threads, so the pools are concurrent queues.
+   */
+  static final class Recycler {
+    // pools slots of 8 to 64 tags, maps of more tags aren't worth recycling
+    private static final int POOLED_CAPACITIES = 4;
+
+    private final MessagePassingQueue<Object[]>[] objects;
+    private final MessagePassingQueue<long[]>[] longs;
+
+    @SuppressWarnings("unchecked")
+    Recycler(int poolSize) {
+      this.objects = new MessagePassingQueue[POOLED_CAPACITIES];
+      this.longs = new MessagePassingQueue[POOLED_CAPACITIES];
+      for (int i = 0; i < POOLED_CAPACITIES; ++i) {
+        // keys and values share the pool of their capacity
+        objects[i] = new MpmcArrayQueue<>(poolSize * 2);
+        longs[i] = new MpmcArrayQueue<>(poolSize);
+      }
+    }
+
+    Object[] objects(int capacity) {
+      int pool = poolOf(capacity);
+      Object[] slots = pool < 0 ? null : objects[pool].relaxedPoll();
+      return null == slots ? new Object[capacity] : slots;
+    }
+
+    long[] longs(int capacity) {
+      int pool = poolOf(capacity);
+      long[] slots = pool < 0 ? null : longs[pool].relaxedPoll();
+      return null == slots ? new long[capacity] : slots;
+    }
+
+    void offer(Object[] slots) {
+      int pool = poolOf(slots.length);
+      if (pool >= 0) {
+        objects[pool].relaxedOffer(slots);
+      }
+    }
+
+    void offer(long[] slots) {
+      int pool = poolOf(slots.length);
+      if (pool >= 0) {
+        longs[pool].relaxedOffer(slots);
+      }
+    }
+
+    private static int poolOf(int capacity) {
+      // capacities are powers of two, from MIN_CAPACITY
+      int pool = Integer.numberOfTrailingZeros(capacity / MIN_CAPACITY);
+      return pool < POOLED_CAPACITIES ? pool : -1;
+    }
+  }
+}
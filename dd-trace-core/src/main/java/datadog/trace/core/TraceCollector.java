@@ -53,8 +53,9 @@ public abstract class TraceCollector implements AgentTraceCollector {
     return traceConfig.getServiceMapping().getOrDefault(serviceName, serviceName);
   }
 
-  boolean sample(DDSpan spanToSample) {
-    return traceConfig.sampler.sample(spanToSample);
+  /** @param forceKeep whether the span must be kept whatever the sampler decides */
+  boolean sample(DDSpan spanToSample, boolean forceKeep) {
+    return forceKeep || traceConfig.sampler.sample(spanToSample);
   }
 
   public void setSamplingPriorityIfNecessary() {
@@ -93,6 +94,14 @@ public abstract class TraceCollector implements AgentTraceCollector {
     return endToEndStartTime;
   }
 
+  /**
+   * @return whether every span of the trace has been handed to the writer and nothing references
+   *     the trace anymore, after which the tags of its spans can be recycled once serialized
+   */
+  boolean isCompletelyWritten() {
+    return false;
+  }
+
   abstract void touch();
 
   abstract void registerSpan(final DDSpan span);
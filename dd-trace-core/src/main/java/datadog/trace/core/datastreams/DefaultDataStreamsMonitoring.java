@@ -23,6 +23,7 @@ import datadog.trace.api.time.TimeSource;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
 import datadog.trace.bootstrap.instrumentation.api.AgentTracer;
 import datadog.trace.bootstrap.instrumentation.api.Backlog;
+import datadog.trace.bootstrap.instrumentation.api.CheckpointTags;
 import datadog.trace.bootstrap.instrumentation.api.InboxItem;
 import datadog.trace.bootstrap.instrumentation.api.PathwayContext;
 import datadog.trace.bootstrap.instrumentation.api.Schema;
@@ -70,6 +71,8 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
   private final long bucketDurationNanos;
   private final DataStreamContextInjector injector;
   private final Thread thread;
+  // null unless points are aggregated by the threads setting the checkpoints
+  private final StatsBucketShards shards;
   private AgentTaskScheduler.Scheduled<DefaultDataStreamsMonitoring> cancellation;
   private volatile long nextFeatureCheck;
   private volatile boolean supportsDataStreams = false;
@@ -110,7 +113,8 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
         config.getWellKnownTags(),
         new MsgPackDatastreamsPayloadWriter(
             sink, config.getWellKnownTags(), DDTraceCoreInfo.VERSION, config.getPrimaryTag()),
-        Config.get().getDataStreamsBucketDurationNanoseconds());
+        Config.get().getDataStreamsBucketDurationNanoseconds(),
+        config.isDataStreamsShardedIngestionEnabled());
   }
 
   public DefaultDataStreamsMonitoring(
@@ -121,6 +125,26 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
       WellKnownTags wellKnownTags,
       DatastreamsPayloadWriter payloadWriter,
       long bucketDurationNanos) {
+    this(
+        sink,
+        features,
+        timeSource,
+        traceConfigSupplier,
+        wellKnownTags,
+        payloadWriter,
+        bucketDurationNanos,
+        false);
+  }
+
+  public DefaultDataStreamsMonitoring(
+      Sink sink,
+      DDAgentFeaturesDiscovery features,
+      TimeSource timeSource,
+      Supplier<TraceConfig> traceConfigSupplier,
+      WellKnownTags wellKnownTags,
+      DatastreamsPayloadWriter payloadWriter,
+      long bucketDurationNanos,
+      boolean shardedIngestion) {
     this.features = features;
     this.timeSource = timeSource;
     this.traceConfigSupplier = traceConfigSupplier;
@@ -128,6 +152,7 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
     this.payloadWriter = payloadWriter;
     this.bucketDurationNanos = bucketDurationNanos;
     this.injector = new DataStreamContextInjector(this);
+    this.shards = shardedIngestion ? new StatsBucketShards(bucketDurationNanos) : null;
 
     thread = newAgentThread(DATA_STREAMS_MONITORING, new InboxProcessor());
     sink.register(this);
@@ -160,7 +185,11 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
   @Override
   public void add(StatsPoint statsPoint) {
     if (thread.isAlive()) {
-      inbox.offer(statsPoint);
+      if (null == shards) {
+        inbox.offer(statsPoint);
+      } else if (supportsDataStreams) {
+        shards.add(statsPoint, currentBucket(statsPoint.getTimestampNanos()));
+      }
     }
   }
 
@@ -246,6 +275,18 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
     }
   }
 
+  @Override
+  public void setCheckpoint(
+      AgentSpan span, CheckpointTags tags, long defaultTimestamp, long payloadSizeBytes) {
+    PathwayContext pathwayContext = span.context().getPathwayContext();
+    if (pathwayContext != null) {
+      pathwayContext.setCheckpoint(tags, this::add, defaultTimestamp, payloadSizeBytes);
+      if (pathwayContext.getHash() != 0) {
+        span.setTag(PATHWAY_HASH, Long.toUnsignedString(pathwayContext.getHash()));
+      }
+    }
+  }
+
   @Override
   public void setConsumeCheckpoint(String type, String source, DataStreamsContextCarrier carrier) {
     if (type == null || type.isEmpty() || source == null || source.isEmpty()) {
@@ -324,12 +365,15 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
             checkDynamicConfig();
 
             if (supportsDataStreams) {
-              flush(timeSource.getCurrentTimeNanos());
+              long timestampNanos = timeSource.getCurrentTimeNanos();
+              drainShards(timestampNanos);
+              flush(timestampNanos);
             } else if (timeSource.getCurrentTimeNanos() >= nextFeatureCheck) {
               checkFeatures();
             }
           } else if (payload == POISON_PILL) {
             if (supportsDataStreams) {
+              drainShards(Long.MAX_VALUE);
               flush(Long.MAX_VALUE);
             }
             break;
@@ -363,6 +407,12 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
     return timestampNanos - (timestampNanos % bucketDurationNanos);
   }
 
+  private void drainShards(long timestampNanos) {
+    if (null != shards) {
+      shards.drainTo(timeToBucket, currentBucket(timestampNanos));
+    }
+  }
+
   private void flush(long timestampNanos) {
     long currentBucket = currentBucket(timestampNanos);
 
@@ -387,6 +437,9 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
   @Override
   public void clear() {
     timeToBucket.clear();
+    if (null != shards) {
+      shards.clear();
+    }
   }
 
   void report() {
@@ -1,28 +1,21 @@
 package datadog.trace.core.datastreams;
 
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
-import com.datadoghq.sketch.ddsketch.encoding.ByteArrayInput;
-import com.datadoghq.sketch.ddsketch.encoding.GrowingByteArrayOutput;
-import com.datadoghq.sketch.ddsketch.encoding.VarEncodingHelper;
 import datadog.trace.api.Config;
 import datadog.trace.api.WellKnownTags;
 import datadog.trace.api.time.TimeSource;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
+import datadog.trace.bootstrap.instrumentation.api.CheckpointTags;
 import datadog.trace.bootstrap.instrumentation.api.PathwayContext;
 import datadog.trace.bootstrap.instrumentation.api.StatsPoint;
 import datadog.trace.util.FNV64Hash;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Base64;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -35,8 +28,6 @@ public class DefaultPathwayContext implements PathwayContext {
   private final Lock lock = new ReentrantLock();
   private final long hashOfKnownTags;
   private final TimeSource timeSource;
-  private final GrowingByteArrayOutput outputBuffer =
-      GrowingByteArrayOutput.withInitialCapacity(20);
 
   // pathwayStartNanos is nanoseconds since epoch
   // Nano ticks is necessary because time differences should use a monotonically increasing clock
@@ -52,22 +43,6 @@ public class DefaultPathwayContext implements PathwayContext {
   private long closestOppositeDirectionHash;
   private String previousDirection;
 
-  private static final Set<String> hashableTagKeys =
-      new HashSet<String>(
-          Arrays.asList(
-              TagsProcessor.GROUP_TAG,
-              TagsProcessor.TYPE_TAG,
-              TagsProcessor.DIRECTION_TAG,
-              TagsProcessor.TOPIC_TAG,
-              TagsProcessor.EXCHANGE_TAG));
-
-  private static final Set<String> extraAggregationTagKeys =
-      new HashSet<String>(
-          Arrays.asList(
-              TagsProcessor.DATASET_NAME_TAG,
-              TagsProcessor.DATASET_NAMESPACE_TAG,
-              TagsProcessor.MANUAL_TAG));
-
   public DefaultPathwayContext(TimeSource timeSource, long hashOfKnownTags) {
     this.timeSource = timeSource;
     this.hashOfKnownTags = hashOfKnownTags;
@@ -129,78 +104,124 @@ public class DefaultPathwayContext implements PathwayContext {
       PathwayHashBuilder pathwayHashBuilder = new PathwayHashBuilder(hashOfKnownTags);
       DataSetHashBuilder aggregationHashBuilder = new DataSetHashBuilder();
 
-      if (!started) {
-        if (defaultTimestamp == 0) {
-          pathwayStartNanos = startNanos;
-          pathwayStartNanoTicks = nanoTicks;
-          edgeStartNanoTicks = nanoTicks;
-        } else {
-          pathwayStartNanos = MILLISECONDS.toNanos(defaultTimestamp);
-          pathwayStartNanoTicks =
-              nanoTicks
-                  - MILLISECONDS.toNanos(timeSource.getCurrentTimeMillis() - defaultTimestamp);
-          edgeStartNanoTicks = pathwayStartNanoTicks;
-        }
-
-        hash = 0;
-        started = true;
-        log.debug("Started {}", this);
-      }
+      startIfNeeded(startNanos, nanoTicks, defaultTimestamp);
 
       for (Map.Entry<String, String> entry : sortedTags.entrySet()) {
         String tag = TagsProcessor.createTag(entry.getKey(), entry.getValue());
         if (tag == null) {
           continue;
         }
-        if (hashableTagKeys.contains(entry.getKey())) {
+        if (CheckpointTags.isPathwayTagKey(entry.getKey())) {
           pathwayHashBuilder.addTag(tag);
         }
-        if (extraAggregationTagKeys.contains(entry.getKey())) {
+        if (CheckpointTags.isAggregationTagKey(entry.getKey())) {
           aggregationHashBuilder.addValue(tag);
         }
         allTags.add(tag);
       }
 
       long nodeHash = generateNodeHash(pathwayHashBuilder);
-      // loop protection - a node should not be chosen as parent
-      // for a sequential node with the same direction, as this
-      // will cause a `cardinality explosion` for hash / parentHash tag values
       if (sortedTags.containsKey(TagsProcessor.DIRECTION_TAG)) {
-        String direction = sortedTags.get(TagsProcessor.DIRECTION_TAG);
-        if (direction.equals(previousDirection)) {
-          hash = closestOppositeDirectionHash;
-        } else {
-          previousDirection = direction;
-          closestOppositeDirectionHash = hash;
-        }
+        protectFromLoops(sortedTags.get(TagsProcessor.DIRECTION_TAG));
       }
 
       long newHash = generatePathwayHash(nodeHash, hash);
       long aggregationHash = aggregationHashBuilder.addValue(String.valueOf(newHash));
 
-      long pathwayLatencyNano = nanoTicks - pathwayStartNanoTicks;
-      long edgeLatencyNano = nanoTicks - edgeStartNanoTicks;
+      pointConsumer.accept(
+          nextPoint(allTags, newHash, aggregationHash, startNanos, nanoTicks, payloadSizeBytes));
+      log.debug("Checkpoint set {}, hash source: {}", this, pathwayHashBuilder);
+    } finally {
+      lock.unlock();
+    }
+  }
 
-      StatsPoint point =
-          new StatsPoint(
-              allTags,
-              newHash,
-              hash,
-              aggregationHash,
+  @Override
+  public void setCheckpoint(
+      CheckpointTags tags,
+      Consumer<StatsPoint> pointConsumer,
+      long defaultTimestamp,
+      long payloadSizeBytes) {
+    long startNanos = timeSource.getCurrentTimeNanos();
+    long nanoTicks = timeSource.getNanoTicks();
+    lock.lock();
+    try {
+      startIfNeeded(startNanos, nanoTicks, defaultTimestamp);
+      if (tags.getDirection() != null) {
+        protectFromLoops(tags.getDirection());
+      }
+      // the tags are hashed once, and the hashes cached by parent hash
+      CheckpointTags.PathwayHash pathwayHash = tags.pathwayHash(hashOfKnownTags, hash);
+      pointConsumer.accept(
+          nextPoint(
+              tags.getTags(),
+              pathwayHash.getHash(),
+              pathwayHash.getAggregationHash(),
               startNanos,
-              pathwayLatencyNano,
-              edgeLatencyNano,
-              payloadSizeBytes);
-      edgeStartNanoTicks = nanoTicks;
-      hash = newHash;
-
-      pointConsumer.accept(point);
-      log.debug("Checkpoint set {}, hash source: {}", this, pathwayHashBuilder);
+              nanoTicks,
+              payloadSizeBytes));
+      log.debug("Checkpoint set {}, tags: {}", this, tags);
     } finally {
       lock.unlock();
     }
   }
 
+  private void startIfNeeded(long startNanos, long nanoTicks, long defaultTimestamp) {
+    if (!started) {
+      if (defaultTimestamp == 0) {
+        pathwayStartNanos = startNanos;
+        pathwayStartNanoTicks = nanoTicks;
+        edgeStartNanoTicks = nanoTicks;
+      } else {
+        pathwayStartNanos = MILLISECONDS.toNanos(defaultTimestamp);
+        pathwayStartNanoTicks =
+            nanoTicks - MILLISECONDS.toNanos(timeSource.getCurrentTimeMillis() - defaultTimestamp);
+        edgeStartNanoTicks = pathwayStartNanoTicks;
+      }
+
+      hash = 0;
+      started = true;
+      log.debug("Started {}", this);
+    }
+  }
+
+  // loop protection - a node should not be chosen as parent
+  // for a sequential node with the same direction, as this
+  // will cause a `cardinality explosion` for hash / parentHash tag values
+  private void protectFromLoops(String direction) {
+    if (direction.equals(previousDirection)) {
+      hash = closestOppositeDirectionHash;
+    } else {
+      previousDirection = direction;
+      closestOppositeDirectionHash = hash;
+    }
+  }
+
+  private StatsPoint nextPoint(
+      List<String> tags,
+      long newHash,
+      long aggregationHash,
+      long startNanos,
+      long nanoTicks,
+      long payloadSizeBytes) {
+    long pathwayLatencyNano = nanoTicks - pathwayStartNanoTicks;
+    long edgeLatencyNano = nanoTicks - edgeStartNanoTicks;
+
+    StatsPoint point =
+        new StatsPoint(
+            tags,
+            newHash,
+            hash,
+            aggregationHash,
+            startNanos,
+            pathwayLatencyNano,
+            edgeLatencyNano,
+            payloadSizeBytes);
+    edgeStartNanoTicks = nanoTicks;
+    hash = newHash;
+    return point;
+  }
+
   @Override
   public void saveStats(StatsPoint point) {
     this.savedStats = point;
@@ -219,18 +240,12 @@ public class DefaultPathwayContext implements PathwayContext {
         throw new IllegalStateException("Context must be started to encode");
       }
 
-      outputBuffer.clear();
-      outputBuffer.writeLongLE(hash);
-
       long pathwayStartMillis = TimeUnit.NANOSECONDS.toMillis(pathwayStartNanos);
-      VarEncodingHelper.encodeSignedVarLong(outputBuffer, pathwayStartMillis);
-
       long edgeStartMillis =
           pathwayStartMillis
               + TimeUnit.NANOSECONDS.toMillis(edgeStartNanoTicks - pathwayStartNanoTicks);
 
-      VarEncodingHelper.encodeSignedVarLong(outputBuffer, edgeStartMillis);
-      return Base64.getEncoder().encode(outputBuffer.trimmedCopy());
+      return PathwayContextCodec.encode(hash, pathwayStartMillis, edgeStartMillis);
     } finally {
       lock.unlock();
     }
@@ -361,24 +376,27 @@ public class DefaultPathwayContext implements PathwayContext {
     return pathwayContextExtractor.extractedContext;
   }
 
-  private static DefaultPathwayContext strDecode(
+  static DefaultPathwayContext strDecode(
       TimeSource timeSource, long hashOfKnownTags, String data) throws IOException {
-    byte[] base64Bytes = data.getBytes(UTF_8);
-    return base64Decode(timeSource, hashOfKnownTags, base64Bytes);
+    return decode(timeSource, hashOfKnownTags, PathwayContextCodec.base64(data));
   }
 
   private static DefaultPathwayContext base64Decode(
       TimeSource timeSource, long hashOfKnownTags, byte[] data) throws IOException {
-    return decode(timeSource, hashOfKnownTags, Base64.getDecoder().decode(data));
+    return decode(timeSource, hashOfKnownTags, PathwayContextCodec.base64(data));
   }
 
   private static DefaultPathwayContext decode(
       TimeSource timeSource, long hashOfKnownTags, byte[] data) throws IOException {
-    ByteArrayInput input = ByteArrayInput.wrap(data);
+    return decode(timeSource, hashOfKnownTags, PathwayContextCodec.raw(data));
+  }
 
+  private static DefaultPathwayContext decode(
+      TimeSource timeSource, long hashOfKnownTags, PathwayContextCodec.Input input)
+      throws IOException {
     long hash = input.readLongLE();
 
-    long pathwayStartMillis = VarEncodingHelper.decodeSignedVarLong(input);
+    long pathwayStartMillis = input.readSignedVarLong();
     long pathwayStartNanos = TimeUnit.MILLISECONDS.toNanos(pathwayStartMillis);
 
     // Convert the start time to the current JVM's nanoclock
@@ -387,7 +405,7 @@ public class DefaultPathwayContext implements PathwayContext {
     long nowNanoTicks = timeSource.getNanoTicks();
     long pathwayStartNanoTicks = nowNanoTicks - nanosSinceStart;
 
-    long edgeStartMillis = VarEncodingHelper.decodeSignedVarLong(input);
+    long edgeStartMillis = input.readSignedVarLong();
     long edgeStartNanoTicks =
         pathwayStartNanoTicks + TimeUnit.MILLISECONDS.toNanos(edgeStartMillis - pathwayStartMillis);
 
@@ -442,15 +460,6 @@ public class DefaultPathwayContext implements PathwayContext {
   }
 
   private long generatePathwayHash(long nodeHash, long parentHash) {
-    lock.lock();
-    try {
-      outputBuffer.clear();
-      outputBuffer.writeLongLE(nodeHash);
-      outputBuffer.writeLongLE(parentHash);
-
-      return FNV64Hash.generateHash(outputBuffer.backingArray(), 0, 16, FNV64Hash.Version.v1);
-    } finally {
-      lock.unlock();
-    }
+    return FNV64Hash.generateHash(nodeHash, parentHash, FNV64Hash.Version.v1);
   }
 }
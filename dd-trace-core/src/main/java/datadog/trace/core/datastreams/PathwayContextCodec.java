@@ -0,0 +1,195 @@
+package datadog.trace.core.datastreams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Encodes and decodes the propagated pathway context: the pathway hash as a little endian long,
+ * followed by the pathway and edge start millis as zig-zag encoded var longs, all Base64 encoded
+ * with padding.
+ *
+ * <p>The context is encoded directly into the array handed to the carrier, Base64 encoding it in
+ * place, and decoded straight from the Base64 characters, without intermediate buffers.
+ */
+final class PathwayContextCodec {
+
+  private static final byte[] BASE64_ALPHABET = {
+    'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S',
+    'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l',
+    'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '0', '1', '2', '3', '4',
+    '5', '6', '7', '8', '9', '+', '/'
+  };
+
+  private static final int[] BASE64_VALUES = new int[128];
+
+  static {
+    Arrays.fill(BASE64_VALUES, -1);
+    for (int i = 0; i < BASE64_ALPHABET.length; i++) {
+      BASE64_VALUES[BASE64_ALPHABET[i]] = i;
+    }
+  }
+
+  private PathwayContextCodec() {}
+
+  /** @return the Base64 encoded context */
+  static byte[] encode(long hash, long pathwayStartMillis, long edgeStartMillis) {
+    long pathwayStart = zigZag(pathwayStartMillis);
+    long edgeStart = zigZag(edgeStartMillis);
+    int rawLength = 8 + varLongSize(pathwayStart) + varLongSize(edgeStart);
+    byte[] encoded = new byte[(rawLength + 2) / 3 * 4];
+    // the raw bytes go at the end of the array, where they are only overwritten once encoded
+    int offset = encoded.length - rawLength;
+    int position = offset;
+    for (int i = 0; i < 8; i++) {
+      encoded[position++] = (byte) (hash >>> (i * 8));
+    }
+    position = writeVarLong(encoded, position, pathwayStart);
+    writeVarLong(encoded, position, edgeStart);
+    base64InPlace(encoded, offset, rawLength);
+    return encoded;
+  }
+
+  static Input raw(byte[] data) {
+    return new RawInput(data);
+  }
+
+  static Input base64(byte[] data) {
+    return new Base64Input(null, data, data.length);
+  }
+
+  static Input base64(String data) {
+    return new Base64Input(data, null, data.length());
+  }
+
+  /**
+   * Encodes the raw bytes starting at {@code offset} into the Base64 characters starting at zero.
+   * The raw bytes start at least as far into the array as there are groups of three bytes, so the
+   * four characters of a group never overwrite the bytes of the groups which follow it.
+   */
+  private static void base64InPlace(byte[] buffer, int offset, int length) {
+    int out = 0;
+    int in = offset;
+    int end = offset + length;
+    while (end - in >= 3) {
+      int bits = (buffer[in++] & 0xFF) << 16 | (buffer[in++] & 0xFF) << 8 | (buffer[in++] & 0xFF);
+      buffer[out++] = BASE64_ALPHABET[(bits >>> 18) & 0x3F];
+      buffer[out++] = BASE64_ALPHABET[(bits >>> 12) & 0x3F];
+      buffer[out++] = BASE64_ALPHABET[(bits >>> 6) & 0x3F];
+      buffer[out++] = BASE64_ALPHABET[bits & 0x3F];
+    }
+    int remaining = end - in;
+    if (remaining > 0) {
+      int bits = (buffer[in++] & 0xFF) << 16;
+      if (remaining == 2) {
+        bits |= (buffer[in] & 0xFF) << 8;
+      }
+      buffer[out++] = BASE64_ALPHABET[(bits >>> 18) & 0x3F];
+      buffer[out++] = BASE64_ALPHABET[(bits >>> 12) & 0x3F];
+      buffer[out++] = remaining == 2 ? BASE64_ALPHABET[(bits >>> 6) & 0x3F] : (byte) '=';
+      buffer[out] = '=';
+    }
+  }
+
+  private static long zigZag(long value) {
+    return (value >> 63) ^ (value << 1);
+  }
+
+  // same var long format as the DDSketch encoding: at most nine bytes, the last one holding 8 bits
+  private static int varLongSize(long value) {
+    return Math.min((63 - Long.numberOfLeadingZeros(value)) / 7, 8) + 1;
+  }
+
+  private static int writeVarLong(byte[] buffer, int position, long value) {
+    int length = (63 - Long.numberOfLeadingZeros(value)) / 7;
+    for (int i = 0; i < length && i < 8; i++) {
+      buffer[position++] = (byte) (value | 0x80L);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+    return position;
+  }
+
+  abstract static class Input {
+
+    abstract byte readByte() throws IOException;
+
+    final long readLongLE() throws IOException {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value |= (readByte() & 0xFFL) << (i * 8);
+      }
+      return value;
+    }
+
+    final long readSignedVarLong() throws IOException {
+      long value = 0;
+      int shift = 0;
+      while (true) {
+        byte next = readByte();
+        if (next >= 0 || shift == 56) {
+          value |= ((long) next) << shift;
+          break;
+        }
+        value |= (next & 0x7FL) << shift;
+        shift += 7;
+      }
+      return (value >>> 1) ^ -(value & 1);
+    }
+  }
+
+  private static final class RawInput extends Input {
+    private final byte[] data;
+    private int position;
+
+    RawInput(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    byte readByte() throws IOException {
+      if (position >= data.length) {
+        throw new EOFException();
+      }
+      return data[position++];
+    }
+  }
+
+  /** Decodes the Base64 characters as the bytes are read. */
+  private static final class Base64Input extends Input {
+    private final String chars;
+    private final byte[] bytes;
+    private final int length;
+    private int position;
+    private int bits;
+    private int bitCount;
+
+    Base64Input(String chars, byte[] bytes, int length) {
+      this.chars = chars;
+      this.bytes = bytes;
+      this.length = length;
+    }
+
+    @Override
+    byte readByte() throws IOException {
+      while (bitCount < 8) {
+        if (position >= length) {
+          throw new EOFException();
+        }
+        int c = null != chars ? chars.charAt(position) : bytes[position] & 0xFF;
+        if (c == '=') {
+          throw new EOFException();
+        }
+        int value = c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+        if (value < 0) {
+          throw new IOException("Illegal base64 character " + Integer.toHexString(c));
+        }
+        position++;
+        bits = bits << 6 | value;
+        bitCount += 6;
+      }
+      bitCount -= 8;
+      return (byte) (bits >>> bitCount);
+    }
+  }
+}
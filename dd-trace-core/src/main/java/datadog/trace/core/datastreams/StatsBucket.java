@@ -45,6 +45,24 @@ public class StatsBucket {
         (k, v) -> (v == null) ? backlog.getValue() : Math.max(v, backlog.getValue()));
   }
 
+  /**
+   * Adds the groups and backlogs of the other bucket, which covers the same time interval. The
+   * other bucket must not be used afterwards, because its groups may be reused by this one.
+   */
+  public void merge(StatsBucket other) {
+    for (Map.Entry<Long, StatsGroup> entry : other.hashToGroup.entrySet()) {
+      StatsGroup statsGroup = hashToGroup.get(entry.getKey());
+      if (statsGroup == null) {
+        hashToGroup.put(entry.getKey(), entry.getValue());
+      } else {
+        statsGroup.merge(entry.getValue());
+      }
+    }
+    for (Map.Entry<List<String>, Long> entry : other.backlogs.entrySet()) {
+      backlogs.merge(entry.getKey(), entry.getValue(), Math::max);
+    }
+  }
+
   public long getStartTimeNanos() {
     return startTimeNanos;
   }
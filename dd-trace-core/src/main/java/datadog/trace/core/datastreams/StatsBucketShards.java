@@ -0,0 +1,103 @@
+package datadog.trace.core.datastreams;
+
+import datadog.trace.bootstrap.instrumentation.api.StatsPoint;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates stats points on the threads setting the checkpoints, into buckets held by a shard
+ * picked from the calling thread, instead of queueing every point to the data streams thread. The
+ * data streams thread merges the buckets of all the shards once they are closed.
+ */
+final class StatsBucketShards {
+
+  private static final int MAX_SHARDS = 64;
+
+  private static final class Shard {
+    final Map<Long, StatsBucket> timeToBucket = new HashMap<>();
+    // the bucket points were last added to, saves a lookup while the bucket is open
+    StatsBucket current;
+  }
+
+  private final Shard[] shards;
+  private final long bucketDurationNanos;
+
+  StatsBucketShards(long bucketDurationNanos) {
+    this(bucketDurationNanos, defaultShards());
+  }
+
+  /** @param shards the number of shards, must be a power of two */
+  StatsBucketShards(long bucketDurationNanos, int shards) {
+    this.bucketDurationNanos = bucketDurationNanos;
+    this.shards = new Shard[shards];
+    for (int i = 0; i < shards; i++) {
+      this.shards[i] = new Shard();
+    }
+  }
+
+  void add(StatsPoint statsPoint, long bucketStartNanos) {
+    Shard shard = shard();
+    synchronized (shard) {
+      StatsBucket statsBucket = shard.current;
+      if (null == statsBucket || statsBucket.getStartTimeNanos() != bucketStartNanos) {
+        statsBucket =
+            shard.timeToBucket.computeIfAbsent(
+                bucketStartNanos, startTime -> new StatsBucket(startTime, bucketDurationNanos));
+        shard.current = statsBucket;
+      }
+      statsBucket.addPoint(statsPoint);
+    }
+  }
+
+  /**
+   * Removes the buckets which started before the given bucket from all the shards, and merges them
+   * into the buckets starting at the same time in the given map.
+   */
+  void drainTo(Map<Long, StatsBucket> timeToBucket, long currentBucketNanos) {
+    List<StatsBucket> closed = new ArrayList<>();
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        Iterator<StatsBucket> iterator = shard.timeToBucket.values().iterator();
+        while (iterator.hasNext()) {
+          StatsBucket statsBucket = iterator.next();
+          if (statsBucket.getStartTimeNanos() < currentBucketNanos) {
+            iterator.remove();
+            closed.add(statsBucket);
+            if (shard.current == statsBucket) {
+              shard.current = null;
+            }
+          }
+        }
+      }
+    }
+    // merged outside the locks, the removed buckets are no longer visible to the other threads
+    for (StatsBucket statsBucket : closed) {
+      StatsBucket existing = timeToBucket.putIfAbsent(statsBucket.getStartTimeNanos(), statsBucket);
+      if (null != existing) {
+        existing.merge(statsBucket);
+      }
+    }
+  }
+
+  void clear() {
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        shard.timeToBucket.clear();
+        shard.current = null;
+      }
+    }
+  }
+
+  private Shard shard() {
+    int hash = (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32);
+    return shards[hash & (shards.length - 1)];
+  }
+
+  private static int defaultShards() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return processors <= 1 ? 1 : Math.min(Integer.highestOneBit(processors - 1) << 1, MAX_SHARDS);
+  }
+}
@@ -0,0 +1,184 @@
+package datadog.trace.core.histogram;
+
+import com.datadoghq.sketch.ddsketch.mapping.IndexMapping;
+import datadog.trace.bootstrap.instrumentation.api.AgentHistogram;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * A sketch with the same accuracy and encoding as the DDSketch based {@link Histogram}, which
+ * keeps its bins in a {@link CompactStore}, so that mostly empty or narrow histograms stay small,
+ * and which can encode itself into a caller provided array. Not thread-safe.
+ */
+public final class CompactHistogram implements AgentHistogram {
+
+  private final IndexMapping mapping;
+  private final byte[] encodedMapping;
+  private final int maxBins;
+  private final double minIndexedValue;
+  private final double maxIndexedValue;
+  private final CompactStore positiveValues;
+  private CompactStore negativeValues;
+  private double zeroCount;
+
+  /**
+   * @param encodedMapping the mapping encoded as the {@code mapping} field of a {@code DDSketch}
+   *     protobuf message, including its tag and length prefix
+   */
+  CompactHistogram(IndexMapping mapping, byte[] encodedMapping, int maxBins) {
+    this.mapping = mapping;
+    this.encodedMapping = encodedMapping;
+    this.maxBins = maxBins;
+    this.minIndexedValue = Math.max(0, mapping.minIndexableValue());
+    this.maxIndexedValue = mapping.maxIndexableValue();
+    this.positiveValues = new CompactStore(maxBins);
+  }
+
+  @Override
+  public double getCount() {
+    return zeroCount + positiveValues.getTotalCount() + negativeCount();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return getCount() == 0;
+  }
+
+  @Override
+  public void accept(double value) {
+    accept(value, 1);
+  }
+
+  @Override
+  public void accept(double value, double count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("The count cannot be negative.");
+    }
+    if (value < -maxIndexedValue || value > maxIndexedValue) {
+      throw new IllegalArgumentException(
+          "The input value is outside the range that is tracked by the sketch.");
+    }
+    if (value > minIndexedValue) {
+      positiveValues.add(mapping.index(value), count);
+    } else if (value < -minIndexedValue) {
+      if (negativeValues == null) {
+        negativeValues = new CompactStore(maxBins);
+      }
+      negativeValues.add(mapping.index(-value), count);
+    } else {
+      zeroCount += count;
+    }
+  }
+
+  @Override
+  public double getValueAtQuantile(double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("The quantile must be between 0 and 1.");
+    }
+    double count = getCount();
+    if (count == 0) {
+      throw new NoSuchElementException();
+    }
+    double rank = quantile * (count - 1);
+    double negativeCount = negativeCount();
+    if (rank < negativeCount) {
+      return -mapping.value(negativeValues.indexAtRankDescending(rank));
+    } else if (rank < zeroCount + negativeCount) {
+      return 0;
+    }
+    return mapping.value(positiveValues.indexAtRankAscending(rank - zeroCount - negativeCount));
+  }
+
+  @Override
+  public double getMinValue() {
+    if (negativeCount() > 0) {
+      return -mapping.value(negativeValues.getMaxIndex());
+    } else if (zeroCount > 0) {
+      return 0;
+    } else if (!positiveValues.isEmpty()) {
+      return mapping.value(positiveValues.getMinIndex());
+    }
+    throw new NoSuchElementException();
+  }
+
+  @Override
+  public double getMaxValue() {
+    if (!positiveValues.isEmpty()) {
+      return mapping.value(positiveValues.getMaxIndex());
+    } else if (zeroCount > 0) {
+      return 0;
+    } else if (negativeCount() > 0) {
+      return -mapping.value(negativeValues.getMinIndex());
+    }
+    throw new NoSuchElementException();
+  }
+
+  /** Empties the histogram, keeping its arrays for the values recorded next. */
+  @Override
+  public void clear() {
+    positiveValues.clear();
+    if (negativeValues != null) {
+      negativeValues.clear();
+    }
+    zeroCount = 0;
+  }
+
+  @Override
+  public ByteBuffer serialize() {
+    byte[] buffer = new byte[serializedSize()];
+    serialize(buffer, 0);
+    return ByteBuffer.wrap(buffer);
+  }
+
+  /** @return the number of bytes written by {@link #serialize(byte[], int)} */
+  public int serializedSize() {
+    int size = encodedMapping.length;
+    if (!positiveValues.isEmpty()) {
+      size += fieldSize(positiveValues.serializedSize());
+    }
+    if (negativeCount() > 0) {
+      size += fieldSize(negativeValues.serializedSize());
+    }
+    if (zeroCount != 0) {
+      size += 9;
+    }
+    return size;
+  }
+
+  /**
+   * Encodes the histogram as a {@code DDSketch} protobuf message, without any intermediate copy.
+   *
+   * @param buffer must have at least {@link #serializedSize()} bytes left after {@code position}
+   * @return the position after the encoded histogram
+   */
+  public int serialize(byte[] buffer, int position) {
+    System.arraycopy(encodedMapping, 0, buffer, position, encodedMapping.length);
+    position += encodedMapping.length;
+    if (!positiveValues.isEmpty()) {
+      // positiveValues: Store = 2
+      buffer[position++] = 0x12;
+      position = ProtoEncoding.writeVarInt(buffer, position, positiveValues.serializedSize());
+      position = positiveValues.serialize(buffer, position);
+    }
+    if (negativeCount() > 0) {
+      // negativeValues: Store = 3
+      buffer[position++] = 0x1A;
+      position = ProtoEncoding.writeVarInt(buffer, position, negativeValues.serializedSize());
+      position = negativeValues.serialize(buffer, position);
+    }
+    if (zeroCount != 0) {
+      // zeroCount: double = 4
+      buffer[position++] = 0x21;
+      position = ProtoEncoding.writeDouble(buffer, position, zeroCount);
+    }
+    return position;
+  }
+
+  private double negativeCount() {
+    return negativeValues == null ? 0 : negativeValues.getTotalCount();
+  }
+
+  private static int fieldSize(int messageSize) {
+    return 1 + ProtoEncoding.varIntSize(messageSize) + messageSize;
+  }
+}
@@ -0,0 +1,265 @@
+package datadog.trace.core.histogram;
+
+import java.util.Arrays;
+
+/**
+ * Bin counts of a sketch, kept in small sorted primitive arrays while only a few bins are used
+ * and promoted to a dense array once more are needed. The dense array covers at most {@code
+ * maxBins} consecutive bins, the lowest bins are collapsed into the lowest retained one beyond
+ * that, like the {@code CollapsingLowestDenseStore} of the sketch library.
+ *
+ * <p>Clearing keeps the allocated arrays, so a store can be reused from one reporting interval to
+ * the next. Not thread-safe.
+ */
+final class CompactStore {
+
+  static final int SPARSE_CAPACITY = 16;
+  private static final int INITIAL_SPARSE_CAPACITY = 4;
+  private static final int DENSE_GROWTH_INCREMENT = 64;
+
+  private final int maxBins;
+
+  // sparse mode, bins sorted by index
+  private int[] sparseIndexes;
+  private double[] sparseCounts;
+  private int sparseSize;
+
+  // dense mode, counts[i] is the count of the bin with index offset + i
+  private double[] counts;
+  private int offset;
+  private int minIndex = Integer.MAX_VALUE;
+  private int maxIndex = Integer.MIN_VALUE;
+
+  private double totalCount;
+
+  CompactStore(int maxBins) {
+    this.maxBins = maxBins;
+  }
+
+  void add(int index, double count) {
+    if (counts == null) {
+      addSparse(index, count);
+    } else {
+      addDense(index, count);
+    }
+    totalCount += count;
+  }
+
+  boolean isEmpty() {
+    return totalCount == 0;
+  }
+
+  double getTotalCount() {
+    return totalCount;
+  }
+
+  boolean isDense() {
+    return counts != null;
+  }
+
+  int getMinIndex() {
+    return counts == null ? sparseIndexes[0] : minIndex;
+  }
+
+  int getMaxIndex() {
+    return counts == null ? sparseIndexes[sparseSize - 1] : maxIndex;
+  }
+
+  /** @return the index of the bin holding the value at the given rank, counting from the lowest */
+  int indexAtRankAscending(double rank) {
+    double n = 0;
+    if (counts == null) {
+      for (int i = 0; i < sparseSize; i++) {
+        if ((n += sparseCounts[i]) > rank) {
+          return sparseIndexes[i];
+        }
+      }
+    } else {
+      for (int index = minIndex; index <= maxIndex; index++) {
+        if ((n += counts[index - offset]) > rank) {
+          return index;
+        }
+      }
+    }
+    return getMaxIndex();
+  }
+
+  /** @return the index of the bin holding the value at the given rank, counting from the highest */
+  int indexAtRankDescending(double rank) {
+    double n = 0;
+    if (counts == null) {
+      for (int i = sparseSize - 1; i >= 0; i--) {
+        if ((n += sparseCounts[i]) > rank) {
+          return sparseIndexes[i];
+        }
+      }
+    } else {
+      for (int index = maxIndex; index >= minIndex; index--) {
+        if ((n += counts[index - offset]) > rank) {
+          return index;
+        }
+      }
+    }
+    return getMinIndex();
+  }
+
+  void clear() {
+    if (counts == null) {
+      sparseSize = 0;
+    } else if (minIndex <= maxIndex) {
+      Arrays.fill(counts, minIndex - offset, maxIndex - offset + 1, 0);
+    }
+    minIndex = Integer.MAX_VALUE;
+    maxIndex = Integer.MIN_VALUE;
+    totalCount = 0;
+  }
+
+  /**
+   * @return the size of the store encoded as a {@code Store} protobuf message, without the field
+   *     tag and length prefix
+   */
+  int serializedSize() {
+    if (counts == null) {
+      int size = 0;
+      for (int i = 0; i < sparseSize; i++) {
+        int entrySize = binEntrySize(sparseIndexes[i]);
+        size += 1 + ProtoEncoding.varIntSize(entrySize) + entrySize;
+      }
+      return size;
+    }
+    int bins = maxIndex - minIndex + 1;
+    return 1
+        + ProtoEncoding.varIntSize(bins * 8)
+        + bins * 8
+        + 1
+        + ProtoEncoding.varIntSize(ProtoEncoding.zigZag(minIndex));
+  }
+
+  /**
+   * Writes the store as a {@code Store} protobuf message: the sparse bins as {@code binCounts}
+   * entries and the dense bins as {@code contiguousBinCounts} starting at {@code
+   * contiguousBinIndexOffset}.
+   *
+   * @return the position after the written message
+   */
+  int serialize(byte[] buffer, int position) {
+    if (counts == null) {
+      for (int i = 0; i < sparseSize; i++) {
+        int index = sparseIndexes[i];
+        // binCounts: map<sint32, double> = 1
+        buffer[position++] = 0x0A;
+        position = ProtoEncoding.writeVarInt(buffer, position, binEntrySize(index));
+        buffer[position++] = 0x08;
+        position = ProtoEncoding.writeVarInt(buffer, position, ProtoEncoding.zigZag(index));
+        buffer[position++] = 0x11;
+        position = ProtoEncoding.writeDouble(buffer, position, sparseCounts[i]);
+      }
+      return position;
+    }
+    // contiguousBinCounts: repeated double = 2 [packed = true]
+    buffer[position++] = 0x12;
+    position = ProtoEncoding.writeVarInt(buffer, position, (maxIndex - minIndex + 1) * 8);
+    for (int index = minIndex; index <= maxIndex; index++) {
+      position = ProtoEncoding.writeDouble(buffer, position, counts[index - offset]);
+    }
+    // contiguousBinIndexOffset: sint32 = 3
+    buffer[position++] = 0x18;
+    return ProtoEncoding.writeVarInt(buffer, position, ProtoEncoding.zigZag(minIndex));
+  }
+
+  private static int binEntrySize(int index) {
+    return 1 + ProtoEncoding.varIntSize(ProtoEncoding.zigZag(index)) + 1 + 8;
+  }
+
+  private void addSparse(int index, double count) {
+    if (sparseIndexes == null) {
+      sparseIndexes = new int[INITIAL_SPARSE_CAPACITY];
+      sparseCounts = new double[INITIAL_SPARSE_CAPACITY];
+    }
+    int position = Arrays.binarySearch(sparseIndexes, 0, sparseSize, index);
+    if (position >= 0) {
+      sparseCounts[position] += count;
+      return;
+    }
+    if (sparseSize == SPARSE_CAPACITY) {
+      promote();
+      addDense(index, count);
+      return;
+    }
+    if (sparseSize == sparseIndexes.length) {
+      sparseIndexes = Arrays.copyOf(sparseIndexes, sparseSize * 2);
+      sparseCounts = Arrays.copyOf(sparseCounts, sparseSize * 2);
+    }
+    int insertion = -(position + 1);
+    int moved = sparseSize - insertion;
+    System.arraycopy(sparseIndexes, insertion, sparseIndexes, insertion + 1, moved);
+    System.arraycopy(sparseCounts, insertion, sparseCounts, insertion + 1, moved);
+    sparseIndexes[insertion] = index;
+    sparseCounts[insertion] = count;
+    sparseSize++;
+  }
+
+  private void promote() {
+    int[] indexes = sparseIndexes;
+    double[] binCounts = sparseCounts;
+    int size = sparseSize;
+    sparseIndexes = null;
+    sparseCounts = null;
+    sparseSize = 0;
+    counts = new double[0];
+    for (int i = 0; i < size; i++) {
+      addDense(indexes[i], binCounts[i]);
+    }
+  }
+
+  private void addDense(int index, double count) {
+    if (index < minIndex || index > maxIndex) {
+      int newMin = Math.min(index, minIndex);
+      int newMax = Math.max(index, maxIndex);
+      if (newMax - newMin >= maxBins) {
+        newMin = newMax - maxBins + 1;
+        index = Math.max(index, newMin);
+      }
+      extendRange(newMin, newMax);
+    }
+    counts[index - offset] += count;
+  }
+
+  private void extendRange(int newMin, int newMax) {
+    double collapsed = 0;
+    // the lowest bins which no longer fit in the range are collapsed into the new lowest bin
+    for (int index = minIndex; index < newMin && index <= maxIndex; index++) {
+      collapsed += counts[index - offset];
+      counts[index - offset] = 0;
+    }
+    int from = Math.max(minIndex, newMin);
+    if (newMin < offset || newMax >= offset + counts.length) {
+      int length = newMax - newMin + 1;
+      double[] target = counts;
+      if (length > counts.length) {
+        int increments = (length + DENSE_GROWTH_INCREMENT - 1) / DENSE_GROWTH_INCREMENT;
+        target = new double[Math.min(maxBins, increments * DENSE_GROWTH_INCREMENT)];
+      }
+      int newOffset = newMin - (target.length - length) / 2;
+      if (from <= maxIndex) {
+        int bins = maxIndex - from + 1;
+        int start = from - offset;
+        int movedStart = from - newOffset;
+        System.arraycopy(counts, start, target, movedStart, bins);
+        if (target == counts) {
+          // clear what is left of the previous range after moving it within the same array
+          if (movedStart > start) {
+            Arrays.fill(counts, start, Math.min(start + bins, movedStart), 0);
+          } else {
+            Arrays.fill(counts, Math.max(start, movedStart + bins), start + bins, 0);
+          }
+        }
+      }
+      counts = target;
+      offset = newOffset;
+    }
+    minIndex = newMin;
+    maxIndex = newMax;
+    counts[newMin - offset] += collapsed;
+  }
+}
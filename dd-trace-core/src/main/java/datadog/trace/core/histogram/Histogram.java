@@ -52,6 +52,11 @@ public class Histogram implements AgentHistogram {
     sketch.clear();
   }
 
+  /** Adds the values recorded by the other histogram, which must use the same index mapping. */
+  public void mergeWith(Histogram other) {
+    sketch.mergeWith(other.sketch);
+  }
+
   @Override
   public ByteBuffer serialize() {
     return sketch.serialize();
@@ -3,8 +3,10 @@ package datadog.trace.core.histogram;
 import com.datadoghq.sketch.ddsketch.DDSketch;
 import com.datadoghq.sketch.ddsketch.DDSketches;
 import com.datadoghq.sketch.ddsketch.mapping.BitwiseLinearlyInterpolatedMapping;
+import com.datadoghq.sketch.ddsketch.mapping.IndexMapping;
 import com.datadoghq.sketch.ddsketch.mapping.LogarithmicMapping;
 import com.datadoghq.sketch.ddsketch.store.CollapsingLowestDenseStore;
+import java.nio.ByteBuffer;
 
 public final class Histograms {
 
@@ -16,6 +18,9 @@ public final class Histograms {
   private static final LogarithmicMapping LOG_INDEX_MAPPING =
       new LogarithmicMapping(1.015625, 1.8761281912861705);
 
+  private static final int MAX_NUM_BINS = 1024;
+  private static final byte[] ENCODED_INDEX_MAPPING = encodeMapping(INDEX_MAPPING);
+
   public static Histogram newHistogram() {
     DDSketch sketch = new DDSketch(INDEX_MAPPING, () -> new CollapsingLowestDenseStore(1024));
     return new Histogram(sketch);
@@ -26,8 +31,24 @@ public final class Histograms {
     return new Histogram(sketch);
   }
 
+  /**
+   * @return a histogram with the same accuracy and encoding as {@link #newHistogram()}, which uses
+   *     less memory when few distinct values are recorded and can be reused after being cleared
+   */
+  public static CompactHistogram newCompactHistogram() {
+    return new CompactHistogram(INDEX_MAPPING, ENCODED_INDEX_MAPPING, MAX_NUM_BINS);
+  }
+
   public static Histogram newHistogram(double relativeAccuracy, int maxNumBins) {
     DDSketch sketch = DDSketches.logarithmicCollapsingLowestDense(relativeAccuracy, maxNumBins);
     return new Histogram(sketch);
   }
+
+  private static byte[] encodeMapping(IndexMapping mapping) {
+    ByteBuffer serialized =
+        new DDSketch(mapping, () -> new CollapsingLowestDenseStore(MAX_NUM_BINS)).serialize();
+    byte[] message = new byte[serialized.remaining()];
+    serialized.get(message);
+    return ProtoEncoding.lengthDelimitedField(message, 1);
+  }
 }
@@ -0,0 +1,81 @@
+package datadog.trace.core.histogram;
+
+/** The few protobuf wire format primitives needed to encode a sketch into a byte array. */
+final class ProtoEncoding {
+
+  private ProtoEncoding() {}
+
+  static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  static int varIntSize(int value) {
+    return value == 0 ? 1 : (31 - Integer.numberOfLeadingZeros(value)) / 7 + 1;
+  }
+
+  static int writeVarInt(byte[] buffer, int position, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+    return position;
+  }
+
+  static int writeDouble(byte[] buffer, int position, double value) {
+    long bits = Double.doubleToRawLongBits(value);
+    for (int i = 0; i < 8; i++) {
+      buffer[position++] = (byte) (bits >>> (i * 8));
+    }
+    return position;
+  }
+
+  /**
+   * @return the bytes of the first length delimited field with the given number, including its tag
+   *     and length prefix
+   */
+  static byte[] lengthDelimitedField(byte[] message, int fieldNumber) {
+    int position = 0;
+    while (position < message.length) {
+      int start = position;
+      long tag = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = message[position++];
+        tag |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      int length;
+      switch ((int) (tag & 0x7)) {
+        case 0:
+          while (message[position++] < 0) {}
+          continue;
+        case 1:
+          position += 8;
+          continue;
+        case 5:
+          position += 4;
+          continue;
+        case 2:
+          length = 0;
+          shift = 0;
+          do {
+            b = message[position++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+          } while (b < 0);
+          break;
+        default:
+          throw new IllegalArgumentException("Unexpected wire type in " + tag);
+      }
+      position += length;
+      if ((tag >>> 3) == fieldNumber) {
+        byte[] field = new byte[position - start];
+        System.arraycopy(message, start, field, 0, field.length);
+        return field;
+      }
+    }
+    throw new IllegalArgumentException("No field " + fieldNumber);
+  }
+}
@@ -73,6 +73,34 @@ public abstract class HealthMetrics implements AutoCloseable {
 
   public void onLongRunningUpdate(final int dropped, final int write, final int expired) {}
 
+  public void onBufferPoolAcquire(final boolean hit) {}
+
+  public void onCompress(final long uncompressedBytes, final long compressedBytes) {}
+
+  public void onInFlightPayloads(final int inFlight) {}
+
+  public void onSendLatency(final long latencyNanos) {}
+
+  public void onRejectedSend(final int traceCount) {}
+
+  public void onFlushPolicyUpdate(final long flushIntervalNanos, final int targetPayloadSize) {}
+
+  public void onSpill(final int traceCount, final int sizeInBytes) {}
+
+  public void onSpillReplay(final int traceCount) {}
+
+  public void onSpillDrop(final int traceCount) {}
+
+  /**
+   * @param spanCount the number of finished spans written in the chunk
+   * @param heldSpans the number of spans of the trace held in memory when the chunk was written
+   */
+  public void onStreamedChunk(final int spanCount, final int heldSpans) {}
+
+  public void onStatsDropped(final int spanCount) {}
+
+  public void onPendingTraceBufferOccupancy(final int scheduled, final int largestBucket) {}
+
   /** @return Human-readable summary of the current health metrics. */
   public String summary() {
     return "";
@@ -7,6 +7,7 @@ import static datadog.trace.api.sampling.PrioritySampling.USER_DROP;
 import static datadog.trace.api.sampling.PrioritySampling.USER_KEEP;
 import static datadog.trace.bootstrap.instrumentation.api.Tags.SPAN_KIND;
 import static datadog.trace.bootstrap.instrumentation.api.Tags.SPAN_KIND_CLIENT;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import datadog.trace.api.StatsDClient;
@@ -18,6 +19,7 @@ import datadog.trace.util.AgentTaskScheduler;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
 import java.util.function.IntFunction;
 import org.jctools.counters.CountersFactory;
 import org.jctools.counters.FixedSizeStripedLongCounter;
@@ -133,6 +135,37 @@ public class TracerHealthMetrics extends HealthMetrics implements AutoCloseable
   private final FixedSizeStripedLongCounter longRunningTracesExpired =
       CountersFactory.createFixedSizeStripedCounter(8);
 
+  private final FixedSizeStripedLongCounter bufferPoolHits =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter bufferPoolMisses =
+      CountersFactory.createFixedSizeStripedCounter(8);
+
+  private final FixedSizeStripedLongCounter uncompressedBytes =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter compressedBytes =
+      CountersFactory.createFixedSizeStripedCounter(8);
+
+  private final FixedSizeStripedLongCounter rejectedSendTraces =
+      CountersFactory.createFixedSizeStripedCounter(8);
+
+  private final FixedSizeStripedLongCounter spilledTraces =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter spilledBytes =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter replayedSpilledTraces =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter droppedSpilledTraces =
+      CountersFactory.createFixedSizeStripedCounter(8);
+
+  private final FixedSizeStripedLongCounter streamedChunks =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter streamedSpans =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final LongAccumulator maxStreamingTraceSpans = new LongAccumulator(Math::max, 0);
+
+  private final FixedSizeStripedLongCounter droppedStatsSpans =
+      CountersFactory.createFixedSizeStripedCounter(8);
+
   private final StatsDClient statsd;
   private final long interval;
   private final TimeUnit units;
@@ -338,6 +371,76 @@ public class TracerHealthMetrics extends HealthMetrics implements AutoCloseable
     longRunningTracesExpired.inc(expired);
   }
 
+  @Override
+  public void onBufferPoolAcquire(final boolean hit) {
+    if (hit) {
+      bufferPoolHits.inc();
+    } else {
+      bufferPoolMisses.inc();
+    }
+  }
+
+  @Override
+  public void onCompress(final long uncompressedBytes, final long compressedBytes) {
+    this.uncompressedBytes.inc(uncompressedBytes);
+    this.compressedBytes.inc(compressedBytes);
+  }
+
+  @Override
+  public void onInFlightPayloads(final int inFlight) {
+    statsd.gauge("api.requests.in_flight", inFlight, NO_TAGS);
+  }
+
+  @Override
+  public void onSendLatency(final long latencyNanos) {
+    statsd.histogram("api.requests.latency", NANOSECONDS.toMicros(latencyNanos), NO_TAGS);
+  }
+
+  @Override
+  public void onRejectedSend(final int traceCount) {
+    rejectedSendTraces.inc(traceCount);
+  }
+
+  @Override
+  public void onFlushPolicyUpdate(final long flushIntervalNanos, final int targetPayloadSize) {
+    statsd.gauge("flush.interval", NANOSECONDS.toMillis(flushIntervalNanos), NO_TAGS);
+    statsd.gauge("flush.payload.target_size", targetPayloadSize, NO_TAGS);
+  }
+
+  @Override
+  public void onPendingTraceBufferOccupancy(final int scheduled, final int largestBucket) {
+    statsd.gauge("trace.pending.scheduled", scheduled, NO_TAGS);
+    statsd.gauge("trace.pending.bucket.max_size", largestBucket, NO_TAGS);
+  }
+
+  @Override
+  public void onSpill(final int traceCount, final int sizeInBytes) {
+    spilledTraces.inc(traceCount);
+    spilledBytes.inc(sizeInBytes);
+  }
+
+  @Override
+  public void onSpillReplay(final int traceCount) {
+    replayedSpilledTraces.inc(traceCount);
+  }
+
+  @Override
+  public void onSpillDrop(final int traceCount) {
+    droppedSpilledTraces.inc(traceCount);
+  }
+
+  @Override
+  public void onStreamedChunk(final int spanCount, final int heldSpans) {
+    streamedChunks.inc();
+    streamedSpans.inc(spanCount);
+    maxStreamingTraceSpans.accumulate(heldSpans);
+  }
+
+  @Override
+  public void onStatsDropped(final int spanCount) {
+    droppedStatsSpans.inc(spanCount);
+  }
+
   private void onSendAttempt(
       final int traceCount, final int sizeInBytes, final RemoteApi.Response response) {
     apiRequests.inc();
@@ -378,7 +481,7 @@ public class TracerHealthMetrics extends HealthMetrics implements AutoCloseable
     private static final String[] UNSET_TAG = new String[] {"priority:unset"};
     private static final String[] SINGLE_SPAN_SAMPLER = new String[] {"sampler:single-span"};
 
-    private final long[] previousCounts = new long[43];
+    private final long[] previousCounts = new long[54];
     private int countIndex;
 
     @Override
@@ -489,6 +592,29 @@ public class TracerHealthMetrics extends HealthMetrics implements AutoCloseable
         reportIfChanged(
             target.statsd, "long-running.expired", target.longRunningTracesExpired, NO_TAGS);
 
+        reportIfChanged(target.statsd, "buffer.pool.hit", target.bufferPoolHits, NO_TAGS);
+        reportIfChanged(target.statsd, "buffer.pool.miss", target.bufferPoolMisses, NO_TAGS);
+
+        reportIfChanged(target.statsd, "compression.bytes.in", target.uncompressedBytes, NO_TAGS);
+        reportIfChanged(target.statsd, "compression.bytes.out", target.compressedBytes, NO_TAGS);
+
+        reportIfChanged(
+            target.statsd, "api.requests.rejected.traces", target.rejectedSendTraces, NO_TAGS);
+
+        reportIfChanged(target.statsd, "spill.traces", target.spilledTraces, NO_TAGS);
+        reportIfChanged(target.statsd, "spill.bytes", target.spilledBytes, NO_TAGS);
+        reportIfChanged(target.statsd, "spill.replayed", target.replayedSpilledTraces, NO_TAGS);
+        reportIfChanged(target.statsd, "spill.dropped", target.droppedSpilledTraces, NO_TAGS);
+
+        reportIfChanged(target.statsd, "trace.streamed.chunks", target.streamedChunks, NO_TAGS);
+        reportIfChanged(target.statsd, "trace.streamed.spans", target.streamedSpans, NO_TAGS);
+        long maxStreamingTraceSpans = target.maxStreamingTraceSpans.getThenReset();
+        if (maxStreamingTraceSpans > 0) {
+          target.statsd.gauge("trace.streamed.held_spans.max", maxStreamingTraceSpans, NO_TAGS);
+        }
+
+        reportIfChanged(target.statsd, "stats.dropped.spans", target.droppedStatsSpans, NO_TAGS);
+
       } catch (ArrayIndexOutOfBoundsException e) {
         log.warn(
             "previousCounts array needs resizing to at least {}, was {}",
@@ -607,6 +733,36 @@ public class TracerHealthMetrics extends HealthMetrics implements AutoCloseable
         + "\nlongRunningTracesDropped="
         + longRunningTracesDropped.get()
         + "\nlongRunningTracesExpired="
-        + longRunningTracesExpired.get();
+        + longRunningTracesExpired.get()
+        + "\n"
+        + "\nbufferPoolHits="
+        + bufferPoolHits.get()
+        + "\nbufferPoolMisses="
+        + bufferPoolMisses.get()
+        + "\n"
+        + "\ncompressionBytesIn="
+        + uncompressedBytes.get()
+        + "\ncompressionBytesOut="
+        + compressedBytes.get()
+        + "\n"
+        + "\nrejectedSendTraces="
+        + rejectedSendTraces.get()
+        + "\n"
+        + "\nspilledTraces="
+        + spilledTraces.get()
+        + "\nspilledBytes="
+        + spilledBytes.get()
+        + "\nreplayedSpilledTraces="
+        + replayedSpilledTraces.get()
+        + "\ndroppedSpilledTraces="
+        + droppedSpilledTraces.get()
+        + "\n"
+        + "\nstreamedChunks="
+        + streamedChunks.get()
+        + "\nstreamedSpans="
+        + streamedSpans.get()
+        + "\n"
+        + "\ndroppedStatsSpans="
+        + droppedStatsSpans.get();
   }
 }
@@ -198,59 +198,111 @@ public class HttpCodec {
     }
   }
 
+  /**
+   * Extracts the contexts of several propagation styles, and merges them. When all the extractors
+   * interpret the headers one by one, the carrier's headers are visited once and fed to all their
+   * interpreters, else the headers are cached first so that each extractor can visit them.
+   */
   public static class CompoundExtractor implements Extractor {
     private final List<Extractor> extractors;
     private final boolean extractFirst;
+    // null unless all the extractors are tag context extractors
+    private final TagContextExtractor[] singlePassExtractors;
 
     public CompoundExtractor(final List<Extractor> extractors, boolean extractFirst) {
       this.extractors = extractors;
       this.extractFirst = extractFirst;
+      this.singlePassExtractors = singlePassExtractors(extractors);
+    }
+
+    private static TagContextExtractor[] singlePassExtractors(List<Extractor> extractors) {
+      TagContextExtractor[] singlePassExtractors = new TagContextExtractor[extractors.size()];
+      for (int i = 0; i < singlePassExtractors.length; i++) {
+        Extractor extractor = extractors.get(i);
+        if (!(extractor instanceof TagContextExtractor)) {
+          return null;
+        }
+        singlePassExtractors[i] = (TagContextExtractor) extractor;
+      }
+      return singlePassExtractors;
     }
 
     @Override
     public <C> TagContext extract(
         final C carrier, final AgentPropagation.ContextVisitor<C> getter) {
-      ExtractedContext context = null;
-      TagContext partialContext = null;
-      // Extract and cache all headers in advance
-      ExtractionCache<C> extractionCache = new ExtractionCache<>(carrier, getter);
-
-      for (final Extractor extractor : this.extractors) {
-        TagContext extracted = extractor.extract(extractionCache, extractionCache);
-        // Check if context is valid
-        if (extracted instanceof ExtractedContext) {
-          ExtractedContext extractedContext = (ExtractedContext) extracted;
-          // If no prior valid context, store it as first valid context
-          if (context == null) {
-            context = extractedContext;
-            // Stop extraction if only extracting first valid context and drop everything else
-            if (this.extractFirst) {
-              break;
-            }
+      ContextMerger merger = new ContextMerger(this.extractFirst);
+      if (null != this.singlePassExtractors) {
+        // Feed each header to all the interpreters, in a single pass over the carrier
+        InterpreterFanOut fanOut = new InterpreterFanOut(this.singlePassExtractors);
+        getter.forEachKey(carrier, fanOut);
+        for (final ContextInterpreter interpreter : fanOut.interpreters) {
+          if (merger.merge(interpreter.build())) {
+            break;
           }
-          // If another valid context is extracted
-          else {
-            if (traceIdMatch(context.getTraceId(), extractedContext.getTraceId())) {
-              boolean comingFromTraceContext = extracted.getPropagationStyle() == TRACECONTEXT;
-              if (comingFromTraceContext) {
-                // Propagate newly extracted W3C tracestate to first valid context
-                String extractedTracestate =
-                    extractedContext.getPropagationTags().getW3CTracestate();
-                context.getPropagationTags().updateW3CTracestate(extractedTracestate);
-              }
-            } else {
-              // Terminate extracted context and add it as span link
-              context.addTerminatedContextLink(DDSpanLink.from((ExtractedContext) extracted));
-              // TODO Note: Other vendor tracestate will be lost here
-            }
+        }
+      } else {
+        // Extract and cache all headers in advance
+        ExtractionCache<C> extractionCache = new ExtractionCache<>(carrier, getter);
+
+        for (final Extractor extractor : this.extractors) {
+          if (merger.merge(extractor.extract(extractionCache, extractionCache))) {
+            break;
           }
         }
-        // Check if context is at least partial to keep it as first valid partial context found
-        else if (extracted != null && partialContext == null) {
-          partialContext = extracted;
+      }
+      return merger.result();
+    }
+  }
+
+  /** Merges the contexts extracted by the extractors of several propagation styles, in order. */
+  private static final class ContextMerger {
+    private final boolean extractFirst;
+    private ExtractedContext context;
+    private TagContext partialContext;
+
+    ContextMerger(boolean extractFirst) {
+      this.extractFirst = extractFirst;
+    }
+
+    /**
+     * @param extracted The context extracted by the next extractor, if any.
+     * @return {@code true} if the next extractors can be skipped, {@code false} otherwise.
+     */
+    boolean merge(TagContext extracted) {
+      // Check if context is valid
+      if (extracted instanceof ExtractedContext) {
+        ExtractedContext extractedContext = (ExtractedContext) extracted;
+        // If no prior valid context, store it as first valid context
+        if (context == null) {
+          context = extractedContext;
+          // Stop extraction if only extracting first valid context and drop everything else
+          return this.extractFirst;
+        }
+        // If another valid context is extracted
+        else {
+          if (traceIdMatch(context.getTraceId(), extractedContext.getTraceId())) {
+            boolean comingFromTraceContext = extracted.getPropagationStyle() == TRACECONTEXT;
+            if (comingFromTraceContext) {
+              // Propagate newly extracted W3C tracestate to first valid context
+              String extractedTracestate =
+                  extractedContext.getPropagationTags().getW3CTracestate();
+              context.getPropagationTags().updateW3CTracestate(extractedTracestate);
+            }
+          } else {
+            // Terminate extracted context and add it as span link
+            context.addTerminatedContextLink(DDSpanLink.from((ExtractedContext) extracted));
+            // TODO Note: Other vendor tracestate will be lost here
+          }
         }
       }
+      // Check if context is at least partial to keep it as first valid partial context found
+      else if (extracted != null && partialContext == null) {
+        partialContext = extracted;
+      }
+      return false;
+    }
 
+    TagContext result() {
       if (context != null) {
         log.debug("Extract complete context {}", context);
         return context;
@@ -264,6 +316,27 @@ public class HttpCodec {
     }
   }
 
+  /** Feeds each header to the interpreters of all the extractors. */
+  private static final class InterpreterFanOut implements AgentPropagation.KeyClassifier {
+    final ContextInterpreter[] interpreters;
+
+    InterpreterFanOut(TagContextExtractor[] extractors) {
+      this.interpreters = new ContextInterpreter[extractors.length];
+      for (int i = 0; i < extractors.length; i++) {
+        interpreters[i] = extractors[i].resetInterpreter();
+      }
+    }
+
+    @Override
+    public boolean accept(String key, String value) {
+      // like the extraction cache, keep feeding headers to interpreters which gave up on them
+      for (final ContextInterpreter interpreter : interpreters) {
+        interpreter.accept(key, value);
+      }
+      return true;
+    }
+  }
+
   private static class ExtractionCache<C>
       implements AgentPropagation.KeyClassifier,
           AgentPropagation.ContextVisitor<ExtractionCache<?>> {
@@ -18,11 +18,16 @@ public class TagContextExtractor implements HttpCodec.Extractor {
 
   @Override
   public <C> TagContext extract(final C carrier, final AgentPropagation.ContextVisitor<C> getter) {
-    ContextInterpreter interpreter = this.ctxInterpreter.get().reset(traceConfigSupplier.get());
+    ContextInterpreter interpreter = resetInterpreter();
     getter.forEachKey(carrier, interpreter);
     return interpreter.build();
   }
 
+  /** Returns the interpreter of the current thread, reset for a new extraction. */
+  ContextInterpreter resetInterpreter() {
+    return this.ctxInterpreter.get().reset(traceConfigSupplier.get());
+  }
+
   @Override
   public void cleanup() {
     ctxInterpreter.remove();
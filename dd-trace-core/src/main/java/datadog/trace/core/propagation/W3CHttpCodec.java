@@ -1,10 +1,12 @@
 package datadog.trace.core.propagation;
 
 import static datadog.trace.api.TracePropagationStyle.TRACECONTEXT;
+import static datadog.trace.api.internal.util.LongStringUtils.fillPaddedHexBytes;
 import static datadog.trace.api.sampling.PrioritySampling.SAMPLER_DROP;
 import static datadog.trace.api.sampling.PrioritySampling.SAMPLER_KEEP;
 import static datadog.trace.core.propagation.HttpCodec.firstHeaderValue;
 import static datadog.trace.core.propagation.PropagationTags.HeaderType.W3C;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
@@ -71,13 +73,20 @@ class W3CHttpCodec {
 
     private <C> void injectTraceParent(
         DDSpanContext context, C carrier, AgentPropagation.Setter<C> setter) {
-      StringBuilder sb = new StringBuilder(TRACE_PARENT_LENGTH);
-      sb.append("00-");
-      sb.append(context.getTraceId().toHexString());
-      sb.append("-");
-      sb.append(DDSpanId.toHexStringPadded(context.getSpanId()));
-      sb.append(context.getSamplingPriority() > 0 ? "-01" : "-00");
-      setter.set(carrier, TRACE_PARENT_KEY, sb.toString());
+      // encode the ids in place, without intermediate strings
+      DDTraceId traceId = context.getTraceId();
+      byte[] bytes = new byte[TRACE_PARENT_LENGTH];
+      bytes[0] = '0';
+      bytes[1] = '0';
+      bytes[TRACE_PARENT_TID_START - 1] = '-';
+      fillPaddedHexBytes(traceId.toHighOrderLong(), bytes, TRACE_PARENT_TID_START);
+      fillPaddedHexBytes(traceId.toLong(), bytes, TRACE_PARENT_TID_START + 16);
+      bytes[TRACE_PARENT_TID_END] = '-';
+      fillPaddedHexBytes(context.getSpanId(), bytes, TRACE_PARENT_SID_START);
+      bytes[TRACE_PARENT_SID_END] = '-';
+      bytes[TRACE_PARENT_FLAGS_START] = '0';
+      bytes[TRACE_PARENT_FLAGS_START + 1] = context.getSamplingPriority() > 0 ? (byte) '1' : '0';
+      setter.set(carrier, TRACE_PARENT_KEY, new String(bytes, US_ASCII));
     }
 
     private <C> void injectTraceState(
@@ -22,6 +22,12 @@ abstract class PTagsCodec {
   protected static final TagKey UPSTREAM_SERVICES_DEPRECATED_TAG = TagKey.from("upstream_services");
   protected static final TagValue APPSEC_ENABLED_TAG_VALUE = TagValue.from("1");
 
+  /** Headers estimated larger than this get a builder of their own, which isn't kept for reuse. */
+  private static final int REUSED_BUILDER_CAPACITY = 1024;
+
+  private static final ThreadLocal<StringBuilder> HEADER_BUILDER =
+      ThreadLocal.withInitial(() -> new StringBuilder(REUSED_BUILDER_CAPACITY));
+
   static String headerValue(PTagsCodec codec, PTags ptags) {
     int estimate = codec.estimateHeaderSize(ptags);
     if (estimate == 0) {
@@ -29,7 +35,19 @@ abstract class PTagsCodec {
     }
 
     // No encoding validation here because we don't allow arbitrary tag change
-    StringBuilder sb = new StringBuilder(estimate);
+    StringBuilder sb;
+    if (estimate > REUSED_BUILDER_CAPACITY) {
+      sb = new StringBuilder(estimate);
+    } else {
+      sb = HEADER_BUILDER.get();
+      if (sb.capacity() > REUSED_BUILDER_CAPACITY) {
+        // grew past its estimate last time, don't hold on to it
+        sb = new StringBuilder(REUSED_BUILDER_CAPACITY);
+        HEADER_BUILDER.set(sb);
+      } else {
+        sb.setLength(0);
+      }
+    }
     int size = codec.appendPrefix(sb, ptags);
     if (!ptags.isPropagationTagsDisabled()) {
       if (ptags.getDecisionMakerTagValue() != null) {
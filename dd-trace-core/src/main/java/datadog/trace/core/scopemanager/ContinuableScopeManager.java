@@ -36,6 +36,9 @@ import org.slf4j.LoggerFactory;
  * currently active Scope. Such scopes can be suspended with a Continuation to prevent the trace
  * from being reported even if all related spans are finished. It also delegates to other
  * ScopeInterceptors to provide additional functionality.
+ *
+ * <p>With lazy scope stacks, the stack of a thread is only allocated once it activates a scope, so
+ * the many short-lived virtual threads which only look up the active span don't each allocate one.
  */
 public final class ContinuableScopeManager implements AgentScopeManager {
   static final Logger log = LoggerFactory.getLogger(ContinuableScopeManager.class);
@@ -71,7 +74,7 @@ public final class ContinuableScopeManager implements AgentScopeManager {
   }
 
   /**
-   * Default constructor.
+   * Constructor with eagerly allocated scope stacks.
    *
    * @param depthLimit The maximum scope depth limit, <code>0</code> for unlimited.
    * @param strictMode Whether check if the closed spans are the active ones or not.
@@ -84,13 +87,39 @@ public final class ContinuableScopeManager implements AgentScopeManager {
       final boolean inheritAsyncPropagation,
       final ProfilingContextIntegration profilingContextIntegration,
       final HealthMetrics healthMetrics) {
+    this(
+        depthLimit,
+        strictMode,
+        inheritAsyncPropagation,
+        profilingContextIntegration,
+        healthMetrics,
+        false);
+  }
+
+  /**
+   * Default constructor.
+   *
+   * @param depthLimit The maximum scope depth limit, <code>0</code> for unlimited.
+   * @param strictMode Whether check if the closed spans are the active ones or not.
+   * @param inheritAsyncPropagation Whether the next span should inherit the active span
+   *     asyncPropagation flag.
+   * @param lazyScopeStacks Whether to only allocate the scope stack of a thread when it activates a
+   *     scope, which saves an allocation per virtual thread that only looks up the active span.
+   */
+  public ContinuableScopeManager(
+      final int depthLimit,
+      final boolean strictMode,
+      final boolean inheritAsyncPropagation,
+      final ProfilingContextIntegration profilingContextIntegration,
+      final HealthMetrics healthMetrics,
+      final boolean lazyScopeStacks) {
     this.depthLimit = depthLimit == 0 ? Integer.MAX_VALUE : depthLimit;
     this.strictMode = strictMode;
     this.inheritAsyncPropagation = inheritAsyncPropagation;
     this.scopeListeners = new CopyOnWriteArrayList<>();
     this.extendedScopeListeners = new CopyOnWriteArrayList<>();
     this.healthMetrics = healthMetrics;
-    this.tlsScopeStack = new ScopeStackThreadLocal(profilingContextIntegration);
+    this.tlsScopeStack = new ScopeStackThreadLocal(profilingContextIntegration, lazyScopeStacks);
     this.profilingContextIntegration = profilingContextIntegration;
   }
 
@@ -187,7 +216,10 @@ public final class ContinuableScopeManager implements AgentScopeManager {
 
   @Override
   public void closePrevious(final boolean finishSpan) {
-    ScopeStack scopeStack = scopeStack();
+    ScopeStack scopeStack = existingScopeStack();
+    if (scopeStack == null) {
+      return;
+    }
 
     // close any immediately previous iteration scope
     final ContinuableScope top = scopeStack.top;
@@ -240,12 +272,14 @@ public final class ContinuableScopeManager implements AgentScopeManager {
 
   @Override
   public AgentScope active() {
-    return scopeStack().active();
+    final ScopeStack scopeStack = existingScopeStack();
+    return scopeStack == null ? null : scopeStack.active();
   }
 
   @Override
   public AgentSpan activeSpan() {
-    final ContinuableScope active = scopeStack().active();
+    final ScopeStack scopeStack = existingScopeStack();
+    final ContinuableScope active = scopeStack == null ? null : scopeStack.active();
     return active == null ? null : active.span;
   }
 
@@ -285,6 +319,17 @@ public final class ContinuableScopeManager implements AgentScopeManager {
   }
 
   ScopeStack scopeStack() {
+    ScopeStack scopeStack = this.tlsScopeStack.get();
+    if (scopeStack == null) {
+      // lazy scope stacks are only allocated when needed
+      scopeStack = this.tlsScopeStack.newScopeStack();
+      this.tlsScopeStack.set(scopeStack);
+    }
+    return scopeStack;
+  }
+
+  /** Returns the scope stack of this thread, or null if it has none yet. */
+  private ScopeStack existingScopeStack() {
     return this.tlsScopeStack.get();
   }
 
@@ -311,13 +356,19 @@ public final class ContinuableScopeManager implements AgentScopeManager {
   static final class ScopeStackThreadLocal extends ThreadLocal<ScopeStack> {
 
     private final ProfilingContextIntegration profilingContextIntegration;
+    private final boolean lazy;
 
-    ScopeStackThreadLocal(ProfilingContextIntegration profilingContextIntegration) {
+    ScopeStackThreadLocal(ProfilingContextIntegration profilingContextIntegration, boolean lazy) {
       this.profilingContextIntegration = profilingContextIntegration;
+      this.lazy = lazy;
     }
 
     @Override
     protected ScopeStack initialValue() {
+      return lazy ? null : newScopeStack();
+    }
+
+    ScopeStack newScopeStack() {
       return new ScopeStack(profilingContextIntegration);
     }
   }
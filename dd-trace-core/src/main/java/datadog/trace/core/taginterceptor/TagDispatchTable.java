@@ -0,0 +1,56 @@
+package datadog.trace.core.taginterceptor;
+
+import java.util.Map;
+
+/**
+ * Immutable table of the interception handler of each tag key, with open addressing and linear
+ * probing. Tag keys are mostly interned constants, so keys are compared by identity first, and
+ * their cached hash codes are compared before they are compared by value, so tags without a handler
+ * usually miss after comparing a couple of ints.
+ */
+final class TagDispatchTable {
+
+  /** Handler of the tags which aren't in the table. */
+  static final byte NONE = 0;
+
+  private final String[] keys;
+  private final int[] hashes;
+  private final byte[] handlers;
+  private final int mask;
+
+  TagDispatchTable(Map<String, Byte> handlers) {
+    int capacity = 8;
+    while (capacity < handlers.size() * 2) {
+      capacity <<= 1;
+    }
+    this.keys = new String[capacity];
+    this.hashes = new int[capacity];
+    this.handlers = new byte[capacity];
+    this.mask = capacity - 1;
+    for (Map.Entry<String, Byte> entry : handlers.entrySet()) {
+      String key = entry.getKey();
+      int hash = key.hashCode();
+      int i = hash & mask;
+      while (null != keys[i]) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      hashes[i] = hash;
+      this.handlers[i] = entry.getValue();
+    }
+  }
+
+  /** @return the handler of the tag, or {@link #NONE} */
+  byte get(String tag) {
+    int hash = tag.hashCode();
+    int i = hash & mask;
+    String key;
+    while (null != (key = keys[i])) {
+      if (key == tag || (hashes[i] == hash && key.equals(tag))) {
+        return handlers[i];
+      }
+      i = (i + 1) & mask;
+    }
+    return NONE;
+  }
+}
@@ -17,6 +17,7 @@ import static datadog.trace.core.taginterceptor.RuleFlags.Feature.SERVICE_NAME;
 import static datadog.trace.core.taginterceptor.RuleFlags.Feature.STATUS_404;
 import static datadog.trace.core.taginterceptor.RuleFlags.Feature.STATUS_404_DECORATOR;
 import static datadog.trace.core.taginterceptor.RuleFlags.Feature.URL_AS_RESOURCE_NAME;
+import static datadog.trace.core.taginterceptor.TagDispatchTable.NONE;
 
 import datadog.trace.api.Config;
 import datadog.trace.api.ConfigDefaults;
@@ -35,6 +36,8 @@ import datadog.trace.bootstrap.instrumentation.api.URIUtils;
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import datadog.trace.core.DDSpanContext;
 import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -43,6 +46,27 @@ public class TagInterceptor {
 
   private static final UTF8BytesString NOT_FOUND_RESOURCE_NAME = UTF8BytesString.create("404");
 
+  // handlers of the intercepted tags
+  private static final byte INTERCEPT_RESOURCE_NAME = 1;
+  private static final byte INTERCEPT_DB_STATEMENT = 2;
+  private static final byte INTERCEPT_SERVICE_NAME = 3;
+  private static final byte INTERCEPT_PEER_SERVICE = 4;
+  private static final byte INTERCEPT_MANUAL_KEEP = 5;
+  private static final byte INTERCEPT_MANUAL_DROP = 6;
+  private static final byte INTERCEPT_ASM_KEEP = 7;
+  private static final byte INTERCEPT_SAMPLING_PRIORITY = 8;
+  private static final byte INTERCEPT_APPSEC_PROPAGATION = 9;
+  private static final byte INTERCEPT_DEBUG_PROPAGATION = 10;
+  private static final byte INTERCEPT_SERVLET_CONTEXT = 11;
+  private static final byte INTERCEPT_SPAN_TYPE = 12;
+  private static final byte INTERCEPT_ANALYTICS_SAMPLE_RATE = 13;
+  private static final byte INTERCEPT_ERROR = 14;
+  private static final byte INTERCEPT_HTTP_STATUS = 15;
+  private static final byte INTERCEPT_URL_AS_RESOURCE_NAME = 16;
+  private static final byte INTERCEPT_ORIGIN = 17;
+  private static final byte INTERCEPT_MEASURED = 18;
+  private static final byte INTERCEPT_SPLIT_SERVICE = 19;
+
   private final RuleFlags ruleFlags;
   private final boolean isServiceNameSetByUser;
   private final boolean splitByServletContext;
@@ -52,6 +76,8 @@ public class TagInterceptor {
   private final boolean shouldSet404ResourceName;
   private final boolean shouldSetUrlResourceAsName;
 
+  private final TagDispatchTable dispatchTable;
+
   public TagInterceptor(RuleFlags ruleFlags) {
     this(
         Config.get().isServiceNameSetByUser(),
@@ -76,64 +102,122 @@ public class TagInterceptor {
             && ruleFlags.isEnabled(STATUS_404)
             && ruleFlags.isEnabled(STATUS_404_DECORATOR);
     shouldSetUrlResourceAsName = ruleFlags.isEnabled(URL_AS_RESOURCE_NAME);
+
+    dispatchTable = buildDispatchTable();
+  }
+
+  /**
+   * Resolves the handler of each intercepted tag once. Tags whose rule is disabled, and so would
+   * never be intercepted, are mapped to {@link TagDispatchTable#NONE}, which also keeps them from
+   * being used to split the service.
+   */
+  private TagDispatchTable buildDispatchTable() {
+    Map<String, Byte> handlers = new LinkedHashMap<>();
+    handlers.put(
+        DDTags.RESOURCE_NAME, ruleFlags.isEnabled(RESOURCE_NAME) ? INTERCEPT_RESOURCE_NAME : NONE);
+    handlers.put(Tags.DB_STATEMENT, INTERCEPT_DB_STATEMENT);
+    byte serviceName = ruleFlags.isEnabled(SERVICE_NAME) ? INTERCEPT_SERVICE_NAME : NONE;
+    handlers.put(DDTags.SERVICE_NAME, serviceName);
+    handlers.put("service", serviceName);
+    handlers.put(Tags.PEER_SERVICE, INTERCEPT_PEER_SERVICE);
+    handlers.put(DDTags.MANUAL_KEEP, INTERCEPT_MANUAL_KEEP);
+    handlers.put(
+        DDTags.MANUAL_DROP, ruleFlags.isEnabled(FORCE_MANUAL_DROP) ? INTERCEPT_MANUAL_DROP : NONE);
+    handlers.put(Tags.ASM_KEEP, INTERCEPT_ASM_KEEP);
+    handlers.put(
+        Tags.SAMPLING_PRIORITY,
+        ruleFlags.isEnabled(FORCE_SAMPLING_PRIORITY) ? INTERCEPT_SAMPLING_PRIORITY : NONE);
+    handlers.put(Tags.PROPAGATED_APPSEC, INTERCEPT_APPSEC_PROPAGATION);
+    handlers.put(Tags.PROPAGATED_DEBUG, INTERCEPT_DEBUG_PROPAGATION);
+    handlers.put(
+        InstrumentationTags.SERVLET_CONTEXT,
+        splitByServletContext
+                || !isServiceNameSetByUser && ruleFlags.isEnabled(RuleFlags.Feature.SERVLET_CONTEXT)
+            ? INTERCEPT_SERVLET_CONTEXT
+            : NONE);
+    handlers.put(SPAN_TYPE, INTERCEPT_SPAN_TYPE);
+    handlers.put(ANALYTICS_SAMPLE_RATE, INTERCEPT_ANALYTICS_SAMPLE_RATE);
+    handlers.put(Tags.ERROR, INTERCEPT_ERROR);
+    handlers.put(HTTP_STATUS, INTERCEPT_HTTP_STATUS);
+    byte urlAsResourceName = shouldSetUrlResourceAsName ? INTERCEPT_URL_AS_RESOURCE_NAME : NONE;
+    handlers.put(HTTP_METHOD, urlAsResourceName);
+    handlers.put(HTTP_URL, urlAsResourceName);
+    handlers.put(ORIGIN_KEY, INTERCEPT_ORIGIN);
+    handlers.put(MEASURED, INTERCEPT_MEASURED);
+    for (String tag : splitServiceTags) {
+      // the tags above take precedence
+      if (!handlers.containsKey(tag)) {
+        handlers.put(tag, INTERCEPT_SPLIT_SERVICE);
+      }
+    }
+    return new TagDispatchTable(handlers);
+  }
+
+  /**
+   * @return false if {@link #interceptTag(DDSpanContext, String, Object)} never intercepts the tag,
+   *     so callers can skip boxing its value
+   */
+  public boolean needsIntercept(String tag) {
+    return dispatchTable.get(tag) != NONE;
   }
 
   public boolean interceptTag(DDSpanContext span, String tag, Object value) {
-    switch (tag) {
-      case DDTags.RESOURCE_NAME:
+    switch (dispatchTable.get(tag)) {
+      case INTERCEPT_RESOURCE_NAME:
         return interceptResourceName(span, value);
-      case Tags.DB_STATEMENT:
+      case INTERCEPT_DB_STATEMENT:
         return interceptDbStatement(span, value);
-      case DDTags.SERVICE_NAME:
-      case "service":
+      case INTERCEPT_SERVICE_NAME:
         return interceptServiceName(SERVICE_NAME, span, value);
-      case Tags.PEER_SERVICE:
+      case INTERCEPT_PEER_SERVICE:
         // we still need to intercept and add this tag when the user manually set
         span.setTag(DDTags.PEER_SERVICE_SOURCE, Tags.PEER_SERVICE);
         return interceptServiceName(PEER_SERVICE, span, value);
-      case DDTags.MANUAL_KEEP:
+      case INTERCEPT_MANUAL_KEEP:
         if (asBoolean(value)) {
           span.forceKeep();
           return true;
         }
         return false;
-      case DDTags.MANUAL_DROP:
+      case INTERCEPT_MANUAL_DROP:
         return interceptSamplingPriority(
             FORCE_MANUAL_DROP, USER_DROP, SamplingMechanism.MANUAL, span, value);
-      case Tags.ASM_KEEP:
+      case INTERCEPT_ASM_KEEP:
         if (asBoolean(value)) {
           span.forceKeep(SamplingMechanism.APPSEC);
           return true;
         }
         return false;
-      case Tags.SAMPLING_PRIORITY:
+      case INTERCEPT_SAMPLING_PRIORITY:
         return interceptSamplingPriority(span, value);
-      case Tags.PROPAGATED_APPSEC:
+      case INTERCEPT_APPSEC_PROPAGATION:
         span.updateAppsecPropagation(asBoolean(value));
         return true;
-      case Tags.PROPAGATED_DEBUG:
+      case INTERCEPT_DEBUG_PROPAGATION:
         span.updateDebugPropagation(asInt(value));
         return true;
-      case InstrumentationTags.SERVLET_CONTEXT:
+      case INTERCEPT_SERVLET_CONTEXT:
         return interceptServletContext(span, value);
-      case SPAN_TYPE:
+      case INTERCEPT_SPAN_TYPE:
         return interceptSpanType(span, value);
-      case ANALYTICS_SAMPLE_RATE:
+      case INTERCEPT_ANALYTICS_SAMPLE_RATE:
         return interceptAnalyticsSampleRate(span, value);
-      case Tags.ERROR:
+      case INTERCEPT_ERROR:
         return interceptError(span, value);
-      case HTTP_STATUS:
+      case INTERCEPT_HTTP_STATUS:
         // not set internally but may come from manual instrumentation
         return interceptHttpStatusCode(span, value);
-      case HTTP_METHOD:
-      case HTTP_URL:
+      case INTERCEPT_URL_AS_RESOURCE_NAME:
         return interceptUrlResourceAsNameRule(span, tag, value);
-      case ORIGIN_KEY:
+      case INTERCEPT_ORIGIN:
         return interceptOrigin(span, value);
-      case MEASURED:
+      case INTERCEPT_MEASURED:
         return interceptMeasured(span, value);
+      case INTERCEPT_SPLIT_SERVICE:
+        span.setServiceName(String.valueOf(value));
+        return true;
       default:
-        return intercept(span, tag, value);
+        return false;
     }
   }
 
@@ -176,14 +260,6 @@ public class TagInterceptor {
     }
   }
 
-  private boolean intercept(DDSpanContext span, String tag, Object value) {
-    if (splitServiceTags.contains(tag)) {
-      span.setServiceName(String.valueOf(value));
-      return true;
-    }
-    return false;
-  }
-
   private boolean interceptResourceName(DDSpanContext span, Object value) {
     if (ruleFlags.isEnabled(RESOURCE_NAME)) {
       if (null == value) {
@@ -21,6 +21,13 @@ public final class Matchers {
     }
   }
 
+  /** @return the string matched ignoring case by the matcher, or null if it matches globs */
+  public static String exactMatch(Matcher matcher) {
+    return matcher instanceof InsensitiveEqualsMatcher
+        ? ((InsensitiveEqualsMatcher) matcher).exact
+        : null;
+  }
+
   public static boolean matches(Matcher matcher, String str) {
     return (matcher == null) || matcher.matches(str);
   }
@@ -34,9 +34,7 @@ public class SimpleRateLimiter {
     do {
       storedSecondsAndCount = secondsAndCount.get();
       if (readTime) {
-        // There will be an issue when the application has been running for more than 2^31 seconds,
-        // roughly 68 years, so that is an acceptable trade off
-        seconds = (int) TimeUnit.NANOSECONDS.toSeconds(timeSource.getNanoTicks() - startNanos);
+        seconds = currentSeconds();
         readTime = false;
       }
       final int storedSeconds = getStoredSeconds(storedSecondsAndCount);
@@ -67,15 +65,22 @@ public class SimpleRateLimiter {
     return capacity;
   }
 
-  private static int getStoredSeconds(long timeAndCount) {
+  /** @return the seconds elapsed since the limiter was created */
+  protected final int currentSeconds() {
+    // There will be an issue when the application has been running for more than 2^31 seconds,
+    // roughly 68 years, so that is an acceptable trade off
+    return (int) TimeUnit.NANOSECONDS.toSeconds(timeSource.getNanoTicks() - startNanos);
+  }
+
+  static int getStoredSeconds(long timeAndCount) {
     return (int) (timeAndCount >> 32);
   }
 
-  private static int getStoredCount(long timeAndCount) {
+  static int getStoredCount(long timeAndCount) {
     return (int) (timeAndCount & Integer.MAX_VALUE);
   }
 
-  private static long combineSecondsAndCount(int seconds, int count) {
+  static long combineSecondsAndCount(int seconds, int count) {
     // We can safely assume that count is a positive int
     return ((long) (seconds & Integer.MAX_VALUE)) << 32 | count;
   }
@@ -0,0 +1,100 @@
+package datadog.trace.core.util;
+
+import static datadog.trace.core.util.SimpleRateLimiter.combineSecondsAndCount;
+import static datadog.trace.core.util.SimpleRateLimiter.getStoredCount;
+import static datadog.trace.core.util.SimpleRateLimiter.getStoredSeconds;
+
+import datadog.trace.api.time.SystemTimeSource;
+import datadog.trace.api.time.TimeSource;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link SimpleRateLimiter} which splits the tokens of each second across per-core stripes, so
+ * that threads acquiring tokens concurrently don't all update the same counter.
+ *
+ * <p>Each stripe is given its share of the rate, so no more tokens are handed out each second than
+ * with a single counter. A thread whose stripe has run out of tokens first tries to take them from
+ * a few other stripes, picked at random when there are more, so that threads don't all fall back
+ * to the same stripe. It then scans every stripe before refusing, so a token is only refused once
+ * all the tokens of the second have been handed out, like with a single counter.
+ */
+public class StripedRateLimiter extends SimpleRateLimiter {
+  private static final int MAX_STRIPES = 64;
+  // each stripe sits on its own cache line
+  private static final int PADDING = 16;
+  // bounds the random stripes tried once the thread's own stripe has run out of tokens
+  private static final int MAX_STOLEN_STRIPES = 3;
+
+  private final int stripes;
+  private final AtomicLongArray secondsAndCounts;
+
+  public StripedRateLimiter(int rate) {
+    this(rate, SystemTimeSource.INSTANCE, defaultStripes());
+  }
+
+  protected StripedRateLimiter(int rate, TimeSource timeSource, int stripes) {
+    super(rate, timeSource);
+    // every stripe gets at least one token
+    this.stripes = Math.min(stripes, Integer.highestOneBit(getCapacity()));
+    this.secondsAndCounts = new AtomicLongArray((this.stripes - 1) * PADDING + 1);
+  }
+
+  @Override
+  public boolean tryAcquire() {
+    final int seconds = currentSeconds();
+    final int home = homeStripe();
+    if (tryAcquire(home, seconds)) {
+      return true;
+    }
+    final int others = stripes - 1;
+    final int first = others > MAX_STOLEN_STRIPES ? ThreadLocalRandom.current().nextInt(others) : 0;
+    for (int i = 0; i < Math.min(others, MAX_STOLEN_STRIPES); i++) {
+      if (tryAcquire((home + 1 + (first + i) % others) & (stripes - 1), seconds)) {
+        return true;
+      }
+    }
+    if (others > MAX_STOLEN_STRIPES) {
+      // don't refuse a token while any stripe still has some left
+      for (int i = 1; i <= others; i++) {
+        if (tryAcquire((home + i) & (stripes - 1), seconds)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean tryAcquire(int stripe, int seconds) {
+    final int index = stripe * PADDING;
+    final int stripeCapacity = getCapacity() / stripes + (stripe < getCapacity() % stripes ? 1 : 0);
+    long storedSecondsAndCount;
+    long newSecondsAndCount;
+    do {
+      storedSecondsAndCount = secondsAndCounts.get(index);
+      final int storedSeconds = getStoredSeconds(storedSecondsAndCount);
+      if (seconds <= storedSeconds) {
+        // We're roughly in the same second, so try to acquire a token of this stripe
+        final int count = getStoredCount(storedSecondsAndCount) + 1;
+        if (count > stripeCapacity) {
+          return false;
+        }
+        newSecondsAndCount = combineSecondsAndCount(storedSeconds, count);
+      } else {
+        // At least one second has elapsed, so reset the tokens of this stripe
+        newSecondsAndCount = combineSecondsAndCount(seconds, 1);
+      }
+    } while (!secondsAndCounts.compareAndSet(index, storedSecondsAndCount, newSecondsAndCount));
+    return true;
+  }
+
+  private int homeStripe() {
+    return (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32) & (stripes - 1);
+  }
+
+  /** @return the power of two at least equal to the number of processors */
+  static int defaultStripes() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return processors <= 1 ? 1 : Math.min(Integer.highestOneBit(processors - 1) << 1, MAX_STRIPES);
+  }
+}
@@ -17,19 +17,25 @@ public final class TagsMatcher {
     return new TagsMatcher(matchers);
   }
 
-  private final Map<String, Matcher> matchers;
+  // arrays rather than the map, so that matching a span doesn't allocate an iterator
+  private final String[] tags;
+  private final Matcher[] matchers;
 
   public TagsMatcher(Map<String, Matcher> matchers) {
-    this.matchers = matchers;
+    this.tags = new String[matchers.size()];
+    this.matchers = new Matcher[matchers.size()];
+    int i = 0;
+    for (Map.Entry<String, Matcher> entry : matchers.entrySet()) {
+      this.tags[i] = entry.getKey();
+      this.matchers[i] = entry.getValue();
+      i++;
+    }
   }
 
   public <T extends CoreSpan<T>> boolean matches(T span) {
-    for (Map.Entry<String, Matcher> entry : matchers.entrySet()) {
-      String tag = entry.getKey();
-      Matcher matcher = entry.getValue();
-
-      Object value = span.getTag(tag);
-      if (value == null || !matcher.matches(value)) return false;
+    for (int i = 0; i < tags.length; i++) {
+      Object value = span.getTag(tags[i]);
+      if (value == null || !matchers[i].matches(value)) return false;
     }
     return true;
   }
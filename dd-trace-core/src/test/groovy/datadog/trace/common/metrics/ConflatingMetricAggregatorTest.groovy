@@ -4,6 +4,7 @@ import datadog.communication.ddagent.DDAgentFeaturesDiscovery
 import datadog.trace.api.WellKnownTags
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
 import datadog.trace.core.CoreSpan
+import datadog.trace.core.monitor.HealthMetrics
 import datadog.trace.test.util.DDSpecification
 import spock.lang.Shared
 
@@ -196,6 +197,95 @@ class ConflatingMetricAggregatorTest extends DDSpecification {
     count << [10, 100]
   }
 
+  def "pre-aggregated repetitive spans are conflated"() {
+    setup:
+    MetricWriter writer = Mock(MetricWriter)
+    Sink sink = Stub(Sink)
+    DDAgentFeaturesDiscovery features = Mock(DDAgentFeaturesDiscovery)
+    features.supportsMetrics() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(empty,
+      features, sink, writer, 10, queueSize, reportingInterval, SECONDS, HealthMetrics.NO_OP, true)
+    long duration = 100
+    List<CoreSpan> trace = [
+      new SimpleSpan("service", "operation", "resource", "type", true, false, false, 0, duration, HTTP_OK),
+      new SimpleSpan("service1", "operation1", "resource1", "type", false, false, false, 0, 0, HTTP_OK),
+      new SimpleSpan("service2", "operation2", "resource2", "type", true, false, false, 0, duration * 2, HTTP_OK)
+    ]
+    aggregator.start()
+
+    when:
+    CountDownLatch latch = new CountDownLatch(1)
+    def forceKept = (0..<count).collect {
+      aggregator.publish(trace)
+    }
+    aggregator.report()
+    latch.await(2, SECONDS)
+
+    then: "only the first trace with new keys is force kept"
+    forceKept[0]
+    !forceKept.drop(1).any()
+
+    and: "metrics should be conflated"
+    1 * writer.finishBucket() >> { latch.countDown() }
+    1 * writer.startBucket(2, _, SECONDS.toNanos(reportingInterval))
+    1 * writer.add(new MetricKey("resource", "service", "operation", "type", HTTP_OK, false), _) >> { MetricKey key, AggregateMetric value ->
+      assert value.getHitCount() == count && value.getDuration() == count * duration
+    }
+    1 * writer.add(new MetricKey("resource2", "service2", "operation2", "type", HTTP_OK, false), _) >> { MetricKey key, AggregateMetric value ->
+      assert value.getHitCount() == count && value.getDuration() == count * duration * 2
+    }
+
+    cleanup:
+    aggregator.close()
+
+    where:
+    count << [10, 100, 1000]
+  }
+
+  def "pre-aggregated error spans are force kept"() {
+    setup:
+    MetricWriter writer = Mock(MetricWriter)
+    Sink sink = Stub(Sink)
+    DDAgentFeaturesDiscovery features = Mock(DDAgentFeaturesDiscovery)
+    features.supportsMetrics() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(empty,
+      features, sink, writer, 10, queueSize, reportingInterval, SECONDS, HealthMetrics.NO_OP, true)
+    long duration = 100
+    List<CoreSpan> ok = [
+      new SimpleSpan("service", "operation", "resource", "type", true, false, false, 0, duration, HTTP_OK)
+    ]
+    List<CoreSpan> error = [
+      new SimpleSpan("service", "operation", "resource", "type", true, false, true, 0, duration, HTTP_OK)
+    ]
+    aggregator.start()
+
+    when:
+    CountDownLatch latch = new CountDownLatch(1)
+    def first = aggregator.publish(ok)
+    def forceKept = (0..<count).collect {
+      aggregator.publish(it % 2 == 0 ? error : ok)
+    }
+    aggregator.report()
+    latch.await(2, SECONDS)
+
+    then: "the spans of a known key are force kept only when they are errors"
+    first
+    forceKept == (0..<count).collect { it % 2 == 0 }
+
+    and:
+    1 * writer.finishBucket() >> { latch.countDown() }
+    1 * writer.startBucket(1, _, SECONDS.toNanos(reportingInterval))
+    1 * writer.add(new MetricKey("resource", "service", "operation", "type", HTTP_OK, false), _) >> { MetricKey key, AggregateMetric value ->
+      assert value.getHitCount() == count + 1 && value.getErrorCount() == count / 2
+    }
+
+    cleanup:
+    aggregator.close()
+
+    where:
+    count << [10, 100]
+  }
+
   def "test least recently written to aggregate flushed when size limit exceeded"() {
     setup:
     int maxAggregates = 10
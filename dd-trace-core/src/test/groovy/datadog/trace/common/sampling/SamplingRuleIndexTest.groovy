@@ -0,0 +1,72 @@
+package datadog.trace.common.sampling
+
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.test.DDCoreSpecification
+
+import static datadog.trace.api.sampling.SamplingMechanism.LOCAL_USER_RULE
+
+class SamplingRuleIndexTest extends DDCoreSpecification {
+
+  def tracer = tracerBuilder().writer(new ListWriter()).build()
+
+  def cleanup() {
+    tracer.close()
+  }
+
+  def "finds the first matching rule when indexed by service"() {
+    setup:
+    def rules = [
+      rule("a", "x"),
+      rule("*", "y"),
+      rule("B", null),
+      rule("a", null),
+      rule(null, null)
+    ]
+    def index = new SamplingRuleIndex<>(rules)
+    def span = tracer.buildSpan(operation).withServiceName(service).ignoreActiveSpan().start()
+
+    expect:
+    index.firstMatch(span).is(rules[expected])
+
+    cleanup:
+    span.finish()
+
+    where:
+    service | operation | expected
+    "a"     | "x"       | 0
+    "A"     | "X"       | 0
+    "a"     | "y"       | 1
+    "b"     | "y"       | 1
+    "a"     | "z"       | 3
+    "b"     | "z"       | 2
+    "c"     | "z"       | 4
+    "ä"     | "z"       | 4
+  }
+
+  def "finds the first matching rule when indexed by operation"() {
+    setup:
+    def rules = [rule(null, "x"), rule("s*", "Y"), rule("*", "x*"), rule("t", "y")]
+    def index = new SamplingRuleIndex<>(rules)
+    def span = tracer.buildSpan(operation).withServiceName(service).ignoreActiveSpan().start()
+
+    expect:
+    index.firstMatch(span) == (expected == null ? null : rules[expected])
+
+    cleanup:
+    span.finish()
+
+    where:
+    service | operation | expected
+    "s"     | "x"       | 0
+    "s"     | "y"       | 1
+    "t"     | "y"       | 3
+    "s"     | "xz"      | 2
+    "u"     | "y"       | null
+    "s"     | "q"       | null
+  }
+
+  def rule(String service, String operation) {
+    return new RateSamplingRule.TraceSamplingRule(
+      service, operation, null, [:], new DeterministicSampler.TraceSampler(1), LOCAL_USER_RULE)
+  }
+}
@@ -0,0 +1,114 @@
+package datadog.trace.common.writer
+
+import datadog.trace.core.monitor.HealthMetrics
+import datadog.trace.test.util.DDSpecification
+
+import java.util.concurrent.TimeUnit
+
+class AdaptiveFlushPolicyTest extends DDSpecification {
+
+  static final long MIN_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100)
+  static final long MAX_INTERVAL = TimeUnit.MILLISECONDS.toNanos(1600)
+  static final int MIN_SIZE = 1 << 10
+  static final int MAX_SIZE = 1 << 20
+
+  HealthMetrics healthMetrics = Mock(HealthMetrics)
+
+  def policy() {
+    return new AdaptiveFlushPolicy(MIN_INTERVAL, MAX_INTERVAL, TimeUnit.NANOSECONDS, MIN_SIZE, MAX_SIZE, healthMetrics)
+  }
+
+  def "slow sends grow the flush interval up to its bound"() {
+    setup:
+    def policy = policy()
+    def initial = policy.flushIntervalNanos()
+
+    when:
+    policy.onPayloadSent(100, TimeUnit.SECONDS.toNanos(5))
+
+    then:
+    policy.flushIntervalNanos() > initial
+    1 * healthMetrics.onFlushPolicyUpdate(_, MAX_SIZE)
+
+    when:
+    100.times { policy.onPayloadSent(100, TimeUnit.SECONDS.toNanos(5)) }
+
+    then:
+    policy.flushIntervalNanos() == MAX_INTERVAL
+    policy.targetPayloadSize() == MAX_SIZE
+  }
+
+  def "fast sends of small payloads shrink the interval and the payload size down to their bounds"() {
+    setup:
+    def policy = policy()
+    def initial = policy.flushIntervalNanos()
+
+    when:
+    policy.onPayloadSent(100, 1000)
+
+    then:
+    policy.flushIntervalNanos() < initial
+    policy.targetPayloadSize() == MAX_SIZE >> 1
+    1 * healthMetrics.onFlushPolicyUpdate(_, MAX_SIZE >> 1)
+
+    when:
+    100.times { policy.onPayloadSent(100, 1000) }
+
+    then:
+    policy.flushIntervalNanos() == MIN_INTERVAL
+    policy.targetPayloadSize() == MIN_SIZE
+  }
+
+  def "a backed up queue grows the payload size"() {
+    setup:
+    def policy = policy()
+    100.times { policy.onPayloadSent(100, 1000) }
+
+    when:
+    100.times { policy.onQueueDepth(90, 100) }
+    policy.onPayloadSent(100, 1000)
+
+    then:
+    policy.flushIntervalNanos() > MIN_INTERVAL
+    policy.targetPayloadSize() == MIN_SIZE << 1
+  }
+
+  def "payloads reaching the target grow it"() {
+    setup:
+    def policy = policy()
+    100.times { policy.onPayloadSent(100, 1000) }
+
+    when:
+    20.times { policy.onPayloadSent(MIN_SIZE, 1000) }
+
+    then:
+    policy.targetPayloadSize() > MIN_SIZE
+  }
+
+  def "invalid bounds are rejected"() {
+    when:
+    new AdaptiveFlushPolicy(minInterval, maxInterval, TimeUnit.NANOSECONDS, minSize, maxSize, healthMetrics)
+
+    then:
+    thrown(IllegalArgumentException)
+
+    where:
+    minInterval | maxInterval | minSize | maxSize
+    0           | 10          | 1       | 10
+    10          | 5           | 1       | 10
+    1           | 10          | 0       | 10
+    1           | 10          | 10      | 5
+  }
+
+  def "the fixed policy never flushes on size"() {
+    expect:
+    new FixedFlushPolicy(interval, TimeUnit.MILLISECONDS).flushIntervalNanos() == expected
+    new FixedFlushPolicy(interval, TimeUnit.MILLISECONDS).targetPayloadSize() == Integer.MAX_VALUE
+
+    where:
+    interval | expected
+    0        | Long.MAX_VALUE
+    -1       | Long.MAX_VALUE
+    5        | TimeUnit.MILLISECONDS.toNanos(5)
+  }
+}
@@ -0,0 +1,85 @@
+package datadog.trace.common.writer
+
+import datadog.trace.core.monitor.HealthMetrics
+import datadog.trace.test.util.DDSpecification
+import spock.lang.Timeout
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@Timeout(10)
+class AsyncPayloadSenderTest extends DDSpecification {
+
+  def "in-flight payloads are bounded and activate the dropping policy"() {
+    setup:
+    def sender = new AsyncPayloadSender(2, HealthMetrics.NO_OP)
+    def release = new CountDownLatch(1)
+    def sent = new CountDownLatch(2)
+    def send = {
+      release.await()
+      sent.countDown()
+    }
+
+    when: "as many payloads as allowed are in flight"
+    def handedOver = [sender.trySend(send), sender.trySend(send)]
+
+    then:
+    handedOver == [true, true]
+    sender.inFlight() == 2
+    sender.active()
+
+    when: "another payload is handed over"
+    def rejected = !sender.trySend(send)
+
+    then: "it is rejected rather than waiting for a send to complete"
+    rejected
+    sender.inFlight() == 2
+
+    when:
+    release.countDown()
+
+    then:
+    sent.await(5, TimeUnit.SECONDS)
+
+    when:
+    sender.awaitInFlight()
+
+    then:
+    sender.inFlight() == 0
+    !sender.active()
+    sender.trySend({})
+
+    cleanup:
+    sender.close()
+  }
+
+  def "failed sends release their slot"() {
+    setup:
+    def sender = new AsyncPayloadSender(1, HealthMetrics.NO_OP)
+
+    when:
+    sender.trySend({ throw new IllegalStateException("boom") })
+    sender.awaitInFlight()
+
+    then:
+    sender.inFlight() == 0
+
+    cleanup:
+    sender.close()
+  }
+
+  def "sends after close run on the caller's thread"() {
+    setup:
+    def sender = new AsyncPayloadSender(1, HealthMetrics.NO_OP)
+    sender.close()
+    String sendingThread = null
+
+    when:
+    def handedOver = sender.trySend({ sendingThread = Thread.currentThread().getName() })
+
+    then:
+    handedOver
+    sendingThread == Thread.currentThread().getName()
+    sender.inFlight() == 0
+  }
+}
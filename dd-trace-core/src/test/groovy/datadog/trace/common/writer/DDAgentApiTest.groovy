@@ -12,15 +12,18 @@ import datadog.trace.api.StatsDClient
 import datadog.trace.bootstrap.instrumentation.api.InstrumentationTags
 import datadog.trace.common.sampling.RateByServiceTraceSampler
 import datadog.trace.common.writer.ddagent.DDAgentApi
+import datadog.trace.common.writer.ddagent.DirectAgentTransport
 import datadog.trace.common.writer.ddagent.TraceMapperV0_4
 import datadog.trace.common.writer.ddagent.TraceMapperV0_5
 import datadog.trace.core.DDSpan
 import datadog.trace.core.DDSpanContext
+import datadog.trace.core.monitor.HealthMetrics
 import datadog.trace.core.monitor.MonitoringImpl
 import datadog.trace.core.propagation.PropagationTags
 import datadog.trace.core.test.DDCoreSpecification
 import okhttp3.HttpUrl
 import okhttp3.OkHttpClient
+import org.apache.commons.io.IOUtils
 import org.msgpack.jackson.dataformat.MessagePackFactory
 import spock.lang.Shared
 import spock.lang.Timeout
@@ -28,8 +31,10 @@ import spock.lang.Timeout
 import java.nio.ByteBuffer
 import java.util.concurrent.RejectedExecutionException
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.concurrent.atomic.AtomicLong
 import java.util.concurrent.atomic.AtomicReference
+import java.util.zip.GZIPInputStream
 
 import static datadog.trace.agent.test.server.http.TestHttpServer.httpServer
 
@@ -222,6 +227,199 @@ class DDAgentApiTest extends DDCoreSpecification {
     agentVersion << ["v0.3/traces", "v0.4/traces", "v0.5/traces"]
   }
 
+  def "direct transport sends payload buffers straight to the agent"() {
+    setup:
+    def agentResponse = new AtomicReference<Map>(null)
+    RemoteResponseListener responseListener = { String endpoint, Map responseJson ->
+      agentResponse.set(responseJson)
+    }
+    def agent = httpServer {
+      handlers {
+        put(agentVersion) {
+          def status = request.contentLength > 0 ? 200 : 500
+          response.status(status).send('{"hello":{}}')
+        }
+      }
+    }
+    def (discovery, client) = createDirectAgentApi(agent.address.toString())
+    client.addResponseListener(responseListener)
+
+    when: "several payloads are sent over the same connection"
+    def responses = (1..3).collect {
+      client.sendSerializedTraces(prepareTraces(agentVersion, [[], []]))
+    }
+
+    then:
+    client.isDirectTransport()
+    responses.every { it.success() && it.status() == 200 }
+    agentResponse.get() == ["hello": [:]]
+    agent.lastRequest.contentType == "application/msgpack"
+    agent.lastRequest.headers.get("Datadog-Meta-Lang") == "java"
+    agent.lastRequest.headers.get("X-Datadog-Trace-Count") == "2"
+    convertList(agentVersion, agent.lastRequest.body) == [[], []]
+
+    cleanup:
+    agent.close()
+
+    where:
+    agentVersion << ["v0.4/traces", "v0.5/traces"]
+  }
+
+  def "direct transport reports failures"() {
+    setup:
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          response.status(404).send()
+        }
+      }
+    }
+    def (discovery, client) = createDirectAgentApi(agent.address.toString())
+    def payload = prepareTraces("v0.4/traces", [])
+
+    expect:
+    def response = client.sendSerializedTraces(payload)
+    !response.success()
+    response.status() == 404
+
+    cleanup:
+    agent.close()
+  }
+
+  def "direct transport decodes multi-byte characters spanning reads"() {
+    setup:
+    // long enough for the body to span several 4K reads, with characters straddling them
+    def body = '{"rate_by_service":{"service:' + ('\u00e9' * 5000) + ',env:":0.5}}'
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          response.status(200).send(body.getBytes("UTF-8"))
+        }
+      }
+    }
+    def (discovery, client) = createDirectAgentApi(agent.address.toString())
+
+    when:
+    def response = client.sendSerializedTraces(prepareTraces("v0.4/traces", []))
+
+    then:
+    response.success()
+    response.response() == body
+
+    cleanup:
+    agent.close()
+  }
+
+  def "payloads are compressed when the agent supports it"() {
+    setup:
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          response.status(request.getHeader("Content-Encoding") == "gzip" ? 200 : 400).send()
+        }
+      }
+    }
+    def discovery = Stub(DDAgentFeaturesDiscovery) {
+      getTraceEndpoint() >> "v0.4/traces"
+      supportsTraceCompression() >> true
+    }
+    def healthMetrics = Mock(HealthMetrics)
+    def agentUrl = HttpUrl.get(agent.address.toString())
+    def client = new DDAgentApi(OkHttpUtils.buildHttpClient(agentUrl, 1000), agentUrl, discovery, monitoring, false, null, 1)
+    client.setHealthMetrics(healthMetrics)
+    def payload = prepareTraces("v0.4/traces", [[], []])
+    def uncompressedSize = payload.sizeInBytes()
+
+    when:
+    def response = client.sendSerializedTraces(payload)
+
+    then:
+    response.success()
+    agent.lastRequest.contentType == "application/msgpack"
+    convertList("v0.4/traces", decompress(agent.lastRequest.body)) == [[], []]
+    1 * healthMetrics.onCompress(uncompressedSize, { it > 0 })
+
+    cleanup:
+    agent.close()
+  }
+
+  def "payloads are not compressed when the agent doesn't support it"() {
+    setup:
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          response.status(request.getHeader("Content-Encoding") == "gzip" ? 400 : 200).send()
+        }
+      }
+    }
+    def discovery = Stub(DDAgentFeaturesDiscovery) {
+      getTraceEndpoint() >> "v0.4/traces"
+      supportsTraceCompression() >> false
+    }
+    def agentUrl = HttpUrl.get(agent.address.toString())
+    def client = new DDAgentApi(OkHttpUtils.buildHttpClient(agentUrl, 1000), agentUrl, discovery, monitoring, false, null, 6)
+
+    when:
+    def response = client.sendSerializedTraces(prepareTraces("v0.4/traces", [[], []]))
+
+    then:
+    response.success()
+    agent.lastRequest.headers.get("Content-Encoding") == null
+    convertList("v0.4/traces", agent.lastRequest.body) == [[], []]
+
+    cleanup:
+    agent.close()
+  }
+
+  def "compression falls back when the agent rejects compressed payloads with #status"() {
+    setup:
+    def compressedRequests = new AtomicInteger()
+    def requests = new AtomicInteger()
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          requests.incrementAndGet()
+          if (request.getHeader("Content-Encoding") == "gzip") {
+            compressedRequests.incrementAndGet()
+            response.status(status).send()
+          } else {
+            response.status(200).send()
+          }
+        }
+      }
+    }
+    def discovery = Stub(DDAgentFeaturesDiscovery) {
+      getTraceEndpoint() >> "v0.4/traces"
+      supportsTraceCompression() >> true
+    }
+    def agentUrl = HttpUrl.get(agent.address.toString())
+    def client = new DDAgentApi(OkHttpUtils.buildHttpClient(agentUrl, 1000), agentUrl, discovery, monitoring, false, null, 6)
+
+    when: "the rejected payload is resent uncompressed"
+    def response = client.sendSerializedTraces(prepareTraces("v0.4/traces", [[], []]))
+
+    then:
+    response.success()
+    requests.get() == 2
+    compressedRequests.get() == 1
+    agent.lastRequest.headers.get("Content-Encoding") == null
+    convertList("v0.4/traces", agent.lastRequest.body) == [[], []]
+
+    when: "later payloads are sent uncompressed"
+    response = client.sendSerializedTraces(prepareTraces("v0.4/traces", []))
+
+    then:
+    response.success()
+    requests.get() == 3
+    compressedRequests.get() == 1
+
+    cleanup:
+    agent.close()
+
+    where:
+    status << [400, 413, 415]
+  }
+
   def "Api Downgrades to v3 if v0.4 not available"() {
     setup:
     def v3Agent = httpServer {
@@ -416,6 +614,14 @@ class DDAgentApiTest extends DDCoreSpecification {
     return maps
   }
 
+  static byte[] decompress(byte[] bytes) {
+    def baos = new ByteArrayOutputStream()
+    try (GZIPInputStream zip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      IOUtils.copy(zip, baos)
+    }
+    return baos.toByteArray()
+  }
+
   Payload prepareTraces(String agentVersion, List<List<DDSpan>> traces) {
     Traces traceCapture = new Traces()
     def packer = new MsgPackWriter(new FlushingBuffer(1 << 20, traceCapture))
@@ -448,4 +654,12 @@ class DDAgentApiTest extends DDCoreSpecification {
     DDAgentFeaturesDiscovery discovery = new DDAgentFeaturesDiscovery(client, monitoring, agentUrl, true, true)
     return [discovery, new DDAgentApi(client, agentUrl, discovery, monitoring, false)]
   }
+
+  def createDirectAgentApi(String url) {
+    HttpUrl agentUrl = HttpUrl.get(url)
+    OkHttpClient client = OkHttpUtils.buildHttpClient(agentUrl, 1000)
+    DDAgentFeaturesDiscovery discovery = new DDAgentFeaturesDiscovery(client, monitoring, agentUrl, true, true)
+    def transport = new DirectAgentTransport(agentUrl, null, 1000)
+    return [discovery, new DDAgentApi(client, agentUrl, discovery, monitoring, false, transport)]
+  }
 }
@@ -16,10 +16,14 @@ import datadog.trace.core.monitor.HealthMetrics
 import datadog.trace.core.monitor.MonitoringImpl
 import datadog.trace.core.propagation.PropagationTags
 import datadog.trace.test.util.DDSpecification
+import okio.Buffer
 import spock.lang.Shared
 import spock.lang.Timeout
 
 import java.nio.ByteBuffer
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CountDownLatch
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
 
@@ -54,6 +58,85 @@ class PayloadDispatcherImplTest extends DDSpecification {
     traceEndpoint << ["v0.5/traces", "v0.4/traces"]
   }
 
+  @Timeout(10)
+  def "should send payloads on the sender thread and wait for them on flush"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Stub(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> traceEndpoint
+    DDAgentApi api = Mock(DDAgentApi)
+    AsyncPayloadSender sender = new AsyncPayloadSender(2, healthMetrics)
+    PayloadDispatcherImpl dispatcher = PayloadDispatcherImpl.builder()
+      .mapperDiscovery(new DDAgentMapperDiscovery(discovery))
+      .api(api)
+      .healthMetrics(healthMetrics)
+      .monitoring(monitoring)
+      .sender(sender)
+      .build()
+    List<DDSpan> trace = [realSpan()]
+    String sendingThread = null
+    when:
+    for (int i = 0; i < 10; ++i) {
+      dispatcher.addTrace(trace)
+    }
+    dispatcher.flush()
+    then:
+    1 * api.sendSerializedTraces({ it.traceCount() == 10 }) >> {
+      sendingThread = Thread.currentThread().getName()
+      return RemoteApi.Response.success(200)
+    }
+    1 * healthMetrics.onSend(10, _, _)
+    1 * healthMetrics.onSendLatency({ it > 0 })
+    sendingThread == "dd-trace-sender"
+    sender.inFlight() == 0
+    cleanup:
+    sender.close()
+
+    where:
+    traceEndpoint << ["v0.5/traces", "v0.4/traces"]
+  }
+
+  @Timeout(10)
+  def "payloads are spilled rather than waiting when too many are in flight"() {
+    setup:
+    Path spillDirectory = Files.createTempDirectory("spill-test")
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Stub(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> "v0.4/traces"
+    DDAgentApi api = Mock(DDAgentApi)
+    AsyncPayloadSender sender = new AsyncPayloadSender(1, HealthMetrics.NO_OP)
+    FlushPolicy flushPolicy = Stub(FlushPolicy) {
+      targetPayloadSize() >> 0
+    }
+    PayloadSpillQueue spillQueue = new PayloadSpillQueue(spillDirectory, 1 << 20, 60_000, TimeUnit.MILLISECONDS, 1000, healthMetrics)
+    PayloadDispatcherImpl dispatcher = PayloadDispatcherImpl.builder()
+      .mapperDiscovery(new DDAgentMapperDiscovery(discovery))
+      .api(api)
+      .healthMetrics(healthMetrics)
+      .monitoring(monitoring)
+      .sender(sender)
+      .flushPolicy(flushPolicy)
+      .spillQueue(spillQueue)
+      .build()
+    def release = new CountDownLatch(1)
+    sender.trySend({ release.await() })
+
+    when: "a payload is handed over while the sender is busy"
+    dispatcher.addTrace([realSpan()])
+
+    then: "it is spilled without waiting for the send in flight"
+    1 * healthMetrics.onRejectedSend(1)
+    1 * healthMetrics.onSpill(1, { it > 0 })
+    0 * api.sendSerializedTraces(_)
+    spillQueue.pendingTraces() == 1
+
+    cleanup:
+    release.countDown()
+    sender.close()
+    spillQueue.close()
+    spillDirectory.toFile().deleteDir()
+  }
+
   def "should flush buffer on demand"() {
     setup:
     HealthMetrics healthMetrics = Mock(HealthMetrics)
@@ -146,6 +229,85 @@ class PayloadDispatcherImplTest extends DDSpecification {
     newPayload.droppedTraces() == 0
   }
 
+  def "dropped counts shared by shards go out with the first payload of any shard"() {
+    setup:
+    HealthMetrics healthMetrics = Stub(HealthMetrics)
+    DDAgentApi api = Stub(DDAgentApi)
+    DDAgentFeaturesDiscovery discovery = Mock(DDAgentFeaturesDiscovery) {
+      it.getTraceEndpoint() >> "v0.4/traces"
+    }
+    def droppedCounts = new PayloadDispatcherImpl.DroppedCounts()
+    def shards = (1..2).collect {
+      PayloadDispatcherImpl.builder()
+        .mapperDiscovery(new DDAgentMapperDiscovery(discovery))
+        .api(api)
+        .healthMetrics(healthMetrics)
+        .monitoring(monitoring)
+        .droppedCounts(droppedCounts)
+        .build()
+    }
+    def dispatcher = new ShardedPayloadDispatcher(shards as PayloadDispatcher[])
+
+    when:
+    shards.each { it.addTrace([]) }
+    dispatcher.onDroppedTrace(20)
+    dispatcher.onDroppedTrace(2)
+    Payload payload = shards[1].newPayload(1, ByteBuffer.allocate(0))
+    Payload otherPayload = shards[0].newPayload(1, ByteBuffer.allocate(0))
+
+    then:
+    payload.droppedSpans() == 22
+    payload.droppedTraces() == 2
+    otherPayload.droppedSpans() == 0
+    otherPayload.droppedTraces() == 0
+    dispatcher.getApis() as List == [api]
+  }
+
+
+  @Timeout(10)
+  def "payloads spilled after a failed send are replayed intact"() {
+    setup:
+    Path spillDirectory = Files.createTempDirectory("spill-test")
+    HealthMetrics healthMetrics = Stub(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Stub(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> traceEndpoint
+    DDAgentApi api = Stub(DDAgentApi)
+    List<byte[]> sent = []
+    api.sendSerializedTraces(_) >> { Payload payload ->
+      // drain the payload as the transport would
+      Buffer buffer = new Buffer()
+      payload.toRequest().writeTo(buffer)
+      sent << buffer.readByteArray()
+      return sent.size() == 1 ? RemoteApi.Response.failed(new IOException("agent unreachable")) : RemoteApi.Response.success(200)
+    }
+    PayloadSpillQueue spillQueue = new PayloadSpillQueue(spillDirectory, 1 << 20, 60_000, TimeUnit.MILLISECONDS, 1000, healthMetrics)
+    PayloadDispatcherImpl dispatcher = PayloadDispatcherImpl.builder()
+      .mapperDiscovery(new DDAgentMapperDiscovery(discovery))
+      .api(api)
+      .healthMetrics(healthMetrics)
+      .monitoring(monitoring)
+      .spillQueue(spillQueue)
+      .build()
+
+    when:
+    dispatcher.addTrace([realSpan()])
+    while (sent.size() < 2) {
+      dispatcher.flush()
+    }
+
+    then:
+    sent.size() == 2
+    sent[0].length > 1
+    sent[1] == sent[0]
+
+    cleanup:
+    spillQueue.close()
+    spillDirectory.toFile().deleteDir()
+
+    where:
+    traceEndpoint << ["v0.5/traces", "v0.4/traces"]
+  }
+
 
   def realSpan() {
     CoreTracer tracer = Stub(CoreTracer)
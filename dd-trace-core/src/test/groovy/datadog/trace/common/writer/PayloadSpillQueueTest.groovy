@@ -0,0 +1,214 @@
+package datadog.trace.common.writer
+
+import datadog.trace.core.monitor.HealthMetrics
+import datadog.trace.test.util.DDSpecification
+import okhttp3.RequestBody
+
+import java.nio.ByteBuffer
+import java.nio.channels.WritableByteChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.TimeUnit
+
+class PayloadSpillQueueTest extends DDSpecification {
+
+  Path parent = Files.createTempDirectory("spill-test")
+  HealthMetrics healthMetrics = Mock(HealthMetrics)
+
+  def cleanup() {
+    parent.toFile().deleteDir()
+  }
+
+  def queue(long maxBytes = 1 << 20, long maxAgeMillis = 60_000, int replayRate = 1000) {
+    return new PayloadSpillQueue(parent, maxBytes, maxAgeMillis, TimeUnit.MILLISECONDS, replayRate, healthMetrics)
+  }
+
+  def "spilled payloads are replayed in order"() {
+    setup:
+    def queue = queue()
+
+    when:
+    queue.offer(payload(1, 100), "v0.4")
+    queue.offer(payload(2, 200), "v0.4")
+
+    then:
+    queue.pendingTraces() == 3
+    1 * healthMetrics.onSpill(1, 100)
+    1 * healthMetrics.onSpill(2, 200)
+
+    when:
+    def first = queue.poll("v0.4")
+
+    then: "only one payload is replayed at a time"
+    first.traceCount() == 1
+    bytesOf(first) == bytesOf(payload(1, 100))
+    queue.poll("v0.4") == null
+
+    when:
+    queue.complete(first, true)
+    def second = pollEventually(queue, "v0.4")
+    queue.complete(second, true)
+
+    then:
+    second.traceCount() == 2
+    bytesOf(second) == bytesOf(payload(2, 200))
+    queue.pendingTraces() == 0
+    1 * healthMetrics.onSpillReplay(1)
+    1 * healthMetrics.onSpillReplay(2)
+
+    cleanup:
+    queue.close()
+  }
+
+  def "retried payloads stay at the head of the queue"() {
+    setup:
+    def queue = queue()
+    queue.offer(payload(1, 100), "v0.4")
+    queue.offer(payload(2, 200), "v0.4")
+
+    when:
+    queue.retry(queue.poll("v0.4"))
+
+    then:
+    pollEventually(queue, "v0.4").traceCount() == 1
+
+    cleanup:
+    queue.close()
+  }
+
+  def "replays are rate limited"() {
+    setup:
+    def queue = queue(1 << 20, 60_000, 1)
+    queue.offer(payload(1, 100), "v0.4")
+    queue.offer(payload(2, 100), "v0.4")
+
+    when:
+    queue.complete(queue.poll("v0.4"), true)
+
+    then:
+    queue.poll("v0.4") == null
+    queue.pendingTraces() == 2
+
+    cleanup:
+    queue.close()
+  }
+
+  def "payloads for another endpoint or too old are dropped"() {
+    setup:
+    def queue = queue(1 << 20, 100)
+    queue.offer(payload(1, 100), "v0.4")
+
+    when:
+    def replayed = queue.poll("v0.5")
+
+    then:
+    replayed == null
+    queue.pendingTraces() == 0
+    1 * healthMetrics.onSpillDrop(1)
+
+    when:
+    queue.offer(payload(2, 100), "v0.5")
+    Thread.sleep(200)
+    replayed = queue.poll("v0.5")
+
+    then:
+    replayed == null
+    queue.pendingTraces() == 0
+    1 * healthMetrics.onSpillDrop(2)
+
+    cleanup:
+    queue.close()
+  }
+
+  def "the oldest segments are dropped when the queue is full"() {
+    setup:
+    // a single segment, holding two of these payloads
+    def queue = queue(2048, 60_000)
+
+    when:
+    queue.offer(payload(1, 900), "v0.4")
+    queue.offer(payload(2, 900), "v0.4")
+    queue.offer(payload(3, 900), "v0.4")
+
+    then:
+    queue.pendingTraces() == 3
+    1 * healthMetrics.onSpillDrop(3)
+    pollEventually(queue, "v0.4").traceCount() == 3
+
+    when: "a payload larger than a segment"
+    def spilled = queue.offer(payload(4, 4096), "v0.4")
+
+    then:
+    !spilled
+    1 * healthMetrics.onSpillDrop(4)
+
+    cleanup:
+    queue.close()
+  }
+
+  def "closing the queue deletes its directory"() {
+    setup:
+    def queue = queue()
+    queue.offer(payload(1, 100), "v0.4")
+
+    when:
+    queue.close()
+
+    then:
+    !Files.exists(queue.directory())
+    !queue.offer(payload(1, 100), "v0.4")
+    // the pending payload, then the one offered once closed
+    2 * healthMetrics.onSpillDrop(1)
+  }
+
+  static PayloadSpillQueue.SpilledPayload pollEventually(PayloadSpillQueue queue, String endpoint) {
+    def deadline = System.currentTimeMillis() + 5000
+    def payload
+    while (null == (payload = queue.poll(endpoint)) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1)
+    }
+    return payload
+  }
+
+  static byte[] bytesOf(Payload payload) {
+    def buffers = payload.toBuffers()
+    def out = new ByteArrayOutputStream()
+    for (ByteBuffer buffer : buffers) {
+      def bytes = new byte[buffer.remaining()]
+      buffer.duplicate().get(bytes)
+      out.write(bytes)
+    }
+    return out.toByteArray()
+  }
+
+  static Payload payload(int traceCount, int size) {
+    def body = ByteBuffer.allocate(size)
+    for (int i = 0; i < size; ++i) {
+      body.put((byte) (i * traceCount))
+    }
+    body.flip()
+    return new BytesPayload().withBody(traceCount, body)
+  }
+
+  static class BytesPayload extends Payload {
+    @Override
+    int sizeInBytes() {
+      return body.remaining()
+    }
+
+    @Override
+    void writeTo(WritableByteChannel channel) {
+      channel.write(body.duplicate())
+    }
+
+    @Override
+    RequestBody toRequest() {
+      return null
+    }
+
+    @Override
+    ByteBuffer[] toBuffers() {
+      return [body.duplicate()] as ByteBuffer[]
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package datadog.trace.common.writer
 
+import datadog.trace.api.DDTraceId
 import datadog.trace.common.sampling.SingleSpanSampler
 import datadog.trace.common.writer.ddagent.PrioritizationStrategy.PublishResult
 import datadog.trace.core.CoreSpan
@@ -9,6 +10,7 @@ import datadog.trace.core.PendingTrace
 import datadog.trace.core.monitor.HealthMetrics
 import datadog.trace.core.postprocessor.SpanPostProcessor
 import datadog.trace.test.util.DDSpecification
+import org.jctools.queues.MpscBlockingConsumerArrayQueue
 import spock.util.concurrent.PollingConditions
 
 import java.util.concurrent.TimeUnit
@@ -434,4 +436,90 @@ class TraceProcessingWorkerTest extends DDSpecification {
     SAMPLER_KEEP | 10         | 10             | 50            | 0                  | [Mock(DDSpan), Mock(DDSpan), Mock(DDSpan), Mock(DDSpan), Mock(DDSpan)]
   }
 
+  def "sharded worker routes traces by trace id and flushes every shard"() {
+    setup:
+    int shardCount = 4
+    AtomicInteger[] accepted = new AtomicInteger[shardCount]
+    AtomicInteger[] flushed = new AtomicInteger[shardCount]
+    PayloadDispatcherImpl[] shards = new PayloadDispatcherImpl[shardCount]
+    for (int i = 0; i < shardCount; ++i) {
+      int shard = i
+      AtomicInteger acceptedCount = accepted[i] = new AtomicInteger()
+      AtomicInteger flushCount = flushed[i] = new AtomicInteger()
+      PayloadDispatcherImpl dispatcher = Mock(PayloadDispatcherImpl)
+      dispatcher.addTrace(_) >> {
+        List trace = it[0]
+        if (TraceProcessingWorker.shardIndex(trace, shardCount) == shard) {
+          acceptedCount.incrementAndGet()
+        }
+      }
+      dispatcher.flush() >> {
+        flushCount.incrementAndGet()
+      }
+      shards[i] = dispatcher
+    }
+    TraceProcessingWorker worker = new TraceProcessingWorker(64, Stub(HealthMetrics),
+      new ShardedPayloadDispatcher(shards), {
+        false
+      }, FAST_LANE, 100, TimeUnit.SECONDS, null, null)
+    worker.start()
+
+    when: "traces with different trace ids are submitted"
+    for (int i = 0; i < 40; ++i) {
+      DDSpan span = Stub(DDSpan) {
+        getTraceId() >> DDTraceId.from(i)
+      }
+      worker.publish(span, SAMPLER_KEEP, [span])
+    }
+    boolean flushedAll = worker.flush(10, TimeUnit.SECONDS)
+
+    then: "every trace reached the shard owning its trace id and all shards were flushed"
+    worker.getShardCount() == shardCount
+    flushedAll
+    accepted*.get().sum() == 40
+    accepted.every { it.get() > 0 }
+    flushed.every { it.get() == 1 }
+
+    cleanup:
+    worker.close()
+  }
+
+  def "sharded queue polls and peeks across its shards"() {
+    setup:
+    MpscBlockingConsumerArrayQueue<Object>[] shards = (1..4).collect {
+      new MpscBlockingConsumerArrayQueue<Object>(8)
+    } as MpscBlockingConsumerArrayQueue<Object>[]
+    def queue = new TraceProcessingWorker.ShardedQueue(shards)
+    def traces = (0..<8).collect { i ->
+      DDSpan span = Stub(DDSpan) {
+        getTraceId() >> DDTraceId.from(i)
+      }
+      [span]
+    }
+
+    expect:
+    queue.isEmpty()
+    queue.peek() == null
+    queue.poll() == null
+
+    when:
+    traces.each { queue.offer(it) }
+
+    then:
+    queue.size() == 8
+    shards.every { it.size() == 2 }
+    queue.peek() != null
+
+    when:
+    def polled = []
+    def event
+    while ((event = queue.poll()) != null) {
+      polled << event
+    }
+
+    then:
+    polled.size() == 8
+    polled.containsAll(traces)
+    queue.isEmpty()
+  }
 }
@@ -0,0 +1,190 @@
+package datadog.trace.common.writer.ddagent
+
+import datadog.trace.test.util.DDSpecification
+import okhttp3.Headers
+import okhttp3.HttpUrl
+import spock.lang.Timeout
+
+import java.nio.ByteBuffer
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.atomic.AtomicInteger
+
+@Timeout(20)
+class DirectAgentTransportTest extends DDSpecification {
+
+  def "a request is sent again on a connection closed by the agent"() {
+    setup:
+    def agent = new ScriptedAgent(["respond and close"])
+    def transport = new DirectAgentTransport(agent.url, null, 1000)
+    def headers = new Headers.Builder().build()
+
+    when:
+    def first = transport.put(agent.url.resolve("v0.4/traces"), headers, [ByteBuffer.wrap([1, 2] as byte[])] as ByteBuffer[])
+    def second = transport.put(agent.url.resolve("v0.4/traces"), headers, [ByteBuffer.wrap([3, 4] as byte[])] as ByteBuffer[])
+
+    then:
+    first.code == 200
+    second.code == 200
+    agent.connections.get() == 2
+    agent.requests.get() == 2
+
+    cleanup:
+    transport.close()
+    agent.close()
+  }
+
+  def "a request the agent may have received is not sent again"() {
+    setup:
+    def agent = new ScriptedAgent(["respond", "hang"])
+    def transport = new DirectAgentTransport(agent.url, null, 500)
+    def headers = new Headers.Builder().build()
+
+    when:
+    def first = transport.put(agent.url.resolve("v0.4/traces"), headers, [ByteBuffer.wrap([1, 2] as byte[])] as ByteBuffer[])
+    transport.put(agent.url.resolve("v0.4/traces"), headers, [ByteBuffer.wrap([3, 4] as byte[])] as ByteBuffer[])
+
+    then:
+    first.code == 200
+    thrown(SocketTimeoutException)
+    agent.connections.get() == 1
+    agent.requests.get() == 2
+
+    cleanup:
+    transport.close()
+    agent.close()
+  }
+
+  def "concurrent requests are sent on connections of their own"() {
+    setup:
+    def agent = new ScriptedAgent(["hang"])
+    def transport = new DirectAgentTransport(agent.url, null, 2000)
+    def headers = new Headers.Builder().build()
+
+    when: "a request is still waiting for its response"
+    def pending = new CompletableFuture()
+    Thread.start {
+      try {
+        pending.complete(transport.put(agent.url.resolve("v0.4/traces"), headers, [ByteBuffer.wrap([1, 2] as byte[])] as ByteBuffer[]))
+      } catch (Throwable t) {
+        pending.completeExceptionally(t)
+      }
+    }
+    while (agent.requests.get() == 0) {
+      Thread.sleep(10)
+    }
+    def other = transport.put(agent.url.resolve("v0.4/traces"), headers, [ByteBuffer.wrap([3, 4] as byte[])] as ByteBuffer[])
+
+    then:
+    other.code == 200
+    !pending.done
+    agent.connections.get() == 2
+
+    when:
+    pending.get()
+
+    then:
+    def e = thrown(ExecutionException)
+    e.cause instanceof SocketTimeoutException
+
+    cleanup:
+    transport.close()
+    agent.close()
+  }
+
+  def "a write blocked by the agent times out"() {
+    setup:
+    def server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())
+    def url = HttpUrl.get("http://127.0.0.1:${server.localPort}")
+    def transport = new DirectAgentTransport(url, null, 500)
+
+    when: "the agent never reads the request"
+    transport.put(url.resolve("v0.4/traces"), new Headers.Builder().build(), [ByteBuffer.allocate(64 << 20)] as ByteBuffer[])
+
+    then:
+    thrown(SocketTimeoutException)
+
+    cleanup:
+    transport.close()
+    server.close()
+  }
+
+  /**
+   * Minimal HTTP/1.1 agent: requests are answered in turn as scripted, either with a 200 response,
+   * with a 200 response after which the connection is closed, or not at all. Requests beyond the
+   * script get a 200 response.
+   */
+  static class ScriptedAgent implements Closeable {
+    final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())
+    final HttpUrl url = HttpUrl.get("http://127.0.0.1:${server.localPort}")
+    final List<String> script
+    final AtomicInteger connections = new AtomicInteger()
+    final AtomicInteger requests = new AtomicInteger()
+    final List<Socket> sockets = new CopyOnWriteArrayList<>()
+
+    ScriptedAgent(List<String> script) {
+      this.script = script
+      Thread.start {
+        serve()
+      }
+    }
+
+    void serve() {
+      while (!server.closed) {
+        Socket socket
+        try {
+          socket = server.accept()
+        } catch (IOException ignored) {
+          return
+        }
+        sockets << socket
+        connections.incrementAndGet()
+        Thread.start {
+          answer(socket)
+        }
+      }
+    }
+
+    void answer(Socket socket) {
+      def input = new DataInputStream(new BufferedInputStream(socket.inputStream))
+      try {
+        while (readRequest(input)) {
+          int request = requests.getAndIncrement()
+          String action = request < script.size() ? script[request] : "respond"
+          if (action == "hang") {
+            return
+          }
+          socket.outputStream.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nOK".getBytes("US-ASCII"))
+          socket.outputStream.flush()
+          if (action == "respond and close") {
+            socket.close()
+            return
+          }
+        }
+      } catch (IOException ignored) {
+      }
+    }
+
+    static boolean readRequest(DataInputStream input) {
+      int contentLength = 0
+      String line = input.readLine()
+      if (null == line) {
+        return false
+      }
+      while (!(line = input.readLine()).isEmpty()) {
+        if (line.toLowerCase().startsWith("content-length:")) {
+          contentLength = line.substring(15).trim() as int
+        }
+      }
+      input.readFully(new byte[contentLength])
+      return true
+    }
+
+    @Override
+    void close() {
+      server.close()
+      sockets*.close()
+    }
+  }
+}
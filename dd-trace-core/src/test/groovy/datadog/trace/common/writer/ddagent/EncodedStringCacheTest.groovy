@@ -0,0 +1,108 @@
+package datadog.trace.common.writer.ddagent
+
+import datadog.communication.serialization.Mapper
+import datadog.communication.serialization.Writable
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
+import datadog.trace.test.util.DDSpecification
+import org.msgpack.core.MessagePack
+
+class EncodedStringCacheTest extends DDSpecification {
+
+  static final Mapper<Object> STRING_MAPPER = new Mapper<Object>() {
+    @Override
+    void map(Object data, Writable packer) {
+      packer.writeString(String.valueOf(data), null)
+    }
+  }
+
+  def "strings are encoded once they recur across payloads"() {
+    setup:
+    def cache = new EncodedStringCache(16)
+
+    when: "first payload"
+    def first = cache.encoded(value, STRING_MAPPER)
+    cache.onPayload()
+
+    then:
+    first == null
+
+    when: "second payload"
+    def second = cache.encoded(value, STRING_MAPPER)
+
+    then:
+    MessagePack.newDefaultUnpacker(second).unpackString() == value.toString()
+
+    where:
+    value << ["service", UTF8BytesString.create("operation"), "ünïcödé"]
+  }
+
+  def "mutable and oversized strings are not cached"() {
+    setup:
+    def cache = new EncodedStringCache(16)
+
+    when:
+    cache.encoded(value, STRING_MAPPER)
+    cache.onPayload()
+
+    then:
+    cache.encoded(value, STRING_MAPPER) == null
+
+    where:
+    value << [new StringBuilder("builder"), "x" * 1024, 200]
+  }
+
+  def "oversized strings don't take the room of strings worth caching"() {
+    setup:
+    def cache = new EncodedStringCache(1)
+
+    when:
+    2.times {
+      cache.encoded(value, STRING_MAPPER)
+      cache.onPayload()
+    }
+
+    then:
+    cache.size() == 0
+
+    when:
+    cache.encoded("service", STRING_MAPPER)
+    cache.onPayload()
+
+    then:
+    cache.encoded("service", STRING_MAPPER) != null
+
+    where:
+    // the second one has few enough chars, but too many bytes once encoded
+    value << ["x" * 1024, "\u00fc" * 300]
+  }
+
+  def "strings which stop recurring are dropped"() {
+    setup:
+    def cache = new EncodedStringCache(16)
+    cache.encoded("once", STRING_MAPPER)
+
+    when:
+    8.times {
+      cache.encoded("always", STRING_MAPPER)
+      cache.onPayload()
+    }
+
+    then:
+    cache.size() == 1
+    cache.encoded("always", STRING_MAPPER) != null
+  }
+
+  def "the number of strings tracked is bounded"() {
+    setup:
+    def cache = new EncodedStringCache(4)
+
+    when:
+    100.times {
+      cache.encoded("value-" + it, STRING_MAPPER)
+    }
+
+    then:
+    cache.size() == 4
+    cache.encoded("value-99", STRING_MAPPER) == null
+  }
+}
@@ -19,6 +19,7 @@ import spock.lang.Shared
 import java.util.concurrent.TimeUnit
 
 import static datadog.trace.api.TracePropagationStyle.DATADOG
+import static datadog.trace.api.config.TracerConfig.TRACE_SPAN_RECYCLING_ENABLED
 import static datadog.trace.api.sampling.PrioritySampling.UNSET
 import static datadog.trace.api.sampling.SamplingMechanism.SPAN_SAMPLING_RATE
 import static datadog.trace.core.DDSpanContext.SPAN_SAMPLING_MAX_PER_SECOND_TAG
@@ -461,4 +462,58 @@ class DDSpanTest extends DDCoreSpecification {
     then:
     span.isError()
   }
+
+  def "tags are read safely after recycling"() {
+    setup:
+    injectSysConfig(TRACE_SPAN_RECYCLING_ENABLED, "true")
+    def recyclingWriter = new ListWriter() {
+        @Override
+        boolean recyclesSpans() {
+          return true
+        }
+      }
+    def recyclingTracer = tracerBuilder().writer(recyclingWriter).build()
+    def root = recyclingTracer.buildSpan("root").start()
+    def child = recyclingTracer.buildSpan("child").asChildOf(root.context()).start()
+    root.setTag("root-tag", "root")
+    child.setTag("child-tag", "child")
+
+    when: "a span is recycled while its trace is still running"
+    child.finish()
+    child.recycleTags()
+
+    then:
+    child.getTag("child-tag") == "child"
+    root.getTag("root-tag") == "root"
+
+    when: "the spans are recycled once the trace is written"
+    root.finish()
+    recyclingWriter.waitForTraces(1)
+    root.recycleTags()
+    child.recycleTags()
+
+    then:
+    root.getTag("root-tag") == null
+    child.getTag("child-tag") == null
+
+    when: "another span reuses the recycled tag storage"
+    def other = recyclingTracer.buildSpan("other").start()
+    other.setTag("other-tag", "other")
+
+    then:
+    other.getTag("other-tag") == "other"
+    root.getTag("other-tag") == null
+    child.getTag("other-tag") == null
+    root.getTags().every { it.key != "other-tag" }
+
+    when: "a recycled span is written to again"
+    root.setTag("root-tag", "again")
+
+    then:
+    root.getTag("root-tag") == "again"
+    other.getTag("root-tag") == null
+
+    cleanup:
+    recyclingTracer?.close()
+  }
 }
@@ -0,0 +1,142 @@
+package datadog.trace.core
+
+import datadog.trace.api.DDTags
+import datadog.trace.api.sampling.PrioritySampling
+import datadog.trace.api.sampling.SamplingMechanism
+import datadog.trace.bootstrap.instrumentation.api.AgentTracer.DroppedAgentSpan
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.propagation.MapSetter
+import datadog.trace.core.test.DDCoreSpecification
+
+class EarlyDropSpanTest extends DDCoreSpecification {
+
+  def "children of dropped traces are dropped spans"() {
+    setup:
+    def writer = new ListWriter()
+    def props = new Properties()
+    props.setProperty("trace.sampling.early.drop.enabled", "true")
+    props.setProperty("trace.sample.rate", "0")
+    def tracer = tracerBuilder().withProperties(props).writer(writer).build()
+
+    when:
+    def root = tracer.startSpan("test", "root")
+    def rootScope = tracer.activateSpan(root)
+    def child = tracer.startSpan("test", "child")
+    def childScope = tracer.activateSpan(child)
+    def grandChild = tracer.startSpan("test", "grand child")
+    def carrier = [:]
+    tracer.propagate().inject(grandChild, carrier, MapSetter.INSTANCE)
+
+    then:
+    root instanceof DDSpan
+    root.samplingPriority == PrioritySampling.USER_DROP
+    child instanceof DroppedAgentSpan
+    grandChild instanceof DroppedAgentSpan
+    child.context().is(root.context())
+    grandChild.context().is(root.context())
+    child.localRootSpan.is(root)
+    child.traceId == root.traceId
+    tracer.activeSpan().is(child)
+    carrier["x-datadog-trace-id"] == root.traceId.toString()
+    carrier["x-datadog-parent-id"] == String.valueOf(root.spanId)
+    carrier["x-datadog-sampling-priority"] == String.valueOf(PrioritySampling.USER_DROP)
+
+    cleanup:
+    grandChild?.finish()
+    childScope?.close()
+    child?.finish()
+    rootScope?.close()
+    root?.finish()
+    tracer.close()
+  }
+
+  def "manual keep on a dropped child keeps the trace"() {
+    setup:
+    def writer = new ListWriter()
+    def props = new Properties()
+    props.setProperty("trace.sampling.early.drop.enabled", "true")
+    props.setProperty("trace.sample.rate", "0")
+    def tracer = tracerBuilder().withProperties(props).writer(writer).build()
+
+    when:
+    def root = tracer.startSpan("test", "root")
+    def rootScope = tracer.activateSpan(root)
+    def child = tracer.startSpan("test", "child")
+    child.setTag("some.tag", "value")
+    child.setTag(DDTags.MANUAL_KEEP, true)
+    def nextChild = tracer.startSpan("test", "next child")
+
+    then:
+    child instanceof DroppedAgentSpan
+    root.samplingPriority == PrioritySampling.USER_KEEP
+    child.samplingPriority == PrioritySampling.USER_KEEP
+    root.getTag("some.tag") == null
+    nextChild instanceof DDSpan
+
+    when:
+    nextChild.finish()
+    child.finish()
+    rootScope.close()
+    root.finish()
+    writer.waitForTraces(1)
+
+    then:
+    writer.firstTrace().collect { it.operationName.toString() }.sort() == ["next child", "root"]
+    writer.firstTrace().every { it.samplingPriority() == PrioritySampling.USER_KEEP }
+
+    cleanup:
+    tracer.close()
+  }
+
+  def "sampling priority set on a dropped child is set on the local root"() {
+    setup:
+    def writer = new ListWriter()
+    def props = new Properties()
+    props.setProperty("trace.sampling.early.drop.enabled", "true")
+    props.setProperty("trace.sample.rate", "0")
+    def tracer = tracerBuilder().withProperties(props).writer(writer).build()
+
+    when:
+    def root = tracer.startSpan("test", "root")
+    def rootScope = tracer.activateSpan(root)
+    def child = tracer.startSpan("test", "child")
+    child.setSamplingPriority(PrioritySampling.USER_KEEP, SamplingMechanism.MANUAL)
+
+    then:
+    child instanceof DroppedAgentSpan
+    root.samplingPriority == PrioritySampling.USER_KEEP
+
+    cleanup:
+    child?.finish()
+    rootScope?.close()
+    root?.finish()
+    tracer.close()
+  }
+
+  def "children are built when the trace is kept or early drop is disabled"() {
+    setup:
+    def writer = new ListWriter()
+    def props = new Properties()
+    props.setProperty("trace.sampling.early.drop.enabled", enabled)
+    props.setProperty("trace.sample.rate", rate)
+    def tracer = tracerBuilder().withProperties(props).writer(writer).build()
+
+    when:
+    def root = tracer.startSpan("test", "root")
+    def child = tracer.buildSpan("test", "child").asChildOf(root.context()).start()
+
+    then:
+    child instanceof DDSpan
+    child.context().parentId == root.spanId
+
+    cleanup:
+    child?.finish()
+    root?.finish()
+    tracer.close()
+
+    where:
+    enabled | rate
+    "true"  | "1"
+    "false" | "0"
+  }
+}
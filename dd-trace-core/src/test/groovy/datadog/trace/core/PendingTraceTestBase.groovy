@@ -264,4 +264,48 @@ abstract class PendingTraceTestBase extends DDCoreSpecification {
     10          | 1000
     50          | 500
   }
+
+  def "children finished concurrently are written with the root span"() {
+    setup:
+    def latch = new CountDownLatch(1)
+    def rootSpan = tracer.buildSpan("test", "root").start()
+    PendingTrace traceCollector = rootSpan.context().traceCollector
+    def exceptions = []
+    def threads = (1..threadCount).collect {
+      Thread.start {
+        try {
+          def spans = (1..spanCount).collect {
+            tracer.startSpan("test", "child", rootSpan.context())
+          }
+          latch.await()
+          spans.each {
+            it.finish()
+          }
+        } catch (Throwable ex) {
+          exceptions << ex
+        }
+      }
+    }
+
+    when:
+    latch.countDown()
+    threads.each {
+      it.join()
+    }
+    rootSpan.finish()
+    writer.waitForTraces(1)
+
+    then:
+    exceptions.isEmpty()
+    traceCollector.pendingReferenceCount == 0
+    traceCollector.size() == 0
+    writer.sum { it.size() } == threadCount * spanCount + 1
+    writer.flatten().toSet().size() == threadCount * spanCount + 1
+
+    where:
+    threadCount | spanCount
+    2           | 1
+    8           | 100
+    16          | 50
+  }
 }
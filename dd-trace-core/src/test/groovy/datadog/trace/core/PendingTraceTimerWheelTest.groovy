@@ -0,0 +1,131 @@
+package datadog.trace.core
+
+import datadog.trace.test.util.DDSpecification
+import org.jctools.queues.MessagePassingQueue
+
+import static datadog.trace.core.PendingTraceTimerWheel.TICK_SHIFT
+
+class PendingTraceTimerWheelTest extends DDSpecification {
+
+  static final long TICK = 1L << TICK_SHIFT
+
+  def due = []
+  def consumer = { due << it } as MessagePassingQueue.Consumer
+
+  def "traces are passed back once due"() {
+    setup:
+    def wheel = new PendingTraceTimerWheel(start)
+    def first = Stub(PendingTraceBuffer.Element)
+    def second = Stub(PendingTraceBuffer.Element)
+
+    when:
+    wheel.schedule(second, start + 30 * TICK)
+    wheel.schedule(first, start + 10 * TICK)
+    wheel.advance(start + 9 * TICK, consumer)
+
+    then:
+    due == []
+    wheel.size() == 2
+
+    when: "a tick later at most"
+    wheel.advance(start + 11 * TICK, consumer)
+
+    then:
+    due == [first]
+    wheel.size() == 1
+
+    when:
+    wheel.advance(start + 100 * TICK, consumer)
+
+    then:
+    due == [first, second]
+    wheel.isEmpty()
+
+    where:
+    start << [0L, 12345L * TICK + 7, -1000L * TICK]
+  }
+
+  def "traces due beyond the first level are cascaded"() {
+    setup:
+    def wheel = new PendingTraceTimerWheel(0)
+    def element = Stub(PendingTraceBuffer.Element)
+
+    when:
+    wheel.schedule(element, delay * TICK)
+    wheel.advance((delay - 1) * TICK, consumer)
+
+    then:
+    due == []
+
+    when:
+    wheel.advance(delay * TICK, consumer)
+
+    then:
+    due == [element]
+
+    where:
+    delay << [63, 64, 65, 200, 64 * 63, 64 * 64 + 5, 64 * 200]
+  }
+
+  def "traces already due are passed back on the next tick"() {
+    setup:
+    def wheel = new PendingTraceTimerWheel(10 * TICK)
+    def element = Stub(PendingTraceBuffer.Element)
+
+    when:
+    wheel.schedule(element, 0)
+    wheel.advance(10 * TICK, consumer)
+
+    then:
+    due == []
+    wheel.nanosUntilNextTick(10 * TICK) == TICK
+
+    when:
+    wheel.advance(11 * TICK, consumer)
+
+    then:
+    due == [element]
+  }
+
+  def "traces rescheduled when due are kept"() {
+    setup:
+    def wheel = new PendingTraceTimerWheel(0)
+    def element = Stub(PendingTraceBuffer.Element)
+    def reschedule = {
+      wheel.schedule(it, 20 * TICK)
+      due << it
+    } as MessagePassingQueue.Consumer
+
+    when:
+    wheel.schedule(element, 5 * TICK)
+    wheel.advance(5 * TICK, reschedule)
+
+    then:
+    due == [element]
+    wheel.size() == 1
+    wheel.largestBucket() == 1
+  }
+
+  def "drain passes back all the traces"() {
+    setup:
+    def wheel = new PendingTraceTimerWheel(0)
+    def elements = (1..10).collect { Stub(PendingTraceBuffer.Element) }
+
+    when:
+    elements.eachWithIndex { element, i ->
+      wheel.schedule(element, (i % 2 == 0 ? 1 : 100) * TICK)
+    }
+
+    then:
+    wheel.size() == 10
+    wheel.largestBucket() == 5
+
+    when:
+    wheel.drain(consumer)
+
+    then:
+    due.toSet() == elements.toSet()
+    wheel.isEmpty()
+    wheel.largestBucket() == 0
+  }
+}
@@ -0,0 +1,119 @@
+package datadog.trace.core
+
+import datadog.trace.api.sampling.PrioritySampling
+import datadog.trace.common.sampling.Sampler
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.test.DDCoreSpecification
+
+class StreamingTraceCollectorTest extends DDCoreSpecification {
+
+  def writer = new ListWriter()
+  def tracer
+
+  def setup() {
+    def props = new Properties()
+    props.setProperty("trace.streaming.enabled", "true")
+    props.setProperty("trace.streaming.chunk.size", "2")
+    tracer = tracerBuilder().withProperties(props).writer(writer).build()
+  }
+
+  def cleanup() {
+    tracer?.close()
+  }
+
+  def "finished spans are written in chunks"() {
+    setup:
+    def root = tracer.buildSpan("test", "root").start()
+    def children = (1..4).collect {
+      tracer.buildSpan("test", "child").asChildOf(root.context()).start()
+    }
+
+    expect:
+    root.context().traceCollector instanceof StreamingTraceCollector
+
+    when: "a chunk is full"
+    children[0].finish()
+    children[1].finish()
+    writer.waitForTraces(1)
+
+    then:
+    writer == [[children[0], children[1]]]
+    root.samplingPriority != PrioritySampling.UNSET
+
+    when: "the root span finishes"
+    children[2].finish()
+    root.finish()
+    writer.waitForTraces(2)
+
+    then:
+    writer[1] == [children[2], root]
+
+    when: "the last span finishes"
+    children[3].finish()
+    writer.waitForTraces(3)
+
+    then:
+    writer[2] == [children[3]]
+    writer.size() == 3
+  }
+
+  def "finished spans of a trace whose other spans never finish are written"() {
+    setup:
+    def root = tracer.buildSpan("test", "root").start()
+    def leaked = tracer.buildSpan("test", "leaked").asChildOf(root.context()).start()
+    def child = tracer.buildSpan("test", "child").asChildOf(root.context()).start()
+
+    when: "a span finishes while the others never do"
+    child.finish()
+
+    then: "it is written once the trace is no longer referenced"
+    writer.waitForTraces(1)
+    writer == [[child]]
+    !leaked.finished
+  }
+
+  def "finished spans waiting for their chunk to fill up are written on close"() {
+    setup:
+    def props = new Properties()
+    props.setProperty("trace.streaming.enabled", "true")
+    props.setProperty("trace.streaming.chunk.size", "2")
+    def closingWriter = new ListWriter()
+    def closingTracer = tracerBuilder().withProperties(props).writer(closingWriter).build()
+    def root = closingTracer.buildSpan("test", "root").start()
+    def child = closingTracer.buildSpan("test", "child").asChildOf(root.context()).start()
+
+    when:
+    child.finish()
+    closingTracer.close()
+
+    then:
+    closingWriter == [[child]]
+  }
+
+  def "every chunk follows the sampling decision of the first one"() {
+    setup:
+    def sampler = Stub(Sampler) {
+      sample(_) >> sampled
+    }
+    def props = new Properties()
+    props.setProperty("trace.streaming.enabled", "true")
+    def samplingTracer = tracerBuilder().withProperties(props).writer(writer).sampler(sampler).build()
+    def root = samplingTracer.buildSpan("test", "root").start()
+    def collector = root.context().traceCollector
+
+    expect:
+    collector.sample(root, firstForceKeep) == kept
+    collector.sample(root, !firstForceKeep) == kept
+    collector.sample(root, false) == kept
+
+    cleanup:
+    root.finish()
+    samplingTracer.close()
+
+    where:
+    sampled | firstForceKeep | kept
+    false   | true           | true
+    false   | false          | false
+    true    | false          | true
+  }
+}
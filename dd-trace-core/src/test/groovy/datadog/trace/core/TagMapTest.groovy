@@ -0,0 +1,188 @@
+package datadog.trace.core
+
+import datadog.trace.test.util.DDSpecification
+
+class TagMapTest extends DDSpecification {
+
+  def "behaves as a map"() {
+    setup:
+    def tags = new TagMap()
+    def expected = [:]
+    def random = new Random(42)
+
+    when:
+    10000.times {
+      def key = "key-" + random.nextInt(100)
+      switch (random.nextInt(4)) {
+        case 0:
+          assert tags.put(key, it) == expected.put(key, it)
+          break
+        case 1:
+          tags.set(key, (long) it)
+          expected.put(key, (long) it)
+          break
+        case 2:
+          assert tags.remove(key) == expected.remove(key)
+          break
+        default:
+          assert tags.get(key) == expected.get(key)
+      }
+    }
+
+    then:
+    tags == expected
+    tags.size() == expected.size()
+    expected.every { key, value -> tags.containsKey(key) }
+  }
+
+  def "numeric values are stored unboxed"() {
+    setup:
+    def tags = new TagMap()
+
+    when:
+    tags.set("int", 1)
+    tags.set("long", 2L)
+    tags.set("float", 3.5f)
+    tags.set("double", 4.5d)
+    tags.put("boxed", 5)
+    tags.set("string", "6")
+
+    then:
+    types(tags) == [
+      "int"   : TagMap.INT,
+      "long"  : TagMap.LONG,
+      "float" : TagMap.FLOAT,
+      "double": TagMap.DOUBLE,
+      "boxed" : TagMap.OBJECT,
+      "string": TagMap.OBJECT
+    ]
+    tags == ["int": 1, "long": 2L, "float": 3.5f, "double": 4.5d, "boxed": 5, "string": "6"]
+    tags.get("int") instanceof Integer
+    tags.get("long") instanceof Long
+    tags.get("float") instanceof Float
+    tags.get("double") instanceof Double
+    numbers(tags) == ["int", "long", "float", "double", "boxed"] as Set
+  }
+
+  def "replacing a value changes its type"() {
+    setup:
+    def tags = new TagMap()
+    tags.set("key", 1L)
+
+    when:
+    tags.put("key", "value")
+
+    then:
+    types(tags) == [key: TagMap.OBJECT]
+    tags.get("key") == "value"
+
+    when:
+    tags.set("key", 2.5d)
+
+    then:
+    types(tags) == [key: TagMap.DOUBLE]
+    tags.get("key") == 2.5d
+  }
+
+  def "unboxed values survive resizing"() {
+    setup:
+    def tags = new TagMap(1)
+
+    when:
+    100.times { tags.set("key-" + it, (long) it) }
+
+    then:
+    tags.size() == 100
+    (0..<100).every { tags.get("key-" + it) == (long) it }
+    types(tags).values().every { it == TagMap.LONG }
+  }
+
+  def "entries can be removed while iterating"() {
+    setup:
+    def tags = new TagMap()
+    10.times { tags.set("key-" + it, it) }
+
+    when:
+    def iterator = tags.entrySet().iterator()
+    while (iterator.hasNext()) {
+      if (iterator.next().value % 2 == 0) {
+        iterator.remove()
+      }
+    }
+
+    then:
+    tags == ["key-1": 1, "key-3": 3, "key-5": 5, "key-7": 7, "key-9": 9]
+  }
+
+  def "from returns tag maps as is and copies other maps"() {
+    setup:
+    def tags = new TagMap()
+
+    expect:
+    TagMap.from(tags).is(tags)
+    TagMap.from([a: 1, b: "2"]) == [a: 1, b: "2"]
+  }
+
+  def "recycled maps are emptied and stay usable"() {
+    setup:
+    def recycler = new TagMap.Recycler(4)
+    def tags = new TagMap(4, recycler)
+    tags.set("string", "value")
+    tags.set("long", 1L)
+
+    when:
+    tags.recycle()
+
+    then:
+    !tags.isRecyclable()
+    tags.isEmpty()
+    tags.get("string") == null
+    tags.firstIndex() == -1
+
+    when:
+    def other = new TagMap(4, recycler)
+    other.set("other", 2L)
+    tags.set("string", "again")
+
+    then:
+    tags == [string: "again"]
+    other == [other: 2L]
+    types(other) == [other: TagMap.LONG]
+  }
+
+  def "maps reuse the slots of recycled maps"() {
+    setup:
+    def recycler = new TagMap.Recycler(4)
+    def tags = new TagMap(4, recycler)
+    10.times { tags.set("key-" + it, (long) it) }
+    tags.recycle()
+
+    when:
+    def other = new TagMap(4, recycler)
+    10.times { other.set("other-" + it, it) }
+
+    then:
+    other.size() == 10
+    (0..<10).every { other.get("other-" + it) == it }
+    !other.containsKey("key-0")
+    types(other).values().every { it == TagMap.INT }
+  }
+
+  def types(TagMap tags) {
+    def types = [:]
+    for (int i = tags.firstIndex(); i >= 0; i = tags.nextIndex(i)) {
+      types[tags.keyAt(i)] = tags.typeAt(i)
+    }
+    return types
+  }
+
+  def numbers(TagMap tags) {
+    def numbers = [] as Set
+    for (int i = tags.firstIndex(); i >= 0; i = tags.nextIndex(i)) {
+      if (tags.isNumberAt(i)) {
+        numbers << tags.keyAt(i)
+      }
+    }
+    return numbers
+  }
+}
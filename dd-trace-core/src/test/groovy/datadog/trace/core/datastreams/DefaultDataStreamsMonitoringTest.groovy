@@ -835,6 +835,55 @@ class DefaultDataStreamsMonitoringTest extends DDCoreSpecification {
     payloadWriter.close()
     dataStreams.close()
   }
+
+  def "Sharded ingestion merges the points of all threads at bucket close"() {
+    given:
+    def conditions = new PollingConditions(timeout: 1)
+    def features = Stub(DDAgentFeaturesDiscovery) {
+      supportsDataStreams() >> true
+    }
+    def timeSource = new ControllableTimeSource()
+    def sink = Mock(Sink)
+    def payloadWriter = new CapturingPayloadWriter()
+    def traceConfig = Mock(TraceConfig) {
+      isDataStreamsEnabled() >> true
+    }
+    def threadCount = 8
+    def pointsPerThread = 100
+
+    when:
+    def dataStreams = new DefaultDataStreamsMonitoring(sink, features, timeSource, { traceConfig }, wellKnownTags, payloadWriter, DEFAULT_BUCKET_DURATION_NANOS, true)
+    dataStreams.start()
+    def threads = (1..threadCount).collect {
+      Thread.start {
+        pointsPerThread.times {
+          dataStreams.add(new StatsPoint(["type:testType", "group:testGroup", "topic:testTopic"], 1, 2, 1, timeSource.currentTimeNanos, 0, 0, 0))
+          dataStreams.add(new StatsPoint(["type:testType", "group:testGroup", "topic:otherTopic"], 3, 4, 3, timeSource.currentTimeNanos, 0, 0, 0))
+        }
+      }
+    }
+    threads*.join()
+    timeSource.advance(DEFAULT_BUCKET_DURATION_NANOS)
+    dataStreams.add(new StatsPoint(["type:testType", "group:testGroup", "topic:testTopic"], 1, 2, 1, timeSource.currentTimeNanos, 0, 0, 0))
+    dataStreams.report()
+
+    then:
+    conditions.eventually {
+      assert dataStreams.inbox.isEmpty()
+      assert dataStreams.thread.state != Thread.State.RUNNABLE
+      assert payloadWriter.buckets.size() == 1
+    }
+
+    with(payloadWriter.buckets.get(0)) {
+      groups.size() == 2
+      groups.find { it.hash == 1 }.pathwayLatency.count == threadCount * pointsPerThread
+      groups.find { it.hash == 3 }.pathwayLatency.count == threadCount * pointsPerThread
+    }
+
+    cleanup:
+    payloadWriter.close()
+    dataStreams.close()
+  }
 }
 
 class CapturingPayloadWriter implements DatastreamsPayloadWriter {
@@ -1,5 +1,7 @@
 package datadog.trace.core.datastreams
 
+import com.datadoghq.sketch.ddsketch.encoding.GrowingByteArrayOutput
+import com.datadoghq.sketch.ddsketch.encoding.VarEncodingHelper
 import datadog.communication.ddagent.DDAgentFeaturesDiscovery
 import datadog.trace.api.Config
 import datadog.trace.api.DDTraceId
@@ -7,6 +9,7 @@ import datadog.trace.api.TraceConfig
 import datadog.trace.api.WellKnownTags
 import datadog.trace.api.time.ControllableTimeSource
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation
+import datadog.trace.bootstrap.instrumentation.api.CheckpointTags
 import datadog.trace.bootstrap.instrumentation.api.PathwayContext
 import datadog.trace.bootstrap.instrumentation.api.StatsPoint
 import datadog.trace.bootstrap.instrumentation.api.TagContext
@@ -19,6 +22,7 @@ import java.util.function.Consumer
 
 import static datadog.trace.api.TracePropagationStyle.DATADOG
 import static datadog.trace.api.config.GeneralConfig.PRIMARY_TAG
+import static java.nio.charset.StandardCharsets.ISO_8859_1
 import static java.util.concurrent.TimeUnit.MILLISECONDS
 
 class DefaultPathwayContextTest extends DDCoreSpecification {
@@ -144,6 +148,103 @@ class DefaultPathwayContextTest extends DDCoreSpecification {
     }
   }
 
+  def "Checkpoints with prepared tags match checkpoints with tag maps"() {
+    given:
+    def timeSource = new ControllableTimeSource()
+    def mapContext = new DefaultPathwayContext(timeSource, baseHash)
+    def tagsContext = new DefaultPathwayContext(timeSource, baseHash)
+    def tagsConsumer = new Consumer<StatsPoint>() {
+      List<StatsPoint> points = []
+
+      @Override
+      void accept(StatsPoint point) {
+        points.add(point)
+      }
+    }
+    def checkpoints = [
+      ["direction", "out", "topic", "topic", "type", "kafka"],
+      ["direction", "in", "group", "group", "partition", "1", "topic", "topic", "type", "kafka"],
+      ["direction", "in", "group", "group", "partition", "1", "topic", "topic", "type", "kafka"],
+      ["direction", "out", "ds.name", "my_object.csv", "ds.namespace", "my_bucket", "type", "s3"],
+      ["manual_checkpoint", "true", "topic", "other", "type", "sqs"],
+      ["direction", "in", "exchange", "exchange", "has_routing_key", "true", "type", "rabbitmq"]
+    ]
+
+    when:
+    checkpoints.each { keysAndValues ->
+      timeSource.advance(MILLISECONDS.toNanos(10))
+      def sortedTags = new LinkedHashMap<String, String>()
+      for (int i = 0; i < keysAndValues.size(); i += 2) {
+        sortedTags.put(keysAndValues[i], keysAndValues[i + 1])
+      }
+      mapContext.setCheckpoint(sortedTags, pointConsumer, 0, 0)
+      tagsContext.setCheckpoint(CheckpointTags.of(keysAndValues as String[]), tagsConsumer, 0, 0)
+    }
+
+    then:
+    tagsConsumer.points.size() == checkpoints.size()
+    (0..<checkpoints.size()).every {
+      def expected = pointConsumer.points[it]
+      def actual = tagsConsumer.points[it]
+      actual.edgeTags == expected.edgeTags &&
+        actual.hash == expected.hash &&
+        actual.parentHash == expected.parentHash &&
+        actual.aggregationHash == expected.aggregationHash &&
+        actual.pathwayLatencyNano == expected.pathwayLatencyNano &&
+        actual.edgeLatencyNano == expected.edgeLatencyNano
+    }
+    tagsContext.strEncode() == mapContext.strEncode()
+  }
+
+  def "Prepared tags cache the pathway hash by parent"() {
+    given:
+    def tags = CheckpointTags.of("direction", "in", "topic", "topic", "type", "kafka")
+
+    expect:
+    tags.pathwayHash(baseHash, 1).is(tags.pathwayHash(baseHash, 1))
+    tags.pathwayHash(baseHash, 1).hash != tags.pathwayHash(baseHash, 2).hash
+    tags.pathwayHash(baseHash + 1, 1).hash != tags.pathwayHash(baseHash, 1).hash
+    tags.pathwayHash(baseHash, 1).parentHash == 1
+    tags.getDirection() == "in"
+  }
+
+  def "Encoding matches the DDSketch var long encoding"() {
+    given:
+    def output = GrowingByteArrayOutput.withInitialCapacity(20)
+    output.writeLongLE(hash)
+    VarEncodingHelper.encodeSignedVarLong(output, pathwayStartMillis)
+    VarEncodingHelper.encodeSignedVarLong(output, edgeStartMillis)
+
+    when:
+    def encoded = PathwayContextCodec.encode(hash, pathwayStartMillis, edgeStartMillis)
+    def input = PathwayContextCodec.base64(new String(encoded, ISO_8859_1))
+
+    then:
+    encoded == Base64.getEncoder().encode(output.trimmedCopy())
+    input.readLongLE() == hash
+    input.readSignedVarLong() == pathwayStartMillis
+    input.readSignedVarLong() == edgeStartMillis
+
+    where:
+    hash           | pathwayStartMillis | edgeStartMillis
+    0              | 0                  | 0
+    1              | 1                  | -1
+    -1             | 1700000000000      | 1700000000042
+    Long.MIN_VALUE | Long.MAX_VALUE     | Long.MIN_VALUE
+    123456789      | -1700000000000     | 63
+  }
+
+  def "Truncated or invalid encodings are not decoded"() {
+    when:
+    DefaultPathwayContext.strDecode(new ControllableTimeSource(), baseHash, encoded)
+
+    then:
+    thrown(IOException)
+
+    where:
+    encoded << ["", "AAAA", "AAAAAAAAAAAA====", "*AAAAAAAAAAAAAAA"]
+  }
+
   def "Exception thrown when trying to encode unstarted context"() {
     given:
     def timeSource = new ControllableTimeSource()
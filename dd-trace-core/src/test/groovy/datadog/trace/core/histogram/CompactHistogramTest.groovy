@@ -0,0 +1,169 @@
+package datadog.trace.core.histogram
+
+import com.datadoghq.sketch.ddsketch.DDSketchProtoBinding
+import com.datadoghq.sketch.ddsketch.proto.DDSketch
+import com.datadoghq.sketch.ddsketch.store.CollapsingLowestDenseStore
+import datadog.trace.test.util.DDSpecification
+
+import java.nio.ByteBuffer
+
+class CompactHistogramTest extends DDSpecification {
+
+  static final double[] QUANTILES = [0D, 0.25D, 0.5D, 0.75D, 0.9D, 0.95D, 0.99D, 1D]
+
+  def "same quantiles as the DDSketch histogram"() {
+    setup:
+    def histogram = Histograms.newHistogram()
+    def compact = Histograms.newCompactHistogram()
+    def random = new SplittableRandom(seed)
+
+    when:
+    for (int i = 0; i < count; ++i) {
+      double value = min + random.nextLong(max - min + 1)
+      histogram.accept(value)
+      compact.accept(value)
+    }
+
+    then:
+    compact.getCount() == histogram.getCount()
+    compact.getMinValue() == histogram.getMinValue()
+    compact.getMaxValue() == histogram.getMaxValue()
+    QUANTILES.every {
+      compact.getValueAtQuantile(it) == histogram.getValueAtQuantile(it)
+    }
+
+    where:
+    seed | count  | min       | max
+    0    | 1      | 100       | 100
+    1    | 100    | 1000      | 1010
+    2    | 10000  | 1000      | 1010
+    3    | 10000  | 0         | 100
+    4    | 10000  | 1_000_000 | 100_000_000
+    5    | 100000 | 1000      | 200_000
+  }
+
+  def "serialization round trip"() {
+    setup:
+    def compact = Histograms.newCompactHistogram()
+    values.each { compact.accept(it) }
+
+    when:
+    def sketch = roundTrip(compact.serialize())
+
+    then:
+    sketch.getCount() == compact.getCount()
+    QUANTILES.every {
+      sketch.getValueAtQuantile(it) == compact.getValueAtQuantile(it)
+    }
+
+    where:
+    values << [
+      [42],
+      [0, 0, 1, 5],
+      [-3, -300, 0, 7, 7000],
+      (1..5000).collect { it * 17 },
+      (1..5000).collect { it % 2 == 0 ? it : -it }
+    ]
+  }
+
+  def "empty histogram serializes the mapping only"() {
+    setup:
+    def compact = Histograms.newCompactHistogram()
+
+    when:
+    def sketch = roundTrip(compact.serialize())
+
+    then:
+    sketch.isEmpty()
+    compact.serializedSize() > 0
+  }
+
+  def "serializes into the given array at the given position"() {
+    setup:
+    def compact = Histograms.newCompactHistogram()
+    [1, 2, 3, 1000].each { compact.accept(it) }
+    int size = compact.serializedSize()
+    byte[] buffer = new byte[size + 10]
+
+    when:
+    int end = compact.serialize(buffer, 10)
+
+    then:
+    end == size + 10
+    Arrays.copyOfRange(buffer, 10, end) == compact.serialize().array()
+  }
+
+  def "cleared histogram can be reused"() {
+    setup:
+    def compact = Histograms.newCompactHistogram()
+    def fresh = Histograms.newCompactHistogram()
+    (1..10000).each { compact.accept(it) }
+
+    when:
+    compact.clear()
+
+    then:
+    compact.isEmpty()
+    compact.serialize() == fresh.serialize()
+
+    when:
+    [5, 50, 500].each {
+      compact.accept(it)
+      fresh.accept(it)
+    }
+
+    then:
+    compact.getCount() == 3
+    QUANTILES.every {
+      compact.getValueAtQuantile(it) == fresh.getValueAtQuantile(it)
+    }
+    roundTrip(compact.serialize()).getCount() == 3
+  }
+
+  def "store promotes sparse bins to dense bins"() {
+    setup:
+    def store = new CompactStore(1024)
+
+    when:
+    for (int i = 0; i < CompactStore.SPARSE_CAPACITY; ++i) {
+      store.add(i * 10, 1)
+    }
+
+    then:
+    !store.isDense()
+    store.getMinIndex() == 0
+    store.getMaxIndex() == (CompactStore.SPARSE_CAPACITY - 1) * 10
+
+    when:
+    store.add(-5, 2)
+
+    then:
+    store.isDense()
+    store.getTotalCount() == CompactStore.SPARSE_CAPACITY + 2
+    store.getMinIndex() == -5
+    store.indexAtRankAscending(1) == -5
+    store.indexAtRankAscending(2) == 0
+    store.indexAtRankDescending(0) == (CompactStore.SPARSE_CAPACITY - 1) * 10
+  }
+
+  def "store collapses the lowest bins beyond its maximum number of bins"() {
+    setup:
+    def store = new CompactStore(8)
+    for (int i = 0; i < 20; ++i) {
+      store.add(i, 1)
+    }
+
+    expect:
+    store.getTotalCount() == 20
+    store.getMinIndex() == 12
+    store.getMaxIndex() == 19
+    store.indexAtRankAscending(12) == 12
+    store.indexAtRankAscending(13) == 13
+  }
+
+  def roundTrip(ByteBuffer buffer) {
+    return DDSketchProtoBinding.fromProto({
+      new CollapsingLowestDenseStore(1024)
+    }, DDSketch.parseFrom(buffer.array()))
+  }
+}
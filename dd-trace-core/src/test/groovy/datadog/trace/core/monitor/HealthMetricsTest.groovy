@@ -415,6 +415,74 @@ class HealthMetricsTest extends DDSpecification {
     healthMetrics.close()
   }
 
+  def "test onBufferPoolAcquire"() {
+    setup:
+    def latch = new CountDownLatch(2)
+    def healthMetrics = new TracerHealthMetrics(new Latched(statsD, latch), 100, TimeUnit.MILLISECONDS)
+    healthMetrics.start()
+    when:
+    healthMetrics.onBufferPoolAcquire(true)
+    healthMetrics.onBufferPoolAcquire(true)
+    healthMetrics.onBufferPoolAcquire(false)
+    latch.await(10, TimeUnit.SECONDS)
+    then:
+    1 * statsD.count("buffer.pool.hit", 2, _)
+    1 * statsD.count("buffer.pool.miss", 1, _)
+    cleanup:
+    healthMetrics.close()
+  }
+
+  def "test onCompress"() {
+    setup:
+    def latch = new CountDownLatch(2)
+    def healthMetrics = new TracerHealthMetrics(new Latched(statsD, latch), 100, TimeUnit.MILLISECONDS)
+    healthMetrics.start()
+    when:
+    healthMetrics.onCompress(1000, 100)
+    healthMetrics.onCompress(500, 50)
+    latch.await(10, TimeUnit.SECONDS)
+    then:
+    1 * statsD.count("compression.bytes.in", 1500, _)
+    1 * statsD.count("compression.bytes.out", 150, _)
+    cleanup:
+    healthMetrics.close()
+  }
+
+  def "test onRejectedSend"() {
+    setup:
+    def latch = new CountDownLatch(1)
+    def healthMetrics = new TracerHealthMetrics(new Latched(statsD, latch), 100, TimeUnit.MILLISECONDS)
+    healthMetrics.start()
+    when:
+    healthMetrics.onRejectedSend(10)
+    healthMetrics.onRejectedSend(5)
+    latch.await(10, TimeUnit.SECONDS)
+    then:
+    1 * statsD.count("api.requests.rejected.traces", 15, _)
+    cleanup:
+    healthMetrics.close()
+  }
+
+  def "test spill"() {
+    setup:
+    def latch = new CountDownLatch(4)
+    def healthMetrics = new TracerHealthMetrics(new Latched(statsD, latch), 100, TimeUnit.MILLISECONDS)
+    healthMetrics.start()
+    when:
+    healthMetrics.onSpill(10, 1000)
+    healthMetrics.onSpill(5, 500)
+    healthMetrics.onSpillReplay(10)
+    healthMetrics.onSpillDrop(5)
+    latch.await(10, TimeUnit.SECONDS)
+    then:
+    1 * statsD.count("spill.traces", 15, _)
+    1 * statsD.count("spill.bytes", 1500, _)
+    1 * statsD.count("spill.replayed", 10, _)
+    1 * statsD.count("spill.dropped", 5, _)
+    cleanup:
+    healthMetrics.close()
+  }
+
   private static class Latched implements StatsDClient {
     final StatsDClient delegate
     final CountDownLatch latch
@@ -6,6 +6,7 @@ import datadog.trace.api.Config
 import datadog.trace.api.DDSpanId
 import datadog.trace.api.DDTraceId
 import datadog.trace.api.DynamicConfig
+import datadog.trace.bootstrap.instrumentation.api.AgentPropagation
 import datadog.trace.bootstrap.instrumentation.api.TagContext
 import datadog.trace.bootstrap.instrumentation.api.ContextVisitors
 import datadog.trace.test.util.DDSpecification
@@ -93,4 +94,36 @@ class HttpExtractorTest extends DDSpecification {
     [NONE]             | "1"               | "2"               | null              | null              | null            | null           | true             | false               | true
     // spotless:on
   }
+
+  def "headers are visited once when extracting several styles"() {
+    setup:
+    Config config = Mock(Config) {
+      getTracePropagationStylesToExtract() >> [DATADOG, B3MULTI]
+    }
+    DynamicConfig dynamicConfig = DynamicConfig.create()
+      .setHeaderTags([:])
+      .setBaggageMapping([:])
+      .apply()
+    HttpCodec.Extractor extractor = HttpCodec.createExtractor(config, { dynamicConfig.captureTraceConfig() })
+    def headers = [
+      (DatadogHttpCodec.TRACE_ID_KEY): "1",
+      (DatadogHttpCodec.SPAN_ID_KEY) : "2",
+      (B3HttpCodec.TRACE_ID_KEY)     : "a",
+      (B3HttpCodec.SPAN_ID_KEY)      : "b",
+      "some-header"                  : "ignored"
+    ]
+    def visits = 0
+    def getter = { carrier, classifier ->
+      visits++
+      ContextVisitors.stringValuesMap().forEachKey(carrier, classifier)
+    } as AgentPropagation.ContextVisitor
+
+    when:
+    def context = extractor.extract(headers, getter)
+
+    then:
+    visits == 1
+    context.traceId.toLong() == 1
+    context.spanId == 2
+  }
 }
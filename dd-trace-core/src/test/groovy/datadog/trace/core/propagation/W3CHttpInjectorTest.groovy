@@ -1,5 +1,6 @@
 package datadog.trace.core.propagation
 
+import datadog.trace.api.DD128bTraceId
 import datadog.trace.api.DDSpanId
 import datadog.trace.api.DDTraceId
 import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopPathwayContext
@@ -166,6 +167,50 @@ class W3CHttpInjectorTest extends DDCoreSpecification {
     tracer.close()
   }
 
+  def "inject traceparent with 128-bit trace id #traceId"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+    final DDSpanContext mockedContext =
+      new DDSpanContext(
+      DD128bTraceId.fromHex(traceId),
+      DDSpanId.fromHex(spanId),
+      DDSpanId.ZERO,
+      null,
+      "fakeService",
+      "fakeOperation",
+      "fakeResource",
+      samplingPriority,
+      null,
+      [:],
+      false,
+      "fakeType",
+      0,
+      tracer.traceCollectorFactory.create(DDTraceId.ONE),
+      null,
+      null,
+      NoopPathwayContext.INSTANCE,
+      false,
+      PropagationTags.factory().empty())
+    final Map<String, String> carrier = [:]
+
+    when:
+    injector.inject(mockedContext, carrier, MapSetter.INSTANCE)
+
+    then:
+    carrier[TRACE_PARENT_KEY] == traceParent
+
+    cleanup:
+    tracer.close()
+
+    where:
+    traceId                            | spanId             | samplingPriority | traceParent
+    "00000000000000000000000000000001" | "0000000000000002" | SAMPLER_KEEP     | "00-00000000000000000000000000000001-0000000000000002-01"
+    "0af7651916cd43dd8448eb211c80319c" | "b7ad6b7169203331" | SAMPLER_DROP     | "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-00"
+    "ffffffffffffffffffffffffffffffff" | "ffffffffffffffff" | USER_KEEP        | "00-ffffffffffffffffffffffffffffffff-ffffffffffffffff-01"
+    "00000000000000010000000000000000" | "0000000000000100" | UNSET            | "00-00000000000000010000000000000000-0000000000000100-00"
+  }
+
   static String buildTraceParent(String traceId, String spanId, int samplingPriority) {
     return "00-${DDTraceId.from(traceId).toHexString()}-${DDSpanId.toHexStringPadded(DDSpanId.from(spanId))}-${samplingPriority > 0 ? '01': '00'}"
   }
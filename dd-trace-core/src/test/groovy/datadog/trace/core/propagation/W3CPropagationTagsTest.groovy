@@ -46,6 +46,22 @@ class W3CPropagationTagsTest extends DDCoreSpecification {
     'k=' + 'v' * 257 + ' \t \t'       | false
   }
 
+  def "tracestate headers larger and smaller than the reused builder are encoded in turn"() {
+    setup:
+    def config = Mock(Config)
+    config.getxDatadogTagsMaxLength() >> 512
+    def propagationTagsFactory = PropagationTags.factory(config)
+    def largeHeaderValue = ['a', 'b', 'c', 'd'].collect { it + '=' + 'v' * 256 }.join(',')
+    def smallHeaderValue = 'some=thing,other=whatever'
+
+    expect:
+    largeHeaderValue.length() > 1024
+    3.times {
+      assert propagationTagsFactory.fromHeaderValue(HeaderType.W3C, smallHeaderValue).headerValue(HeaderType.W3C) == smallHeaderValue
+      assert propagationTagsFactory.fromHeaderValue(HeaderType.W3C, largeHeaderValue).headerValue(HeaderType.W3C) == largeHeaderValue
+    }
+  }
+
   def "validate tracestate header valid key contents '#headerChar'"() {
     setup:
     def config = Mock(Config)
@@ -0,0 +1,52 @@
+package datadog.trace.core.scopemanager
+
+import datadog.trace.api.config.TracerConfig
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.test.DDCoreSpecification
+
+class ScopeManagerLazyStackTest extends DDCoreSpecification {
+
+  def "scope stack is only allocated once a scope is activated"() {
+    setup:
+    injectSysConfig(TracerConfig.SCOPE_LAZY_STACKS, "true")
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+    def scopeManager = tracer.scopeManager
+    def results = [:]
+
+    when:
+    def thread = new Thread({
+      results.activeBefore = scopeManager.activeSpan()
+      scopeManager.closePrevious(true)
+      results.stackBefore = scopeManager.tlsScopeStack.get()
+
+      def parent = tracer.buildSpan("parent").start()
+      def parentScope = tracer.activateSpan(parent)
+      def child = tracer.buildSpan("child").start()
+      def childScope = tracer.activateSpan(child)
+      results.depth = scopeManager.scopeStack().depth()
+      results.activeChild = scopeManager.activeSpan() == child
+      childScope.close()
+      child.finish()
+      results.activeParent = scopeManager.activeSpan() == parent
+      parentScope.close()
+      parent.finish()
+      results.activeAfter = scopeManager.activeSpan()
+    })
+    thread.start()
+    thread.join()
+    writer.waitForTraces(1)
+
+    then:
+    results.activeBefore == null
+    results.stackBefore == null
+    results.depth == 2
+    results.activeChild
+    results.activeParent
+    results.activeAfter == null
+    writer.firstTrace().size() == 2
+
+    cleanup:
+    tracer.close()
+  }
+}
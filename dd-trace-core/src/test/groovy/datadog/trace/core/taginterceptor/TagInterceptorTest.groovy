@@ -743,4 +743,26 @@ class TagInterceptorTest extends DDCoreSpecification {
     then:
     1 * context.updateAppsecPropagation(true)
   }
+
+  def "only tags with an enabled rule or splitting the service need interception"() {
+    setup:
+    final ruleFlags = Mock(RuleFlags)
+    ruleFlags.isEnabled(_) >> { RuleFlags.Feature feature -> feature != RuleFlags.Feature.RESOURCE_NAME }
+    final interceptor = new TagInterceptor(false, "my-service", ["sn.tag1", DDTags.RESOURCE_NAME] as Set, ruleFlags)
+
+    expect:
+    interceptor.needsIntercept(tag) == expected
+    interceptor.needsIntercept(new String(tag)) == expected
+
+    where:
+    tag                   | expected
+    DDTags.SERVICE_NAME   | true
+    Tags.HTTP_URL         | true
+    Tags.DB_STATEMENT     | true
+    "sn.tag1"             | true
+    DDTags.RESOURCE_NAME  | false
+    "sn.tag2"             | false
+    Tags.COMPONENT        | false
+    "some.custom.tag"     | false
+  }
 }
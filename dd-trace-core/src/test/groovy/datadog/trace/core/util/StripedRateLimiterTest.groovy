@@ -0,0 +1,99 @@
+package datadog.trace.core.util
+
+import datadog.trace.api.time.ControllableTimeSource
+import datadog.trace.test.util.DDSpecification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class StripedRateLimiterTest extends DDSpecification {
+  def "a single thread acquires the tokens of every stripe"() {
+    setup:
+    def timeSource = new ControllableTimeSource()
+    def limiter = new StripedRateLimiter(rate, timeSource, stripes)
+
+    expect:
+    acquire(limiter, rate) == rate
+    !limiter.tryAcquire()
+
+    when:
+    timeSource.advance(TimeUnit.SECONDS.toNanos(1))
+
+    then:
+    acquire(limiter, rate) == rate
+    !limiter.tryAcquire()
+
+    where:
+    rate | stripes
+    1    | 8
+    3    | 2
+    10   | 4
+    100  | 8
+    1000 | 64
+  }
+
+  def "a thread whose stripe has run out tries the others"() {
+    setup:
+    def limiter = new StripedRateLimiter(rate, new ControllableTimeSource(), stripes)
+
+    expect:
+    rate.times {
+      assert limiter.tryAcquire(): "failed for $it"
+    }
+    !limiter.tryAcquire()
+
+    where:
+    rate | stripes
+    1    | 4
+    3    | 4
+    10   | 4
+    100  | 4
+    100  | 64
+    1000 | 64
+  }
+
+  def "concurrent threads never acquire more than the rate"() {
+    setup:
+    def timeSource = new ControllableTimeSource()
+    def limiter = new StripedRateLimiter(rate, timeSource, 8)
+    def threads = 8
+    def executor = Executors.newFixedThreadPool(threads)
+    def start = new CountDownLatch(1)
+    def acquired = new AtomicInteger()
+
+    when:
+    def futures = (1..threads).collect {
+      executor.submit {
+        start.await()
+        10000.times {
+          if (limiter.tryAcquire()) {
+            acquired.incrementAndGet()
+          }
+        }
+      }
+    }
+    start.countDown()
+    futures*.get()
+
+    then:
+    acquired.get() == rate
+
+    cleanup:
+    executor.shutdownNow()
+
+    where:
+    rate << [10, 100, 1000]
+  }
+
+  static int acquire(StripedRateLimiter limiter, int attempts) {
+    int acquired = 0
+    attempts.times {
+      if (limiter.tryAcquire()) {
+        acquired++
+      }
+    }
+    return acquired
+  }
+}
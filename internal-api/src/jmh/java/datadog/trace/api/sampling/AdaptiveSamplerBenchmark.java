@@ -34,23 +34,36 @@ public class AdaptiveSamplerBenchmark {
   @Param("500")
   long durationWindowMillis;
 
+  @Param({"false", "true"})
+  boolean striped;
+
   private AdaptiveSampler sampler;
 
   @Setup(Level.Iteration)
   public void setup() {
     int averageLookback = (int) (ITERATION_TIME_MILLIS / durationWindowMillis);
+    Duration windowDuration = Duration.of(durationWindowMillis, ChronoUnit.MILLIS);
     sampler =
-        new AdaptiveSampler(
-            Duration.of(durationWindowMillis, ChronoUnit.MILLIS),
-            samplesPerWindow,
-            averageLookback,
-            BUDGET_LOOKBACK,
-            true);
+        striped
+            ? new StripedAdaptiveSampler(
+                windowDuration, samplesPerWindow, averageLookback, BUDGET_LOOKBACK, true)
+            : new AdaptiveSampler(
+                windowDuration, samplesPerWindow, averageLookback, BUDGET_LOOKBACK, true);
   }
 
   @Threads(4)
   @Benchmark
   public boolean sample(SamplerCounters counters) {
+    return sample(sampler, counters);
+  }
+
+  @Threads(16)
+  @Benchmark
+  public boolean sample16(SamplerCounters counters) {
+    return sample(sampler, counters);
+  }
+
+  private static boolean sample(AdaptiveSampler sampler, SamplerCounters counters) {
     boolean sampled = sampler.sample();
     if (sampled) {
       ++counters.sampled;
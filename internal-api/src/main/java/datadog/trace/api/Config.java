@@ -128,6 +128,7 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_PROPAGATION_STYLE;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_RATE_LIMIT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_REPORT_HOSTNAME;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_RESOLVER_ENABLED;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_STREAMING_CHUNK_SIZE;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_X_DATADOG_TAGS_MAX_LENGTH;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_WRITER_BAGGAGE_INJECT;
 import static datadog.trace.api.DDTags.APM_ENABLED;
@@ -256,6 +257,7 @@ import static datadog.trace.api.config.GeneralConfig.DATA_JOBS_COMMAND_PATTERN;
 import static datadog.trace.api.config.GeneralConfig.DATA_JOBS_ENABLED;
 import static datadog.trace.api.config.GeneralConfig.DATA_STREAMS_BUCKET_DURATION_SECONDS;
 import static datadog.trace.api.config.GeneralConfig.DATA_STREAMS_ENABLED;
+import static datadog.trace.api.config.GeneralConfig.DATA_STREAMS_SHARDED_INGESTION_ENABLED;
 import static datadog.trace.api.config.GeneralConfig.DOGSTATSD_ARGS;
 import static datadog.trace.api.config.GeneralConfig.DOGSTATSD_HOST;
 import static datadog.trace.api.config.GeneralConfig.DOGSTATSD_NAMED_PIPE;
@@ -275,6 +277,7 @@ import static datadog.trace.api.config.GeneralConfig.RUNTIME_METRICS_ENABLED;
 import static datadog.trace.api.config.GeneralConfig.SERVICE_NAME;
 import static datadog.trace.api.config.GeneralConfig.SITE;
 import static datadog.trace.api.config.GeneralConfig.STARTUP_LOGS_ENABLED;
+import static datadog.trace.api.config.GeneralConfig.STATSD_CLIENT_PRE_AGGREGATION_ENABLED;
 import static datadog.trace.api.config.GeneralConfig.STATSD_CLIENT_QUEUE_SIZE;
 import static datadog.trace.api.config.GeneralConfig.STATSD_CLIENT_SOCKET_BUFFER;
 import static datadog.trace.api.config.GeneralConfig.STATSD_CLIENT_SOCKET_TIMEOUT;
@@ -290,6 +293,7 @@ import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_ENABLED;
 import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_IGNORED_RESOURCES;
 import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_MAX_AGGREGATES;
 import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_MAX_PENDING;
+import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_PRE_AGGREGATION_ENABLED;
 import static datadog.trace.api.config.GeneralConfig.TRACE_DEBUG;
 import static datadog.trace.api.config.GeneralConfig.TRACE_TAGS;
 import static datadog.trace.api.config.GeneralConfig.TRACE_TRIAGE;
@@ -448,6 +452,7 @@ import static datadog.trace.api.config.TracerConfig.RESPONSE_HEADER_TAGS;
 import static datadog.trace.api.config.TracerConfig.SCOPE_DEPTH_LIMIT;
 import static datadog.trace.api.config.TracerConfig.SCOPE_INHERIT_ASYNC_PROPAGATION;
 import static datadog.trace.api.config.TracerConfig.SCOPE_ITERATION_KEEP_ALIVE;
+import static datadog.trace.api.config.TracerConfig.SCOPE_LAZY_STACKS;
 import static datadog.trace.api.config.TracerConfig.SCOPE_STRICT_MODE;
 import static datadog.trace.api.config.TracerConfig.SECURE_RANDOM;
 import static datadog.trace.api.config.TracerConfig.SERVICE_MAPPING;
@@ -457,12 +462,21 @@ import static datadog.trace.api.config.TracerConfig.SPAN_TAGS;
 import static datadog.trace.api.config.TracerConfig.SPLIT_BY_TAGS;
 import static datadog.trace.api.config.TracerConfig.TRACE_128_BIT_TRACEID_GENERATION_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_ARGS;
+import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_COMPRESSION_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_DIRECT_TRANSPORT_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_MAX_IN_FLIGHT_PAYLOADS;
+import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_SPILL_DIRECTORY;
+import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_SPILL_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_SPILL_MAX_AGE;
+import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_SPILL_MAX_BYTES;
+import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_SPILL_REPLAY_RATE;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_PATH;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_PORT;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_URL;
 import static datadog.trace.api.config.TracerConfig.TRACE_ANALYTICS_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_CLIENT_IP_HEADER;
 import static datadog.trace.api.config.TracerConfig.TRACE_CLIENT_IP_RESOLVER_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_COMPRESSION_LEVEL;
 import static datadog.trace.api.config.TracerConfig.TRACE_GIT_METADATA_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_HTTP_CLIENT_PATH_RESOURCE_NAME_MAPPING;
 import static datadog.trace.api.config.TracerConfig.TRACE_HTTP_RESOURCE_REMOVE_TRAILING_SLASH;
@@ -480,11 +494,18 @@ import static datadog.trace.api.config.TracerConfig.TRACE_REMOVE_INTEGRATION_SER
 import static datadog.trace.api.config.TracerConfig.TRACE_REPORT_HOSTNAME;
 import static datadog.trace.api.config.TracerConfig.TRACE_RESOLVER_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLE_RATE;
+import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_EARLY_DROP_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_OPERATION_RULES;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_RULES;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_SERVICE_RULES;
+import static datadog.trace.api.config.TracerConfig.TRACE_SERIALIZER_SHARDS;
 import static datadog.trace.api.config.TracerConfig.TRACE_SPAN_ATTRIBUTE_SCHEMA;
+import static datadog.trace.api.config.TracerConfig.TRACE_SPAN_RECYCLING_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_STREAMING_CHUNK_SIZE;
+import static datadog.trace.api.config.TracerConfig.TRACE_STREAMING_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_STRICT_WRITES_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_WRITER_ADAPTIVE_FLUSH_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_WRITER_BUFFER_POOL_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_X_DATADOG_TAGS_MAX_LENGTH;
 import static datadog.trace.api.config.TracerConfig.WRITER_BAGGAGE_INJECT;
 import static datadog.trace.api.config.TracerConfig.WRITER_TYPE;
@@ -662,8 +683,12 @@ public class Config {
   private final boolean scopeStrictMode;
   private final boolean scopeInheritAsyncPropagation;
   private final int scopeIterationKeepAlive;
+  private final boolean scopeLazyStacks;
   private final int partialFlushMinSpans;
   private final boolean traceStrictWritesEnabled;
+  private final boolean traceSpanRecyclingEnabled;
+  private final boolean traceStreamingEnabled;
+  private final int traceStreamingChunkSize;
   private final boolean logExtractHeaderNames;
   private final Set<PropagationStyle> propagationStylesToExtract;
   private final Set<PropagationStyle> propagationStylesToInject;
@@ -680,6 +705,7 @@ public class Config {
   private final Integer statsDClientQueueSize;
   private final Integer statsDClientSocketBuffer;
   private final Integer statsDClientSocketTimeout;
+  private final boolean statsDClientPreAggregationEnabled;
 
   private final boolean runtimeMetricsEnabled;
   private final boolean jmxFetchEnabled;
@@ -704,6 +730,7 @@ public class Config {
   private final boolean tracerMetricsBufferingEnabled;
   private final int tracerMetricsMaxAggregates;
   private final int tracerMetricsMaxPending;
+  private final boolean tracerMetricsPreAggregationEnabled;
 
   private final boolean reportHostName;
 
@@ -718,6 +745,7 @@ public class Config {
   private final String traceSamplingRules;
   private final Double traceSampleRate;
   private final int traceRateLimit;
+  private final boolean traceSamplingEarlyDropEnabled;
   private final String spanSamplingRules;
   private final String spanSamplingRulesFile;
 
@@ -954,6 +982,7 @@ public class Config {
 
   private final boolean dataStreamsEnabled;
   private final float dataStreamsBucketDurationSeconds;
+  private final boolean dataStreamsShardedIngestionEnabled;
 
   private final Set<String> iastWeakHashAlgorithms;
 
@@ -995,6 +1024,18 @@ public class Config {
   private final boolean axisPromoteResourceName;
   private final float traceFlushIntervalSeconds;
   private final long tracePostProcessingTimeout;
+  private final int traceSerializerShards;
+  private final boolean traceAgentDirectTransportEnabled;
+  private final boolean traceWriterBufferPoolEnabled;
+  private final boolean traceAgentCompressionEnabled;
+  private final int traceCompressionLevel;
+  private final int traceAgentMaxInFlightPayloads;
+  private final boolean traceWriterAdaptiveFlushEnabled;
+  private final boolean traceAgentSpillEnabled;
+  private final String traceAgentSpillDirectory;
+  private final long traceAgentSpillMaxBytes;
+  private final long traceAgentSpillMaxAge;
+  private final int traceAgentSpillReplayRate;
 
   private final boolean telemetryDebugRequestsEnabled;
 
@@ -1322,6 +1363,10 @@ public class Config {
     scopeIterationKeepAlive =
         configProvider.getInteger(SCOPE_ITERATION_KEEP_ALIVE, DEFAULT_SCOPE_ITERATION_KEEP_ALIVE);
 
+    // virtual threads are where most threads never activate a scope
+    scopeLazyStacks =
+        configProvider.getBoolean(SCOPE_LAZY_STACKS, Platform.isJavaVersionAtLeast(21));
+
     boolean partialFlushEnabled = configProvider.getBoolean(PARTIAL_FLUSH_ENABLED, true);
     partialFlushMinSpans =
         !partialFlushEnabled
@@ -1329,6 +1374,13 @@ public class Config {
             : configProvider.getInteger(PARTIAL_FLUSH_MIN_SPANS, DEFAULT_PARTIAL_FLUSH_MIN_SPANS);
 
     traceStrictWritesEnabled = configProvider.getBoolean(TRACE_STRICT_WRITES_ENABLED, false);
+    traceSpanRecyclingEnabled = configProvider.getBoolean(TRACE_SPAN_RECYCLING_ENABLED, false);
+    traceStreamingEnabled = configProvider.getBoolean(TRACE_STREAMING_ENABLED, false);
+    traceStreamingChunkSize =
+        Math.max(
+            1,
+            configProvider.getInteger(
+                TRACE_STREAMING_CHUNK_SIZE, DEFAULT_TRACE_STREAMING_CHUNK_SIZE));
 
     logExtractHeaderNames =
         configProvider.getBoolean(
@@ -1438,6 +1490,8 @@ public class Config {
     statsDClientQueueSize = configProvider.getInteger(STATSD_CLIENT_QUEUE_SIZE);
     statsDClientSocketBuffer = configProvider.getInteger(STATSD_CLIENT_SOCKET_BUFFER);
     statsDClientSocketTimeout = configProvider.getInteger(STATSD_CLIENT_SOCKET_TIMEOUT);
+    statsDClientPreAggregationEnabled =
+        configProvider.getBoolean(STATSD_CLIENT_PRE_AGGREGATION_ENABLED, false);
 
     runtimeMetricsEnabled = configProvider.getBoolean(RUNTIME_METRICS_ENABLED, true);
 
@@ -1485,6 +1539,8 @@ public class Config {
         configProvider.getBoolean(TRACER_METRICS_BUFFERING_ENABLED, false);
     tracerMetricsMaxAggregates = configProvider.getInteger(TRACER_METRICS_MAX_AGGREGATES, 2048);
     tracerMetricsMaxPending = configProvider.getInteger(TRACER_METRICS_MAX_PENDING, 2048);
+    tracerMetricsPreAggregationEnabled =
+        configProvider.getBoolean(TRACER_METRICS_PRE_AGGREGATION_ENABLED, false);
 
     reportHostName =
         configProvider.getBoolean(TRACE_REPORT_HOSTNAME, DEFAULT_TRACE_REPORT_HOSTNAME);
@@ -1514,6 +1570,8 @@ public class Config {
     traceSamplingRules = configProvider.getString(TRACE_SAMPLING_RULES);
     traceSampleRate = configProvider.getDouble(TRACE_SAMPLE_RATE);
     traceRateLimit = configProvider.getInteger(TRACE_RATE_LIMIT, DEFAULT_TRACE_RATE_LIMIT);
+    traceSamplingEarlyDropEnabled =
+        configProvider.getBoolean(TRACE_SAMPLING_EARLY_DROP_ENABLED, false);
     spanSamplingRules = configProvider.getString(SPAN_SAMPLING_RULES);
     spanSamplingRulesFile = configProvider.getString(SPAN_SAMPLING_RULES_FILE);
 
@@ -2111,6 +2169,8 @@ public class Config {
     dataStreamsBucketDurationSeconds =
         configProvider.getFloat(
             DATA_STREAMS_BUCKET_DURATION_SECONDS, DEFAULT_DATA_STREAMS_BUCKET_DURATION);
+    dataStreamsShardedIngestionEnabled =
+        configProvider.getBoolean(DATA_STREAMS_SHARDED_INGESTION_ENABLED, false);
 
     azureAppServices = configProvider.getBoolean(AZURE_APP_SERVICES, false);
     traceAgentPath = configProvider.getString(TRACE_AGENT_PATH);
@@ -2199,6 +2259,59 @@ public class Config {
         configProvider.getLong(
             TRACE_POST_PROCESSING_TIMEOUT, ConfigDefaults.DEFAULT_TRACE_POST_PROCESSING_TIMEOUT);
 
+    this.traceSerializerShards =
+        Math.max(
+            1,
+            configProvider.getInteger(
+                TRACE_SERIALIZER_SHARDS, ConfigDefaults.DEFAULT_TRACE_SERIALIZER_SHARDS));
+    this.traceAgentDirectTransportEnabled =
+        configProvider.getBoolean(
+            TRACE_AGENT_DIRECT_TRANSPORT_ENABLED,
+            ConfigDefaults.DEFAULT_TRACE_AGENT_DIRECT_TRANSPORT_ENABLED);
+    this.traceWriterBufferPoolEnabled =
+        configProvider.getBoolean(
+            TRACE_WRITER_BUFFER_POOL_ENABLED,
+            ConfigDefaults.DEFAULT_TRACE_WRITER_BUFFER_POOL_ENABLED);
+    this.traceAgentCompressionEnabled =
+        configProvider.getBoolean(
+            TRACE_AGENT_COMPRESSION_ENABLED, ConfigDefaults.DEFAULT_TRACE_AGENT_COMPRESSION_ENABLED);
+    int compressionLevel =
+        configProvider.getInteger(
+            TRACE_COMPRESSION_LEVEL, ConfigDefaults.DEFAULT_TRACE_COMPRESSION_LEVEL);
+    if (compressionLevel < 1 || compressionLevel > 9) {
+      log.warn(
+          "Invalid {}: {}, must be between 1 and 9. Falling back to {}",
+          TRACE_COMPRESSION_LEVEL,
+          compressionLevel,
+          ConfigDefaults.DEFAULT_TRACE_COMPRESSION_LEVEL);
+      compressionLevel = ConfigDefaults.DEFAULT_TRACE_COMPRESSION_LEVEL;
+    }
+    this.traceCompressionLevel = compressionLevel;
+    this.traceAgentMaxInFlightPayloads =
+        Math.max(
+            0,
+            configProvider.getInteger(
+                TRACE_AGENT_MAX_IN_FLIGHT_PAYLOADS,
+                ConfigDefaults.DEFAULT_TRACE_AGENT_MAX_IN_FLIGHT_PAYLOADS));
+    this.traceWriterAdaptiveFlushEnabled =
+        configProvider.getBoolean(
+            TRACE_WRITER_ADAPTIVE_FLUSH_ENABLED,
+            ConfigDefaults.DEFAULT_TRACE_WRITER_ADAPTIVE_FLUSH_ENABLED);
+    this.traceAgentSpillEnabled =
+        configProvider.getBoolean(
+            TRACE_AGENT_SPILL_ENABLED, ConfigDefaults.DEFAULT_TRACE_AGENT_SPILL_ENABLED);
+    this.traceAgentSpillDirectory =
+        configProvider.getString(TRACE_AGENT_SPILL_DIRECTORY, getProp("java.io.tmpdir"));
+    this.traceAgentSpillMaxBytes =
+        configProvider.getLong(
+            TRACE_AGENT_SPILL_MAX_BYTES, ConfigDefaults.DEFAULT_TRACE_AGENT_SPILL_MAX_BYTES);
+    this.traceAgentSpillMaxAge =
+        configProvider.getLong(
+            TRACE_AGENT_SPILL_MAX_AGE, ConfigDefaults.DEFAULT_TRACE_AGENT_SPILL_MAX_AGE);
+    this.traceAgentSpillReplayRate =
+        configProvider.getInteger(
+            TRACE_AGENT_SPILL_REPLAY_RATE, ConfigDefaults.DEFAULT_TRACE_AGENT_SPILL_REPLAY_RATE);
+
     if (isCiVisibilityEnabled()
         && ciVisibilityAgentlessEnabled
         && (apiKey == null || apiKey.isEmpty())) {
@@ -2325,6 +2438,55 @@ public class Config {
     return tracePostProcessingTimeout;
   }
 
+  public int getTraceSerializerShards() {
+    return traceSerializerShards;
+  }
+
+  public boolean isTraceAgentDirectTransportEnabled() {
+    return traceAgentDirectTransportEnabled;
+  }
+
+  public boolean isTraceWriterBufferPoolEnabled() {
+    return traceWriterBufferPoolEnabled;
+  }
+
+  public boolean isTraceAgentCompressionEnabled() {
+    return traceAgentCompressionEnabled;
+  }
+
+  public int getTraceCompressionLevel() {
+    return traceCompressionLevel;
+  }
+
+  public int getTraceAgentMaxInFlightPayloads() {
+    return traceAgentMaxInFlightPayloads;
+  }
+
+  public boolean isTraceWriterAdaptiveFlushEnabled() {
+    return traceWriterAdaptiveFlushEnabled;
+  }
+
+  public boolean isTraceAgentSpillEnabled() {
+    return traceAgentSpillEnabled;
+  }
+
+  public String getTraceAgentSpillDirectory() {
+    return traceAgentSpillDirectory;
+  }
+
+  public long getTraceAgentSpillMaxBytes() {
+    return traceAgentSpillMaxBytes;
+  }
+
+  /** @return the age in seconds after which spilled payloads are dropped */
+  public long getTraceAgentSpillMaxAge() {
+    return traceAgentSpillMaxAge;
+  }
+
+  public int getTraceAgentSpillReplayRate() {
+    return traceAgentSpillReplayRate;
+  }
+
   public boolean isIntegrationSynapseLegacyOperationName() {
     return integrationSynapseLegacyOperationName;
   }
@@ -2517,6 +2679,10 @@ public class Config {
     return scopeIterationKeepAlive;
   }
 
+  public boolean isScopeLazyStacks() {
+    return scopeLazyStacks;
+  }
+
   public int getPartialFlushMinSpans() {
     return partialFlushMinSpans;
   }
@@ -2525,6 +2691,18 @@ public class Config {
     return traceStrictWritesEnabled;
   }
 
+  public boolean isTraceSpanRecyclingEnabled() {
+    return traceSpanRecyclingEnabled;
+  }
+
+  public boolean isTraceStreamingEnabled() {
+    return traceStreamingEnabled;
+  }
+
+  public int getTraceStreamingChunkSize() {
+    return traceStreamingChunkSize;
+  }
+
   public boolean isLogExtractHeaderNames() {
     return logExtractHeaderNames;
   }
@@ -2579,6 +2757,10 @@ public class Config {
     return statsDClientSocketTimeout;
   }
 
+  public boolean isStatsDClientPreAggregationEnabled() {
+    return statsDClientPreAggregationEnabled;
+  }
+
   public boolean isRuntimeMetricsEnabled() {
     return runtimeMetricsEnabled;
   }
@@ -2660,6 +2842,10 @@ public class Config {
     return tracerMetricsMaxPending;
   }
 
+  public boolean isTracerMetricsPreAggregationEnabled() {
+    return tracerMetricsPreAggregationEnabled;
+  }
+
   public boolean isLogsInjectionEnabled() {
     return logsInjectionEnabled;
   }
@@ -2706,6 +2892,10 @@ public class Config {
     return traceRateLimit;
   }
 
+  public boolean isTraceSamplingEarlyDropEnabled() {
+    return traceSamplingEarlyDropEnabled;
+  }
+
   public String getSpanSamplingRules() {
     return spanSamplingRules;
   }
@@ -3566,6 +3756,10 @@ public class Config {
     return TimeUnit.MILLISECONDS.toNanos(milliseconds);
   }
 
+  public boolean isDataStreamsShardedIngestionEnabled() {
+    return dataStreamsShardedIngestionEnabled;
+  }
+
   public String getTraceAgentPath() {
     return traceAgentPath;
   }
@@ -4510,10 +4704,18 @@ public class Config {
         + scopeInheritAsyncPropagation
         + ", scopeIterationKeepAlive="
         + scopeIterationKeepAlive
+        + ", scopeLazyStacks="
+        + scopeLazyStacks
         + ", partialFlushMinSpans="
         + partialFlushMinSpans
         + ", traceStrictWritesEnabled="
         + traceStrictWritesEnabled
+        + ", traceSpanRecyclingEnabled="
+        + traceSpanRecyclingEnabled
+        + ", traceStreamingEnabled="
+        + traceStreamingEnabled
+        + ", traceStreamingChunkSize="
+        + traceStreamingChunkSize
         + ", tracePropagationStylesToExtract="
         + tracePropagationStylesToExtract
         + ", tracePropagationStylesToInject="
@@ -4526,6 +4728,8 @@ public class Config {
         + jmxFetchEnabled
         + ", dogStatsDStartDelay="
         + dogStatsDStartDelay
+        + ", statsDClientPreAggregationEnabled="
+        + statsDClientPreAggregationEnabled
         + ", jmxFetchConfigDir='"
         + jmxFetchConfigDir
         + '\''
@@ -4565,6 +4769,8 @@ public class Config {
         + tracerMetricsMaxAggregates
         + ", tracerMetricsMaxPending="
         + tracerMetricsMaxPending
+        + ", tracerMetricsPreAggregationEnabled="
+        + tracerMetricsPreAggregationEnabled
         + ", reportHostName="
         + reportHostName
         + ", traceAnalyticsEnabled="
@@ -4579,6 +4785,8 @@ public class Config {
         + traceSampleRate
         + ", traceRateLimit="
         + traceRateLimit
+        + ", traceSamplingEarlyDropEnabled="
+        + traceSamplingEarlyDropEnabled
         + ", spanSamplingRules="
         + spanSamplingRules
         + ", spanSamplingRulesFile="
@@ -4716,6 +4924,31 @@ public class Config {
         + xDatadogTagsMaxLength
         + ", traceAgentV05Enabled="
         + traceAgentV05Enabled
+        + ", traceSerializerShards="
+        + traceSerializerShards
+        + ", traceAgentDirectTransportEnabled="
+        + traceAgentDirectTransportEnabled
+        + ", traceWriterBufferPoolEnabled="
+        + traceWriterBufferPoolEnabled
+        + ", traceAgentCompressionEnabled="
+        + traceAgentCompressionEnabled
+        + ", traceCompressionLevel="
+        + traceCompressionLevel
+        + ", traceAgentMaxInFlightPayloads="
+        + traceAgentMaxInFlightPayloads
+        + ", traceWriterAdaptiveFlushEnabled="
+        + traceWriterAdaptiveFlushEnabled
+        + ", traceAgentSpillEnabled="
+        + traceAgentSpillEnabled
+        + ", traceAgentSpillDirectory='"
+        + traceAgentSpillDirectory
+        + '\''
+        + ", traceAgentSpillMaxBytes="
+        + traceAgentSpillMaxBytes
+        + ", traceAgentSpillMaxAge="
+        + traceAgentSpillMaxAge
+        + ", traceAgentSpillReplayRate="
+        + traceAgentSpillReplayRate
         + ", logLevel="
         + logLevel
         + ", debugEnabled="
@@ -4810,6 +5043,8 @@ public class Config {
         + dataJobsEnabled
         + ", dataJobsCommandPattern="
         + dataJobsCommandPattern
+        + ", dataStreamsShardedIngestionEnabled="
+        + dataStreamsShardedIngestionEnabled
         + ", appSecStandaloneEnabled="
         + appSecStandaloneEnabled
         + '}';
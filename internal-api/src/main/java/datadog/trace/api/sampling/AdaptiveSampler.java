@@ -5,9 +5,10 @@ import datadog.trace.util.AgentTaskScheduler.Task;
 import java.time.Duration;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
 import javax.annotation.Nullable;
 
 /**
@@ -35,36 +36,80 @@ import javax.annotation.Nullable;
 public class AdaptiveSampler implements Sampler {
 
   private static final class Counts {
+    // each stripe of the sample counts sits on its own cache line
+    private static final int PADDING = 16;
+    // bounds the stripes tried once the thread's own stripe has used up its share
+    private static final int MAX_STOLEN_STRIPES = 3;
+    private static final LongBinaryOperator INCREMENT_UP_TO =
+        (prev, lim) -> Math.min(prev + 1, lim);
+
     private final LongAdder testCount = new LongAdder();
-    private static final AtomicLongFieldUpdater<Counts> SAMPLE_COUNT =
-        AtomicLongFieldUpdater.newUpdater(Counts.class, "sampleCount");
-    private volatile long sampleCount = 0L;
+    private final AtomicLongArray sampleCounts;
+    private final int stripes;
+
+    Counts(final int stripes) {
+      this.stripes = stripes;
+      this.sampleCounts = new AtomicLongArray((stripes - 1) * PADDING + 1);
+    }
 
     void addTest() {
       testCount.increment();
     }
 
     boolean addSample(final long limit) {
-      return SAMPLE_COUNT.getAndAccumulate(this, limit, (prev, lim) -> Math.min(prev + 1, lim))
-          < limit;
+      // the limit only changes when the window rolls, and a small one isn't worth splitting
+      if (stripes == 1 || limit < stripes) {
+        return sampleCounts.getAndAccumulate(0, limit, INCREMENT_UP_TO) < limit;
+      }
+      // each stripe gets its share of the limit, take from a few others once ours is used up
+      final int home = homeStripe();
+      if (addSample(home, limit)) {
+        return true;
+      }
+      final int others = stripes - 1;
+      final int first =
+          others > MAX_STOLEN_STRIPES ? ThreadLocalRandom.current().nextInt(others) : 0;
+      for (int i = 0; i < Math.min(others, MAX_STOLEN_STRIPES); i++) {
+        if (addSample((home + 1 + (first + i) % others) & (stripes - 1), limit)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean addSample(final int stripe, final long limit) {
+      final long stripeLimit = limit / stripes + (stripe < limit % stripes ? 1 : 0);
+      final int index = stripe * PADDING;
+      return sampleCounts.get(index) < stripeLimit
+          && sampleCounts.getAndAccumulate(index, stripeLimit, INCREMENT_UP_TO) < stripeLimit;
     }
 
     void addSample() {
-      SAMPLE_COUNT.incrementAndGet(this);
+      sampleCounts.incrementAndGet(stripes == 1 ? 0 : homeStripe() * PADDING);
     }
 
     void reset() {
       testCount.reset();
-      SAMPLE_COUNT.set(this, 0);
+      for (int i = 0; i < stripes; i++) {
+        sampleCounts.set(i * PADDING, 0);
+      }
     }
 
     long sampleCount() {
-      return SAMPLE_COUNT.get(this);
+      long sampleCount = 0;
+      for (int i = 0; i < stripes; i++) {
+        sampleCount += sampleCounts.get(i * PADDING);
+      }
+      return sampleCount;
     }
 
     long testCount() {
       return testCount.sum();
     }
+
+    private int homeStripe() {
+      return (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32) & (stripes - 1);
+    }
   }
 
   @FunctionalInterface
@@ -102,7 +147,7 @@ public class AdaptiveSampler implements Sampler {
 
   // accessed exclusively from the window maintenance task - does not require any synchronization
   private int countsSlotIdx = 0;
-  private final Counts[] countsSlots = new Counts[] {new Counts(), new Counts()};
+  private final Counts[] countsSlots;
 
   private final ConfigListener listener;
 
@@ -127,6 +172,37 @@ public class AdaptiveSampler implements Sampler {
       final @Nullable ConfigListener listener,
       final AgentTaskScheduler taskScheduler,
       boolean startSampler) {
+    this(
+        windowDuration,
+        samplesPerWindow,
+        averageLookback,
+        budgetLookback,
+        listener,
+        taskScheduler,
+        startSampler,
+        1);
+  }
+
+  /**
+   * Create a new sampler instance
+   *
+   * @param windowDuration the sampling window duration
+   * @param samplesPerWindow the maximum number of samples in the sampling window
+   * @param averageLookback the number of windows to consider in averaging the sampling rate
+   * @param budgetLookback the number of windows to consider when computing the sampling budget
+   * @param listener an optional listener receiving the sampler config changes
+   * @param taskScheduler agent task scheduler to use for periodic rolls
+   * @param stripes the number of stripes the samples are counted in, a power of two
+   */
+  protected AdaptiveSampler(
+      final Duration windowDuration,
+      final int samplesPerWindow,
+      final int averageLookback,
+      final int budgetLookback,
+      final @Nullable ConfigListener listener,
+      final AgentTaskScheduler taskScheduler,
+      boolean startSampler,
+      final int stripes) {
 
     if (averageLookback < 1) {
       throw new IllegalArgumentException("'averageLookback' argument must be at least 1");
@@ -139,6 +215,7 @@ public class AdaptiveSampler implements Sampler {
     samplesBudget = samplesPerWindow + (long) budgetLookback * samplesPerWindow;
     emaAlpha = computeIntervalAlpha(averageLookback);
     budgetAlpha = computeIntervalAlpha(budgetLookback);
+    countsSlots = new Counts[] {new Counts(stripes), new Counts(stripes)};
     countsRef = new AtomicReference<>(countsSlots[0]);
     this.listener = listener;
     if (listener != null) {
@@ -0,0 +1,69 @@
+package datadog.trace.api.sampling;
+
+import datadog.trace.util.AgentTaskScheduler;
+import java.time.Duration;
+import javax.annotation.Nullable;
+
+/**
+ * An {@link AdaptiveSampler} which counts the samples of a window in per-core stripes rather than
+ * in a single counter updated by every sampling thread.
+ *
+ * <p>Each stripe is given its share of the sampling budget, so a window yields no more samples than
+ * with a single counter. A thread whose stripe has used up its share takes samples from a few other
+ * stripes, picked at random when there are more. The stripes are summed up when the window rolls.
+ */
+public class StripedAdaptiveSampler extends AdaptiveSampler {
+
+  private static final int MAX_STRIPES = 64;
+
+  /**
+   * Create a new sampler instance with automatic window roll.
+   *
+   * @param windowDuration the sampling window duration
+   * @param samplesPerWindow the maximum number of samples in the sampling window
+   * @param averageLookback the number of windows to consider in averaging the sampling rate
+   * @param budgetLookback the number of windows to consider when computing the sampling budget
+   */
+  public StripedAdaptiveSampler(
+      final Duration windowDuration,
+      final int samplesPerWindow,
+      final int averageLookback,
+      final int budgetLookback,
+      boolean startSampler) {
+    this(
+        windowDuration,
+        samplesPerWindow,
+        averageLookback,
+        budgetLookback,
+        null,
+        AgentTaskScheduler.INSTANCE,
+        startSampler,
+        defaultStripes());
+  }
+
+  StripedAdaptiveSampler(
+      final Duration windowDuration,
+      final int samplesPerWindow,
+      final int averageLookback,
+      final int budgetLookback,
+      final @Nullable ConfigListener listener,
+      final AgentTaskScheduler taskScheduler,
+      boolean startSampler,
+      final int stripes) {
+    super(
+        windowDuration,
+        samplesPerWindow,
+        averageLookback,
+        budgetLookback,
+        listener,
+        taskScheduler,
+        startSampler,
+        stripes);
+  }
+
+  /** @return the power of two at least equal to the number of processors */
+  static int defaultStripes() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return processors <= 1 ? 1 : Math.min(Integer.highestOneBit(processors - 1) << 1, MAX_STRIPES);
+  }
+}
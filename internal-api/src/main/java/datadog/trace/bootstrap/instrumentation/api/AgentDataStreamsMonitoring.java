@@ -24,6 +24,13 @@ public interface AgentDataStreamsMonitoring extends DataStreamsCheckpointer {
       long defaultTimestamp,
       long payloadSizeBytes);
 
+  /**
+   * Sets data streams checkpoint like {@link #setCheckpoint(AgentSpan, LinkedHashMap, long, long)},
+   * with tags prepared once and reused across checkpoints.
+   */
+  void setCheckpoint(
+      AgentSpan span, CheckpointTags tags, long defaultTimestamp, long payloadSizeBytes);
+
   PathwayContext newPathwayContext();
 
   void add(StatsPoint statsPoint);
@@ -4,6 +4,7 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_ASYNC_PROPAGATING;
 import static java.util.Collections.emptyList;
 
 import datadog.trace.api.DDSpanId;
+import datadog.trace.api.DDTags;
 import datadog.trace.api.DDTraceId;
 import datadog.trace.api.EndpointCheckpointer;
 import datadog.trace.api.EndpointTracker;
@@ -552,6 +553,160 @@ public class AgentTracer {
     }
   }
 
+  /**
+   * Span of a trace which is already known to be dropped. It records nothing, but stands in for the
+   * span it was started from: it has the context of that span, which is still propagated, and the
+   * spans started from it are in the same trace. Sampling priorities and the tags overriding the
+   * sampling decision are applied to the local root span, so the trace can still be kept.
+   */
+  public static final class DroppedAgentSpan extends NoopAgentSpan {
+    private final Context context;
+    private final AgentSpan localRootSpan;
+
+    public DroppedAgentSpan(final Context context, final AgentSpan localRootSpan) {
+      this.context = context;
+      this.localRootSpan = localRootSpan;
+    }
+
+    @Override
+    public DDTraceId getTraceId() {
+      return context.getTraceId();
+    }
+
+    @Override
+    public long getSpanId() {
+      return context.getSpanId();
+    }
+
+    @Override
+    public Context context() {
+      return context;
+    }
+
+    @Override
+    public AgentSpan getLocalRootSpan() {
+      return localRootSpan;
+    }
+
+    @Override
+    public AgentSpan getRootSpan() {
+      return localRootSpan;
+    }
+
+    @Override
+    public boolean isSameTrace(final AgentSpan otherSpan) {
+      return otherSpan != null && context.getTraceId().equals(otherSpan.getTraceId());
+    }
+
+    @Override
+    public String getServiceName() {
+      return localRootSpan.getServiceName();
+    }
+
+    @Override
+    public RequestContext getRequestContext() {
+      return localRootSpan.getRequestContext();
+    }
+
+    @Override
+    public Integer forceSamplingDecision() {
+      return localRootSpan.forceSamplingDecision();
+    }
+
+    @Override
+    public Integer getSamplingPriority() {
+      return context.getSamplingPriority();
+    }
+
+    @Override
+    public TraceConfig traceConfig() {
+      return localRootSpan.traceConfig();
+    }
+
+    @Override
+    public AgentSpan setSamplingPriority(final int newPriority) {
+      localRootSpan.setSamplingPriority(newPriority);
+      return this;
+    }
+
+    @Override
+    public AgentSpan setSamplingPriority(final int newPriority, final int samplingMechanism) {
+      localRootSpan.setSamplingPriority(newPriority, samplingMechanism);
+      return this;
+    }
+
+    @Override
+    public AgentSpan setTag(final String key, final boolean value) {
+      if (isSamplingTag(key)) {
+        localRootSpan.setTag(key, value);
+      }
+      return this;
+    }
+
+    @Override
+    public AgentSpan setTag(final String key, final int value) {
+      if (isSamplingTag(key)) {
+        localRootSpan.setTag(key, value);
+      }
+      return this;
+    }
+
+    @Override
+    public AgentSpan setTag(final String key, final long value) {
+      if (isSamplingTag(key)) {
+        localRootSpan.setTag(key, value);
+      }
+      return this;
+    }
+
+    @Override
+    public AgentSpan setTag(final String key, final double value) {
+      if (isSamplingTag(key)) {
+        localRootSpan.setTag(key, value);
+      }
+      return this;
+    }
+
+    @Override
+    public AgentSpan setTag(final String key, final String value) {
+      if (isSamplingTag(key)) {
+        localRootSpan.setTag(key, value);
+      }
+      return this;
+    }
+
+    @Override
+    public AgentSpan setTag(final String key, final CharSequence value) {
+      if (isSamplingTag(key)) {
+        localRootSpan.setTag(key, value);
+      }
+      return this;
+    }
+
+    @Override
+    public AgentSpan setTag(final String key, final Object value) {
+      if (isSamplingTag(key)) {
+        localRootSpan.setTag(key, value);
+      }
+      return this;
+    }
+
+    @Override
+    public AgentSpan setTag(final String key, final Number value) {
+      if (isSamplingTag(key)) {
+        localRootSpan.setTag(key, value);
+      }
+      return this;
+    }
+
+    private static boolean isSamplingTag(final String key) {
+      return DDTags.MANUAL_KEEP.equals(key)
+          || DDTags.MANUAL_DROP.equals(key)
+          || Tags.ASM_KEEP.equals(key)
+          || Tags.SAMPLING_PRIORITY.equals(key);
+    }
+  }
+
   public static class NoopAgentSpan implements AgentSpan {
     public static final NoopAgentSpan INSTANCE = new NoopAgentSpan();
 
@@ -1098,6 +1253,10 @@ public class AgentTracer {
         long defaultTimestamp,
         long payloadSizeBytes) {}
 
+    @Override
+    public void setCheckpoint(
+        AgentSpan span, CheckpointTags tags, long defaultTimestamp, long payloadSizeBytes) {}
+
     @Override
     public PathwayContext newPathwayContext() {
       return NoopPathwayContext.INSTANCE;
@@ -1163,6 +1322,13 @@ public class AgentTracer {
     public void setCheckpoint(
         LinkedHashMap<String, String> sortedTags, Consumer<StatsPoint> pointConsumer) {}
 
+    @Override
+    public void setCheckpoint(
+        CheckpointTags tags,
+        Consumer<StatsPoint> pointConsumer,
+        long defaultTimestamp,
+        long payloadSizeBytes) {}
+
     @Override
     public void saveStats(StatsPoint point) {}
 
@@ -0,0 +1,169 @@
+package datadog.trace.bootstrap.instrumentation.api;
+
+import datadog.trace.util.FNV64Hash;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The edge tags of a data streams checkpoint, prepared once so that checkpoints with the same tags
+ * can be set without building a map and hashing the tags each time. Instances are immutable apart
+ * from a cache of the pathway hashes computed from them, and can be shared across threads, for
+ * instance held in a static field by an instrumentation.
+ */
+public final class CheckpointTags {
+
+  // the tags taking part in the pathway hash and in the aggregation hash
+  private static final Set<String> PATHWAY_TAG_KEYS =
+      new HashSet<>(Arrays.asList("group", "type", "direction", "topic", "exchange"));
+  private static final Set<String> AGGREGATION_TAG_KEYS =
+      new HashSet<>(Arrays.asList("ds.name", "ds.namespace", "manual_checkpoint"));
+
+  private static final String DIRECTION_TAG = "direction";
+
+  private static final int CACHE_SIZE = 64;
+
+  private final List<String> tags;
+  private final String[] pathwayTags;
+  private final String direction;
+  private final String aggregationPrefix;
+
+  private volatile NodeHash nodeHash;
+
+  private CheckpointTags(
+      List<String> tags, String[] pathwayTags, String direction, String aggregationPrefix) {
+    this.tags = tags;
+    this.pathwayTags = pathwayTags;
+    this.direction = direction;
+    this.aggregationPrefix = aggregationPrefix;
+  }
+
+  /**
+   * @param sortedKeysAndValues alternating tag keys and values, sorted by key; tags with a null
+   *     value are left out
+   */
+  public static CheckpointTags of(String... sortedKeysAndValues) {
+    if ((sortedKeysAndValues.length & 1) != 0) {
+      throw new IllegalArgumentException("Tag keys and values must come in pairs");
+    }
+    List<String> tags = new ArrayList<>(sortedKeysAndValues.length / 2);
+    List<String> pathwayTags = new ArrayList<>(sortedKeysAndValues.length / 2);
+    String direction = null;
+    // same hash as the data set hash built by the pathway context from the aggregation tags
+    long aggregationHash = 0;
+    for (int i = 0; i < sortedKeysAndValues.length; i += 2) {
+      String key = sortedKeysAndValues[i];
+      String value = sortedKeysAndValues[i + 1];
+      if (key == null || value == null) {
+        continue;
+      }
+      String tag = key + ":" + value;
+      if (PATHWAY_TAG_KEYS.contains(key)) {
+        pathwayTags.add(tag);
+      }
+      if (AGGREGATION_TAG_KEYS.contains(key)) {
+        aggregationHash = FNV64Hash.generateHash(aggregationHash + tag, FNV64Hash.Version.v1);
+      }
+      if (DIRECTION_TAG.equals(key)) {
+        direction = value;
+      }
+      tags.add(tag);
+    }
+    return new CheckpointTags(
+        Collections.unmodifiableList(tags),
+        pathwayTags.toArray(new String[0]),
+        direction,
+        String.valueOf(aggregationHash));
+  }
+
+  public static boolean isPathwayTagKey(String key) {
+    return PATHWAY_TAG_KEYS.contains(key);
+  }
+
+  public static boolean isAggregationTagKey(String key) {
+    return AGGREGATION_TAG_KEYS.contains(key);
+  }
+
+  /** @return the {@code key:value} tags, in the order they were given */
+  public List<String> getTags() {
+    return tags;
+  }
+
+  /** @return the value of the direction tag, or null when there is none */
+  public String getDirection() {
+    return direction;
+  }
+
+  /**
+   * @param baseHash the hash of the service, env and primary tag
+   * @param parentHash the pathway hash of the previous checkpoint, zero for the first one
+   * @return the pathway hash of a checkpoint with these tags
+   */
+  public PathwayHash pathwayHash(long baseHash, long parentHash) {
+    NodeHash nodeHash = this.nodeHash;
+    if (nodeHash == null || nodeHash.baseHash != baseHash) {
+      long hash = baseHash;
+      for (String tag : pathwayTags) {
+        hash = FNV64Hash.continueHash(hash, tag, FNV64Hash.Version.v1);
+      }
+      this.nodeHash = nodeHash = new NodeHash(baseHash, hash);
+    }
+    // the top six bits of the mixed parent hash pick one of the 64 slots
+    int slot = (int) ((parentHash * 0x9E3779B97F4A7C15L) >>> 58);
+    PathwayHash pathwayHash = nodeHash.parents[slot];
+    if (pathwayHash == null || pathwayHash.parentHash != parentHash) {
+      long hash = FNV64Hash.generateHash(nodeHash.hash, parentHash, FNV64Hash.Version.v1);
+      long aggregationHash =
+          FNV64Hash.generateHash(aggregationPrefix + hash, FNV64Hash.Version.v1);
+      // entries are immutable, so racing threads at worst compute the same entry twice
+      pathwayHash = new PathwayHash(parentHash, hash, aggregationHash);
+      nodeHash.parents[slot] = pathwayHash;
+    }
+    return pathwayHash;
+  }
+
+  @Override
+  public String toString() {
+    return "CheckpointTags" + tags;
+  }
+
+  /** The hashes of a checkpoint, as they depend on its tags and on its parent. */
+  public static final class PathwayHash {
+    private final long parentHash;
+    private final long hash;
+    private final long aggregationHash;
+
+    PathwayHash(long parentHash, long hash, long aggregationHash) {
+      this.parentHash = parentHash;
+      this.hash = hash;
+      this.aggregationHash = aggregationHash;
+    }
+
+    public long getParentHash() {
+      return parentHash;
+    }
+
+    public long getHash() {
+      return hash;
+    }
+
+    public long getAggregationHash() {
+      return aggregationHash;
+    }
+  }
+
+  private static final class NodeHash {
+    final long baseHash;
+    final long hash;
+    // pathway hashes by parent hash, a checkpoint usually only has a handful of parents
+    final PathwayHash[] parents = new PathwayHash[CACHE_SIZE];
+
+    NodeHash(long baseHash, long hash) {
+      this.baseHash = baseHash;
+      this.hash = hash;
+    }
+  }
+}
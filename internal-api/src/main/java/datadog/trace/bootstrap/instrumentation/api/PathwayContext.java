@@ -27,6 +27,12 @@ public interface PathwayContext {
   // The input tags should be sorted.
   void setCheckpoint(LinkedHashMap<String, String> sortedTags, Consumer<StatsPoint> pointConsumer);
 
+  void setCheckpoint(
+      CheckpointTags tags,
+      Consumer<StatsPoint> pointConsumer,
+      long defaultTimestamp,
+      long payloadSizeBytes);
+
   void saveStats(StatsPoint point);
 
   StatsPoint getSavedStats();
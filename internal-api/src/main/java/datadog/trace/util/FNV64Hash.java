@@ -34,6 +34,27 @@ public class FNV64Hash {
     return continueHash(FNV_INIT, data, start, length, version);
   }
 
+  /** Hashes the bytes of the two longs, least significant byte first. */
+  public static long generateHash(long first, long second, Version version) {
+    return continueHash(continueHash(FNV_INIT, first, version), second, version);
+  }
+
+  /** Continues the hash with the bytes of the long, least significant byte first. */
+  public static long continueHash(long currentHash, long data, Version version) {
+    long hash = currentHash;
+    for (int shift = 0; shift < 64; shift += 8) {
+      long b = (data >>> shift) & 0xffL;
+      if (version == Version.v1) {
+        hash *= FNV_PRIME;
+        hash ^= b;
+      } else {
+        hash ^= b;
+        hash *= FNV_PRIME;
+      }
+    }
+    return hash;
+  }
+
   public static long continueHash(
       long currentHash, byte[] data, int start, int length, Version version) {
     if (version == Version.v1) {
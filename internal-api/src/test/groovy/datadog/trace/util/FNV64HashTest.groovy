@@ -201,4 +201,22 @@ class FNV64HashTest extends DDSpecification {
     [0x07] * 500 as byte[]                                          | "0289a488a8df69d9" | "c23e9fccd6f70591"
     [0x7f] * 500 as byte[]                                          | "e6be57375ad89b99" | "39e9f18f2f85e221"
   }
+
+  def "Long test cases hash the little endian bytes"() {
+    given:
+    def bytes = java.nio.ByteBuffer.allocate(16).order(java.nio.ByteOrder.LITTLE_ENDIAN)
+      .putLong(first).putLong(second).array()
+
+    expect:
+    FNV64Hash.generateHash(first, second, version) == FNV64Hash.generateHash(bytes, version)
+    FNV64Hash.continueHash(42L, first, version) == FNV64Hash.continueHash(42L, bytes, 0, 8, version)
+
+    where:
+    first          | second         | version
+    0              | 0              | FNV64Hash.Version.v1
+    1              | -1             | FNV64Hash.Version.v1
+    0x0123456789L  | Long.MIN_VALUE | FNV64Hash.Version.v1
+    0              | 0              | FNV64Hash.Version.v1A
+    Long.MAX_VALUE | 0xfedcba98L    | FNV64Hash.Version.v1A
+  }
 }
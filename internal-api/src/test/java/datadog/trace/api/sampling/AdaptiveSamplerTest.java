@@ -280,6 +280,44 @@ class AdaptiveSamplerTest {
     assertEquals(samples, sampler.sampleCount());
   }
 
+  @Test
+  public void testStripedSamplesUpToBudget() {
+    // the initial budget is samplesPerWindow * (1 + budgetLookback)
+    final AdaptiveSampler sampler =
+        new StripedAdaptiveSampler(WINDOW_DURATION, 10, 1, 1, null, taskScheduler, true, 4);
+    int sampled = 0;
+    for (int i = 0; i < 100; i++) {
+      if (sampler.sample()) {
+        sampled++;
+      }
+    }
+    assertEquals(20, sampled);
+    assertEquals(20, sampler.sampleCount());
+    assertEquals(100, sampler.testCount());
+    assertTrue(sampler.keep());
+    assertEquals(21, sampler.sampleCount());
+    assertEquals(101, sampler.testCount());
+  }
+
+  @Test
+  public void testStripedSamplesUpToBudgetWithManyStripes() {
+    // beyond a few stripes, the ones a sample is taken from once ours is used up are picked at
+    // random, and a budget smaller than the number of stripes isn't split
+    for (int samplesPerWindow : new int[] {2, 20}) {
+      final AdaptiveSampler sampler =
+          new StripedAdaptiveSampler(
+              WINDOW_DURATION, samplesPerWindow, 1, 1, null, taskScheduler, true, 16);
+      int sampled = 0;
+      for (int i = 0; i < 10_000; i++) {
+        if (sampler.sample()) {
+          sampled++;
+        }
+      }
+      assertEquals(2 * samplesPerWindow, sampled);
+      assertEquals(2 * samplesPerWindow, sampler.sampleCount());
+    }
+  }
+
   @Test
   void testConfigListener() throws Exception {
     AtomicInteger counter = new AtomicInteger(0);
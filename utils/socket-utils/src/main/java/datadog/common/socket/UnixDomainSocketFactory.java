@@ -5,8 +5,11 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.ByteChannel;
 import javax.net.SocketFactory;
+import jnr.unixsocket.UnixSocketAddress;
 import jnr.unixsocket.UnixSocketChannel;
+import jnr.unixsocket.UnixSocketOptions;
 
 /**
  * Impersonate TCP-style SocketFactory over UNIX domain sockets.
@@ -22,6 +25,17 @@ public final class UnixDomainSocketFactory extends SocketFactory {
     this.path = path;
   }
 
+  /**
+   * Opens a connected, blocking channel to the UNIX domain socket, for callers writing directly to
+   * the channel instead of going through the {@link Socket} API.
+   */
+  public static ByteChannel openChannel(final File path, final int readTimeoutMillis)
+      throws IOException {
+    final UnixSocketChannel channel = UnixSocketChannel.open(new UnixSocketAddress(path));
+    channel.setOption(UnixSocketOptions.SO_RCVTIMEO, readTimeoutMillis);
+    return channel;
+  }
+
   @Override
   public Socket createSocket() throws IOException {
     final UnixSocketChannel channel = UnixSocketChannel.open();